@@ -0,0 +1,74 @@
+package com.hyperconix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hyperconix.game2D.Animation;
+
+/**
+ * This class is responsible for measuring Animation.update, which is called
+ * for every animated sprite every tick. Each animation is a copy of the same
+ * frames with its own timing, as the game's enemies are.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AnimationBenchmark {
+
+	/**
+	 * Responsible for storing the number of animations updated.
+	 */
+	@Param({ "16", "256", "4096" })
+	public int entities;
+
+	/**
+	 * Responsible for storing the number of frames in each animation.
+	 */
+	@Param({ "6" })
+	public int frames;
+
+	/**
+	 * Responsible for storing the animations.
+	 */
+	private Animation[] animations;
+
+	@Setup
+	public void setUp() {
+		Animation template = BenchmarkSprites.createAnimation(frames, 240);
+
+		animations = new Animation[entities];
+
+		for (int i = 0; i < entities; i++) {
+			animations[i] = new Animation(template);
+
+			// Spread them out so they are not all on the same frame
+			animations[i].update(i * 37L);
+		}
+	}
+
+	@Benchmark
+	public void update(Blackhole blackhole) {
+		for (Animation animation : animations) {
+			animation.update(10);
+
+			blackhole.consume(animation.getImage());
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.hyperconix.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class is responsible for running the benchmarks. It takes the same
+ * options as the usual JMH runner (for example a benchmark name pattern, or
+ * -p mapSize=64x15 to run one size only), but writes the results as JSON to
+ * {@value #DEFAULT_RESULT} unless -rf or -rff say otherwise, so every run
+ * leaves a file that can be kept and compared.
+ * <br><br>
+ * This should be run from the root of the repository, as the game loads its
+ * maps and images from there.
+ *
+ * @author Luke S
+ */
+public class BenchmarkMain {
+
+	/**
+	 * Responsible for storing the file the results are written to by default.
+	 */
+	public static final String DEFAULT_RESULT = "jmh-result.json";
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args JMH options
+	 * @throws Exception If the options are not valid or the benchmarks fail
+	 */
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		CommandLineOptions cmd = new CommandLineOptions(args);
+
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+
+		if (cmd.shouldList()) {
+			new Runner(cmd).list();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+
+		if (!cmd.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+
+		if (!cmd.getResult().hasValue()) {
+			options.result(DEFAULT_RESULT);
+		}
+
+		new Runner(options.build()).run();
+	}
+}
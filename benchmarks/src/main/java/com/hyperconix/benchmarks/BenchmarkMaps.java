@@ -0,0 +1,145 @@
+package com.hyperconix.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * This class is responsible for making tile maps of any size for the
+ * benchmarks. A map is written into its own temporary folder along with the
+ * tile images it uses (copied from the game's maps and images), and looks
+ * like one of the game's levels: ground along the bottom with the odd spike,
+ * and platforms with coins above them. The same size always gives the same
+ * map.
+ *
+ * @author Luke S
+ */
+public final class BenchmarkMaps {
+
+	/**
+	 * Responsible for storing the name of the map file in each folder.
+	 */
+	public static final String MAP_FILE = "map.txt";
+
+	/**
+	 * Responsible for storing the size of a tile in pixels.
+	 */
+	public static final int TILE_SIZE = 32;
+
+	private BenchmarkMaps() {
+	}
+
+	/**
+	 * This method is responsible for parsing a map size such as "256x64".
+	 *
+	 * @param size The size, width by height in tiles
+	 * @return The width and height
+	 */
+	public static int[] parseSize(String size) {
+		String[] parts = size.split("x");
+
+		return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+	}
+
+	/**
+	 * This method is responsible for writing a map of the given size into a new
+	 * temporary folder.
+	 *
+	 * @param width  The width of the map in tiles
+	 * @param height The height of the map in tiles
+	 * @return The folder holding the map, which is named {@value #MAP_FILE}
+	 * @throws IOException If the map or images cannot be written
+	 */
+	public static Path createMap(int width, int height) throws IOException {
+		Path folder = Files.createTempDirectory("punchman-bench");
+
+		Files.createDirectories(folder.resolve("tiles"));
+
+		copy("maps/tiles/2.png", folder.resolve("tiles/2.png"));
+		copy("maps/tiles/platform1.png", folder.resolve("tiles/platform1.png"));
+		copy("maps/tiles/spike.png", folder.resolve("tiles/spike.png"));
+		copy("images/Collectables/anim_coin.gif", folder.resolve("tiles/coin.gif"));
+
+		Random random = new Random(width * 31L + height);
+
+		char[][] tiles = new char[height][width];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				tiles[y][x] = '.';
+			}
+		}
+
+		for (int x = 0; x < width; x++) {
+			tiles[height - 1][x] = 'd';
+
+			if (height > 2) {
+				tiles[height - 2][x] = x % 23 == 11 ? 's' : '.';
+			}
+		}
+
+		// A platform every few tiles, with a coin or two above it
+		for (int x = 2; x + 3 < width; x += 5 + random.nextInt(4)) {
+			int y = 2 + random.nextInt(Math.max(1, height - 5));
+
+			for (int i = 0; i < 3; i++) {
+				tiles[y][x + i] = 'p';
+
+				if (y > 0 && random.nextInt(2) == 0) {
+					tiles[y - 1][x + i] = 'c';
+				}
+			}
+		}
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(folder.resolve(MAP_FILE)))) {
+			out.println(width + " " + height + " " + TILE_SIZE + " " + TILE_SIZE);
+			out.println("#d=tiles/2.png");
+			out.println("#p=tiles/platform1.png");
+			out.println("#s=tiles/spike.png");
+			out.println("#c=tiles/coin.gif");
+			out.println("+s=SOLID,DEADLY");
+			out.println("+c=COLLECTABLE");
+			out.println("@player=64,64");
+			out.println("#map");
+
+			for (char[] row : tiles) {
+				out.println(row);
+			}
+		}
+
+		return folder;
+	}
+
+	/**
+	 * This method is responsible for deleting a folder made by createMap().
+	 *
+	 * @param folder The folder to delete
+	 * @throws IOException If the folder cannot be deleted
+	 */
+	public static void delete(Path folder) throws IOException {
+		try (Stream<Path> files = Files.walk(folder)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for copying one of the game's files.
+	 */
+	private static void copy(String from, Path to) throws IOException {
+		Path source = Paths.get(from);
+
+		if (!Files.exists(source)) {
+			throw new IOException(from + " was not found, run the benchmarks from the root of the repository");
+		}
+
+		Files.copy(source, to, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
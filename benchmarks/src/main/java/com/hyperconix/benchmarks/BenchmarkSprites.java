@@ -0,0 +1,72 @@
+package com.hyperconix.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.hyperconix.game2D.Animation;
+import com.hyperconix.game2D.Sprite;
+
+/**
+ * This class is responsible for making sprites for the benchmarks. Each sprite
+ * has a plain 32 by 32 pixel animation, like the game's enemies, and sprites
+ * are scattered over an area with a fixed seed so every run uses the same
+ * positions.
+ *
+ * @author Luke S
+ */
+public final class BenchmarkSprites {
+
+	private BenchmarkSprites() {
+	}
+
+	/**
+	 * This method is responsible for making an animation with the given number of
+	 * 32 by 32 pixel frames.
+	 *
+	 * @param frames        The number of frames
+	 * @param frameDuration How long each frame is shown for in milliseconds
+	 * @return The animation
+	 */
+	public static Animation createAnimation(int frames, long frameDuration) {
+		Animation animation = new Animation();
+
+		for (int i = 0; i < frames; i++) {
+			animation.addFrame(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), frameDuration);
+		}
+
+		return animation;
+	}
+
+	/**
+	 * This method is responsible for making sprites scattered over an area.
+	 *
+	 * @param count  The number of sprites
+	 * @param width  The width of the area in pixels
+	 * @param height The height of the area in pixels
+	 * @param seed   The seed for the positions
+	 * @return The sprites
+	 */
+	public static List<Sprite> scatter(int count, int width, int height, long seed) {
+		Animation animation = createAnimation(4, 100);
+
+		Random random = new Random(seed);
+
+		List<Sprite> sprites = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			Sprite sprite = new Sprite(new Animation(animation));
+
+			sprite.setPosition(random.nextFloat() * width, random.nextFloat() * height);
+
+			sprite.setVelocity(random.nextFloat() * 0.2f - 0.1f, random.nextFloat() * 0.2f - 0.1f);
+
+			sprite.show();
+
+			sprites.add(sprite);
+		}
+
+		return sprites;
+	}
+}
@@ -0,0 +1,107 @@
+package com.hyperconix.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hyperconix.game2D.CollisionManager;
+import com.hyperconix.game2D.Sprite;
+
+/**
+ * This class is responsible for measuring the sprite to sprite tests in
+ * CollisionManager, checking one sprite (the player) against every other
+ * sprite as the game does for its enemies. The sprites are spread over an area
+ * the size of a few screens, so some of them overlap and most do not.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CollisionBenchmark {
+
+	/**
+	 * Responsible for storing the number of sprites checked against the player.
+	 */
+	@Param({ "16", "256", "4096" })
+	public int entities;
+
+	/**
+	 * Responsible for storing the collision manager being measured.
+	 */
+	private final CollisionManager collisionManager = new CollisionManager();
+
+	/**
+	 * Responsible for storing the player and the sprites it is checked against.
+	 */
+	private Sprite player;
+
+	private List<Sprite> sprites;
+
+	@Setup
+	public void setUp() {
+		sprites = BenchmarkSprites.scatter(entities, 1600, 480, 7);
+
+		player = BenchmarkSprites.scatter(1, 1600, 480, 11).get(0);
+	}
+
+	@Benchmark
+	public int boundingBox() {
+		int hits = 0;
+
+		for (int i = 0; i < sprites.size(); i++) {
+			if (collisionManager.boundingBoxCollision(player, sprites.get(i))) {
+				hits++;
+			}
+		}
+
+		return hits;
+	}
+
+	@Benchmark
+	public int boundingCircle() {
+		int hits = 0;
+
+		for (int i = 0; i < sprites.size(); i++) {
+			if (collisionManager.boundingCircleCollision(player, sprites.get(i))) {
+				hits++;
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * The test the game actually does, a box test first and a circle test only
+	 * for the sprites whose boxes overlap.
+	 */
+	@Benchmark
+	public int boxThenCircle() {
+		int hits = 0;
+
+		for (int i = 0; i < sprites.size(); i++) {
+			Sprite sprite = sprites.get(i);
+
+			if (collisionManager.boundingBoxCollision(player, sprite)
+					&& collisionManager.boundingCircleCollision(player, sprite)) {
+				hits++;
+			}
+		}
+
+		return hits;
+	}
+}
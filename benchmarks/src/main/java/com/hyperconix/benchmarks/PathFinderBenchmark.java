@@ -0,0 +1,140 @@
+package com.hyperconix.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hyperconix.game2D.NavGraph;
+import com.hyperconix.game2D.PathFinder;
+import com.hyperconix.game2D.TileMap;
+
+/**
+ * This class is responsible for measuring how long it takes to find paths
+ * across the game's own levels with a {@link PathFinder}. Paths are asked for
+ * between the same few pairs of nodes over and over, so they mostly come from
+ * the cache, and between more pairs than the cache can hold, so most of them
+ * are searched for. The last benchmark changes a tile before each path, the way a
+ * switch or a collected coin does, so the graph is rebuilt and the cache is
+ * thrown away every time.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PathFinderBenchmark {
+
+	/**
+	 * Responsible for storing the number of pairs asked for from the cache, and
+	 * the number searched for, more than the cache can hold.
+	 */
+	private static final int CACHED_PAIRS = 16, SEARCHED_PAIRS = 4096;
+
+	/**
+	 * Responsible for storing the level map the paths are found across.
+	 */
+	@Param({ "level1_map.txt", "level2_map.txt" })
+	public String mapFile;
+
+	/**
+	 * Responsible for storing the map, and the path finder searching its graph.
+	 */
+	private TileMap map;
+
+	private PathFinder finder;
+
+	/**
+	 * Responsible for storing the start and goal nodes of each pair, one after
+	 * the other.
+	 */
+	private int[] pairs;
+
+	/**
+	 * Responsible for storing the pair asked for next by each benchmark.
+	 */
+	private int cached, searched;
+
+	/**
+	 * Responsible for storing the tile that is changed, and the character it is
+	 * changed to and back from.
+	 */
+	private int editX, editY;
+
+	private char editChar, blockChar;
+
+	@Setup
+	public void setUp() {
+		map = new TileMap();
+
+		if (!map.loadMap("maps", mapFile)) {
+			throw new IllegalStateException("Failed to load " + mapFile + ", run the benchmarks from the root of the repository");
+		}
+
+		NavGraph graph = new NavGraph(map);
+
+		if (graph.getNodeCount() < 2) {
+			throw new IllegalStateException(mapFile + " has nowhere to stand");
+		}
+
+		finder = new PathFinder(graph);
+
+		Random random = new Random(mapFile.hashCode());
+
+		pairs = new int[SEARCHED_PAIRS * 2];
+
+		for (int i = 0; i < pairs.length; i++) {
+			pairs[i] = random.nextInt(graph.getNodeCount());
+		}
+
+		// A tile in the open just above the middle of the map, blocked and cleared
+		// again in turn
+		editX = map.getMapWidth() / 2;
+
+		editY = 1;
+
+		editChar = map.getTileChar(editX, editY);
+
+		blockChar = editChar == 'p' ? '.' : 'p';
+	}
+
+	@Benchmark
+	public int[] cachedPath() {
+		int i = cached;
+
+		cached = (cached + 2) % (CACHED_PAIRS * 2);
+
+		return finder.getPath(pairs[i], pairs[i + 1]);
+	}
+
+	@Benchmark
+	public int[] searchedPath() {
+		int i = searched;
+
+		searched = (searched + 2) % pairs.length;
+
+		return finder.getPath(pairs[i], pairs[i + 1]);
+	}
+
+	@Benchmark
+	public int[] pathAfterTileChange() {
+		char ch = map.getTileChar(editX, editY) == editChar ? blockChar : editChar;
+
+		map.setTileChar(ch, editX, editY);
+
+		return cachedPath();
+	}
+}
@@ -0,0 +1,131 @@
+package com.hyperconix.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hyperconix.app.PunchManWorld;
+import com.hyperconix.game2D.Sprite;
+import com.hyperconix.game2D.TileMap;
+
+/**
+ * This class is responsible for measuring PunchManWorld.checkTileCollision, the
+ * check every sprite goes through against the tile map each tick. The sprites
+ * are scattered over the map and put back where they started before each
+ * check, as a collision can move them.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TileCollisionBenchmark {
+
+	/**
+	 * Responsible for storing the size of the map, width by height in tiles.
+	 */
+	@Param({ "64x15", "1024x256" })
+	public String mapSize;
+
+	/**
+	 * Responsible for storing the number of sprites checked.
+	 */
+	@Param({ "16", "256", "4096" })
+	public int entities;
+
+	/**
+	 * Responsible for storing the folder the map was written to.
+	 */
+	private Path folder;
+
+	/**
+	 * Responsible for storing the world whose check is measured and the map the
+	 * sprites are checked against.
+	 */
+	private PunchManWorld world;
+
+	private TileMap map;
+
+	/**
+	 * Responsible for storing the sprites and where each one started.
+	 */
+	private List<Sprite> sprites;
+
+	private float[] startX, startY, startDx, startDy;
+
+	@Setup
+	public void setUp() throws IOException {
+		int[] size = BenchmarkMaps.parseSize(mapSize);
+
+		folder = BenchmarkMaps.createMap(size[0], size[1]);
+
+		map = new TileMap();
+
+		if (!map.loadMap(folder.toString(), BenchmarkMaps.MAP_FILE)) {
+			throw new IllegalStateException("Failed to load the " + mapSize + " map");
+		}
+
+		world = new PunchManWorld(800, 400, false);
+
+		sprites = BenchmarkSprites.scatter(entities, map.getPixelWidth() - 64, map.getPixelHeight() - 64, 3);
+
+		startX = new float[entities];
+		startY = new float[entities];
+		startDx = new float[entities];
+		startDy = new float[entities];
+
+		for (int i = 0; i < entities; i++) {
+			Sprite sprite = sprites.get(i);
+
+			startX[i] = sprite.getX();
+			startY[i] = sprite.getY();
+			startDx[i] = sprite.getVelocityX();
+			startDy[i] = sprite.getVelocityY();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		world.shutdown();
+
+		BenchmarkMaps.delete(folder);
+	}
+
+	@Benchmark
+	public int checkTileCollision() {
+		int onGround = 0;
+
+		for (int i = 0; i < sprites.size(); i++) {
+			Sprite sprite = sprites.get(i);
+
+			sprite.setPosition(startX[i], startY[i]);
+
+			sprite.setVelocity(startDx[i], startDy[i]);
+
+			world.checkTileCollision(sprite, map);
+
+			if (sprite.isOnGround()) {
+				onGround++;
+			}
+		}
+
+		return onGround;
+	}
+}
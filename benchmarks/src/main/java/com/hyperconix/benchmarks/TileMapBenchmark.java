@@ -0,0 +1,166 @@
+package com.hyperconix.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hyperconix.game2D.BandedRenderer;
+import com.hyperconix.game2D.Java2DRenderer;
+import com.hyperconix.game2D.Renderer;
+import com.hyperconix.game2D.SoftwareRenderer;
+import com.hyperconix.game2D.TileMap;
+
+/**
+ * This class is responsible for measuring how long it takes to draw a tile map
+ * into the game's view, and to load one from its file. Drawing is done into a
+ * headless BufferedImage the size of the game's window, scrolling across the
+ * map a little more each time as the game does. A copy of the tiles is drawn
+ * with each {@link Renderer} too, the way the game draws a snapshot.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TileMapBenchmark {
+
+	/**
+	 * Responsible for storing the size of the view drawn into, the same as the
+	 * game's window.
+	 */
+	private static final int VIEW_WIDTH = 800, VIEW_HEIGHT = 400;
+
+	/**
+	 * Responsible for storing the size of the map, width by height in tiles.
+	 */
+	@Param({ "64x15", "256x64", "1024x256" })
+	public String mapSize;
+
+	/**
+	 * Responsible for storing the folder the map was written to.
+	 */
+	private Path folder;
+
+	/**
+	 * Responsible for storing the map that is drawn, and the map that is loaded
+	 * into over and over.
+	 */
+	private TileMap map, loadedMap;
+
+	/**
+	 * Responsible for storing the image drawn into and its graphics.
+	 */
+	private BufferedImage view;
+
+	private Graphics2D g;
+
+	/**
+	 * Responsible for storing the renderers compared, all drawing into the view.
+	 */
+	private Renderer java2D, software;
+
+	private BandedRenderer banded;
+
+	/**
+	 * Responsible for storing the copy of the tiles drawn by the renderers.
+	 */
+	private char[] tiles;
+
+	/**
+	 * Responsible for storing how far across the map the view is.
+	 */
+	private int scroll;
+
+	@Setup
+	public void setUp() throws IOException {
+		int[] size = BenchmarkMaps.parseSize(mapSize);
+
+		folder = BenchmarkMaps.createMap(size[0], size[1]);
+
+		map = new TileMap();
+
+		if (!map.loadMap(folder.toString(), BenchmarkMaps.MAP_FILE)) {
+			throw new IllegalStateException("Failed to load the " + mapSize + " map");
+		}
+
+		loadedMap = new TileMap();
+
+		view = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+		g = view.createGraphics();
+
+		g.setClip(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+
+		java2D = new Java2DRenderer(g);
+
+		software = new SoftwareRenderer(view, g);
+
+		banded = new BandedRenderer(view, g, BandedRenderer.DEFAULT_BANDS);
+
+		tiles = new char[map.getMapWidth() * map.getMapHeight()];
+
+		map.copyTiles(tiles);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		banded.shutdown();
+
+		g.dispose();
+
+		BenchmarkMaps.delete(folder);
+	}
+
+	@Benchmark
+	public void draw() {
+		scroll = (scroll + 7) % Math.max(1, map.getPixelWidth() - VIEW_WIDTH);
+
+		map.draw(g, -scroll, VIEW_HEIGHT - map.getPixelHeight());
+	}
+
+	@Benchmark
+	public void drawJava2DRenderer() {
+		scroll = (scroll + 7) % Math.max(1, map.getPixelWidth() - VIEW_WIDTH);
+
+		map.draw(java2D, -scroll, VIEW_HEIGHT - map.getPixelHeight(), tiles);
+	}
+
+	@Benchmark
+	public void drawSoftwareRenderer() {
+		scroll = (scroll + 7) % Math.max(1, map.getPixelWidth() - VIEW_WIDTH);
+
+		map.draw(software, -scroll, VIEW_HEIGHT - map.getPixelHeight(), tiles);
+	}
+
+	@Benchmark
+	public void drawBandedRenderer() {
+		scroll = (scroll + 7) % Math.max(1, map.getPixelWidth() - VIEW_WIDTH);
+
+		map.draw(banded, -scroll, VIEW_HEIGHT - map.getPixelHeight(), tiles);
+
+		banded.flush();
+	}
+
+	@Benchmark
+	public boolean loadMap() {
+		return loadedMap.loadMap(folder.toString(), BenchmarkMaps.MAP_FILE);
+	}
+}
@@ -0,0 +1,73 @@
+package com.hyperconix.game2D;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class is responsible for measuring the VolumeDistorterFilterStream,
+ * filtering one buffer of 16 bit samples at a time as the sound thread does.
+ * This is in the game2D package because the filter can only be created from
+ * there.
+ *
+ * @author Luke S
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class VolumeDistorterFilterBenchmark {
+
+	/**
+	 * Responsible for storing the size of the buffer filtered in bytes.
+	 */
+	@Param({ "4096", "65536" })
+	public int bufferSize;
+
+	/**
+	 * Responsible for storing the samples read through the filter, and the buffer
+	 * they are filtered into.
+	 */
+	private ByteArrayInputStream source;
+
+	private VolumeDistorterFilterStream filter;
+
+	private byte[] buffer;
+
+	@Setup
+	public void setUp() {
+		byte[] samples = new byte[bufferSize];
+
+		new Random(5).nextBytes(samples);
+
+		source = new ByteArrayInputStream(samples);
+
+		filter = new VolumeDistorterFilterStream(source);
+
+		buffer = new byte[bufferSize];
+	}
+
+	@Benchmark
+	public byte[] read() throws IOException {
+		source.reset();
+
+		filter.read(buffer, 0, buffer.length);
+
+		return buffer;
+	}
+}
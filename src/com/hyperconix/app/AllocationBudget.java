@@ -0,0 +1,249 @@
+package com.hyperconix.app;
+
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+
+import com.hyperconix.game2D.BandedRenderer;
+import com.hyperconix.game2D.FrameProfiler;
+import com.hyperconix.game2D.InputCommand;
+import com.hyperconix.game2D.Java2DRenderer;
+import com.hyperconix.game2D.RenderState;
+import com.hyperconix.game2D.Renderer;
+import com.hyperconix.game2D.SoftwareRenderer;
+
+/**
+ * This class is responsible for checking that playing the game does not create
+ * garbage. A scripted session is played without a window or sound, running,
+ * jumping, attacking and switching levels, with each tick captured and drawn
+ * into an image the same way {@link PunchMan} draws the level. Once the game
+ * has warmed up, the bytes allocated by every tick and draw are counted, and
+ * the check fails if the average goes over the budget, so anything that starts
+ * allocating every frame is caught before it turns into GC pauses.
+ * <br><br>
+ * The bytes allocated by each stage of the tick and of drawing are printed
+ * too, to show where any garbage is coming from.
+ * <br><br>
+ * Usage:
+ * <p>
+ * AllocationBudget [-budget bytes] [-ticks n] [-warmup n] [-software] [-bands n]
+ * <p>
+ * -budget is the most bytes a tick may allocate on average (64 by default),
+ * -ticks is the number of ticks measured (20000 by default) and -warmup the
+ * number played first so the JIT has compiled the game (20000 by default).
+ * -software draws with SoftwareRenderer rather than Java2D, and -bands draws
+ * in software on n threads with BandedRenderer.
+ * The exit code is 1 if the budget was broken.
+ *
+ * @author Luke S
+ */
+public class AllocationBudget {
+
+	/**
+	 * Responsible for storing the number of ticks the script takes before it
+	 * repeats.
+	 */
+	private static final int SCRIPT_LENGTH = 200;
+
+	/**
+	 * Responsible for storing the script, as pairs of the tick within the script
+	 * and the command to submit on it.
+	 */
+	private static final int[] SCRIPT = {
+			0, InputCommand.keyPressed(KeyEvent.VK_D),
+			60, InputCommand.keyPressed(KeyEvent.VK_SPACE),
+			61, InputCommand.keyReleased(KeyEvent.VK_SPACE),
+			100, InputCommand.keyPressed(KeyEvent.VK_F),
+			101, InputCommand.keyReleased(KeyEvent.VK_F),
+			120, InputCommand.keyReleased(KeyEvent.VK_D),
+			120, InputCommand.keyPressed(KeyEvent.VK_A),
+			150, InputCommand.keyPressed(KeyEvent.VK_SPACE),
+			151, InputCommand.keyReleased(KeyEvent.VK_SPACE),
+			190, InputCommand.keyReleased(KeyEvent.VK_A),
+			195, InputCommand.keyPressed(KeyEvent.VK_E),
+			196, InputCommand.keyReleased(KeyEvent.VK_E) };
+
+	/**
+	 * Responsible for storing how many ticks apart the level is switched.
+	 */
+	private static final int LEVEL_SWITCH_TICKS = 5000;
+
+	/**
+	 * Plays the scripted session and checks the bytes it allocates.
+	 *
+	 * @param args Any options
+	 */
+	public static void main(String[] args) {
+		// There is no window, so make sure nothing tries to open one
+		System.setProperty("java.awt.headless", "true");
+
+		long budget = 64;
+
+		int ticks = 20000;
+
+		int warmup = 20000;
+
+		boolean software = false;
+
+		int bands = 1;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-budget") && i + 1 < args.length) {
+				budget = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-ticks") && i + 1 < args.length) {
+				ticks = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-warmup") && i + 1 < args.length) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-software")) {
+				software = true;
+			} else if (args[i].equals("-bands") && i + 1 < args.length) {
+				software = true;
+
+				bands = Integer.parseInt(args[++i]);
+			}
+		}
+
+		FrameProfiler profiler = new FrameProfiler("tick");
+
+		if (!profiler.setAllocationTracking(true)) {
+			System.err.println("This JVM cannot count the bytes each thread allocates");
+			System.exit(2);
+		}
+
+		int capturePhase = profiler.phase("capture");
+
+		int drawPhase = profiler.phase("draw");
+
+		PunchManWorld world = new PunchManWorld(PunchMan.SCREEN_WIDTH, PunchMan.SCREEN_HEIGHT, false);
+
+		world.setProfiler(profiler);
+
+		world.applyCommand(InputCommand.action(PunchManWorld.ACTION_PLAY));
+
+		RenderState state = new RenderState();
+
+		// The same kind of back buffer GameCore draws into
+		BufferedImage image = new BufferedImage(PunchMan.SCREEN_WIDTH, PunchMan.SCREEN_HEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+
+		Graphics2D g = image.createGraphics();
+
+		g.setClip(0, 0, PunchMan.SCREEN_WIDTH, PunchMan.SCREEN_HEIGHT);
+
+		Renderer renderer;
+
+		if (!software) {
+			renderer = new Java2DRenderer(g);
+		} else if (bands > 1) {
+			renderer = new BandedRenderer(image, g, bands);
+		} else {
+			renderer = new SoftwareRenderer(image, g);
+		}
+
+		long measuredBytes = 0;
+
+		long worstTick = 0;
+
+		for (int tick = 0; tick < warmup + ticks; tick++) {
+			submitScript(world, tick);
+
+			world.tick(PunchMan.TICK_MILLIS);
+
+			profiler.begin(capturePhase);
+
+			state.begin();
+
+			world.captureState(state);
+
+			state.end();
+
+			profiler.end(capturePhase);
+
+			profiler.begin(drawPhase);
+
+			drawLevel(renderer, state);
+
+			renderer.flush();
+
+			profiler.end(drawPhase);
+
+			profiler.endFrame();
+
+			if (tick >= warmup) {
+				long bytes = Math.max(0, profiler.getLastAllocatedBytes(FrameProfiler.FRAME));
+
+				measuredBytes += bytes;
+
+				worstTick = Math.max(worstTick, bytes);
+			}
+		}
+
+		world.shutdown();
+
+		g.dispose();
+
+		System.out.println("Drawn with " + renderer.getClass().getSimpleName());
+
+		System.out.println("Bytes allocated per tick over the last " + FrameProfiler.DEFAULT_WINDOW + " ticks:");
+
+		for (int p = 0; p < profiler.getPhaseCount(); p++) {
+			System.out.printf("  %-10s mean %6d  max %6d%n", profiler.getName(p), profiler.getAllocatedBytes(p),
+					profiler.getMaxAllocatedBytes(p));
+		}
+
+		double perTick = (double) measuredBytes / Math.max(1, ticks);
+
+		System.out.printf("%d ticks allocated %.1f bytes per tick on average, %d at most (budget %d)%n", ticks,
+				perTick, worstTick, budget);
+
+		if (perTick > budget) {
+			System.out.println("FAILED, steady state gameplay is over the allocation budget");
+			System.exit(1);
+		}
+
+		System.out.println("Passed");
+	}
+
+	/**
+	 * This method is responsible for submitting the commands the script has for
+	 * the given tick, and starting over if the game has ended.
+	 */
+	private static void submitScript(PunchManWorld world, int tick) {
+		int scriptTick = tick % SCRIPT_LENGTH;
+
+		for (int i = 0; i < SCRIPT.length; i += 2) {
+			if (SCRIPT[i] == scriptTick) {
+				world.submit(SCRIPT[i + 1]);
+			}
+		}
+
+		if (tick % LEVEL_SWITCH_TICKS == LEVEL_SWITCH_TICKS - 1) {
+			int key = (tick / LEVEL_SWITCH_TICKS) % 2 == 0 ? KeyEvent.VK_2 : KeyEvent.VK_1;
+
+			world.submit(InputCommand.keyPressed(key));
+
+			world.submit(InputCommand.keyReleased(key));
+		}
+
+		GameStatus status = world.getStatus();
+
+		if (status == GameStatus.GAME_OVER || status == GameStatus.GAME_WIN) {
+			world.submit(InputCommand.keyPressed(KeyEvent.VK_ENTER));
+
+			world.submit(InputCommand.keyReleased(KeyEvent.VK_ENTER));
+		}
+	}
+
+	/**
+	 * This method is responsible for drawing the level from a snapshot, in the
+	 * same order as {@link PunchMan#drawLevel}, leaving out the background and
+	 * HUD images which belong to the window.
+	 */
+	private static void drawLevel(Renderer renderer, RenderState state) {
+		for (int i = 0; i < state.getSpriteCount(); i++) {
+			state.drawSprite(renderer, i);
+		}
+
+		state.drawTiles(renderer);
+	}
+}
@@ -0,0 +1,52 @@
+package com.hyperconix.app;
+
+/**
+ * This class is a gameplay event for the player knocking out an enemy with an
+ * attack, posted by the sprite collision code of {@link PunchManWorld}. Events
+ * are reused every tick, see {@link com.hyperconix.game2D.EventBus}.
+ *
+ * @author Luke S
+ *
+ */
+public final class EnemyHit {
+
+	/**
+	 * Responsible for storing the index of the enemy that was hit.
+	 */
+	private int enemy;
+
+	/**
+	 * Responsible for storing where the enemy was when it was hit.
+	 */
+	private float x, y;
+
+	/**
+	 * This method is responsible for filling in the event.
+	 */
+	void set(int enemy, float x, float y) {
+		this.enemy = enemy;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * @return The index of the enemy that was hit
+	 */
+	public int getEnemy() {
+		return enemy;
+	}
+
+	/**
+	 * @return The x position of the enemy when it was hit
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * @return The y position of the enemy when it was hit
+	 */
+	public float getY() {
+		return y;
+	}
+}
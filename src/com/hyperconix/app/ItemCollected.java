@@ -0,0 +1,54 @@
+package com.hyperconix.app;
+
+/**
+ * This class is a gameplay event for the player picking up a collectable,
+ * posted by the tile collision code of {@link PunchManWorld} once the item has
+ * been taken off the map. Events are reused every tick, see
+ * {@link com.hyperconix.game2D.EventBus}.
+ *
+ * @author Luke S
+ *
+ */
+public final class ItemCollected {
+
+	/**
+	 * Responsible for storing the character of the tile that was collected, 'c'
+	 * for a coin and 'v' for a diamond.
+	 */
+	private char item;
+
+	/**
+	 * Responsible for storing the position of the tile in the map, in tiles.
+	 */
+	private int tileX, tileY;
+
+	/**
+	 * This method is responsible for filling in the event.
+	 */
+	void set(char item, int tileX, int tileY) {
+		this.item = item;
+		this.tileX = tileX;
+		this.tileY = tileY;
+	}
+
+	/**
+	 * @return The character of the tile that was collected
+	 */
+	public char getItem() {
+		return item;
+	}
+
+	/**
+	 * @return The column of the tile that was collected
+	 */
+	public int getTileX() {
+		return tileX;
+	}
+
+	/**
+	 * @return The row of the tile that was collected
+	 */
+	public int getTileY() {
+		return tileY;
+	}
+}
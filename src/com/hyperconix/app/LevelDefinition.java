@@ -0,0 +1,266 @@
+package com.hyperconix.app;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is responsible for describing one level of Punch Man: its map,
+ * music, background layers and what it takes to finish it. The levels are
+ * listed in a manifest file (maps/levels.txt) rather than in the code, so
+ * levels can be added or changed without touching the game. Where the player,
+ * enemies, switch and portal go is declared as points in the map itself.
+ * <br><br>
+ * The manifest is a list of levels, each starting with a #level line followed
+ * by key=value lines. Lines starting with // and blank lines are ignored.
+ *
+ * @author Luke S
+ */
+public final class LevelDefinition {
+
+	/**
+	 * Responsible for storing the name of the level.
+	 */
+	private final String name;
+
+	/**
+	 * Responsible for storing the folder the map is in and the name of the map
+	 * file.
+	 */
+	private final String mapFolder, mapFile;
+
+	/**
+	 * Responsible for storing the MIDI file played behind the level.
+	 */
+	private final String music;
+
+	/**
+	 * Responsible for storing the background images, farthest away first, and how
+	 * slowly each scrolls.
+	 */
+	private final String[] backgrounds;
+
+	private final int[] backgroundSpeeds;
+
+	/**
+	 * Responsible for storing the number of diamonds needed to unlock the portal.
+	 */
+	private final int diamonds;
+
+	/**
+	 * Responsible for storing the number of enemies in the level.
+	 */
+	private final int enemies;
+
+	private LevelDefinition(String name, String map, String music, List<String> backgrounds,
+			List<Integer> backgroundSpeeds, int diamonds, int enemies) {
+		int slash = map.lastIndexOf('/');
+
+		this.name = name;
+		this.mapFolder = slash < 0 ? "." : map.substring(0, slash);
+		this.mapFile = map.substring(slash + 1);
+		this.music = music;
+		this.backgrounds = backgrounds.toArray(new String[0]);
+		this.backgroundSpeeds = backgroundSpeeds.stream().mapToInt(Integer::intValue).toArray();
+		this.diamonds = diamonds;
+		this.enemies = enemies;
+	}
+
+	/**
+	 * This method is responsible for reading the levels from a manifest file.
+	 *
+	 * @param fileName The path of the manifest
+	 * @return The levels, in the order they are played
+	 * @throws IOException If the manifest cannot be read or is not valid
+	 */
+	public static List<LevelDefinition> loadManifest(String fileName) throws IOException {
+		List<LevelDefinition> levels = new ArrayList<>();
+
+		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+			String line;
+
+			int lineNumber = 0;
+
+			Builder level = null;
+
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("//")) {
+					continue;
+				}
+
+				if (line.equals("#level")) {
+					if (level != null) {
+						levels.add(level.build(fileName));
+					}
+
+					level = new Builder();
+
+					continue;
+				}
+
+				int equals = line.indexOf('=');
+
+				if (level == null || equals < 0) {
+					throw new IOException(fileName + ":" + lineNumber + ": Expected #level or key=value, got '" + line
+							+ "'");
+				}
+
+				try {
+					level.set(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+				} catch (IllegalArgumentException e) {
+					throw new IOException(fileName + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+
+			if (level != null) {
+				levels.add(level.build(fileName));
+			}
+		}
+
+		if (levels.isEmpty()) {
+			throw new IOException(fileName + ": No levels are defined");
+		}
+
+		return levels;
+	}
+
+	/**
+	 * This class collects the settings of a level as the manifest is read.
+	 */
+	private static final class Builder {
+
+		private String name = "", map, music;
+
+		private final List<String> backgrounds = new ArrayList<>();
+
+		private final List<Integer> backgroundSpeeds = new ArrayList<>();
+
+		private int diamonds = 3, enemies;
+
+		private void set(String key, String value) {
+			switch (key) {
+			case "name":
+				name = value;
+				break;
+			case "map":
+				map = value;
+				break;
+			case "music":
+				music = value;
+				break;
+			case "background":
+				int comma = value.lastIndexOf(',');
+
+				if (comma < 0) {
+					throw new IllegalArgumentException("A background needs an image and a speed");
+				}
+
+				backgrounds.add(value.substring(0, comma).trim());
+				backgroundSpeeds.add(parse(key, value.substring(comma + 1)));
+				break;
+			case "diamonds":
+				diamonds = parse(key, value);
+				break;
+			case "enemies":
+				enemies = parse(key, value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown setting '" + key + "'");
+			}
+		}
+
+		private static int parse(String key, String value) {
+			try {
+				int number = Integer.parseInt(value.trim());
+
+				if (number >= 0) {
+					return number;
+				}
+			} catch (NumberFormatException e) {
+				// Reported below
+			}
+
+			throw new IllegalArgumentException("The " + key + " must be a whole number of 0 or more");
+		}
+
+		private LevelDefinition build(String fileName) throws IOException {
+			if (map == null) {
+				throw new IOException(fileName + ": Level '" + name + "' has no map");
+			}
+
+			return new LevelDefinition(name, map, music, backgrounds, backgroundSpeeds, diamonds, enemies);
+		}
+	}
+
+	/**
+	 * @return The name of the level
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The folder the map file is in
+	 */
+	public String getMapFolder() {
+		return mapFolder;
+	}
+
+	/**
+	 * @return The name of the map file
+	 */
+	public String getMapFile() {
+		return mapFile;
+	}
+
+	/**
+	 * @return The MIDI file played behind the level, or null for none
+	 */
+	public String getMusic() {
+		return music;
+	}
+
+	/**
+	 * @return The number of background layers
+	 */
+	public int getBackgroundCount() {
+		return backgrounds.length;
+	}
+
+	/**
+	 * @param layer The layer, 0 being the farthest away
+	 * @return The image file of the layer
+	 */
+	public String getBackground(int layer) {
+		return backgrounds[layer];
+	}
+
+	/**
+	 * @param layer The layer, 0 being the farthest away
+	 * @return How slowly the layer scrolls, see
+	 *         {@link com.hyperconix.game2D.Camera#getBackgroundX}
+	 */
+	public int getBackgroundSpeed(int layer) {
+		return backgroundSpeeds[layer];
+	}
+
+	/**
+	 * @return The number of diamonds needed to unlock the portal
+	 */
+	public int getDiamonds() {
+		return diamonds;
+	}
+
+	/**
+	 * @return The number of enemies in the level
+	 */
+	public int getEnemies() {
+		return enemies;
+	}
+}
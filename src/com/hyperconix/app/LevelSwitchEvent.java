@@ -0,0 +1,53 @@
+package com.hyperconix.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for a {@link PunchManWorld}
+ * moving from one level to another, including putting the new level back to
+ * its start.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.LevelSwitch")
+@Label("Level Switch")
+@Category({ "PunchMan", "Loading" })
+@Description("Moving to a level through the portal, by skipping or by restarting")
+public class LevelSwitchEvent extends Event {
+
+	/**
+	 * Responsible for storing what caused the switch, "portal", "skip" or
+	 * "restart".
+	 */
+	@Label("Cause")
+	String cause;
+
+	/**
+	 * Responsible for storing the level switched from and to, counting from 1.
+	 */
+	@Label("From Level")
+	int from;
+
+	@Label("To Level")
+	int to;
+
+	/**
+	 * Responsible for storing the size of the new level's map in tiles.
+	 */
+	@Label("Map Width")
+	int mapWidth;
+
+	@Label("Map Height")
+	int mapHeight;
+
+	/**
+	 * Responsible for storing the number of enemies in the new level.
+	 */
+	@Label("Enemies")
+	int enemies;
+}
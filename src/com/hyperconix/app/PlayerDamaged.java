@@ -0,0 +1,45 @@
+package com.hyperconix.app;
+
+/**
+ * This class is a gameplay event for the player being hit by an enemy, posted
+ * by the sprite collision code of {@link PunchManWorld} once the hit has been
+ * taken off and the player knocked back. Events are reused every tick, see
+ * {@link com.hyperconix.game2D.EventBus}.
+ *
+ * @author Luke S
+ *
+ */
+public final class PlayerDamaged {
+
+	/**
+	 * Responsible for storing the index of the enemy that hit the player.
+	 */
+	private int enemy;
+
+	/**
+	 * Responsible for storing the hits the player has left.
+	 */
+	private int hitsLeft;
+
+	/**
+	 * This method is responsible for filling in the event.
+	 */
+	void set(int enemy, int hitsLeft) {
+		this.enemy = enemy;
+		this.hitsLeft = hitsLeft;
+	}
+
+	/**
+	 * @return The index of the enemy that hit the player
+	 */
+	public int getEnemy() {
+		return enemy;
+	}
+
+	/**
+	 * @return The hits the player has left, 0 if the hit killed them
+	 */
+	public int getHitsLeft() {
+		return hitsLeft;
+	}
+}
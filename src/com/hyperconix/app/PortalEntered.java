@@ -0,0 +1,59 @@
+package com.hyperconix.app;
+
+/**
+ * This class is a gameplay event for the player going through the portal at
+ * the end of a level, posted by {@link PunchManWorld} once the score has been
+ * added up. Events are reused every tick, see
+ * {@link com.hyperconix.game2D.EventBus}.
+ *
+ * @author Luke S
+ *
+ */
+public final class PortalEntered {
+
+	/**
+	 * Responsible for storing the level the portal was in, counting from 1.
+	 */
+	private int level;
+
+	/**
+	 * Responsible for storing the coins collected in the level.
+	 */
+	private int coins;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the portal finished
+	 * the game.
+	 */
+	private boolean won;
+
+	/**
+	 * This method is responsible for filling in the event.
+	 */
+	void set(int level, int coins, boolean won) {
+		this.level = level;
+		this.coins = coins;
+		this.won = won;
+	}
+
+	/**
+	 * @return The level the portal was in, counting from 1
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return The coins collected in the level
+	 */
+	public int getCoins() {
+		return coins;
+	}
+
+	/**
+	 * @return {@code true} if going through the portal finished the game
+	 */
+	public boolean isWon() {
+		return won;
+	}
+}
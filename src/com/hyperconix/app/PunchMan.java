@@ -4,27 +4,37 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Insets;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.util.ArrayList;
-
-import com.hyperconix.game2D.Animation;
-import com.hyperconix.game2D.CollisionManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.hyperconix.game2D.AssetPipeline;
+import com.hyperconix.game2D.Camera;
+import com.hyperconix.game2D.FramePacer;
+import com.hyperconix.game2D.FrameProfiler;
 import com.hyperconix.game2D.GameCore;
+import com.hyperconix.game2D.ImageCache;
+import com.hyperconix.game2D.ImageLoader;
+import com.hyperconix.game2D.InputCommand;
 import com.hyperconix.game2D.MIDIPlayer;
-import com.hyperconix.game2D.PlayerSprite;
-import com.hyperconix.game2D.Sound;
-import com.hyperconix.game2D.Sprite;
-import com.hyperconix.game2D.Tile;
+import com.hyperconix.game2D.RenderState;
+import com.hyperconix.game2D.Renderer;
+import com.hyperconix.game2D.ReplayLog;
+import com.hyperconix.game2D.RollingHistogram;
 import com.hyperconix.game2D.TileMap;
-import com.hyperconix.game2D.WalkingEnemy;
 
 /**
- * This class is responsible for holding the game logic and also contains the
+ * This class is responsible for showing the game and also contains the
  * entry point (main method) which is responsible for running the game loop.
  * This class extends GameCore which contains a number of the core functionality
- * and methods used within the game, provided by the game2D library.
+ * and methods used within the game, provided by the game2D library. The game
+ * logic itself lives in {@link PunchManWorld}, this class draws it and passes
+ * the player's input on to it.
  * 
  * This game contains a number of sprites which were obtained from open source
  * locations, the attributions/references for all of these can be found in the
@@ -39,27 +49,12 @@ public class PunchMan extends GameCore implements MouseListener {
 	/**
 	 * Responsible for storing the width of the game window.
 	 */
-	private static final int SCREEN_WIDTH = 800;
+	static final int SCREEN_WIDTH = 800;
 
 	/**
 	 * Responsible for storing the height of the game window.
 	 */
-	private static final int SCREEN_HEIGHT = 400;
-	
-	/**
-	 * Responsible for storing the number of enemies
-	 */
-	private static final int ENEMY_NO = 2;
-
-	/**
-	 * Responsible for storing the players starting x value.
-	 */
-	private float startingX = 64;
-
-	/**
-	 * Responsible for storing the players starting y value.
-	 */
-	private float startingY = 138;
+	static final int SCREEN_HEIGHT = 400;
 
 	/**
 	 * Responsible for storing the exit button x coord for the menu/pause screen.
@@ -87,161 +82,165 @@ public class PunchMan extends GameCore implements MouseListener {
 	private static final String DEFAULT_UI_FONT = "Consolas"; 
 
 	/**
-	 * Responsible for storing the current coin count for the level.
-	 */
-	private int coinCount;
-
-	/**
-	 * Responsible for storing a float which represents the lift of the player when
-	 * gravity is applied.
-	 */
-	private float lift = -0.12f;
-
-	/*
-	 * 8 Responsible for storing the background MIDIPlayer used for the background
-	 * music.
-	 */
-	private MIDIPlayer backgroundPlayer;
-
-	/**
-	 * Responsible for storing the current status of the game.
-	 */
-	private GameStatus currentStatus;
-
-	/**
-	 * Responsible for storing the current level of the game.
-	 */
-	private Level currentLevel;
-
-	/**
-	 * Responsible for storing an enum which represents the levels in the game.
-	 *
+	 * Responsible for storing the fonts used by the UI. These are made once
+	 * rather than every time a screen is drawn.
 	 */
-	private enum Level {
-		LEVEL_1, LEVEL_2
-	}
+	private static final Font TITLE_FONT = new Font(DEFAULT_UI_FONT, Font.BOLD, 60),
+			MESSAGE_FONT = new Font(DEFAULT_UI_FONT, Font.BOLD, 30), HUD_FONT = new Font("Arial", Font.BOLD, 20);
 
 	/**
-	 * Responsible for storing a float which represents the gravity of the player.
+	 * Responsible for storing the font the frame time graphs are labelled in.
 	 */
-	private float gravity = 0.0003f;
+	private static final Font PROFILER_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
 
 	/**
-	 * Responsible for storing a flag which indicates whether or not debug mode is
-	 * enabled.
-	 * 
-	 * @see PunchMan#enableDebugMode()
+	 * Responsible for storing the files the frame time profiles are dumped to
+	 * when F12 is pressed.
 	 */
-	private boolean debugMode = false;
+	private static final File FRAME_PROFILE = new File("frame-profile.csv"),
+			UPDATE_PROFILE = new File("update-profile.csv");
 
 	/**
-	 * Responsible for storing a flag which indicates whether the player is in the
-	 * portal bounds or not.
+	 * Responsible for storing the UI Images for the UI elements of the game.
 	 */
-	private boolean inPortalBounds = false;
+	private Image UICoin, UIHeart, UILife, UIDiamond, UIBackground, UIPlay, UIExit;
 
 	/**
-	 * Responsible for storing a flag which indicates whether the player is in the
-	 * bounds of the switch or not.
-	 */
-	private boolean inSwitchBounds = false;
-	
-	/**
-	 * Responsible for storing a flag which indicates whether the switch (if there is one) is flipped
+	 * Responsible for storing the coin counter shown on the HUD, which is only
+	 * made again when the coins it shows change.
 	 */
-	private boolean switchFlipped = false;
-	
-	/**
-	 * Responsible for storing a flag which which represents whether the background music should be muted.
-	 */
-	private boolean muteBackgroundMusic = false;
+	private String coinText = "";
 
-	/**
-	 * Responsible for storing the Sprite that represents the player.
-	 */
-	private PlayerSprite player;
+	private long shownCoins = -1, shownCoinTotal = -1;
 
 	/**
-	 * Responsible for storing the list of enemies.
+	 * Responsible for storing the total score shown when the game is won, which is
+	 * only made again when the total changes.
 	 */
-	private ArrayList<WalkingEnemy> enemies;
+	private String totalText = "";
 
-	/**
-	 * Responsible for storing the portal sprite.
-	 */
-	private Sprite portal;
+	private long shownTotal = -1;
 
 	/**
-	 * Responsible for storing the switch sprite.
+	 * Responsible for storing the length of a game tick in milliseconds.
 	 */
-	private Sprite switchSprite;
+	static final int TICK_MILLIS = 10;
 
 	/**
-	 * Responsible for storing the players animations.
+	 * Responsible for storing the game itself. This class only draws it and
+	 * passes input on to it. This is null until the game's assets have loaded,
+	 * which they carry on doing while the menu is shown.
 	 */
-	private Animation playerMove, playerIdle, playerAttack;
+	private volatile PunchManWorld world;
 
 	/**
-	 * Responsible for storing the blue spike enemies animation. This enemy only ha
-	 * a move animation.
+	 * Responsible for storing the task making the game on the asset pipeline,
+	 * which the thread running the game picks it up from.
 	 */
-	private Animation blueSpikeMove;
+	private AssetPipeline.Task<PunchManWorld> loadingWorld;
 
 	/**
-	 * Responsible for storing the portal animations. Portals are used to traverse
-	 * levels, and complete the game if it is the last level.
+	 * Responsible for storing the recording to hand to the game when it is
+	 * picked up, or null if the session is not being recorded.
 	 */
-	private Animation portalAnimation;
+	private volatile ReplayLog recording;
 
 	/**
-	 * Responsible for storing the switch animations. Switches are used to change
-	 * certain things in the environment. Such as revealing platforms or gems.
+	 * Responsible for storing the pipeline the game's assets are loaded through.
 	 */
-	private Animation switchAnimation;
+	private AssetPipeline pipeline;
 
 	/**
-	 * Responsible for storing the level 1 tile map, this is loaded in the init.
+	 * Responsible for storing the cache of decoded images, which is saved once
+	 * the game has loaded and again when it exits.
 	 */
-	private TileMap level1Map = new TileMap();
+	private ImageCache imageCache;
 
 	/**
-	 * Responsible for storing the level 2 tile map. This will be loaded when the
-	 * player completes the first level and passes through the portal.
+	 * Responsible for storing flags which indicate whether the first frame has
+	 * been drawn and whether the startup timeline has been printed.
 	 */
-	private TileMap level2Map = new TileMap();
+	private boolean firstFrameDrawn, startupReported;
 
 	/**
-	 * Responsible for storing the current map. This will be changed depending on
-	 * what level the player is currently on.
+	 * Responsible for storing the snapshot used when update and draw run on the
+	 * same thread. In pipelined mode GameCore hands its own snapshots to
+	 * drawState instead.
 	 */
-	private TileMap currentMap;
+	private final RenderState frameState = new RenderState();
 
 	/**
-	 * Responsible for storing the total score for the player.
+	 * Responsible for storing the ids of the stages of drawing a level in the
+	 * frame profiler.
 	 */
-	private long total;
+	private int tilesPhase, spritesPhase, hudPhase;
 
 	/**
-	 * Responsible for storing the Collision Manager for the game.
-	 */
-	private CollisionManager collisionManager;
-	
-	/**
-	 * Responsible for storing the UI Images for the UI elements of the game.
+	 * Responsible for storing how many times bigger than the game is drawn the
+	 * window starts.
 	 */
-	private Image UICoin, UIHeart, UILife, UIDiamond, UIBackground, UIPlay, UIExit;
+	private int windowScale = 1;
 
 	/**
 	 * The obligatory main method that creates an instance of our class and starts
 	 * it running
 	 *
-	 * @param args The list of parameters this program might use (ignored)
+	 * @param args -pipelined to run update and draw on separate threads,
+	 *             -record followed by a file name to record the session, and
+	 *             -allocations to count the bytes allocated in each phase of a
+	 *             frame, shown on the debug graphs, -software to draw the
+	 *             level with SoftwareRenderer rather than Java2D, -bands
+	 *             followed by the number of threads to draw it on, -scale
+	 *             followed by how many times bigger to start the window, and
+	 *             -fps followed by the number of frames to draw a second (0 for
+	 *             as many as possible, the refresh rate of the display if not
+	 *             given)
 	 */
 	public static void main(String[] args) {
 		PunchMan gct = new PunchMan();
 
+		List<String> arguments = Arrays.asList(args);
+
+		// Run update and draw on separate threads when asked to
+		gct.setPipelined(arguments.contains("-pipelined"));
+
+		gct.setSoftwareRendering(arguments.contains("-software"));
+
+		int bands = arguments.indexOf("-bands");
+
+		if (bands >= 0 && bands + 1 < args.length) {
+			gct.setRenderBands(Integer.parseInt(args[bands + 1]));
+		}
+
+		int fps = arguments.indexOf("-fps");
+
+		if (fps >= 0 && fps + 1 < args.length) {
+			gct.setTargetFps(Integer.parseInt(args[fps + 1]));
+		}
+
+		int scale = arguments.indexOf("-scale");
+
+		if (scale >= 0 && scale + 1 < args.length) {
+			gct.windowScale = Math.max(1, Integer.parseInt(args[scale + 1]));
+		}
+
+		if (arguments.contains("-allocations")) {
+			gct.getProfiler().setAllocationTracking(true);
+
+			gct.getUpdateProfiler().setAllocationTracking(true);
+		}
+
+		// Every update is one fixed tick, so a session can be recorded and replayed
+		gct.setFixedTimestep(TICK_MILLIS);
+
 		gct.init();
 
+		int record = arguments.indexOf("-record");
+
+		if (record >= 0 && record + 1 < args.length) {
+			gct.startRecording(new File(args[record + 1]));
+		}
+
 		// Start in windowed mode with the given screen height and width
 		gct.run(false, SCREEN_WIDTH, SCREEN_HEIGHT);
 	}
@@ -252,20 +251,70 @@ public class PunchMan extends GameCore implements MouseListener {
 	 */
 	public void init() {
 
-		collisionManager = new CollisionManager('.');
+		pipeline = new AssetPipeline(AssetPipeline.DEFAULT_THREADS);
+
+		// Images decoded on an earlier launch are copied out of the cache instead
+		imageCache = new ImageCache(ImageCache.DEFAULT_FILE);
 
-		currentStatus = GameStatus.GAME_MENU;
+		ImageLoader.useCache(imageCache);
 
-		currentLevel = Level.LEVEL_1;
+		// The menu only needs its own images, so it is shown as soon as they have
+		// loaded while everything else carries on loading behind it
+		AssetPipeline.Task<Image> background = loadImageTask("images/Backgrounds/title_screen.png"),
+				play = loadImageTask("images/UI/play_button.png"), exit = loadImageTask("images/UI/exit_button.png");
 
-		backgroundPlayer = new MIDIPlayer("sounds/004AdventureScores(Free)140BPM2-4GMinor.mid");
+		AssetPipeline.Task<Image> coin = loadImageTask("images/UI/coin_element.png"),
+				heart = loadImageTask("images/UI/heart_element.png"),
+				life = loadImageTask("images/UI/life_element.png"),
+				diamond = loadImageTask("images/UI/gem_element.png");
 
-		// Load the tile map and print it out so we can check it is valid
-		level1Map.loadMap("maps", "level1_map.txt");
+		PunchManAssets assets = new PunchManAssets(PunchManAssets.LEVEL_MANIFEST, pipeline);
 
-		level2Map.loadMap("maps", "level2_map.txt");
+		// Opening the MIDI system takes a while, so the first level's music is made
+		// ready alongside the images
+		String music = assets.getLevel(0).getMusic();
 
-		currentMap = level1Map;
+		AssetPipeline.Task<MIDIPlayer> musicPlayer = pipeline.submit("music " + music,
+				() -> music == null ? null : new MIDIPlayer(music));
+
+		loadingWorld = pipeline.submit("world", () -> {
+			PunchManWorld loaded = new PunchManWorld(assets, null, SCREEN_WIDTH, SCREEN_HEIGHT, true);
+
+			loaded.setBackgroundPlayer(musicPlayer.get());
+
+			UICoin = coin.get();
+			UIHeart = heart.get();
+			UILife = life.get();
+			UIDiamond = diamond.get();
+
+			return loaded;
+		}, assets.getReady(), musicPlayer, coin, heart, life, diamond);
+
+		// Save the images decoded for the menu and first level straight away, and
+		// any decoded later when the game exits
+		pipeline.submit("image cache", () -> {
+			saveImageCache();
+
+			return null;
+		}, loadingWorld);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(this::saveImageCache, "PunchMan-SaveImageCache"));
+
+		UIBackground = background.get();
+		UIPlay = play.get();
+		UIExit = exit.get();
+
+		// Time the stages of drawing a level on the thread that draws, the stages of
+		// each tick are timed once the game has been picked up
+		tilesPhase = getProfiler().phase("tiles");
+
+		spritesPhase = getProfiler().phase("sprites");
+
+		hudPhase = getProfiler().phase("HUD");
+
+		// The window is sized to the first map, which loads well before the rest of
+		// the first level
+		TileMap currentMap = assets.getMapTask(0).get();
 
 		// Defining some offsets to position adjust the size
 
@@ -275,69 +324,147 @@ public class PunchMan extends GameCore implements MouseListener {
 
 		setSize(currentMap.getPixelWidth() / widthOffset, currentMap.getPixelHeight() - heightOffset);
 
+		// The game is always drawn at this size and scaled up to fit the window, so
+		// the window can be any size without making a frame cost more
+		setRenderSize(getWidth(), getHeight());
+
 		setVisible(true);
 
-		setResizable(false);
+		setResizable(true);
+
+		if (windowScale > 1) {
+			Insets insets = getInsets();
+
+			setSize(insets.left + insets.right + (getWidth() - insets.left - insets.right) * windowScale,
+					insets.top + insets.bottom + (getHeight() - insets.top - insets.bottom) * windowScale);
+		}
 
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
 
 		addMouseListener(this);
 
-		setAnimations();
+		pipeline.mark("window shown");
 
-		loadGameImages();
+		// Print the tile map out so we can check it is valid
+		System.out.println(currentMap);
+	}
 
-		enemies = new ArrayList<>();
+	/**
+	 * This method is responsible for loading an image on the asset pipeline.
+	 *
+	 * @param fileName The file path to the image file that should be loaded
+	 * @return The task loading the image
+	 */
+	private AssetPipeline.Task<Image> loadImageTask(String fileName) {
+		return pipeline.submit(fileName, () -> loadImage(fileName));
+	}
 
-		for (int i = 0; i < ENEMY_NO; i++) {
-			WalkingEnemy enemy = new WalkingEnemy(blueSpikeMove);
-			enemy.setScale(2.0f);
-			enemies.add(enemy);
+	/**
+	 * This method is responsible for saving the image cache, if any images have
+	 * been decoded since it was last saved.
+	 */
+	private void saveImageCache() {
+		try {
+			imageCache.save();
+		} catch (IOException e) {
+			System.err.println("Failed to save the image cache to " + imageCache.getFile() + ": " + e);
 		}
+	}
 
-		player = new PlayerSprite(playerIdle);
+	/**
+	 * This method is responsible for picking up the game once it has been made
+	 * on the asset pipeline. This is called on the thread that runs the game, so
+	 * the game is only ever ticked by that thread.
+	 *
+	 * @return {@code true} if the game is ready to be played
+	 * @throws IllegalStateException If the game failed to load
+	 */
+	private boolean pickUpWorld() {
+		if (world != null) {
+			return true;
+		}
 
-		portal = new Sprite(portalAnimation);
+		if (!loadingWorld.isDone()) {
+			return false;
+		}
 
-		switchSprite = new Sprite(switchAnimation);
+		PunchManWorld loaded = loadingWorld.get();
 
-		player.setScale(2.0f);
+		// Time the stages of each tick on whichever thread runs them
+		loaded.setProfiler(getUpdateProfiler());
 
-		portal.setScale(1.0f);
+		if (recording != null) {
+			loaded.setRecording(recording);
+		}
 
-		initialiseGame();
+		world = loaded;
 
-		System.out.println(currentMap);
+		pipeline.mark("world ready");
+
+		return true;
 	}
 
 	/**
-	 * You will probably want to put code to restart a game in a separate method so
-	 * that you can call it to restart the game.
+	 * This method is responsible for recording every command the game receives
+	 * from now on. The recording is saved to 'file' when the game exits, and can
+	 * be played back with {@link ReplayTool}.
+	 * 
+	 * @param file The file to save the recording to
 	 */
-	public void initialiseGame() {
-		total = 0;
+	public void startRecording(File file) {
+		ReplayLog log = new ReplayLog(TICK_MILLIS);
 
-	    
-		player.setVelocityX(0);
+		// The game is handed the recording when it is picked up, before its first tick
+		recording = log;
 
-		player.setVelocityY(0);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				log.save(file);
+
+				System.out.println("Saved " + log.getEndTick() + " ticks to " + file);
+			} catch (IOException e) {
+				System.err.println("Failed to save the recording to " + file + ": " + e);
+			}
+		}, "PunchMan-SaveRecording"));
+	}
 
-		placePlayer();
+	/**
+	 * Draw the current state of the game. There are multiple states in the game
+	 * which change depending on the players actions. The state is captured into a
+	 * snapshot first, so drawing works the same way whether or not update and
+	 * draw run on separate threads.
+	 */
+	public void draw(Graphics2D g) {
+		frameState.begin();
 
-		placeEnemies();
+		captureState(frameState);
 
-		placeSwitches();
+		frameState.end();
 
+		drawState(g, frameState);
 	}
 
 	/**
-	 * Draw the current state of the game. There are multiple states in the game
-	 * which change depending on the players actions
+	 * Draw a snapshot of the game that was filled in by captureState. This only
+	 * reads from the snapshot, so it is safe to call while the game is being
+	 * updated on another thread.
+	 * 
+	 * @param g     The graphics object to draw on
+	 * @param state The snapshot to draw
 	 */
-	public void draw(Graphics2D g) {
+	@Override
+	public void drawState(Graphics2D g, RenderState state) {
+
+		if (!state.isReady()) {
+			return;
+		}
+
+		if (!startupReported) {
+			reportStartup();
+		}
 
 		// Drawing will now draw based on the status of the game
-		switch (currentStatus) {
+		switch (GameStatus.values()[state.getStatus()]) {
 		case GAME_MENU:
 			drawMenu(g);
 			break;
@@ -345,13 +472,13 @@ public class PunchMan extends GameCore implements MouseListener {
 			drawGameOver(g);
 			break;
 		case GAME_STARTED:
-			drawLevel(g);
+			drawLevel(g, state);
 			break;
 		case GAME_PAUSED:
 			drawMenu(g);
 			break;
 		case GAME_WIN:
-			drawWinning(g);
+			drawWinning(g, state.getCounter(PunchManWorld.STATE_TOTAL));
 			break;
 		default:
 			break;
@@ -359,32 +486,66 @@ public class PunchMan extends GameCore implements MouseListener {
 
 	}
 
+	/**
+	 * This method is responsible for marking the first frame on the startup
+	 * timeline, and printing the timeline once the game is ready too.
+	 */
+	private void reportStartup() {
+		if (!firstFrameDrawn) {
+			pipeline.mark("first frame");
+
+			firstFrameDrawn = true;
+		}
+
+		if (world != null) {
+			pipeline.printTimeline(System.out);
+
+			System.out.println("Image cache: " + imageCache.getHits() + " images from the cache, "
+					+ imageCache.getMisses() + " decoded");
+
+			startupReported = true;
+		}
+	}
+
 	/**
 	 * This method will draw the heads up display elements for the game. Such as
 	 * health, diamonds and lives.
 	 * 
-	 * @param g The graphics object to draw on
+	 * @param g     The graphics object to draw on
+	 * @param state The snapshot holding the HUD counters
 	 */
-	public void drawHUD(Graphics2D g) {
+	public void drawHUD(Graphics2D g, RenderState state) {
 
 		// First we will draw the common indicators, life, hearts or hit points and the
 		// diamonds
-		drawHUDCommonIndicator(g, UILife, 21, player.getLives(), 540, 41);
+		drawHUDCommonIndicator(g, UILife, 21, (int) state.getCounter(PunchManWorld.STATE_LIVES), 540, 41);
 
-		drawHUDCommonIndicator(g, UIHeart, 21, player.getHits(), 611, 41);
+		drawHUDCommonIndicator(g, UIHeart, 21, (int) state.getCounter(PunchManWorld.STATE_HITS), 611, 41);
 
-		drawHUDCommonIndicator(g, UIDiamond, 21, player.getDiamonds(), 21, 370);
+		drawHUDCommonIndicator(g, UIDiamond, 21, (int) state.getCounter(PunchManWorld.STATE_DIAMONDS), 21, 370);
 
 		// Next we will draw the coin indicator which will be updated
 		g.drawImage(UICoin, 28, 40, null);
 
-		String msg = String.format("%d", coinCount);
+		long coinCount = state.getCounter(PunchManWorld.STATE_COINS);
+
+		// The coins left come from the map's index of coin tiles, so the level total
+		// does not need to be counted or hard coded
+		long coinTotal = coinCount + state.getCounter(PunchManWorld.STATE_COINS_LEFT);
+
+		if (coinCount != shownCoins || coinTotal != shownCoinTotal) {
+			coinText = coinCount + " / " + coinTotal;
+
+			shownCoins = coinCount;
 
-		g.setFont(new Font("Arial", Font.BOLD, 20));
+			shownCoinTotal = coinTotal;
+		}
+
+		g.setFont(HUD_FONT);
 
 		g.setColor(coinCount == 0 ? Color.red : Color.yellow);
 
-		g.drawString(msg, 52, 56);
+		g.drawString(coinText, 52, 56);
 	}
 
 	/**
@@ -416,13 +577,20 @@ public class PunchMan extends GameCore implements MouseListener {
 		// Draw background first
 		g.drawImage(UIBackground, (SCREEN_WIDTH / 2) - (UIBackground.getWidth(null) / 2), 0, null);
 
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 60));
+		g.setFont(TITLE_FONT);
 
 		g.setColor(Color.black);
 
 		g.drawString("Punch Man", 216, 100);
 
-		g.drawImage(UIPlay, MENU_PLAY_BTN_X, MENU_PLAY_BTN_Y, null);
+		// The game may still be loading behind the menu
+		if (world == null) {
+			g.setFont(MESSAGE_FONT);
+
+			g.drawString("Loading...", MENU_PLAY_BTN_X, MENU_PLAY_BTN_Y + 40);
+		} else {
+			g.drawImage(UIPlay, MENU_PLAY_BTN_X, MENU_PLAY_BTN_Y, null);
+		}
 
 		g.drawImage(UIExit, MENU_EXIT_BTN_X, MENU_EXIT_BTN_Y, null);
 
@@ -437,13 +605,13 @@ public class PunchMan extends GameCore implements MouseListener {
 	public void drawGameOver(Graphics2D g) {
 		g.drawImage(UIBackground, (SCREEN_WIDTH / 2) - (UIBackground.getWidth(null) / 2), 0, null);
 
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 60));
+		g.setFont(TITLE_FONT);
 
 		g.setColor(Color.black);
 
 		g.drawString("You Lose", 230, 75);
 
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 30));
+		g.setFont(MESSAGE_FONT);
 
 		g.setColor(Color.black);
 
@@ -454,1151 +622,282 @@ public class PunchMan extends GameCore implements MouseListener {
 	 * This method is responsible for drawing the current level which is being
 	 * played.
 	 * 
-	 * @param g The graphics object to draw on
+	 * @param g     The graphics object to draw on
+	 * @param state The snapshot of the level to draw
 	 */
-	public void drawLevel(Graphics2D g) {
-
-		// X Off relative to the players X position
-
-		int relativeXOffset = (SCREEN_WIDTH / 2) - Math.round(player.getX());
+	public void drawLevel(Graphics2D g, RenderState state) {
 
-		// Y Off relative to the players Y position.
+		FrameProfiler profiler = getProfiler();
 
-		int relativeYOffset = (SCREEN_HEIGHT / 2) - Math.round(player.getY());
+		// The images of the level are drawn by the renderer, the HUD and debug
+		// information through Java2D
+		Renderer renderer = getRenderer();
 
-		// Define background layers (when expanding levels, might be good to define
-		// these elsewhere)
+		Camera camera = state.getCamera();
 
-		Image bgBack = java.awt.Toolkit.getDefaultToolkit().getImage("images/Backgrounds/back.png");
+		profiler.begin(tilesPhase);
 
-		Image bgMiddle = java.awt.Toolkit.getDefaultToolkit().getImage("images/Backgrounds/middle.png");
+		// Draw the background layers of the level, farthest away first
 
-		Image bgNear = java.awt.Toolkit.getDefaultToolkit().getImage("images/Backgrounds/near.png");
+		int level = (int) state.getCounter(PunchManWorld.STATE_LEVEL);
 
-		// Draw background
+		LevelDefinition definition = world.getAssets().getLevel(level);
 
-		g.drawImage(bgBack, toParallax(50, bgBack, relativeXOffset), 0, null);
+		Image[] backgrounds = world.getAssets().getBackgrounds(level);
 
-		g.drawImage(bgMiddle, toParallax(30, bgMiddle, relativeXOffset), 0, null);
-
-		g.drawImage(bgNear, toParallax(10, bgNear, relativeXOffset), 0, null);
+		for (int i = 0; i < backgrounds.length; i++) {
+			renderer.drawImage(backgrounds[i],
+					camera.getBackgroundX(definition.getBackgroundSpeed(i), backgrounds[i].getWidth(null)), 0);
+		}
 
-		// Adjust the relative offsets so they have a minimum and maximum points, and
-		// keep the "camera" on the player.
+		profiler.end(tilesPhase);
 
-		relativeXOffset = Math.min(relativeXOffset, 0);
+		// The snapshot holds the camera, which keeps the view on the player
 
-		relativeXOffset = Math.max(SCREEN_WIDTH - currentMap.getPixelWidth(), relativeXOffset);
+		profiler.begin(spritesPhase);
 
-		relativeYOffset = Math.min(relativeYOffset, 0);
+		state.drawSprite(renderer, PunchManWorld.STATE_PLAYER);
 
-		relativeYOffset = Math.max(SCREEN_HEIGHT - currentMap.getPixelHeight(), relativeYOffset);
+		state.drawSprite(renderer, PunchManWorld.STATE_PORTAL);
 
-		// Apply offsets to sprites and draw
-		player.setOffsets(relativeXOffset, relativeYOffset);
+		state.drawSprite(renderer, PunchManWorld.STATE_SWITCH);
 
-		portal.setOffsets(relativeXOffset, relativeYOffset);
+		drawEnemies(renderer, state);
 
-		switchSprite.setOffsets(relativeXOffset, relativeYOffset);
+		profiler.end(spritesPhase);
 
-		for (Sprite enemy : enemies) {
-			enemy.setOffsets(relativeXOffset, relativeYOffset);
-		}
+		// Draw the tile map at the same offsets
+		profiler.begin(tilesPhase);
 
-		player.drawTransformed(g);
+		state.drawTiles(renderer);
 
-		portal.drawTransformed(g);
+		profiler.end(tilesPhase);
 
-		switchSprite.drawTransformed(g);
+		profiler.begin(hudPhase);
 
-		drawEnemies(g);
+		// Everything after this is drawn through Java2D, on top of the level
+		renderer.flush();
 
-		// Apply offsets to tile map and draw it
-		currentMap.draw(g, relativeXOffset, relativeYOffset);
+		drawHUD(g, state);
 
-		drawHUD(g);
+		profiler.end(hudPhase);
 
-		if (debugMode) {
+		if (state.isDebug()) {
 			g.setColor(Color.blue);
 
-			player.drawBoundingBox(g);
+			state.drawBoundingBox(g, PunchManWorld.STATE_PLAYER);
 
-			portal.drawBoundingBox(g);
+			state.drawBoundingBox(g, PunchManWorld.STATE_PORTAL);
 
-			switchSprite.drawBoundingBox(g);
+			state.drawBoundingBox(g, PunchManWorld.STATE_SWITCH);
 
 			g.setColor(Color.yellow);
 
-			portal.drawBoundingCircle(g);
+			state.drawBoundingCircle(g, PunchManWorld.STATE_PORTAL);
+
+			state.drawBoundingCircle(g, PunchManWorld.STATE_PLAYER);
 
-			player.drawBoundingCircle(g);
+			state.drawBoundingCircle(g, PunchManWorld.STATE_SWITCH);
 
-			switchSprite.drawBoundingCircle(g);
+			drawProfilers(g);
 		}
 	}
 
 	/**
-	 * This method is responsible for drawing the screen which will be shown when
-	 * the user has completed the game.
+	 * This method is responsible for drawing the frame time graphs shown in debug
+	 * mode. When update and draw run on separate threads, the update thread has
+	 * its own graph next to the one for drawing. Underneath is how long input
+	 * waits between the key being pressed and a tick acting on it, and how many
+	 * frames took longer than the frame rate allows.
 	 * 
 	 * @param g The graphics object to draw on
 	 */
-	public void drawWinning(Graphics2D g) {
-		g.drawImage(UIBackground, (SCREEN_WIDTH / 2) - (UIBackground.getWidth(null) / 2), 0, null);
-
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 60));
+	public void drawProfilers(Graphics2D g) {
+		g.setFont(PROFILER_FONT);
 
-		g.setColor(Color.black);
-
-		g.drawString("Well Done!", 200, 75);
-
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 30));
-
-		g.setColor(Color.black);
-
-		g.drawString("Press Enter to Restart", 163, 240);
+		getProfiler().draw(g, 10, 50, 256, 100);
 
-		g.setFont(new Font(DEFAULT_UI_FONT, Font.BOLD, 30));
-
-		g.setColor(Color.black);
-
-		String msg = String.format("%d", total);
-
-		g.drawString("Total Score: " + msg, 159, 280);
-	}
-
-	public void drawEnemies(Graphics2D g) {
-		for (int i = 0; i < enemies.size(); i++) {
-			enemies.get(i).drawTransformed(g);
+		if (isPipelined()) {
+			getUpdateProfiler().draw(g, 276, 50, 256, 100);
+		}
 
-			if (debugMode) {
-				g.setColor(Color.blue);
+		RollingHistogram latency = world.getInputLatency();
 
-				enemies.get(i).drawBoundingBox(g);
+		int y = 50 + 100 + 14 * Math.max(getProfiler().getPhaseCount(), getUpdateProfiler().getPhaseCount()) + 18;
 
-				g.setColor(Color.magenta);
+		g.setColor(Color.white);
 
-				enemies.get(i).drawBoundingCircle(g);
-			}
+		g.drawString(String.format("input      p50 %6.2f  p99 %6.2f  max %6.2f ms  dropped %d",
+				latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6, latency.getMax() / 1e6,
+				world.getDroppedCommands()), 14, y);
 
-		}
+		FramePacer pacer = getFramePacer();
 
+		g.drawString(String.format("pacing     %d fps%s  overruns %d  last %6.2f  worst %6.2f ms", pacer.getTargetFps(),
+				pacer.isThrottled() ? " (throttled)" : "", pacer.getOverruns(), pacer.getLastOverrun() / 1e6,
+				pacer.getWorstOverrun() / 1e6), 14, y + 14);
 	}
 
 	/**
-	 * Update any sprites and check for collisions
-	 *
-	 * @param elapsed The elapsed time between this call and the previous call of
-	 *                elapsed
+	 * This method is responsible for drawing the screen which will be shown when
+	 * the user has completed the game.
+	 * 
+	 * @param g     The graphics object to draw on
+	 * @param total The total score to show
 	 */
-	public void update(long elapsed) {
+	public void drawWinning(Graphics2D g, long total) {
+		g.drawImage(UIBackground, (SCREEN_WIDTH / 2) - (UIBackground.getWidth(null) / 2), 0, null);
 
-		if (currentStatus != GameStatus.GAME_STARTED) {
-			return;
-		}
-			
-		player.setAnimationSpeed(1.0f);
+		g.setFont(TITLE_FONT);
 
-		portal.setAnimationSpeed(1.0f);
+		g.setColor(Color.black);
 
-		if (player.isDead() || player.isOnDeathTile()) {
-			Sound s = new Sound("sounds/death.wav");
+		g.drawString("Well Done!", 200, 75);
 
-			s.start();
+		g.setFont(MESSAGE_FONT);
 
-			respawnPlayer();
+		g.setColor(Color.black);
 
-			player.setOnDeathTile(false);
-		}
+		g.drawString("Press Enter to Restart", 163, 240);
 
-		if (player.getLives() == 0)
-			currentStatus = GameStatus.GAME_OVER;
+		g.setFont(MESSAGE_FONT);
 
-		if (player.isMovingRight()) {
-			player.setVelocityX(0.1f);
-		}
+		g.setColor(Color.black);
 
-		if (player.isMovingLeft()) {
-			player.setVelocityX(-0.1f);
-		}
+		if (total != shownTotal) {
+			totalText = "Total Score: " + total;
 
-		// Apply conditional gravity to player when they are not on the ground
-		if (!player.isOnGround()) {
-			player.setVelocityY(player.getVelocityY() + (gravity * elapsed));
+			shownTotal = total;
 		}
 
-		// Now update the sprites animation and position
-		player.update(elapsed);
-
-		portal.update(elapsed);
-		
-		switchSprite.update(elapsed);
-
-		checkAttackState();
-
-		checkIdleState();
-
-		checkBackgroundMusic();
+		g.drawString(totalText, 159, 280);
+	}
 
-		checkEnemyPathFinding();
+	/**
+	 * This method is responsible for drawing the enemies that were captured in
+	 * the given snapshot.
+	 * 
+	 * @param renderer The renderer to draw with
+	 * @param state    The snapshot holding the enemies
+	 */
+	public void drawEnemies(Renderer renderer, RenderState state) {
+		for (int i = PunchManWorld.STATE_FIRST_ENEMY; i < state.getSpriteCount(); i++) {
+			state.drawSprite(renderer, i);
 
-		checkPortalUnlockStatus();
+			if (state.isDebug()) {
+				Graphics2D g = renderer.getGraphics();
 
-		checkPlayerToSpriteCollisions();
+				g.setColor(Color.blue);
 
-		for (Sprite enemy : enemies) {
-			enemy.update(elapsed);
-		}
+				state.drawBoundingBox(g, i);
 
-		handleScreenEdge(player, currentMap, elapsed);
+				g.setColor(Color.magenta);
 
-		checkTileCollision(player, currentMap);
+				state.drawBoundingCircle(g, i);
+			}
 
-		for (Sprite enemy : enemies) {
-			checkTileCollision(enemy, currentMap);
 		}
 
 	}
 
 	/**
-	 * This method will parallax scroll an image. Given an image and the speed
-	 * desired, this method will return a scroll speed for that image. In layered
-	 * backgrounds, this will create the illusion of depth.
+	 * Capture everything needed to draw the current frame into the given
+	 * snapshot. This is called after each update, on the simulation thread when
+	 * running in pipelined mode.
 	 * 
-	 * @param speed           The image speed
-	 * @param imageToParallax The image to parallax
-	 * @return The scroll speed of the parallaxed image
+	 * @param state The snapshot to fill in
 	 */
-	public int toParallax(int speed, Image imageToParallax, int relativeXOffset) {
-		// We need the X offset first. We will adjust the x offset (which is relative to
-		// the player) by subtracting the map width
-		int adjustedXOffset = relativeXOffset - currentMap.getMapWidth();
+	@Override
+	public void captureState(RenderState state) {
+		PunchManWorld current = world;
 
-		// We adjust the offset in the same way here, so the scrolling is also
-		// consistent with where the player is
-		adjustedXOffset = Math.min(adjustedXOffset, 0);
+		if (current == null) {
+			state.setStatus(GameStatus.GAME_MENU.ordinal());
 
-		adjustedXOffset = Math.max(adjustedXOffset, SCREEN_WIDTH - currentMap.getPixelWidth());
+			return;
+		}
 
-		return adjustedXOffset * (SCREEN_WIDTH + imageToParallax.getWidth(null))
-				/ (SCREEN_WIDTH * speed - currentMap.getMapWidth());
+		current.captureState(state);
 	}
 
 	/**
-	 * This method is responsible for handling the idle state of the player. The
-	 * player is considered idle if they are neither moving left or right. This will
-	 * trigger an idle animation when the player is in this state.
-	 * 
+	 * Run one tick of the game.
+	 *
+	 * @param elapsed The elapsed time between this call and the previous call of
+	 *                elapsed
 	 */
-	public void checkIdleState() {
-
-		if (player.isAttacking()) {
-			return;
-		}
-
-		Animation currentAnimation = player.getAnimation();
-
-		if (player.isIdle()) {
-			player.setAnimation(playerIdle);
-		} else {
-			currentAnimation.play();
+	@Override
+	public void update(long elapsed) {
+		if (pickUpWorld()) {
+			world.tick(elapsed);
 		}
-
 	}
 
 	/**
-	 * This method will handle the attack state of the player. While the attack()
-	 * method is the logic contained when the player presses the attack button F.
-	 * This method ensures the full animation loops before resetting.
+	 * Override of the keyPressed event defined in GameCore to catch our own events.
+	 * Escape quits straight away, every other key is passed on to the game to be
+	 * handled on its next tick.
+	 *
+	 * @param e The event that has been generated
 	 */
-	public void checkAttackState() {
+	@Override
+	public void keyPressed(KeyEvent e) {
+		if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+			stop();
 
-		if (!player.isAttacking()) {
 			return;
 		}
-			
-		player.setAnimation(playerAttack);
-
-		Animation attackAnimation = player.getAnimation();
-
-		if (attackAnimation.hasLooped()) {
-			attackAnimation.start();
-			
-			player.setAttacking(false);
-		}
-
-	}
 
-	/**
-	 * This method is responsible for handling the enemy path finding. This means
-	 * for the respective level, calling the move and attack functionality, where
-	 * present. These enemies will interact with the TileMap currently in play.
-	 */
-	public void checkEnemyPathFinding() {
-		for (WalkingEnemy enemy : enemies) {
-			enemy.move('.', currentMap, 0.1f);
-		}
-	}
+		// Dumping the profile has nothing to do with the game, so it is not a command
+		if (e.getKeyCode() == KeyEvent.VK_F12) {
+			dumpProfiles();
 
-	/**
-	 * This method is responsible for checking if the portal has been unlocked
-	 */
-	public void checkPortalUnlockStatus() {
-		if (player.getDiamonds() == 3) {
-			showPortal();
+			return;
 		}
-	}
 
-	/**
-	 * This method is responsible for showing the portal whenever the conditions are
-	 * met, depending on the level the player is currently in.
-	 */
-	public void showPortal() {
-		switch (currentLevel) {
-		case LEVEL_1:
-			portal.setX(startingX);
-			portal.setY(startingY - 10);
-			portal.show();
-			break;
-		case LEVEL_2:
-			portal.setX(startingX);
-			portal.setY(startingY - 25);
-			portal.show();
-			break;
-		default:
-			break;
+		PunchManWorld current = world;
 
+		if (current != null) {
+			current.submit(InputCommand.keyPressed(e.getKeyCode()));
 		}
 	}
 
 	/**
-	 * This method is responsible for handling the background music which plays.
-	 * This uses a midi track, which is controlled by a class which can modify parts
-	 * of the track at different moments.
+	 * This method is responsible for asking for the frame time profiles to be
+	 * written out as CSV at the end of the next frame, one file for drawing and,
+	 * when update and draw run on separate threads, one for updating.
 	 */
-	public void checkBackgroundMusic() {
-		
-		if(muteBackgroundMusic) {
-			backgroundPlayer.stopScore();
-			
-			return;
-		}
+	public void dumpProfiles() {
+		getProfiler().requestDump(FRAME_PROFILE);
 
-		if (!backgroundPlayer.playing()) {
-			backgroundPlayer.playScore(true);
+		if (isPipelined()) {
+			getUpdateProfiler().requestDump(UPDATE_PROFILE);
 		}
 
-		if (player.getHits() == 1) {
-			backgroundPlayer.solo(1, true);
-
-			backgroundPlayer.alterTempo(2f);
-		} else {
-			backgroundPlayer.solo(1, false);
-
-			backgroundPlayer.alterTempo(1f);
-		}
+		System.out.println("Writing the frame time profile to " + FRAME_PROFILE);
 	}
 
 	/**
-	 * This method is responsible for checking PlayerToSprite collisions within
-	 * whatever level is currently being played.
+	 * Override of the keyReleased event defined in GameCore, the key is passed on
+	 * to the game to be handled on its next tick.
+	 *
+	 * @param e The event that has been generated
 	 */
-	public void checkPlayerToSpriteCollisions() {
-
-		clearBoundFlags();
-
-		// Iterate over Sprites in the level
-		for (int i = 0; i < enemies.size(); i++) {
-			Sprite currentEnemy = enemies.get(i);
-
-			if (collisionManager.boundingBoxCollision(player, currentEnemy)) {
-				// We use the bounding box collision as a first check, then check for a bounding
-				// circle collision
-				if (collisionManager.boundingCircleCollision(player, currentEnemy) && !currentEnemy.isDead()) {
-					if (player.isAttacking()) {
-						Sound s = new Sound("sounds/Hit4.wav");
-
-						s.start();
-						
-						currentEnemy.hide();
-
-						currentEnemy.stop();
-
-						currentEnemy.setDead(true);
-					} else {
-						
-						Sound s = new Sound("sounds/Hit5.wav");
-
-						s.start();
-						
-						currentEnemy.setScale((float) -currentEnemy.getScaleX(), (float) currentEnemy.getScaleY());
-
-						currentEnemy.setVelocityX(-currentEnemy.getVelocityX());
-
-						player.stop();
-
-						// How much to knock the player back when they get hit. Push them left or right depending on which direction they are facing.
-						float pushBack = player.getScaleX() > 0 ? player.getX() - 4f : player.getX() + 4f;
-
-						player.setHits(player.getHits() - 1);
+	@Override
+	public void keyReleased(KeyEvent e) {
+		PunchManWorld current = world;
 
-						if (player.getHits() == 0) {
-							player.setDead(true);
-						}
-
-						player.setX(pushBack);
-						
-						// We will push the player up into the air similar to a jump.
-						// This is to indicate damage has been dealt, but also mitigate them getting stuck when colliding from certain angles.
-						player.setVelocityY(lift);
-
-					}
-				}
-
-			}
-		}
-		
-		if (collisionManager.boundingBoxCollision(player, portal)) {
-			if (collisionManager.boundingCircleCollision(player, portal)) {
-				inPortalBounds = true;
-			}
-		}
-
-		if (collisionManager.boundingBoxCollision(player, switchSprite)) {
-			if (collisionManager.boundingCircleCollision(player, switchSprite)) {
-				inSwitchBounds = true;
-			}
-		}
-	}
-
-	/**
-	 * This method is responsible for respawning the player after they have lost all
-	 * of their health. It will reset their health as well as their dead state.
-	 */
-	public void respawnPlayer() {
-
-		player.setLives(player.getLives() - 1);
-		player.setDead(false);
-		player.setHits(3);
-
-		player.setX(startingX);
-
-		player.setY(startingY);
-
-		player.setVelocityX(0);
-
-		player.setVelocityY(0);
-	}
-	
-	/**
-	 * This method is responsible for clearing the bounds flags
-	 */
-	public void clearBoundFlags() {
-		inPortalBounds = false;
-
-		inSwitchBounds = false;
-	}
-
-	/**
-	 * Checks and handles collisions with the edge of the screen
-	 *
-	 * @param s       The Sprite to check collisions for
-	 * @param tmap    The tile map to check
-	 * @param elapsed How much time has gone by since the last call
-	 */
-	public void handleScreenEdge(Sprite s, TileMap tmap, long elapsed) {
-		if (s.getY() + s.getHeight() > tmap.getPixelHeight()) {
-			// If the sprite falls of the edge then we will set its dead state to true
-			s.setDead(true);
-		}
-	}
-
-	/**
-	 * Override of the keyPressed event defined in GameCore to catch our own events
-	 *
-	 * @param e The event that has been generated
-	 */
-	@Override
-	public void keyPressed(KeyEvent e) {
-		int key = e.getKeyCode();
-
-		if (currentStatus == GameStatus.GAME_PAUSED) {
-			return;
-		}
-
-		switch (key) {
-		case KeyEvent.VK_ESCAPE:
-			stop();
-			break;
-		case KeyEvent.VK_SPACE:
-			startJump();
-			break;
-		case KeyEvent.VK_1:
-			skipToLevel1();
-			break;
-		case KeyEvent.VK_2:
-			skipToLevel2();
-			break;
-		case KeyEvent.VK_A:
-			movePlayerLeft();
-			break;
-		case KeyEvent.VK_D:
-			movePlayerRight();
-			break;
-		case KeyEvent.VK_F:
-			startAttack();
-			break;
-		case KeyEvent.VK_V:
-			enableDebugMode();
-			break;
-		case KeyEvent.VK_P:
-			pauseGame();
-			break;
-		case KeyEvent.VK_ENTER:
-			startOver();
-			break;
-		case KeyEvent.VK_E:
-			determineInteractiveAction();
-			break;
-		case KeyEvent.VK_M:
-			toggleBackgroundMusic();
-			break;
-		default:
-			break;
-		}
-
-	}
-	
-	/**
-	 * This method is responsible for determining which interactive
-	 * action to activate. This is called whenever the E button is
-	 * pressed.
-	 */
-	public void determineInteractiveAction() {
-		
-		if(inPortalBounds) {
-			enterPortal();
-		}
-		else if(inSwitchBounds) {
-			flipSwitch();
-		}	
-	}
-
-	/**
-	 * This method is responsible for setting the state of the player to move left,
-	 * and if they were facing right it will flip them. This is called whenever the
-	 * A key is pressed.
-	 */
-	public void movePlayerLeft() {
-		// We do not want to allow the player to move while attacking
-		if (player.isAttacking()) {
-			return;
-		}
-
-		// We want to flip the sprite when they are not moving left already and facing
-		// right x > 0
-		if (!player.isMovingLeft() && player.getScaleX() > 0) {
-			player.setScale((float) -player.getScaleX(), (float) player.getScaleY());
-		}
-
-		player.setMovingLeft(true);
-
-		player.setAnimation(playerMove);
-
-	}
-
-	/**
-	 * This method is responsible for setting the state of the player to move right,
-	 * and if they were facing left it will flip them. This is called whenever the D
-	 * key is pressed.
-	 */
-	public void movePlayerRight() {
-		// We do not want to allow the player to move while attacking
-		if (player.isAttacking()) {
-			return;
-		}
-
-		// We want to flip the sprite when they are not moving right already and facing
-		// left x < 0
-		if (!player.isMovingRight() && player.getScaleX() < 0) {
-			player.setScale((float) -player.getScaleX(), (float) player.getScaleY());
-		}
-
-		player.setMovingRight(true);
-
-		player.setAnimation(playerMove);
-	}
-
-	/**
-	 * This method is responsible for determining whether the player can jump and
-	 * setting that state accordingly. The player must be on the ground and not
-	 * already jumping to be able to jump.
-	 */
-	public void startJump() {
-
-		boolean jumpPossible = player.isOnGround() && !player.isJumping();
-
-		if (!jumpPossible) {
-			return;
-		}
-			
-		player.setJumping(true);
-
-		player.setVelocityY(lift);
-
-		player.setOnGround(false);
-
-		Sound s = new Sound("sounds/Jump1.wav");
-
-		s.start();
-	}
-
-	/**
-	 * This method is responsible for determining whether the player can attack and
-	 * setting that state accordingly. The player must not be already attacking or
-	 * moving, and they must be on the ground for the attack to be valid.
-	 * 
-	 * Controlling the attack animation state is controlled by another method which
-	 * is called in the update loop.
-	 * 
-	 * @see PunchMan#checkAttackState()
-	 */
-	public void startAttack() {
-		boolean attackValid = !player.isAttacking() && (!player.isMovingLeft() && !player.isMovingRight())
-				&& !player.getAnimation().equals(playerAttack) && player.isOnGround();
-
-		if (!attackValid) {
-			return;
-		}
-			
-		player.setAttacking(true);
-
-		Sound s = new Sound("sounds/hit28.wav");
-
-		s.start();
-	}
-
-	/**
-	 * This method will enable debug mode for the game. This will render debug
-	 * information such as bounding box/circles around sprite. Information about the
-	 * sprites in the current level etc. This toggles a boolean flag representing
-	 * whether to debug or not.
-	 * 
-	 * @see PunchMan#debugMode
-	 */
-	public void enableDebugMode() {
-		debugMode = !debugMode;
-	}
-
-	/**
-	 * This method will pause the game, which means it will set the state to the
-	 * game menu, provided it is not already set. Pressing the P button will toggle
-	 * the pause and then player can click the play button again to resume.
-	 */
-	public void pauseGame() {
-		if (currentStatus != GameStatus.GAME_MENU) {
-			currentStatus = GameStatus.GAME_MENU;
-		}
-	
-	}
-
-	/**
-	 * This method is responsible for starting over when a player has lost and
-	 * resulted in a game over or if the player has completed the game and wants to
-	 * restart. This set the state back to GAME_STARTED and reload the level.
-	 * 
-	 * @see PunchMan#reload()
-	 */
-	public void startOver() {
-		if (currentStatus == GameStatus.GAME_OVER) {
-			currentStatus = GameStatus.GAME_STARTED;
-
-		} else if (currentStatus == GameStatus.GAME_WIN) {
-			currentLevel = Level.LEVEL_1;
-
-			currentStatus = GameStatus.GAME_STARTED;
-		}
-
-		reload();
-
-	}
-
-	/**
-	 * This method is responsible for entering the portal. They must be in the
-	 * bounds of the portal. This is an interactive action which will be called
-	 * as a result of the player pressing the E button near a portal.
-	 * 
-	 * @see PunchMan#determineInteractiveAction()
-	 */
-	public void enterPortal() {
-		Sound s = new Sound("sounds/time_travel_clip.wav");
-
-		s.start();
-
-		s.useFilter(true);
-
-		total += coinCount;
-
-		if (currentLevel == Level.LEVEL_1) {
-			currentLevel = Level.LEVEL_2;
-
-			currentMap = level2Map;
-
-		} else {
-			currentStatus = GameStatus.GAME_WIN;
-			return;
-		}
-
-		reload();
-	}
-	
-	/**
-	 * This method is responsible for flipping the switch. They must
-	 * be in the bounds of the switch. This is an interactive action
-	 * which will be called as a result of the player pressing
-	 * the E button near a portal.
-	 * 
-	 * @see PunchMan#determineInteractiveAction()
-	 */
-	public void flipSwitch() {
-		switchFlipped = !switchFlipped;
-		
-		Sound s = new Sound("sounds/Select4.wav");
-
-		s.start();
-		
-		switchSprite.getAnimation().setAnimationFrame(switchFlipped ? 0 : 1);
-		
-		if(currentLevel == Level.LEVEL_1) {
-			
-			char actionTileChar = switchFlipped ? 'p' : '.';
-			
-			// When the switch is flipped in level 1, reveal the platform tile.
-			currentMap.setTileChar(actionTileChar, 45, 9);
-		}
-		else if(currentLevel == Level.LEVEL_2) {
-			char actionTileChar = switchFlipped ? 'v' : '.';
-			
-			// When the switch is flipped in level 2, reveal the final diamond near the start of the level.
-			currentMap.setTileChar(actionTileChar, 7, 6);
-		}
-	}
-	
-	/**
-	 * This method is responsible for skipping or reloading to level
-	 * 1. This will be called when the 1 key is pressed.
-	 */
-	public void skipToLevel1() {
-		currentLevel = Level.LEVEL_1;
-		
-		reload();
-	}
-	
-	/**
-	 * This method is responsible for skipping or reloading to level
-	 * 2. This will be called when the 2 key is pressed.
-	 */
-	public void skipToLevel2() {
-		currentLevel = Level.LEVEL_2;
-		
-		reload();
-	}
-	
-	/**
-	 * This method is responsible for toggling the background music
-	 * of the game.
-	 */
-	public void toggleBackgroundMusic() {
-		muteBackgroundMusic = !muteBackgroundMusic;
-	}
-
-	/**
-	 * This method is responsible for reloading the level that is currently being
-	 * played, and setting the players values back to their defaults.
-	 */
-	public void reload() {
-		coinCount = 0;
-		
-		total = 0;
-
-		player.setDiamonds(0);
-
-		player.setHits(3);
-
-		player.setLives(3);
-
-		player.setDead(false);
-
-	    clearBoundFlags();
-	    
-	    switchFlipped = false;
-	    
-	    switchSprite.getAnimation().setAnimationFrame(switchFlipped ? 0 : 1);
-
-		portal.hide();
-		
-		placePlayer();
-		
-		placeSwitches();
-		
-		placeEnemies();
-
-		if (currentLevel == Level.LEVEL_1) {
-			currentMap.loadMap("maps", "level1_map.txt");
-		} else {
-			currentMap.loadMap("maps", "level2_map.txt");
-		}
-		
-	}
-
-	/**
-	 * This method is responsible for setting the animations which will be used in
-	 * the game and their speeds.
-	 */
-	public void setAnimations() {
-		playerMove = new Animation();
-
-		playerIdle = new Animation();
-
-		playerAttack = new Animation();
-
-		blueSpikeMove = new Animation();
-
-		portalAnimation = new Animation();
-
-		switchAnimation = new Animation();
-
-		playerMove.addFrame(loadImage("images/Characters/Player/Move/Right1.png"), 130);
-
-		playerMove.addFrame(loadImage("images/Characters/Player/Move/Right2.png"), 130);
-
-		playerMove.addFrame(loadImage("images/Characters/Player/Move/Right3.png"), 130);
-
-		playerIdle.addFrame(loadImage("images/Characters/Player/Idle/Right1.png"), 130);
-
-		playerIdle.addFrame(loadImage("images/Characters/Player/Idle/Right2.png"), 130);
-
-		playerIdle.addFrame(loadImage("images/Characters/Player/Idle/Right3.png"), 130);
-
-		playerIdle.addFrame(loadImage("images/Characters/Player/Idle/Right4.png"), 130);
-
-		playerAttack.addFrame(loadImage("images/Characters/Player/Attack/Right1.png"), 100);
-
-		playerAttack.addFrame(loadImage("images/Characters/Player/Attack/Right2.png"), 100);
-
-		playerAttack.addFrame(loadImage("images/Characters/Player/Attack/Right3.png"), 100);
-
-		playerAttack.addFrame(loadImage("images/Characters/Player/Attack/Right4.png"), 100);
-
-		playerAttack.addFrame(loadImage("images/Characters/Player/Attack/Right5.png"), 100);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right1.png"), 240);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right2.png"), 240);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right3.png"), 240);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right4.png"), 240);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right5.png"), 240);
-
-		blueSpikeMove.addFrame(loadImage("images/Characters/Enemies/Enemy1/Right6.png"), 240);
-
-		blueSpikeMove.setAnimationSpeed(1.0f);
-
-		portalAnimation.addFrame(loadImage("images/WorldSprites/portal.gif"), 130);
-		
-		switchAnimation.addFrame(loadImage("images/WorldSprites/switchRight.png"), 130);
-
-		switchAnimation.addFrame(loadImage("images/WorldSprites/switchLeft.png"), 130);
-		
-		switchAnimation.pauseAt(1);
-
-	}
-
-	/**
-	 * This method is responsible for loading the game images. This is mainly for UI
-	 * elements, such as gems, coins and the life & health counter.
-	 */
-	public void loadGameImages() {
-		UICoin = loadImage("images/UI/coin_element.png");
-		UIHeart = loadImage("images/UI/heart_element.png");
-		UILife = loadImage("images/UI/life_element.png");
-		UIDiamond = loadImage("images/UI/gem_element.png");
-		UIBackground = loadImage("images/Backgrounds/title_screen.png");
-		UIPlay = loadImage("images/UI/play_button.png");
-		UIExit = loadImage("images/UI/exit_button.png");
-	}
-	
-	@Override
-	public void keyReleased(KeyEvent e) {
-		int key = e.getKeyCode();
-
-		switch (key) {
-		case KeyEvent.VK_A:
-			player.setMovingLeft(false);
-
-			player.setVelocityX(0);
-			break;
-		case KeyEvent.VK_D:
-			player.setMovingRight(false);
-
-			player.setVelocityX(0);
-			break;
-		case KeyEvent.VK_SPACE:
-			player.setJumping(false);
-			break;
-		default:
-			break;
-		}
-	}
-
-	/**
-	 * Check and handles collisions with a tile map for the given sprite 's'.
-	 * Initial functionality is limited...
-	 *
-	 * @param s    The Sprite to check collisions for
-	 * @param tmap The tile map to check
-	 */
-
-	public void checkTileCollision(Sprite s, TileMap tmap) {
-
-		// Take a note of a sprite's current position
-		float sx = s.getX();
-
-		float sy = s.getY();
-
-		// Find out how wide and how tall a tile is
-		float tileWidth = tmap.getTileWidth();
-
-		float tileHeight = tmap.getTileHeight();
-
-		// Retrieve coordinates, then the tile at that position
-		int topLeftX = (int) (sx / tileWidth);
-
-		int topLeftY = (int) (sy / tileHeight);
-
-		Tile topLeft = tmap.getTile(topLeftX, topLeftY);
-
-		int topRightX = (int) ((sx + s.getWidth()) / tileWidth);
-
-		int topRightY = (int) (sy / tileHeight);
-
-		Tile topRight = tmap.getTile(topRightX, topRightY);
-
-		int bottomLeftX = (int) (sx / tileWidth);
-
-		int bottomLeftY = (int) ((sy + s.getHeight()) / tileHeight);
-
-		Tile bottomLeft = tmap.getTile(bottomLeftX, bottomLeftY);
-
-		int bottomRightX = (int) ((sx + s.getWidth()) / tileWidth);
-
-		int bottomRightY = (int) ((sy + s.getHeight()) / tileHeight);
-
-		Tile bottomRight = tmap.getTile(bottomRightX, bottomRightY);
-
-		// We do not want to check tiles if any of them could cause a null exception
-		if (bottomRight == null || bottomLeft == null || topRight == null || topLeft == null) {
-			return;
-		}
-
-		if (collisionManager.collisionAtBottom(bottomRight, s, tmap)
-				|| collisionManager.collisionAtBottom(bottomLeft, s, tmap)) {
-
-			boolean isCollectable = s.equals(player)
-					&& (bottomLeft.getCharacter() == 'c' || bottomLeft.getCharacter() == 'v'
-							|| bottomRight.getCharacter() == 'c' || bottomRight.getCharacter() == 'v');
-
-			if (isCollectable) {
-				if (player.isMovingLeft()) {
-					pickUpItem(bottomRight);
-				} else {
-					pickUpItem(bottomLeft);
-				}
-
-			} else {
-				s.setVelocityY(0);
-				s.setY((bottomLeftY * tileHeight) - s.getHeight());
-			}
-
-		}
-
-		if (collisionManager.collisionAtTop(topLeft, s, tmap) && collisionManager.collisionAtTop(topRight, s, tmap)) {
-			s.setY(topRight.getYC() + tileWidth);
-		}
-
-		else if (collisionManager.collisionAtLeft(topLeft, s, tmap)) {
-
-			boolean isCollectable = s.equals(player)
-					&& (topLeft.getCharacter() == 'c' || topLeft.getCharacter() == 'v');
-
-			if (isCollectable) {
-				pickUpItem(topLeft);
-			} else {
-				s.setX(bottomLeft.getXC() + tileWidth);
-			}
-
-		}
-
-		else if (collisionManager.collisionAtRight(topRight, s, tmap)) {
-			boolean isCollectable = s.equals(player)
-					&& (topRight.getCharacter() == 'c' || topRight.getCharacter() == 'v');
-
-			if (isCollectable) {
-				pickUpItem(topRight);
-			} else {
-				s.setVelocityX(-s.getVelocityX());
-
-				s.setX((bottomRight.getXC() - tileWidth) - 1);
-			}
-
-		}
-
-		// We will set some conditions which apply to all sprites, based on what they
-		// have collided with.
-
-		char topLeftCh = topLeft.getCharacter();
-
-		char topRightCh = topRight.getCharacter();
-
-		char bottomLeftCh = bottomLeft.getCharacter();
-
-		char bottomRightCh = bottomRight.getCharacter();
-
-		s.setOnGround(bottomLeftCh != '.' || bottomRightCh != '.');
-
-		s.setOnDeathTile(topLeftCh == 's' || topRightCh == 's' || bottomRightCh == 's' || bottomLeftCh == 's');
-	}
-
-	/**
-	 * This method is responsible for handling an collectable item being picked up
-	 * by the player. This requires the tile that was set for collectable. When the
-	 * collectable is picked up, the Tile is set to the airTile so it will vanish
-	 * when "picked up".
-	 * 
-	 * @param collectableTile The tile that contains the collectable to be picked up
-	 */
-	public void pickUpItem(Tile collectableTile) {
-
-		char collectableChar = collectableTile.getCharacter();
-
-		// May be better to define a class for tiles being collected, as this will
-		// likely be hard to maintain.
-		Sound collectableSound = new Sound(collectableChar == 'c' ? "sounds/Coin1.wav" : "sounds/ding_1.wav");
-
-		if (collectableChar == 'c') {
-			collectableSound.start();
-			coinCount++;
-		} else if (collectableChar == 'v') {
-			collectableSound.start();
-
-			player.setDiamonds(player.getDiamonds() + 1);
-
-		}
-
-		collectableTile.setCharacter('.');
-
-	}
-	
-	/**
-	 * This method is responsible for placing the switches, according to
-	 * the level that is being played.
-	 */
-	public void placeSwitches() {
-		
-		switchSprite.show();
-		
-		switch (currentLevel) {
-		case LEVEL_1:
-			switchSprite.setX(1278);
-			switchSprite.setY(290);
-			break;
-		case LEVEL_2:
-			switchSprite.setX(1248);
-			switchSprite.setY(290);
-			break;
-		default:
-			break;
-
-		}
-	}
-	
-	/**
-	 * This method is responsible for placing the enemies
-	 * according to the level that is being played.
-	 */
-	public void placeEnemies() {
-		for (Sprite enemy : enemies) {
-			enemy.setDead(false);
-		}
-		
-		switch (currentLevel) {
-		case LEVEL_1:
-			enemies.get(0).setX(1032);
-
-			enemies.get(0).setY(189);
-
-			enemies.get(0).show();
-
-			enemies.get(1).setX(1550);
-
-			enemies.get(1).setY(221);
-			break;
-		case LEVEL_2:
-			enemies.get(0).setX(1032);
-
-			enemies.get(0).setY(189);
-
-			enemies.get(0).show();
-			break;
-		default:
-			break;
-
-		}
-	}
-	
-	/**
-	 * This method is responsible for placing the player, 
-	 * according to the level that is being played.
-	 */
-	public void placePlayer() {
-		player.show();
-		
-		player.setVelocityX(0);
-
-		player.setVelocityY(0);
-		
-		switch (currentLevel) {
-		case LEVEL_1:
-			startingX = 64;
-			
-			startingY = 138;
-			
-			player.setX(startingX);
-			
-			player.setY(startingY);
-		
-			break;
-		case LEVEL_2:
-			startingX = 81;
-			
-			startingY = 215;
-			
-			player.setX(startingX);
-			
-			player.setY(startingY);
-			break;
-		default:
-			break;
+		if (current != null) {
+			current.submit(InputCommand.keyReleased(e.getKeyCode()));
 		}
 	}
 
 	@Override
 	public void mouseClicked(MouseEvent e) {
-		int mouseX = e.getX();
+		// Where the click is in the game, which may be drawn scaled up
+		int mouseX = toRenderX(e.getX());
 
-		int mouseY = e.getY();
+		int mouseY = toRenderY(e.getY());
 		
 		// Get the bounds of the buttons, I.E where the user has to click
 
@@ -1610,8 +909,8 @@ public class PunchMan extends GameCore implements MouseListener {
 
 		if (inExitBtnBounds) {
 			stop();
-		} else if (inPlayBtnBounds) {
-			currentStatus = GameStatus.GAME_STARTED;
+		} else if (inPlayBtnBounds && world != null) {
+			world.submit(InputCommand.action(PunchManWorld.ACTION_PLAY));
 		}
 
 	}
@@ -0,0 +1,452 @@
+package com.hyperconix.app;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hyperconix.game2D.Animation;
+import com.hyperconix.game2D.AssetLoadEvent;
+import com.hyperconix.game2D.AssetPipeline;
+import com.hyperconix.game2D.TileMap;
+
+/**
+ * This class is responsible for loading the maps and animations used by Punch
+ * Man once, so they can be shared by any number of {@link PunchManWorld}s. The
+ * maps and animations held here are never played or changed, each world takes
+ * its own copy of them, which shares the images but keeps its own tiles and
+ * animation timing.
+ * <br><br>
+ * Everything is loaded through an {@link AssetPipeline}, each image as its own
+ * task, so the images are decoded in parallel. Each animation is put together
+ * once its frames are loaded, and each map once its tile images are.
+ * <br><br>
+ * The levels are read from the manifest (see {@link LevelDefinition}). Only
+ * the first level's map and backgrounds are loaded up front, the others are
+ * loaded when they are first needed, or before then in the background if
+ * {@link #prefetch(int)} is called, so a level can be made ready while the one
+ * before it is still being played.
+ * <br><br>
+ * Once loaded, a set of assets can safely be used to create worlds from any
+ * thread.
+ *
+ * @author Luke S
+ */
+public class PunchManAssets {
+
+	/**
+	 * Responsible for storing the path of the manifest the levels are read from
+	 * by default.
+	 */
+	public static final String LEVEL_MANIFEST = "maps/levels.txt";
+
+	/**
+	 * Responsible for storing the image files of each animation's frames, in the
+	 * order they are played.
+	 */
+	private static final String[] PLAYER_MOVE_FRAMES = numberedFrames("images/Characters/Player/Move/Right", 3),
+			PLAYER_IDLE_FRAMES = numberedFrames("images/Characters/Player/Idle/Right", 4),
+			PLAYER_ATTACK_FRAMES = numberedFrames("images/Characters/Player/Attack/Right", 5),
+			BLUE_SPIKE_FRAMES = numberedFrames("images/Characters/Enemies/Enemy1/Right", 6),
+			PORTAL_FRAMES = { "images/WorldSprites/portal.gif" },
+			SWITCH_FRAMES = { "images/WorldSprites/switchRight.png", "images/WorldSprites/switchLeft.png" };
+
+	/**
+	 * This class is the part of a level that is loaded from files, its map and
+	 * background images.
+	 */
+	private static final class LoadedLevel {
+
+		private final TileMap map;
+
+		private final Image[] backgrounds;
+
+		private LoadedLevel(TileMap map, Image[] backgrounds) {
+			this.map = map;
+			this.backgrounds = backgrounds;
+		}
+	}
+
+	/**
+	 * Responsible for storing the pipeline the assets are loaded through.
+	 */
+	private final AssetPipeline pipeline;
+
+	/**
+	 * Responsible for storing the levels, in the order they are played.
+	 */
+	private final List<LevelDefinition> levels;
+
+	/**
+	 * Responsible for storing the task loading each level, or null for a level
+	 * that has not started loading yet.
+	 */
+	private final List<AssetPipeline.Task<LoadedLevel>> loadedLevels = new ArrayList<>();
+
+	/**
+	 * Responsible for storing the task loading each level's map, or null for a
+	 * level that has not started loading yet.
+	 */
+	private final List<AssetPipeline.Task<TileMap>> loadedMaps = new ArrayList<>();
+
+	/**
+	 * Responsible for storing the task that finishes once the animations and the
+	 * first level have loaded.
+	 */
+	private final AssetPipeline.Task<PunchManAssets> ready;
+
+	/**
+	 * Responsible for storing the players animations.
+	 */
+	private final Animation playerMove = new Animation(), playerIdle = new Animation(),
+			playerAttack = new Animation();
+
+	/**
+	 * Responsible for storing the blue spike enemies animation.
+	 */
+	private final Animation blueSpikeMove = new Animation();
+
+	/**
+	 * Responsible for storing the portal and switch animations.
+	 */
+	private final Animation portalAnimation = new Animation(), switchAnimation = new Animation();
+
+	/**
+	 * Creates the state of a PunchManAssets, loading the animations and the first
+	 * level in the default manifest.
+	 */
+	public PunchManAssets() {
+		this(LEVEL_MANIFEST);
+	}
+
+	/**
+	 * Creates the state of a PunchManAssets, loading the animations and the first
+	 * level in the given manifest, returning once they have loaded.
+	 * 
+	 * @param manifest The path of the level manifest
+	 */
+	public PunchManAssets(String manifest) {
+		this(manifest, new AssetPipeline(AssetPipeline.DEFAULT_THREADS));
+
+		awaitLoaded();
+	}
+
+	/**
+	 * Creates the state of a PunchManAssets, starting to load the animations and
+	 * the first level in the given manifest through a pipeline. This returns
+	 * straight away, the assets must not be used to make a world until
+	 * {@link #getReady()} has finished.
+	 * 
+	 * @param manifest The path of the level manifest
+	 * @param pipeline The pipeline to load through, which later levels are loaded
+	 *                 through too
+	 */
+	public PunchManAssets(String manifest, AssetPipeline pipeline) {
+		this.pipeline = pipeline;
+
+		try {
+			levels = LevelDefinition.loadManifest(manifest);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read the level manifest", e);
+		}
+
+		for (int i = 0; i < levels.size(); i++) {
+			loadedLevels.add(null);
+
+			loadedMaps.add(null);
+		}
+
+		prefetch(0);
+
+		ready = pipeline.submit("assets", () -> this, loadAnimations(), loadedLevels.get(0));
+	}
+
+	/**
+	 * This method is responsible for loading the frames of every animation, each
+	 * as its own task, then putting the animations together.
+	 * 
+	 * @return The task putting the animations together
+	 */
+	private AssetPipeline.Task<Void> loadAnimations() {
+		List<AssetPipeline.Task<Image>> move = loadImages(PLAYER_MOVE_FRAMES),
+				idle = loadImages(PLAYER_IDLE_FRAMES), attack = loadImages(PLAYER_ATTACK_FRAMES),
+				blueSpike = loadImages(BLUE_SPIKE_FRAMES), portal = loadImages(PORTAL_FRAMES),
+				switches = loadImages(SWITCH_FRAMES);
+
+		List<AssetPipeline.Task<Image>> frames = new ArrayList<>();
+
+		frames.addAll(move);
+		frames.addAll(idle);
+		frames.addAll(attack);
+		frames.addAll(blueSpike);
+		frames.addAll(portal);
+		frames.addAll(switches);
+
+		return pipeline.submit("animations", () -> {
+			addFrames(playerMove, move, 130);
+
+			addFrames(playerIdle, idle, 130);
+
+			addFrames(playerAttack, attack, 100);
+
+			addFrames(blueSpikeMove, blueSpike, 240);
+
+			blueSpikeMove.setAnimationSpeed(1.0f);
+
+			addFrames(portalAnimation, portal, 130);
+
+			addFrames(switchAnimation, switches, 130);
+
+			switchAnimation.pauseAt(1);
+
+			return null;
+		}, frames.toArray(new AssetPipeline.Task<?>[0]));
+	}
+
+	/**
+	 * This method is responsible for starting to load a level, if it has not been
+	 * loaded already, so it is ready by the time it is needed. Only the list of
+	 * tile images is read on the calling thread. Nothing happens if there is no
+	 * such level.
+	 * 
+	 * @param level The index of the level, starting from 0
+	 */
+	public synchronized void prefetch(int level) {
+		if (level < 0 || level >= levels.size() || loadedLevels.get(level) != null) {
+			return;
+		}
+
+		LevelDefinition definition = levels.get(level);
+
+		String name = "level " + (level + 1);
+
+		String folder = definition.getMapFolder(), file = definition.getMapFile();
+
+		// Load the tile images first and in parallel, the map then finds them loaded
+		List<AssetPipeline.Task<Image>> tiles = loadImages(TileMap.readImageFiles(folder, file).toArray(new String[0]));
+
+		AssetPipeline.Task<TileMap> map = pipeline.submit(name + " map " + file, () -> {
+			TileMap loaded = new TileMap();
+
+			loaded.loadMap(folder, file);
+
+			return loaded;
+		}, tiles.toArray(new AssetPipeline.Task<?>[0]));
+
+		loadedMaps.set(level, map);
+
+		String[] files = new String[definition.getBackgroundCount()];
+
+		for (int i = 0; i < files.length; i++) {
+			files[i] = definition.getBackground(i);
+		}
+
+		List<AssetPipeline.Task<Image>> backgrounds = loadImages(files);
+
+		List<AssetPipeline.Task<?>> parts = new ArrayList<>(backgrounds);
+
+		parts.add(map);
+
+		loadedLevels.set(level, pipeline.submit(name, () -> {
+			Image[] images = new Image[backgrounds.size()];
+
+			for (int i = 0; i < images.length; i++) {
+				images[i] = backgrounds.get(i).get();
+			}
+
+			return new LoadedLevel(map.get(), images);
+		}, parts.toArray(new AssetPipeline.Task<?>[0])));
+	}
+
+	/**
+	 * This method is responsible for getting a level that has been loaded,
+	 * starting to load it if it has not been, and waiting for it to finish.
+	 */
+	private LoadedLevel getLoadedLevel(int level) {
+		AssetPipeline.Task<LoadedLevel> loaded;
+
+		synchronized (this) {
+			prefetch(level);
+
+			loaded = loadedLevels.get(level);
+		}
+
+		return loaded.get();
+	}
+
+	/**
+	 * This method is responsible for loading each of the given images as its own
+	 * task.
+	 * 
+	 * @param fileNames The file paths of the images
+	 * @return The tasks, in the same order
+	 */
+	private List<AssetPipeline.Task<Image>> loadImages(String[] fileNames) {
+		List<AssetPipeline.Task<Image>> images = new ArrayList<>();
+
+		for (String fileName : fileNames) {
+			images.add(pipeline.submit(fileName, () -> loadImage(fileName)));
+		}
+
+		return images;
+	}
+
+	/**
+	 * This method is responsible for adding the loaded frames to an animation,
+	 * each shown for the same time.
+	 */
+	private static void addFrames(Animation animation, List<AssetPipeline.Task<Image>> frames, long duration) {
+		for (AssetPipeline.Task<Image> frame : frames) {
+			animation.addFrame(frame.get(), duration);
+		}
+	}
+
+	/**
+	 * @return The file names of the numbered frames prefix1.png to prefix'count'.png
+	 */
+	private static String[] numberedFrames(String prefix, int count) {
+		String[] files = new String[count];
+
+		for (int i = 0; i < count; i++) {
+			files[i] = prefix + (i + 1) + ".png";
+		}
+
+		return files;
+	}
+
+	/**
+	 * This method is responsible for loading an image.
+	 *
+	 * @param fileName The file path to the image file that should be loaded
+	 * @return The image
+	 */
+	private Image loadImage(String fileName) {
+		return AssetLoadEvent.loadImage(fileName);
+	}
+
+	/**
+	 * @return The task that finishes once the animations and the first level have
+	 *         loaded, giving these assets
+	 */
+	public AssetPipeline.Task<PunchManAssets> getReady() {
+		return ready;
+	}
+
+	/**
+	 * This method is responsible for waiting until the animations and the first
+	 * level have loaded.
+	 *
+	 * @throws IllegalStateException If any of them failed to load
+	 */
+	public void awaitLoaded() {
+		ready.get();
+	}
+
+	/**
+	 * @return The number of levels
+	 */
+	public int getLevelCount() {
+		return levels.size();
+	}
+
+	/**
+	 * @param level The index of the level, starting from 0
+	 * @return The definition of the level
+	 */
+	public LevelDefinition getLevel(int level) {
+		return levels.get(level);
+	}
+
+	/**
+	 * @return The most enemies any level has
+	 */
+	public int getMaxEnemies() {
+		int enemies = 0;
+
+		for (LevelDefinition level : levels) {
+			enemies = Math.max(enemies, level.getEnemies());
+		}
+
+		return enemies;
+	}
+
+	/**
+	 * @param level The index of the level, starting from 0
+	 * @return The map of the level as it was loaded, this should be copied and not
+	 *         changed. This waits for the map to load if it has not been yet.
+	 */
+	public TileMap getMap(int level) {
+		return getLoadedLevel(level).map;
+	}
+
+	/**
+	 * @param level The index of the level, starting from 0
+	 * @return The task loading the map of the level, which may finish before the
+	 *         rest of the level. The level starts loading if it has not yet.
+	 */
+	public synchronized AssetPipeline.Task<TileMap> getMapTask(int level) {
+		prefetch(level);
+
+		return loadedMaps.get(level);
+	}
+
+	/**
+	 * @param level The index of the level, starting from 0
+	 * @return The background layers of the level, farthest away first. This waits
+	 *         for them to load if they have not been yet.
+	 */
+	public Image[] getBackgrounds(int level) {
+		return getLoadedLevel(level).backgrounds;
+	}
+
+	/**
+	 * @param level The index of the level, starting from 0
+	 * @return {@code true} if the level has finished loading, so getting it will
+	 *         not have to wait
+	 */
+	public synchronized boolean isLoaded(int level) {
+		return loadedLevels.get(level) != null && loadedLevels.get(level).isDone();
+	}
+
+	/**
+	 * @return The player move animation, this should be copied and not played
+	 */
+	public Animation getPlayerMove() {
+		return playerMove;
+	}
+
+	/**
+	 * @return The player idle animation, this should be copied and not played
+	 */
+	public Animation getPlayerIdle() {
+		return playerIdle;
+	}
+
+	/**
+	 * @return The player attack animation, this should be copied and not played
+	 */
+	public Animation getPlayerAttack() {
+		return playerAttack;
+	}
+
+	/**
+	 * @return The blue spike enemy animation, this should be copied and not played
+	 */
+	public Animation getBlueSpikeMove() {
+		return blueSpikeMove;
+	}
+
+	/**
+	 * @return The portal animation, this should be copied and not played
+	 */
+	public Animation getPortalAnimation() {
+		return portalAnimation;
+	}
+
+	/**
+	 * @return The switch animation, this should be copied and not played
+	 */
+	public Animation getSwitchAnimation() {
+		return switchAnimation;
+	}
+}
@@ -0,0 +1,526 @@
+package com.hyperconix.app;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hyperconix.game2D.FrameJobSystem;
+import com.hyperconix.game2D.InputCommand;
+import com.hyperconix.game2D.PlayerSprite;
+import com.hyperconix.game2D.Sprite;
+import com.hyperconix.game2D.TileMap;
+import com.hyperconix.game2D.WalkingEnemy;
+
+/**
+ * This class is responsible for running many independent games of Punch Man
+ * side by side in one process, for training and evaluating bots. Every game is
+ * a {@link PunchManWorld} with no window or sound, and they all share one set
+ * of {@link PunchManAssets}, so adding a game does not load anything again.
+ * <br><br>
+ * The games are stepped together. Each step takes one action per game as an
+ * int array of button flags (see {@link #LEFT} and the rest), runs every game
+ * for a fixed number of ticks on a {@link FrameJobSystem}, and fills in flat
+ * arrays of observations, rewards and done flags, one slot per game. The
+ * arrays are made once and reused, so stepping does not create any objects.
+ * <br><br>
+ * A game that ends (game over, winning or running out of ticks) is marked as
+ * done for that step and is started again straight away, so its observation
+ * is already the first of the next episode.
+ * <br><br>
+ * Usage, to measure how fast the games can be stepped with random actions:
+ * <p>
+ * PunchManBatch [games] [threads] [steps]
+ *
+ * @author Luke S
+ */
+public class PunchManBatch {
+
+	/**
+	 * These are the button flags an action is made of. A button is pressed while
+	 * its flag is set and released when it is cleared.
+	 */
+	public static final int LEFT = 1, RIGHT = 2, JUMP = 4, ATTACK = 8, INTERACT = 16;
+
+	/**
+	 * Responsible for storing the size of the grid of tiles around the player
+	 * included in each observation.
+	 */
+	public static final int GRID_WIDTH = 9, GRID_HEIGHT = 7;
+
+	/**
+	 * Responsible for storing the indexes of the values in each observation. The
+	 * position and distances are in tiles, velocities are in pixels per
+	 * millisecond and flags are 0 or 1. The grid of tiles around the player
+	 * follows on from OBS_GRID, row after row, each holding the TileType flags of
+	 * its tile (tiles outside of the map are SOLID).
+	 */
+	public static final int OBS_X = 0, OBS_Y = 1, OBS_DX = 2, OBS_DY = 3, OBS_ON_GROUND = 4, OBS_ATTACKING = 5,
+			OBS_HITS = 6, OBS_LIVES = 7, OBS_DIAMONDS = 8, OBS_COINS = 9, OBS_LEVEL = 10, OBS_PORTAL = 11,
+			OBS_ENEMY = 12, OBS_ENEMY_DX = 13, OBS_ENEMY_DY = 14, OBS_GRID = 15;
+
+	/**
+	 * Responsible for storing the number of values in each observation.
+	 */
+	public static final int OBSERVATION_SIZE = OBS_GRID + GRID_WIDTH * GRID_HEIGHT;
+
+	/**
+	 * Responsible for storing the rewards given for each thing that happens in a
+	 * game. Coins are worth 1.
+	 */
+	private static final float DIAMOND_REWARD = 5, LEVEL_REWARD = 25, WIN_REWARD = 100, HIT_PENALTY = 2,
+			LIFE_PENALTY = 10;
+
+	/**
+	 * Responsible for storing the size of the view each game keeps its camera
+	 * for. Nothing is drawn, but the worlds need one.
+	 */
+	private static final int VIEW_WIDTH = 800, VIEW_HEIGHT = 400;
+
+	/**
+	 * Responsible for storing the keys each button presses.
+	 */
+	private static final int[] BUTTON_KEYS = { KeyEvent.VK_A, KeyEvent.VK_D, KeyEvent.VK_SPACE, KeyEvent.VK_F,
+			KeyEvent.VK_E };
+
+	/**
+	 * Responsible for storing the length of a tick in milliseconds, the number of
+	 * ticks each step runs for and the most ticks an episode can last.
+	 */
+	private final int tickMillis, ticksPerStep;
+
+	private final long maxEpisodeTicks;
+
+	/**
+	 * Responsible for storing the games.
+	 */
+	private final List<Game> games = new ArrayList<>();
+
+	/**
+	 * Responsible for storing the job system the games are stepped on.
+	 */
+	private final FrameJobSystem jobs;
+
+	/**
+	 * Responsible for storing the observations, rewards and done flags of the
+	 * last step, game i uses slot i (and OBSERVATION_SIZE slots from i *
+	 * OBSERVATION_SIZE of the observations).
+	 */
+	private final float[] observations;
+
+	private final float[] rewards;
+
+	private final boolean[] dones;
+
+	/**
+	 * Responsible for storing the actions of the current step.
+	 */
+	private int[] actions;
+
+	/**
+	 * Responsible for storing the job that steps one game.
+	 */
+	private final FrameJobSystem.EntityJob<Game> stepJob = game -> game.step(actions[game.index]);
+
+	/**
+	 * Creates the state of a PunchManBatch and starts every game.
+	 *
+	 * @param size            The number of games
+	 * @param threads         The number of threads to step the games on
+	 * @param tickMillis      The length of a tick in milliseconds
+	 * @param ticksPerStep    The number of ticks each action is held for
+	 * @param maxEpisodeTicks The most ticks an episode can last before it is
+	 *                        ended
+	 */
+	public PunchManBatch(int size, int threads, int tickMillis, int ticksPerStep, long maxEpisodeTicks) {
+		if (size <= 0 || tickMillis <= 0 || ticksPerStep <= 0) {
+			throw new IllegalArgumentException("The size, tick length and ticks per step must be at least 1");
+		}
+
+		this.tickMillis = tickMillis;
+
+		this.ticksPerStep = ticksPerStep;
+
+		this.maxEpisodeTicks = maxEpisodeTicks;
+
+		// Split the games into a few chunks per thread so idle threads can steal
+		// from busy ones. Each world only has a couple of enemies, so its own stages
+		// always run on the thread stepping it and never touch the pool.
+		this.jobs = new FrameJobSystem(threads, Math.max(1, size / (Math.max(1, threads) * 4)));
+
+		this.observations = new float[size * OBSERVATION_SIZE];
+
+		this.rewards = new float[size];
+
+		this.dones = new boolean[size];
+
+		this.actions = new int[size];
+
+		PunchManAssets assets = new PunchManAssets();
+
+		for (int i = 0; i < size; i++) {
+			PunchManWorld world = new PunchManWorld(assets, jobs, VIEW_WIDTH, VIEW_HEIGHT, false);
+
+			world.setRewindSnapshots(0);
+
+			games.add(new Game(i, world));
+		}
+
+		reset();
+	}
+
+	/**
+	 * This method is responsible for starting every game again from the first
+	 * level, and filling in the first observations.
+	 */
+	public void reset() {
+		for (Game game : games) {
+			game.reset();
+
+			rewards[game.index] = 0;
+
+			dones[game.index] = false;
+		}
+	}
+
+	/**
+	 * This method is responsible for running every game for one step and filling
+	 * in the observations, rewards and done flags.
+	 *
+	 * @param actions The button flags to hold for each game
+	 */
+	public void step(int[] actions) {
+		if (actions.length < games.size()) {
+			throw new IllegalArgumentException("Expected " + games.size() + " actions, got " + actions.length);
+		}
+
+		this.actions = actions;
+
+		jobs.runStage(games, stepJob);
+	}
+
+	/**
+	 * @return The observations of every game after the last step, game i starts at
+	 *         i * OBSERVATION_SIZE. This array is reused by every step.
+	 */
+	public float[] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * @return The reward each game earned in the last step. This array is reused
+	 *         by every step.
+	 */
+	public float[] getRewards() {
+		return rewards;
+	}
+
+	/**
+	 * @return Whether each game ended in the last step, and so was started again.
+	 *         This array is reused by every step.
+	 */
+	public boolean[] getDones() {
+		return dones;
+	}
+
+	/**
+	 * @return The number of games
+	 */
+	public int size() {
+		return games.size();
+	}
+
+	/**
+	 * This method is responsible for stopping the threads used to step the games.
+	 */
+	public void shutdown() {
+		for (Game game : games) {
+			game.world.shutdown();
+		}
+
+		jobs.shutdown();
+	}
+
+	/**
+	 * Private class which holds one game and what it looked like after its last
+	 * step, so the reward for the next step can be worked out.
+	 */
+	private class Game {
+
+		/**
+		 * Responsible for storing the slot of this game in the arrays.
+		 */
+		private final int index;
+
+		/**
+		 * Responsible for storing the world being played.
+		 */
+		private final PunchManWorld world;
+
+		/**
+		 * Responsible for storing the buttons that are held down.
+		 */
+		private int held;
+
+		/**
+		 * Responsible for storing the number of ticks the episode has lasted.
+		 */
+		private long episodeTicks;
+
+		/**
+		 * Responsible for storing the counters seen after the last step.
+		 */
+		private int level, coins, diamonds, hits, lives;
+
+		Game(int index, PunchManWorld world) {
+			this.index = index;
+
+			this.world = world;
+		}
+
+		/**
+		 * This method is responsible for starting the game again from the first
+		 * level and writing its first observation.
+		 */
+		void reset() {
+			press(0);
+
+			world.initialiseGame();
+
+			world.applyCommand(InputCommand.action(PunchManWorld.ACTION_PLAY));
+
+			episodeTicks = 0;
+
+			remember();
+
+			observe();
+		}
+
+		/**
+		 * This method is responsible for holding the buttons in 'action' for one
+		 * step, then writing the reward, done flag and observation.
+		 */
+		void step(int action) {
+			press(action);
+
+			for (int i = 0; i < ticksPerStep; i++) {
+				world.tick(tickMillis);
+			}
+
+			episodeTicks += ticksPerStep;
+
+			PlayerSprite player = world.getPlayer();
+
+			GameStatus status = world.getStatus();
+
+			float reward = 0;
+
+			if (world.getLevelIndex() != level) {
+				reward += LEVEL_REWARD;
+			} else {
+				reward += (world.getCoinCount() - coins) + DIAMOND_REWARD * (player.getDiamonds() - diamonds);
+			}
+
+			if (player.getLives() < lives) {
+				reward -= LIFE_PENALTY * (lives - player.getLives());
+			} else if (player.getHits() < hits) {
+				reward -= HIT_PENALTY * (hits - player.getHits());
+			}
+
+			if (status == GameStatus.GAME_WIN) {
+				reward += WIN_REWARD;
+			}
+
+			rewards[index] = reward;
+
+			dones[index] = status == GameStatus.GAME_OVER || status == GameStatus.GAME_WIN
+					|| episodeTicks >= maxEpisodeTicks;
+
+			if (dones[index]) {
+				reset();
+			} else {
+				remember();
+
+				observe();
+			}
+		}
+
+		/**
+		 * This method is responsible for pressing the buttons that are set in
+		 * 'action' and not held, and releasing the ones that are held and not set.
+		 */
+		private void press(int action) {
+			for (int b = 0; b < BUTTON_KEYS.length; b++) {
+				int flag = 1 << b;
+
+				if ((action & flag) != 0 && (held & flag) == 0) {
+					world.applyCommand(InputCommand.keyPressed(BUTTON_KEYS[b]));
+				} else if ((action & flag) == 0 && (held & flag) != 0) {
+					world.applyCommand(InputCommand.keyReleased(BUTTON_KEYS[b]));
+				}
+			}
+
+			held = action;
+		}
+
+		/**
+		 * This method is responsible for remembering the counters the next reward
+		 * is worked out from.
+		 */
+		private void remember() {
+			PlayerSprite player = world.getPlayer();
+
+			level = world.getLevelIndex();
+
+			coins = world.getCoinCount();
+
+			diamonds = player.getDiamonds();
+
+			hits = player.getHits();
+
+			lives = player.getLives();
+		}
+
+		/**
+		 * This method is responsible for writing the observation of this game.
+		 */
+		private void observe() {
+			PlayerSprite player = world.getPlayer();
+
+			TileMap map = world.getCurrentMap();
+
+			float tileWidth = map.getTileWidth();
+
+			float tileHeight = map.getTileHeight();
+
+			float px = (player.getX() + player.getWidth() / 2f) / tileWidth;
+
+			float py = (player.getY() + player.getHeight() / 2f) / tileHeight;
+
+			int o = index * OBSERVATION_SIZE;
+
+			observations[o + OBS_X] = px;
+			observations[o + OBS_Y] = py;
+			observations[o + OBS_DX] = player.getVelocityX();
+			observations[o + OBS_DY] = player.getVelocityY();
+			observations[o + OBS_ON_GROUND] = player.isOnGround() ? 1 : 0;
+			observations[o + OBS_ATTACKING] = player.isAttacking() ? 1 : 0;
+			observations[o + OBS_HITS] = player.getHits();
+			observations[o + OBS_LIVES] = player.getLives();
+			observations[o + OBS_DIAMONDS] = player.getDiamonds();
+			observations[o + OBS_COINS] = world.getCoinCount();
+			observations[o + OBS_LEVEL] = world.getLevelIndex();
+			observations[o + OBS_PORTAL] = world.getPortal().isVisible() ? 1 : 0;
+
+			// The nearest enemy that is still alive
+			float nearest = Float.MAX_VALUE, enemyDx = 0, enemyDy = 0;
+
+			List<WalkingEnemy> enemies = world.getEnemies();
+
+			for (int i = 0; i < enemies.size(); i++) {
+				Sprite enemy = enemies.get(i);
+
+				if (enemy.isDead() || !enemy.isVisible()) {
+					continue;
+				}
+
+				float dx = (enemy.getX() + enemy.getWidth() / 2f) / tileWidth - px;
+
+				float dy = (enemy.getY() + enemy.getHeight() / 2f) / tileHeight - py;
+
+				if (dx * dx + dy * dy < nearest) {
+					nearest = dx * dx + dy * dy;
+
+					enemyDx = dx;
+
+					enemyDy = dy;
+				}
+			}
+
+			observations[o + OBS_ENEMY] = nearest < Float.MAX_VALUE ? 1 : 0;
+			observations[o + OBS_ENEMY_DX] = enemyDx;
+			observations[o + OBS_ENEMY_DY] = enemyDy;
+
+			int left = (int) px - GRID_WIDTH / 2;
+
+			int top = (int) py - GRID_HEIGHT / 2;
+
+			o += OBS_GRID;
+
+			for (int y = 0; y < GRID_HEIGHT; y++) {
+				for (int x = 0; x < GRID_WIDTH; x++) {
+					observations[o++] = map.getTileTypes().getFlags(map.getTileChar(left + x, top + y));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Steps a batch of games with random actions and reports how fast it went.
+	 *
+	 * @param args The number of games, threads and steps, all optional
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		int steps = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		long start = System.nanoTime();
+
+		PunchManBatch batch = new PunchManBatch(size, threads, PunchMan.TICK_MILLIS, 4, 20000);
+
+		System.out.printf("Created %d games in %.0fms%n", size, (System.nanoTime() - start) / 1e6);
+
+		int[] actions = new int[size];
+
+		// A cheap random number per game, so the actions are the same every run
+		int[] seeds = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			seeds[i] = i * 0x9E3779B9 + 1;
+		}
+
+		int episodes = 0;
+
+		double totalReward = 0;
+
+		start = System.nanoTime();
+
+		for (int s = 0; s < steps; s++) {
+			// Change the buttons held now and then, like a player would
+			for (int i = 0; i < size; i++) {
+				seeds[i] ^= seeds[i] << 13;
+				seeds[i] ^= seeds[i] >>> 17;
+				seeds[i] ^= seeds[i] << 5;
+
+				if ((seeds[i] & 0x700) == 0) {
+					actions[i] = seeds[i] & (LEFT | RIGHT | JUMP | ATTACK | INTERACT);
+				}
+			}
+
+			batch.step(actions);
+
+			for (int i = 0; i < size; i++) {
+				totalReward += batch.getRewards()[i];
+
+				if (batch.getDones()[i]) {
+					episodes++;
+				}
+			}
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long gameSteps = (long) size * steps;
+
+		System.out.printf("%d steps of %d games on %d threads in %.2fs: %.0f steps/s, %.0f ticks/s%n", steps, size,
+				threads, seconds, gameSteps / seconds, gameSteps * batch.ticksPerStep / seconds);
+
+		System.out.printf("%d episodes finished, average reward per step %.4f%n", episodes, totalReward / gameSteps);
+
+		batch.shutdown();
+	}
+}
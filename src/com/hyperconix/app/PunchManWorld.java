@@ -0,0 +1,2257 @@
+package com.hyperconix.app;
+
+import java.awt.event.KeyEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.hyperconix.game2D.Animation;
+import com.hyperconix.game2D.Camera;
+import com.hyperconix.game2D.CollisionManager;
+import com.hyperconix.game2D.EventBus;
+import com.hyperconix.game2D.FlowField;
+import com.hyperconix.game2D.FrameJobSystem;
+import com.hyperconix.game2D.FrameProfiler;
+import com.hyperconix.game2D.InputCommand;
+import com.hyperconix.game2D.InputQueue;
+import com.hyperconix.game2D.MapPoint;
+import com.hyperconix.game2D.MIDIPlayer;
+import com.hyperconix.game2D.NavGraph;
+import com.hyperconix.game2D.PlayerSprite;
+import com.hyperconix.game2D.RenderState;
+import com.hyperconix.game2D.ReplayLog;
+import com.hyperconix.game2D.RollingHistogram;
+import com.hyperconix.game2D.Simulation;
+import com.hyperconix.game2D.Snapshot;
+import com.hyperconix.game2D.SnapshotBuffer;
+import com.hyperconix.game2D.SoundPlayer;
+import com.hyperconix.game2D.Sprite;
+import com.hyperconix.game2D.Stateful;
+import com.hyperconix.game2D.Tile;
+import com.hyperconix.game2D.TileMap;
+import com.hyperconix.game2D.TileType;
+import com.hyperconix.game2D.TimingWheel;
+import com.hyperconix.game2D.WalkingEnemy;
+
+/**
+ * This class is responsible for holding the state and rules of Punch Man, the
+ * player, the enemies, the levels and everything that happens to them. It has
+ * no window, so it can be run by the game through {@link PunchMan} or on its
+ * own with no display at all, for example to play back a recorded session.
+ * <br><br>
+ * Input does not change the game straight away. Key presses and menu actions
+ * are submitted as commands (see {@link InputCommand}) from whichever thread
+ * receives them, and applied at the start of the next tick on the thread
+ * running the game. Given the same commands on the same ticks, and the same
+ * tick length, the game always plays out the same way.
+ * <br><br>
+ * The state of the level being played (everything apart from the tick count,
+ * status and settings) can be captured as a {@link Snapshot}. Tiles are
+ * captured as the changes from the map file, so a snapshot is usually well
+ * under a kilobyte. Snapshots are used to start a level without loading its
+ * map again, to respawn the player at the last checkpoint and to rewind the
+ * last few seconds of play with R.
+ * <br><br>
+ * The levels are described by a manifest (see {@link LevelDefinition}), and
+ * their maps and animations come from a {@link PunchManAssets}, which can be
+ * shared by many worlds, so lots of games can be run side by side in one
+ * process (see {@link PunchManBatch}).
+ *
+ * @author Luke S
+ */
+public class PunchManWorld implements Simulation {
+
+	/**
+	 * Responsible for storing the action sent when the play button on the menu is
+	 * clicked.
+	 */
+	public static final int ACTION_PLAY = 1;
+
+	/**
+	 * Responsible for storing the camera, which keeps the view onto the level on
+	 * the player.
+	 */
+	private final Camera camera;
+
+	/**
+	 * Responsible for storing whether sounds and music should be played. This is
+	 * turned off when there is nobody to listen, such as when replaying.
+	 */
+	private final boolean audio;
+
+	/**
+	 * Responsible for storing the number of sounds that can play at once.
+	 */
+	private static final int SOUND_VOICES = 4;
+
+	/**
+	 * Responsible for storing the player the sounds are played by, null if audio
+	 * is off.
+	 */
+	private SoundPlayer soundPlayer;
+
+	/**
+	 * Responsible for storing the number of ticks that have been run.
+	 */
+	private long tickCount;
+
+	/**
+	 * Responsible for storing the commands that have been submitted but not yet
+	 * applied. The thread that submits commands hands them to the thread that
+	 * runs the ticks through this, without either taking a lock.
+	 */
+	private final InputQueue pendingCommands = new InputQueue(256);
+
+	/**
+	 * Responsible for storing the commands being applied in the current tick, and
+	 * when each was submitted.
+	 */
+	private final int[] tickCommands = new int[256];
+
+	private final long[] tickCommandTimes = new long[256];
+
+	/**
+	 * Responsible for storing how long the recent commands waited between being
+	 * submitted and being applied by a tick.
+	 */
+	private final RollingHistogram inputLatency = new RollingHistogram(256);
+
+	/**
+	 * Responsible for storing the log the commands are being recorded into, or
+	 * null when not recording.
+	 */
+	private ReplayLog recording;
+
+	/**
+	 * Responsible for storing the number of ticks between the snapshots kept for
+	 * rewinding, and how many of them are kept (30 seconds with 10ms ticks).
+	 */
+	private static final int REWIND_INTERVAL = 10, REWIND_SNAPSHOTS = 300;
+
+	/**
+	 * Responsible for storing the state of each level as it starts, indexed by
+	 * the level, or null for a level that has not been played yet.
+	 */
+	private final Snapshot[] levelStarts;
+
+	/**
+	 * Responsible for storing the state of the level when the player last reached
+	 * a checkpoint. This is empty until the first checkpoint in a level.
+	 */
+	private final Snapshot checkpoint = new Snapshot();
+
+	/**
+	 * Responsible for storing a flag which indicates whether a checkpoint should
+	 * be captured as soon as the player is standing somewhere safe.
+	 */
+	private boolean checkpointPending;
+
+	/**
+	 * Responsible for storing the recent states of the level, for rewinding, or
+	 * null if rewinding is turned off.
+	 */
+	private SnapshotBuffer rewindBuffer = new SnapshotBuffer(REWIND_SNAPSHOTS);
+
+	/**
+	 * Responsible for storing the state of the level being played, this is what
+	 * the level snapshots capture and restore.
+	 */
+	private final Stateful levelState = new Stateful() {
+		@Override
+		public void writeState(DataOutput out) throws IOException {
+			writeLevelState(out);
+		}
+
+		@Override
+		public void readState(DataInput in) throws IOException {
+			readLevelState(in);
+		}
+	};
+
+	/**
+	 * Responsible for storing the number of slots in the timing wheel and the
+	 * milliseconds each covers, one tick per slot.
+	 */
+	private static final int TIMER_SLOTS = 256, TIMER_RESOLUTION = 10;
+
+	/**
+	 * Responsible for storing the timing wheel the delayed events of the game are
+	 * scheduled on. It is moved on by each update, so only runs while the game is
+	 * being played.
+	 */
+	private final TimingWheel timers = new TimingWheel(TIMER_SLOTS, TIMER_RESOLUTION);
+
+	/**
+	 * Responsible for storing the timer that ends the player's attack once its
+	 * animation has played through.
+	 */
+	private final TimingWheel.Timer attackEnd = new TimingWheel.Timer(this::endAttack);
+
+	/**
+	 * Responsible for storing the bus the gameplay events of each tick are posted
+	 * on, they are handed to the scoring, audio and anything else subscribed
+	 * once the physics of the tick is done.
+	 */
+	private final EventBus events = new EventBus();
+
+	/**
+	 * Responsible for storing the channel of each type of gameplay event.
+	 */
+	private final EventBus.Channel<ItemCollected> itemsCollected = events.channel("items collected",
+			ItemCollected::new);
+
+	private final EventBus.Channel<EnemyHit> enemiesHit = events.channel("enemies hit", EnemyHit::new);
+
+	private final EventBus.Channel<PlayerDamaged> playerDamaged = events.channel("player damaged",
+			PlayerDamaged::new);
+
+	private final EventBus.Channel<PortalEntered> portalsEntered = events.channel("portals entered",
+			PortalEntered::new);
+
+	/**
+	 * Responsible for storing the players starting x value.
+	 */
+	private float startingX = 64;
+
+	/**
+	 * Responsible for storing the players starting y value.
+	 */
+	private float startingY = 138;
+
+	/**
+	 * Responsible for storing the current coin count for the level.
+	 */
+	private int coinCount;
+
+	/**
+	 * Responsible for storing a float which represents the lift of the player when
+	 * gravity is applied.
+	 */
+	private float lift = -0.12f;
+
+	/*
+	 * 8 Responsible for storing the background MIDIPlayer used for the background
+	 * music.
+	 */
+	private MIDIPlayer backgroundPlayer;
+
+	/**
+	 * Responsible for storing the MIDI file the background player is playing, or
+	 * null if there is none.
+	 */
+	private String backgroundMusic;
+
+	/**
+	 * Responsible for storing the current status of the game.
+	 */
+	private GameStatus currentStatus;
+
+	/**
+	 * Responsible for storing the current level of the game, the index of the
+	 * level in the manifest starting from 0.
+	 */
+	private int currentLevel;
+
+	/**
+	 * Responsible for storing a float which represents the gravity of the player.
+	 */
+	private float gravity = 0.0003f;
+
+	/**
+	 * Responsible for storing a flag which indicates whether or not debug mode is
+	 * enabled.
+	 * 
+	 * @see PunchManWorld#enableDebugMode()
+	 */
+	private boolean debugMode = false;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the player is in the
+	 * portal bounds or not.
+	 */
+	private boolean inPortalBounds = false;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the player is in the
+	 * bounds of the switch or not.
+	 */
+	private boolean inSwitchBounds = false;
+	
+	/**
+	 * Responsible for storing a flag which indicates whether the switch (if there is one) is flipped
+	 */
+	private boolean switchFlipped = false;
+	
+	/**
+	 * Responsible for storing a flag which which represents whether the background music should be muted.
+	 */
+	private boolean muteBackgroundMusic = false;
+
+	/**
+	 * Responsible for storing the Sprite that represents the player.
+	 */
+	private PlayerSprite player;
+
+	/**
+	 * Responsible for storing the list of enemies.
+	 */
+	private ArrayList<WalkingEnemy> enemies;
+
+	/**
+	 * Responsible for storing the portal sprite.
+	 */
+	private Sprite portal;
+
+	/**
+	 * Responsible for storing the switch sprite.
+	 */
+	private Sprite switchSprite;
+
+	/**
+	 * Responsible for storing the players animations.
+	 */
+	private Animation playerMove, playerIdle, playerAttack;
+
+	/**
+	 * Responsible for storing the blue spike enemies animation. This enemy only ha
+	 * a move animation.
+	 */
+	private Animation blueSpikeMove;
+
+	/**
+	 * Responsible for storing the portal animations. Portals are used to traverse
+	 * levels, and complete the game if it is the last level.
+	 */
+	private Animation portalAnimation;
+
+	/**
+	 * Responsible for storing the switch animations. Switches are used to change
+	 * certain things in the environment. Such as revealing platforms or gems.
+	 */
+	private Animation switchAnimation;
+
+	/**
+	 * Responsible for storing the maps and animations this world copies its own
+	 * from.
+	 */
+	private final PunchManAssets assets;
+
+	/**
+	 * Responsible for storing the tile map of each level, copied from the assets
+	 * when the level is first played, so each level keeps its own tiles.
+	 */
+	private final TileMap[] levelMaps;
+
+	/**
+	 * Responsible for storing the flow field of each level, built over its map
+	 * when the enemies first chase the player there, and the field the enemies
+	 * are chasing along this tick.
+	 */
+	private final FlowField[] levelFields;
+
+	private FlowField enemyField;
+
+	/**
+	 * Responsible for storing the current map. This will be changed depending on
+	 * what level the player is currently on.
+	 */
+	private TileMap currentMap;
+
+	/**
+	 * Responsible for storing the total score for the player.
+	 */
+	private long total;
+
+	/**
+	 * Responsible for storing the Collision Manager for the game.
+	 */
+	private CollisionManager collisionManager;
+
+	/**
+	 * Responsible for storing the indexes of the counters captured in each
+	 * snapshot.
+	 */
+	static final int STATE_LIVES = 0, STATE_HITS = 1, STATE_DIAMONDS = 2, STATE_COINS = 3, STATE_TOTAL = 4,
+			STATE_COINS_LEFT = 5, STATE_LEVEL = 6;
+
+	/**
+	 * Responsible for storing the indexes the sprites are captured at in each
+	 * snapshot. Enemies follow on from the first enemy index.
+	 */
+	static final int STATE_PLAYER = 0, STATE_PORTAL = 1, STATE_SWITCH = 2, STATE_FIRST_ENEMY = 3;
+
+	/**
+	 * Responsible for storing the job system used to run the per enemy stages of
+	 * the update in parallel.
+	 */
+	private final FrameJobSystem jobs;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the job system was
+	 * created by this world, and so should be shut down with it.
+	 */
+	private final boolean ownsJobs;
+
+	/**
+	 * Responsible for storing the elapsed time of the current update, so the
+	 * enemy update job can read it without a new job being created every frame.
+	 */
+	private long stageElapsed;
+
+	/**
+	 * Responsible for storing the per enemy jobs. Each of these only reads the
+	 * current map and flow field and only writes to the enemy it is given, so
+	 * they can safely run in parallel.
+	 */
+	private final FrameJobSystem.EntityJob<WalkingEnemy> enemyMoveJob = enemy -> enemy.chase(enemyField, currentMap,
+			0.1f);
+
+	private final FrameJobSystem.EntityJob<WalkingEnemy> enemyUpdateJob = enemy -> enemy.update(stageElapsed);
+
+	private final FrameJobSystem.EntityJob<WalkingEnemy> enemyCollisionJob = enemy -> checkTileCollision(enemy,
+			currentMap);
+
+	/**
+	 * Responsible for storing the profiler the stages of each tick are timed
+	 * with, or null if they are not being timed.
+	 */
+	private FrameProfiler profiler;
+
+	/**
+	 * Responsible for storing the ids of the stages of a tick in the profiler.
+	 */
+	private int inputPhase, playerPhase, enemyAIPhase, enemiesPhase, collisionsPhase, eventsPhase;
+
+	/**
+	 * Creates the state of a PunchManWorld, loading the maps and animations, and
+	 * places everything ready for the first level. The game starts at the menu.
+	 * 
+	 * @param viewWidth  The width of the view onto the level in pixels
+	 * @param viewHeight The height of the view onto the level in pixels
+	 * @param audio      {@code true} to play sounds and music, {@code false} to
+	 *                   run silently
+	 */
+	public PunchManWorld(int viewWidth, int viewHeight, boolean audio) {
+		this(new PunchManAssets(), null, viewWidth, viewHeight, audio);
+	}
+
+	/**
+	 * Creates the state of a PunchManWorld from assets that have already been
+	 * loaded, so no files are read, waiting for them first if they are still
+	 * loading. The game starts at the menu.
+	 * 
+	 * @param assets     The maps and animations to copy
+	 * @param jobs       The job system to run the enemy stages on, or null to
+	 *                   create one for this world. A shared job system is not
+	 *                   shut down with the world.
+	 * @param viewWidth  The width of the view onto the level in pixels
+	 * @param viewHeight The height of the view onto the level in pixels
+	 * @param audio      {@code true} to play sounds and music, {@code false} to
+	 *                   run silently
+	 */
+	public PunchManWorld(PunchManAssets assets, FrameJobSystem jobs, int viewWidth, int viewHeight,
+			boolean audio) {
+		assets.awaitLoaded();
+
+		this.assets = assets;
+
+		this.ownsJobs = jobs == null;
+
+		this.jobs = jobs == null ? new FrameJobSystem() : jobs;
+
+		this.camera = new Camera(viewWidth, viewHeight);
+
+		this.audio = audio;
+
+		collisionManager = new CollisionManager();
+
+		itemsCollected.subscribe(this::scoreItems);
+
+		currentStatus = GameStatus.GAME_MENU;
+
+		currentLevel = 0;
+
+		if (audio) {
+			soundPlayer = new SoundPlayer(SOUND_VOICES);
+
+			subscribeSounds();
+		}
+
+		levelMaps = new TileMap[assets.getLevelCount()];
+
+		levelFields = new FlowField[assets.getLevelCount()];
+
+		levelStarts = new Snapshot[assets.getLevelCount()];
+
+		currentMap = getLevelMap(0);
+
+		setAnimations();
+
+		enemies = new ArrayList<>();
+
+		for (int i = 0; i < assets.getMaxEnemies(); i++) {
+			// Each enemy gets its own copy of the animation so that updating one enemy
+			// never touches the state of another
+			WalkingEnemy enemy = new WalkingEnemy(new Animation(blueSpikeMove));
+			enemy.setScale(2.0f);
+			enemies.add(enemy);
+		}
+
+		player = new PlayerSprite(playerIdle);
+
+		portal = new Sprite(portalAnimation);
+
+		switchSprite = new Sprite(switchAnimation);
+
+		player.setScale(2.0f);
+
+		portal.setScale(1.0f);
+
+		// Set up the first level and keep it, starting or restarting a level is then
+		// just a matter of restoring it. The other levels are set up when they are
+		// first played.
+		getLevelStart(0);
+
+		initialiseGame();
+	}
+
+	/**
+	 * This method is responsible for starting the game again from the first
+	 * level.
+	 */
+	public void initialiseGame() {
+		currentLevel = 0;
+
+		reload();
+	}
+
+	/**
+	 * Capture everything needed to draw the current frame into the given
+	 * snapshot. This is called after each update, on the simulation thread when
+	 * running in pipelined mode.
+	 * 
+	 * @param state The snapshot to fill in
+	 */
+	public void captureState(RenderState state) {
+		state.setStatus(currentStatus.ordinal());
+
+		state.setCounter(STATE_LIVES, player.getLives());
+
+		state.setCounter(STATE_HITS, player.getHits());
+
+		state.setCounter(STATE_DIAMONDS, player.getDiamonds());
+
+		state.setCounter(STATE_COINS, coinCount);
+
+		state.setCounter(STATE_TOTAL, total);
+
+		state.setCounter(STATE_COINS_LEFT, currentMap.getTiles('c').size());
+
+		state.setCounter(STATE_LEVEL, currentLevel);
+
+		if (currentStatus != GameStatus.GAME_STARTED) {
+			return;
+		}
+
+		// The camera is moved each tick, but not until the first tick after the level
+		// is put back, so it is put on the player here if it has not been yet
+		if (camera.isSnapping()) {
+			camera.follow(player.getX(), player.getY(), 0);
+		}
+
+		state.setCamera(camera);
+
+		state.setDebug(debugMode);
+
+		// The order here must match the STATE_ sprite indexes
+		state.addSprite(player);
+
+		state.addSprite(portal);
+
+		state.addSprite(switchSprite);
+
+		for (Sprite enemy : enemies) {
+			state.addSprite(enemy);
+		}
+
+		state.captureTiles(currentMap);
+	}
+
+	/**
+	 * Update any sprites and check for collisions
+	 *
+	 * @param elapsed The elapsed time between this call and the previous call of
+	 *                elapsed
+	 */
+	public void update(long elapsed) {
+
+		if (currentStatus != GameStatus.GAME_STARTED) {
+			return;
+		}
+			
+		player.setAnimationSpeed(1.0f);
+
+		portal.setAnimationSpeed(1.0f);
+
+		if (player.isDead() || player.isOnDeathTile()) {
+			playSound("sounds/death.wav");
+
+			respawnPlayer();
+
+			player.setOnDeathTile(false);
+		}
+
+		if (player.getLives() == 0)
+			currentStatus = GameStatus.GAME_OVER;
+
+		if (player.isMovingRight()) {
+			player.setVelocityX(0.1f);
+		}
+
+		if (player.isMovingLeft()) {
+			player.setVelocityX(-0.1f);
+		}
+
+		// Apply conditional gravity to player when they are not on the ground
+		if (!player.isOnGround()) {
+			player.setVelocityY(player.getVelocityY() + (gravity * elapsed));
+		}
+
+		beginPhase(playerPhase);
+
+		// Now update the sprites animation and position
+		player.update(elapsed);
+
+		portal.update(elapsed);
+		
+		switchSprite.update(elapsed);
+
+		timers.advance(elapsed);
+
+		checkIdleState();
+
+		checkBackgroundMusic();
+
+		endPhase(playerPhase);
+
+		beginPhase(enemyAIPhase);
+
+		checkEnemyPathFinding();
+
+		endPhase(enemyAIPhase);
+
+		beginPhase(collisionsPhase);
+
+		checkPlayerToSpriteCollisions();
+
+		endPhase(collisionsPhase);
+
+		beginPhase(enemiesPhase);
+
+		stageElapsed = elapsed;
+
+		jobs.runStage(enemies, enemyUpdateJob);
+
+		endPhase(enemiesPhase);
+
+		beginPhase(collisionsPhase);
+
+		handleScreenEdge(player, currentMap, elapsed);
+
+		checkTileCollision(player, currentMap);
+
+		jobs.runStage(enemies, enemyCollisionJob);
+
+		endPhase(collisionsPhase);
+
+		beginPhase(eventsPhase);
+
+		events.dispatch();
+
+		endPhase(eventsPhase);
+
+		checkCheckpoint();
+
+		if (rewindBuffer != null && tickCount % REWIND_INTERVAL == 0) {
+			rewindBuffer.capture(levelState);
+		}
+	}
+
+	/**
+	 * This method is responsible for capturing a checkpoint once one is due and
+	 * the player is standing somewhere safe, so they are never respawned into
+	 * danger.
+	 */
+	public void checkCheckpoint() {
+		if (checkpointPending && player.isOnGround() && !player.isDead() && !player.isOnDeathTile()) {
+			checkpoint.capture(levelState);
+
+			checkpointPending = false;
+		}
+	}
+
+	/**
+	 * This method is responsible for handling the idle state of the player. The
+	 * player is considered idle if they are neither moving left or right. This will
+	 * trigger an idle animation when the player is in this state.
+	 * 
+	 */
+	public void checkIdleState() {
+
+		if (player.isAttacking()) {
+			return;
+		}
+
+		Animation currentAnimation = player.getAnimation();
+
+		if (player.isIdle()) {
+			player.setAnimation(playerIdle);
+		} else {
+			currentAnimation.play();
+		}
+
+	}
+
+	/**
+	 * This method will end the attack of the player. While the startAttack()
+	 * method is the logic contained when the player presses the attack button F.
+	 * This is called by the attack end timer once the full animation has played,
+	 * ready for the next attack.
+	 */
+	public void endAttack() {
+		playerAttack.start();
+
+		player.setAttacking(false);
+	}
+
+	/**
+	 * This method is responsible for handling the enemy path finding. This means
+	 * for the respective level, calling the move and attack functionality, where
+	 * present. These enemies will interact with the TileMap currently in play.
+	 * The flow field towards the player's feet is brought up to date once, then
+	 * every enemy follows it, so the cost of path finding barely grows with the
+	 * number of enemies. The enemies are independent of each other, so this is
+	 * run as a parallel stage.
+	 */
+	public void checkEnemyPathFinding() {
+		enemyField = getLevelField(currentLevel);
+
+		enemyField.update(player.getX() + player.getWidth() / 2f, player.getY() + player.getHeight() - 1);
+
+		jobs.runStage(enemies, enemyMoveJob);
+	}
+
+	/**
+	 * This method is responsible for checking if the portal has been unlocked,
+	 * this is called whenever a diamond is picked up. Once it is, the next level
+	 * starts loading in the background, so it is ready by the time the player
+	 * goes through the portal.
+	 */
+	public void checkPortalUnlockStatus() {
+		if (player.getDiamonds() >= assets.getLevel(currentLevel).getDiamonds()) {
+			showPortal();
+
+			assets.prefetch(currentLevel + 1);
+		}
+	}
+
+	/**
+	 * This method is responsible for showing the portal whenever the conditions are
+	 * met, depending on the level the player is currently in.
+	 */
+	public void showPortal() {
+		MapPoint point = currentMap.getPoint("portal");
+
+		if (point == null) {
+			return;
+		}
+
+		portal.setX(point.getX());
+		portal.setY(point.getY());
+		portal.show();
+	}
+
+	/**
+	 * This method is responsible for handling the background music which plays.
+	 * This uses a midi track, which is controlled by a class which can modify parts
+	 * of the track at different moments.
+	 */
+	public void checkBackgroundMusic() {
+		
+		if (!audio) {
+			return;
+		}
+
+		String music = assets.getLevel(currentLevel).getMusic();
+
+		// Each level can have its own music, which takes over when the level starts
+		if (!Objects.equals(music, backgroundMusic)) {
+			if (backgroundPlayer != null) {
+				backgroundPlayer.stopScore();
+			}
+
+			backgroundPlayer = music == null ? null : new MIDIPlayer(music);
+
+			backgroundMusic = music;
+		}
+
+		if (backgroundPlayer == null) {
+			return;
+		}
+		
+		if(muteBackgroundMusic) {
+			backgroundPlayer.stopScore();
+			
+			return;
+		}
+
+		if (!backgroundPlayer.playing()) {
+			backgroundPlayer.playScore(true);
+		}
+
+		if (player.getHits() == 1) {
+			backgroundPlayer.solo(1, true);
+
+			backgroundPlayer.alterTempo(2f);
+		} else {
+			backgroundPlayer.solo(1, false);
+
+			backgroundPlayer.alterTempo(1f);
+		}
+	}
+
+	/**
+	 * This method is responsible for handing the world a player that has already
+	 * been made for the current level's music, so the MIDI system is not opened
+	 * on the thread running the game when the music first starts. Nothing
+	 * happens if the world is silent.
+	 *
+	 * @param player The player, made for the current level's music
+	 */
+	public void setBackgroundPlayer(MIDIPlayer player) {
+		if (!audio) {
+			return;
+		}
+
+		backgroundPlayer = player;
+
+		backgroundMusic = assets.getLevel(currentLevel).getMusic();
+	}
+
+	/**
+	 * This method is responsible for checking PlayerToSprite collisions within
+	 * whatever level is currently being played.
+	 */
+	public void checkPlayerToSpriteCollisions() {
+
+		clearBoundFlags();
+
+		// Iterate over Sprites in the level
+		for (int i = 0; i < enemies.size(); i++) {
+			Sprite currentEnemy = enemies.get(i);
+
+			if (collisionManager.boundingBoxCollision(player, currentEnemy)) {
+				// We use the bounding box collision as a first check, then check for a bounding
+				// circle collision
+				if (collisionManager.boundingCircleCollision(player, currentEnemy) && !currentEnemy.isDead()) {
+					if (player.isAttacking()) {
+						enemiesHit.post().set(i, currentEnemy.getX(), currentEnemy.getY());
+
+						currentEnemy.hide();
+
+						currentEnemy.stop();
+
+						currentEnemy.setDead(true);
+					} else {
+						currentEnemy.setScale((float) -currentEnemy.getScaleX(), (float) currentEnemy.getScaleY());
+
+						currentEnemy.setVelocityX(-currentEnemy.getVelocityX());
+
+						player.stop();
+
+						// How much to knock the player back when they get hit. Push them left or right depending on which direction they are facing.
+						float pushBack = player.getScaleX() > 0 ? player.getX() - 4f : player.getX() + 4f;
+
+						player.setHits(player.getHits() - 1);
+
+						if (player.getHits() == 0) {
+							player.setDead(true);
+						}
+
+						player.setX(pushBack);
+						
+						// We will push the player up into the air similar to a jump.
+						// This is to indicate damage has been dealt, but also mitigate them getting stuck when colliding from certain angles.
+						player.setVelocityY(lift);
+
+						playerDamaged.post().set(i, player.getHits());
+					}
+				}
+
+			}
+		}
+		
+		if (collisionManager.boundingBoxCollision(player, portal)) {
+			if (collisionManager.boundingCircleCollision(player, portal)) {
+				inPortalBounds = true;
+			}
+		}
+
+		if (collisionManager.boundingBoxCollision(player, switchSprite)) {
+			if (collisionManager.boundingCircleCollision(player, switchSprite)) {
+				inSwitchBounds = true;
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for respawning the player after they have lost all
+	 * of their health. It will reset their health as well as their dead state. If
+	 * the player has reached a checkpoint the level goes back to how it was there,
+	 * otherwise the player goes back to the start of the level.
+	 */
+	public void respawnPlayer() {
+		int lives = player.getLives();
+
+		if (!checkpoint.isEmpty()) {
+			restoreLevel(checkpoint);
+		}
+
+		player.setLives(lives - 1);
+		player.setDead(false);
+		player.setHits(3);
+
+		if (!checkpoint.isEmpty()) {
+			return;
+		}
+
+		player.setX(startingX);
+
+		player.setY(startingY);
+
+		player.setVelocityX(0);
+
+		player.setVelocityY(0);
+
+		camera.snap();
+	}
+	
+	/**
+	 * This method is responsible for clearing the bounds flags
+	 */
+	public void clearBoundFlags() {
+		inPortalBounds = false;
+
+		inSwitchBounds = false;
+	}
+
+	/**
+	 * Checks and handles collisions with the edge of the screen
+	 *
+	 * @param s       The Sprite to check collisions for
+	 * @param tmap    The tile map to check
+	 * @param elapsed How much time has gone by since the last call
+	 */
+	public void handleScreenEdge(Sprite s, TileMap tmap, long elapsed) {
+		if (s.getY() + s.getHeight() > tmap.getPixelHeight()) {
+			// If the sprite falls of the edge then we will set its dead state to true
+			s.setDead(true);
+		}
+	}
+
+	/**
+	 * This method is responsible for handling a key being pressed. This is only
+	 * called from tick(), with the keys that were submitted since the last tick,
+	 * so the game is never changed from outside of the simulation.
+	 *
+	 * @param key The key code of the key that was pressed, see KeyEvent
+	 */
+	public void keyPressed(int key) {
+
+		if (currentStatus == GameStatus.GAME_PAUSED) {
+			return;
+		}
+
+		switch (key) {
+		case KeyEvent.VK_SPACE:
+			startJump();
+			break;
+		case KeyEvent.VK_1:
+			skipToLevel1();
+			break;
+		case KeyEvent.VK_2:
+			skipToLevel2();
+			break;
+		case KeyEvent.VK_A:
+			movePlayerLeft();
+			break;
+		case KeyEvent.VK_D:
+			movePlayerRight();
+			break;
+		case KeyEvent.VK_F:
+			startAttack();
+			break;
+		case KeyEvent.VK_V:
+			enableDebugMode();
+			break;
+		case KeyEvent.VK_P:
+			pauseGame();
+			break;
+		case KeyEvent.VK_ENTER:
+			startOver();
+			break;
+		case KeyEvent.VK_E:
+			determineInteractiveAction();
+			break;
+		case KeyEvent.VK_M:
+			toggleBackgroundMusic();
+			break;
+		case KeyEvent.VK_R:
+			rewind();
+			break;
+		default:
+			break;
+		}
+
+	}
+
+	/**
+	 * This method is responsible for determining which interactive
+	 * action to activate. This is called whenever the E button is
+	 * pressed.
+	 */
+	public void determineInteractiveAction() {
+		
+		if(inPortalBounds) {
+			enterPortal();
+		}
+		else if(inSwitchBounds) {
+			flipSwitch();
+		}	
+	}
+
+	/**
+	 * This method is responsible for setting the state of the player to move left,
+	 * and if they were facing right it will flip them. This is called whenever the
+	 * A key is pressed.
+	 */
+	public void movePlayerLeft() {
+		// We do not want to allow the player to move while attacking
+		if (player.isAttacking()) {
+			return;
+		}
+
+		// We want to flip the sprite when they are not moving left already and facing
+		// right x > 0
+		if (!player.isMovingLeft() && player.getScaleX() > 0) {
+			player.setScale((float) -player.getScaleX(), (float) player.getScaleY());
+		}
+
+		player.setMovingLeft(true);
+
+		player.setAnimation(playerMove);
+
+	}
+
+	/**
+	 * This method is responsible for setting the state of the player to move right,
+	 * and if they were facing left it will flip them. This is called whenever the D
+	 * key is pressed.
+	 */
+	public void movePlayerRight() {
+		// We do not want to allow the player to move while attacking
+		if (player.isAttacking()) {
+			return;
+		}
+
+		// We want to flip the sprite when they are not moving right already and facing
+		// left x < 0
+		if (!player.isMovingRight() && player.getScaleX() < 0) {
+			player.setScale((float) -player.getScaleX(), (float) player.getScaleY());
+		}
+
+		player.setMovingRight(true);
+
+		player.setAnimation(playerMove);
+	}
+
+	/**
+	 * This method is responsible for determining whether the player can jump and
+	 * setting that state accordingly. The player must be on the ground and not
+	 * already jumping to be able to jump.
+	 */
+	public void startJump() {
+
+		boolean jumpPossible = player.isOnGround() && !player.isJumping();
+
+		if (!jumpPossible) {
+			return;
+		}
+			
+		player.setJumping(true);
+
+		player.setVelocityY(lift);
+
+		player.setOnGround(false);
+
+		playSound("sounds/Jump1.wav");
+	}
+
+	/**
+	 * This method is responsible for determining whether the player can attack and
+	 * setting that state accordingly. The player must not be already attacking or
+	 * moving, and they must be on the ground for the attack to be valid.
+	 * 
+	 * The attack is ended by a timer once the attack animation has played
+	 * through.
+	 * 
+	 * @see PunchManWorld#endAttack()
+	 */
+	public void startAttack() {
+		boolean attackValid = !player.isAttacking() && (!player.isMovingLeft() && !player.isMovingRight())
+				&& !player.getAnimation().equals(playerAttack) && player.isOnGround();
+
+		if (!attackValid) {
+			return;
+		}
+			
+		player.setAttacking(true);
+
+		player.setAnimation(playerAttack);
+
+		timers.schedule(attackEnd, playerAttack.getDuration());
+
+		playSound("sounds/hit28.wav");
+	}
+
+	/**
+	 * This method will enable debug mode for the game. This will render debug
+	 * information such as bounding box/circles around sprite. Information about the
+	 * sprites in the current level etc. This toggles a boolean flag representing
+	 * whether to debug or not.
+	 * 
+	 * @see PunchManWorld#debugMode
+	 */
+	public void enableDebugMode() {
+		debugMode = !debugMode;
+	}
+
+	/**
+	 * This method will pause the game, which means it will set the state to the
+	 * game menu, provided it is not already set. Pressing the P button will toggle
+	 * the pause and then player can click the play button again to resume.
+	 */
+	public void pauseGame() {
+		if (currentStatus != GameStatus.GAME_MENU) {
+			currentStatus = GameStatus.GAME_MENU;
+		}
+	
+	}
+
+	/**
+	 * This method is responsible for starting over when a player has lost and
+	 * resulted in a game over or if the player has completed the game and wants to
+	 * restart. This set the state back to GAME_STARTED and reload the level.
+	 * 
+	 * @see PunchManWorld#reload()
+	 */
+	public void startOver() {
+		if (currentStatus == GameStatus.GAME_OVER) {
+			currentStatus = GameStatus.GAME_STARTED;
+
+		} else if (currentStatus == GameStatus.GAME_WIN) {
+			currentStatus = GameStatus.GAME_STARTED;
+
+			switchLevel(0, "restart");
+
+			return;
+		}
+
+		reload();
+
+	}
+
+	/**
+	 * This method is responsible for entering the portal. They must be in the
+	 * bounds of the portal. This is an interactive action which will be called
+	 * as a result of the player pressing the E button near a portal.
+	 * 
+	 * @see PunchManWorld#determineInteractiveAction()
+	 */
+	public void enterPortal() {
+		total += coinCount;
+
+		boolean lastLevel = currentLevel == levelStarts.length - 1;
+
+		portalsEntered.post().set(currentLevel + 1, coinCount, lastLevel);
+
+		if (lastLevel) {
+			currentStatus = GameStatus.GAME_WIN;
+			return;
+		}
+
+		switchLevel(currentLevel + 1, "portal");
+	}
+	
+	/**
+	 * This method is responsible for flipping the switch. They must
+	 * be in the bounds of the switch. This is an interactive action
+	 * which will be called as a result of the player pressing
+	 * the E button near a portal.
+	 * 
+	 * @see PunchManWorld#determineInteractiveAction()
+	 */
+	public void flipSwitch() {
+		switchFlipped = !switchFlipped;
+		
+		playSound("sounds/Select4.wav");
+		
+		switchSprite.getAnimation().setAnimationFrame(switchFlipped ? 0 : 1);
+		
+		// The map says which tile the switch reveals, in level 1 this is a platform and
+		// in level 2 the final diamond near the start of the level.
+		MapPoint target = currentMap.getPoint("switchTile");
+		
+		if(target != null && !target.getValue().isEmpty()) {
+			char actionTileChar = switchFlipped ? target.getValue().charAt(0) : '.';
+			
+			currentMap.setTileChar(actionTileChar, (int) target.getX() / currentMap.getTileWidth(),
+					(int) target.getY() / currentMap.getTileHeight());
+		}
+	}
+	
+	/**
+	 * This method is responsible for skipping or reloading to level
+	 * 1. This will be called when the 1 key is pressed.
+	 */
+	public void skipToLevel1() {
+		switchLevel(0, "skip");
+	}
+	
+	/**
+	 * This method is responsible for skipping or reloading to level
+	 * 2. This will be called when the 2 key is pressed.
+	 */
+	public void skipToLevel2() {
+		if (levelStarts.length > 1) {
+			switchLevel(1, "skip");
+		}
+	}
+
+	/**
+	 * This method is responsible for moving to a level and putting it back to its
+	 * start, recording the switch for the flight recorder.
+	 * 
+	 * @param level The index of the level to move to
+	 * @param cause What caused the switch, "portal", "skip" or "restart"
+	 */
+	private void switchLevel(int level, String cause) {
+		LevelSwitchEvent event = new LevelSwitchEvent();
+
+		event.begin();
+
+		int from = currentLevel + 1;
+
+		currentLevel = level;
+
+		reload();
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.cause = cause;
+
+			event.from = from;
+
+			event.to = level + 1;
+
+			event.mapWidth = currentMap.getMapWidth();
+
+			event.mapHeight = currentMap.getMapHeight();
+
+			event.enemies = enemies.size();
+
+			event.commit();
+		}
+	}
+	
+	/**
+	 * This method is responsible for toggling the background music
+	 * of the game.
+	 */
+	public void toggleBackgroundMusic() {
+		muteBackgroundMusic = !muteBackgroundMusic;
+	}
+
+	/**
+	 * This method is responsible for winding the level back to the most recent
+	 * rewind snapshot. Pressing R again goes further back. This will be called
+	 * when the R key is pressed.
+	 */
+	public void rewind() {
+		if (currentStatus != GameStatus.GAME_STARTED || rewindBuffer == null) {
+			return;
+		}
+
+		boolean movingLeft = player.isMovingLeft();
+
+		boolean movingRight = player.isMovingRight();
+
+		if (rewindBuffer.rewind(levelState)) {
+			player.setMovingLeft(movingLeft);
+
+			player.setMovingRight(movingRight);
+
+			camera.snap();
+		}
+	}
+
+	/**
+	 * This method is responsible for reloading the level that is currently being
+	 * played, and setting the players values back to their defaults. The level is
+	 * restored from the snapshot taken when the game started, so the map is not
+	 * loaded again.
+	 */
+	public void reload() {
+		restoreLevel(getLevelStart(currentLevel));
+
+		checkpoint.clear();
+
+		checkpointPending = false;
+
+		if (rewindBuffer != null) {
+			rewindBuffer.clear();
+		}
+	}
+
+	/**
+	 * This method is responsible for putting the level back to a snapshot,
+	 * keeping the keys that are held down, otherwise the player would stop until
+	 * they are pressed again.
+	 * 
+	 * @param snapshot The snapshot to restore
+	 */
+	private void restoreLevel(Snapshot snapshot) {
+		boolean movingLeft = player.isMovingLeft();
+
+		boolean movingRight = player.isMovingRight();
+
+		snapshot.restore(levelState);
+
+		player.setMovingLeft(movingLeft);
+
+		player.setMovingRight(movingRight);
+
+		// The level may have changed, and the player has moved, so the camera goes
+		// straight to them rather than scrolling across the map
+		camera.setBounds(currentMap);
+
+		camera.snap();
+	}
+
+	/**
+	 * This method is responsible for getting the snapshot a level starts from,
+	 * setting the level up the first time it is asked for. This changes the
+	 * level being played, so the snapshot returned should then be restored.
+	 * 
+	 * @param level The index of the level
+	 * @return The state of the level as it starts
+	 */
+	private Snapshot getLevelStart(int level) {
+		if (levelStarts[level] == null) {
+			boolean movingLeft = player.isMovingLeft();
+
+			boolean movingRight = player.isMovingRight();
+
+			// Set the level up from the state the first level starts in, so it starts
+			// the same however much has been played before
+			if (level != 0) {
+				levelStarts[0].restore(levelState);
+			}
+
+			currentLevel = level;
+
+			resetLevel();
+
+			levelStarts[level] = new Snapshot();
+
+			levelStarts[level].capture(levelState);
+
+			player.setMovingLeft(movingLeft);
+
+			player.setMovingRight(movingRight);
+		}
+
+		return levelStarts[level];
+	}
+
+	/**
+	 * This method is responsible for getting the tile map of a level, copying it
+	 * from the assets the first time it is asked for. This waits for the map to
+	 * load if it has not been prefetched.
+	 * 
+	 * @param level The index of the level
+	 * @return The map of the level
+	 */
+	private TileMap getLevelMap(int level) {
+		if (levelMaps[level] == null) {
+			levelMaps[level] = new TileMap(assets.getMap(level));
+		}
+
+		return levelMaps[level];
+	}
+
+	/**
+	 * This method is responsible for getting the flow field of a level, building
+	 * it over the level's map the first time it is asked for. The field rebuilds
+	 * itself when the map's tiles change.
+	 * 
+	 * @param level The index of the level
+	 * @return The flow field of the level
+	 */
+	private FlowField getLevelField(int level) {
+		if (levelFields[level] == null) {
+			levelFields[level] = new FlowField(new NavGraph(getLevelMap(level)));
+		}
+
+		return levelFields[level];
+	}
+
+	/**
+	 * This method is responsible for setting the current level back to its
+	 * defaults piece by piece. This is only used to build the snapshot each level
+	 * starts from.
+	 */
+	private void resetLevel() {
+		coinCount = 0;
+		
+		total = 0;
+
+		player.setDiamonds(0);
+
+		player.setHits(3);
+
+		player.setLives(3);
+
+		player.setDead(false);
+
+	    clearBoundFlags();
+	    
+	    switchFlipped = false;
+	    
+	    switchSprite.getAnimation().setAnimationFrame(switchFlipped ? 0 : 1);
+
+		portal.hide();
+
+		// Reset the map first, the sprites are placed at the points it declares. Each
+		// level always uses its own map, so a snapshot only needs to know the level.
+		currentMap = getLevelMap(currentLevel);
+
+		currentMap.resetToBase();
+		
+		placePlayer();
+		
+		placeSwitches();
+		
+		placeEnemies();
+		
+	}
+
+	/**
+	 * This method is responsible for setting the animations which will be used in
+	 * the game. Each is a copy of the one in the assets, sharing its frames but
+	 * keeping its own timing.
+	 */
+	public void setAnimations() {
+		playerMove = new Animation(assets.getPlayerMove());
+
+		playerIdle = new Animation(assets.getPlayerIdle());
+
+		playerAttack = new Animation(assets.getPlayerAttack());
+
+		blueSpikeMove = new Animation(assets.getBlueSpikeMove());
+
+		portalAnimation = new Animation(assets.getPortalAnimation());
+
+		switchAnimation = new Animation(assets.getSwitchAnimation());
+	}
+
+	/**
+	 * This method is responsible for handling a key being released, in the same
+	 * way as keyPressed().
+	 *
+	 * @param key The key code of the key that was released, see KeyEvent
+	 */
+	public void keyReleased(int key) {
+
+		switch (key) {
+		case KeyEvent.VK_A:
+			player.setMovingLeft(false);
+
+			player.setVelocityX(0);
+			break;
+		case KeyEvent.VK_D:
+			player.setMovingRight(false);
+
+			player.setVelocityX(0);
+			break;
+		case KeyEvent.VK_SPACE:
+			player.setJumping(false);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Check and handles collisions with a tile map for the given sprite 's'.
+	 * Initial functionality is limited...
+	 *
+	 * @param s    The Sprite to check collisions for
+	 * @param tmap The tile map to check
+	 */
+
+	public void checkTileCollision(Sprite s, TileMap tmap) {
+
+		// Take a note of a sprite's current position
+		float sx = s.getX();
+
+		float sy = s.getY();
+
+		// Find out how wide and how tall a tile is
+		float tileWidth = tmap.getTileWidth();
+
+		float tileHeight = tmap.getTileHeight();
+
+		// Retrieve coordinates, then the tile at that position
+		int topLeftX = (int) (sx / tileWidth);
+
+		int topLeftY = (int) (sy / tileHeight);
+
+		Tile topLeft = tmap.getTile(topLeftX, topLeftY);
+
+		int topRightX = (int) ((sx + s.getWidth()) / tileWidth);
+
+		int topRightY = (int) (sy / tileHeight);
+
+		Tile topRight = tmap.getTile(topRightX, topRightY);
+
+		int bottomLeftX = (int) (sx / tileWidth);
+
+		int bottomLeftY = (int) ((sy + s.getHeight()) / tileHeight);
+
+		Tile bottomLeft = tmap.getTile(bottomLeftX, bottomLeftY);
+
+		int bottomRightX = (int) ((sx + s.getWidth()) / tileWidth);
+
+		int bottomRightY = (int) ((sy + s.getHeight()) / tileHeight);
+
+		Tile bottomRight = tmap.getTile(bottomRightX, bottomRightY);
+
+		// We do not want to check tiles if any of them could cause a null exception
+		if (bottomRight == null || bottomLeft == null || topRight == null || topLeft == null) {
+			return;
+		}
+
+		if (collisionManager.collisionAtBottom(bottomRight, s, tmap)
+				|| collisionManager.collisionAtBottom(bottomLeft, s, tmap)) {
+
+			boolean isCollectable = s.equals(player)
+					&& (tmap.hasFlag(bottomLeftX, bottomLeftY, TileType.COLLECTABLE)
+							|| tmap.hasFlag(bottomRightX, bottomRightY, TileType.COLLECTABLE));
+
+			if (isCollectable) {
+				if (player.isMovingLeft()) {
+					pickUpItem(bottomRight);
+				} else {
+					pickUpItem(bottomLeft);
+				}
+
+			} else {
+				s.setVelocityY(0);
+				s.setY((bottomLeftY * tileHeight) - s.getHeight());
+			}
+
+		}
+
+		if (collisionManager.collisionAtTop(topLeft, s, tmap) && collisionManager.collisionAtTop(topRight, s, tmap)) {
+			s.setY(topRight.getYC() + tileWidth);
+		}
+
+		else if (collisionManager.collisionAtLeft(topLeft, s, tmap)) {
+
+			boolean isCollectable = s.equals(player) && tmap.hasFlag(topLeftX, topLeftY, TileType.COLLECTABLE);
+
+			if (isCollectable) {
+				pickUpItem(topLeft);
+			} else {
+				s.setX(bottomLeft.getXC() + tileWidth);
+			}
+
+		}
+
+		else if (collisionManager.collisionAtRight(topRight, s, tmap)) {
+			boolean isCollectable = s.equals(player) && tmap.hasFlag(topRightX, topRightY, TileType.COLLECTABLE);
+
+			if (isCollectable) {
+				pickUpItem(topRight);
+			} else {
+				s.setVelocityX(-s.getVelocityX());
+
+				s.setX((bottomRight.getXC() - tileWidth) - 1);
+			}
+
+		}
+
+		// We will set some conditions which apply to all sprites, based on what they
+		// have collided with.
+
+		s.setOnGround(!tmap.isEmpty(bottomLeftX, bottomLeftY) || !tmap.isEmpty(bottomRightX, bottomRightY));
+
+		s.setOnDeathTile(tmap.hasFlag(topLeftX, topLeftY, TileType.DEADLY)
+				|| tmap.hasFlag(topRightX, topRightY, TileType.DEADLY)
+				|| tmap.hasFlag(bottomRightX, bottomRightY, TileType.DEADLY)
+				|| tmap.hasFlag(bottomLeftX, bottomLeftY, TileType.DEADLY));
+	}
+
+	/**
+	 * This method is responsible for handling an collectable item being picked up
+	 * by the player. This requires the tile that was set for collectable. When the
+	 * collectable is picked up, the Tile is set to the airTile so it will vanish
+	 * when "picked up".
+	 * 
+	 * @param collectableTile The tile that contains the collectable to be picked up
+	 */
+	public void pickUpItem(Tile collectableTile) {
+
+		int tileX = collectableTile.getXC() / currentMap.getTileWidth();
+
+		int tileY = collectableTile.getYC() / currentMap.getTileHeight();
+
+		itemsCollected.post().set(collectableTile.getCharacter(), tileX, tileY);
+
+		// Go through the map rather than the tile so that the map knows it has
+		// changed, anything holding a copy of the tiles will then copy them again.
+		currentMap.setTileChar('.', tileX, tileY);
+
+	}
+
+	/**
+	 * This method is responsible for counting the items picked up in a tick
+	 * towards the score. Each diamond is a checkpoint and may unlock the portal.
+	 * 
+	 * @param collected The items picked up
+	 */
+	private void scoreItems(EventBus.Channel<ItemCollected> collected) {
+		for (int i = 0; i < collected.size(); i++) {
+			char item = collected.get(i).getItem();
+
+			// May be better to define a class for tiles being collected, as this will
+			// likely be hard to maintain.
+
+			if (item == 'c') {
+				coinCount++;
+			} else if (item == 'v') {
+				player.setDiamonds(player.getDiamonds() + 1);
+
+				// Each diamond is a checkpoint, captured once the player has landed
+				checkpointPending = true;
+
+				checkPortalUnlockStatus();
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for playing the sounds of the gameplay events.
+	 * Only one of each sound is played per tick, however many of the event
+	 * happened.
+	 */
+	private void subscribeSounds() {
+		itemsCollected.subscribe(collected -> {
+			boolean coin = false, diamond = false;
+
+			for (int i = 0; i < collected.size(); i++) {
+				coin |= collected.get(i).getItem() == 'c';
+
+				diamond |= collected.get(i).getItem() == 'v';
+			}
+
+			if (coin) {
+				playSound("sounds/Coin1.wav");
+			}
+
+			if (diamond) {
+				playSound("sounds/ding_1.wav");
+			}
+		});
+
+		enemiesHit.subscribe(hit -> playSound("sounds/Hit4.wav"));
+
+		playerDamaged.subscribe(damaged -> playSound("sounds/Hit5.wav"));
+
+		portalsEntered.subscribe(entered -> playSound("sounds/time_travel_clip.wav", true));
+	}
+	
+	/**
+	 * This method is responsible for placing the switches at the switch point
+	 * declared by the current map. The switch is hidden if there is none.
+	 */
+	public void placeSwitches() {
+		MapPoint point = currentMap.getPoint("switch");
+		
+		if (point == null) {
+			switchSprite.hide();
+			return;
+		}
+		
+		switchSprite.show();
+		
+		switchSprite.setX(point.getX());
+		
+		switchSprite.setY(point.getY());
+	}
+	
+	/**
+	 * This method is responsible for placing the enemies at the enemy points
+	 * declared by the current map. Any enemy without a point is hidden.
+	 */
+	public void placeEnemies() {
+		List<MapPoint> spawns = currentMap.getPoints("enemy");
+		
+		for (int i = 0; i < enemies.size(); i++) {
+			Sprite enemy = enemies.get(i);
+			
+			enemy.setDead(false);
+			
+			if (i < spawns.size()) {
+				enemy.setX(spawns.get(i).getX());
+				
+				enemy.setY(spawns.get(i).getY());
+				
+				enemy.show();
+			} else {
+				enemy.hide();
+			}
+		}
+	}
+	
+	/**
+	 * This method is responsible for placing the player at the player point
+	 * declared by the current map, which is also where they respawn.
+	 */
+	public void placePlayer() {
+		player.show();
+		
+		player.setVelocityX(0);
+
+		player.setVelocityY(0);
+		
+		MapPoint point = currentMap.getPoint("player");
+		
+		if (point != null) {
+			startingX = point.getX();
+			
+			startingY = point.getY();
+		}
+		
+		player.setX(startingX);
+		
+		player.setY(startingY);
+	}
+
+	/**
+	 * This method is responsible for submitting a command to be applied at the
+	 * start of the next tick. Commands should only be submitted from one thread,
+	 * such as the AWT event thread, which may be the thread running the ticks. If
+	 * too many commands are waiting the command is dropped.
+	 * 
+	 * @param command The command to apply, see {@link InputCommand}
+	 */
+	public void submit(int command) {
+		pendingCommands.offer(command, System.nanoTime());
+	}
+
+	/**
+	 * This method is responsible for running one tick of the game. Any commands
+	 * submitted since the last tick are applied (and recorded, if recording)
+	 * first, then the game is updated.
+	 * 
+	 * @param elapsed The length of the tick in milliseconds
+	 */
+	@Override
+	public void tick(long elapsed) {
+		TickEvent event = new TickEvent();
+
+		event.begin();
+
+		long posted = events.getPosted();
+
+		beginPhase(inputPhase);
+
+		int count = pendingCommands.drain(tickCommands, tickCommandTimes);
+
+		long now = System.nanoTime();
+
+		for (int i = 0; i < count; i++) {
+			inputLatency.record(now - tickCommandTimes[i]);
+
+			if (recording != null) {
+				recording.record(tickCount, tickCommands[i]);
+			}
+
+			applyCommand(tickCommands[i]);
+		}
+
+		endPhase(inputPhase);
+
+		update(elapsed);
+
+		// Hand out anything posted while the level was not being updated, such as
+		// going through the last portal
+		events.dispatch();
+
+		if (currentStatus == GameStatus.GAME_STARTED) {
+			camera.follow(player.getX(), player.getY(), elapsed);
+		}
+
+		tickCount++;
+
+		if (recording != null) {
+			recording.setEndTick(tickCount);
+		}
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.tick = tickCount - 1;
+
+			event.status = currentStatus.name();
+
+			event.level = currentLevel + 1;
+
+			event.commands = count;
+
+			event.events = (int) (events.getPosted() - posted);
+
+			event.enemies = enemies.size();
+
+			event.commit();
+		}
+	}
+
+	/**
+	 * This method is responsible for applying a command straight away.
+	 * 
+	 * @param command The command to apply, see {@link InputCommand}
+	 */
+	@Override
+	public void applyCommand(int command) {
+		int code = InputCommand.getCode(command);
+
+		switch (InputCommand.getType(command)) {
+		case InputCommand.KEY_PRESSED:
+			keyPressed(code);
+			break;
+		case InputCommand.KEY_RELEASED:
+			keyReleased(code);
+			break;
+		case InputCommand.ACTION:
+			if (code == ACTION_PLAY) {
+				currentStatus = GameStatus.GAME_STARTED;
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * This method is responsible for turning rewinding on or off. Keeping the
+	 * rewind snapshots costs a few hundred kilobytes per world, which is not
+	 * needed when many worlds are being run without anyone playing them.
+	 * 
+	 * @param snapshots The number of rewind snapshots to keep, or 0 to turn
+	 *                  rewinding off
+	 */
+	public void setRewindSnapshots(int snapshots) {
+		rewindBuffer = snapshots > 0 ? new SnapshotBuffer(snapshots) : null;
+	}
+
+	/**
+	 * This method is responsible for timing the stages of each tick with the given
+	 * profiler, which must be timed from the thread that runs the ticks. The
+	 * stages are input, the player, enemy AI, the enemies, collisions and
+	 * handing out the gameplay events.
+	 * 
+	 * @param profiler The profiler to time with, or null to stop timing
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		if (profiler != null) {
+			inputPhase = profiler.phase("input");
+
+			playerPhase = profiler.phase("player");
+
+			enemyAIPhase = profiler.phase("enemy AI");
+
+			enemiesPhase = profiler.phase("enemies");
+
+			collisionsPhase = profiler.phase("collisions");
+
+			eventsPhase = profiler.phase("events");
+		}
+
+		this.profiler = profiler;
+	}
+
+	/**
+	 * This method is responsible for marking the start of a stage of the tick, if
+	 * the stages are being timed.
+	 * 
+	 * @param phase The id of the stage in the profiler
+	 */
+	private void beginPhase(int phase) {
+		if (profiler != null) {
+			profiler.begin(phase);
+		}
+	}
+
+	/**
+	 * This method is responsible for marking the end of a stage of the tick, if
+	 * the stages are being timed.
+	 * 
+	 * @param phase The id of the stage in the profiler
+	 */
+	private void endPhase(int phase) {
+		if (profiler != null) {
+			profiler.end(phase);
+		}
+	}
+
+	/**
+	 * This method is responsible for recording every command applied from now on
+	 * into the given log. To be played back, recording must start before the
+	 * first tick.
+	 * 
+	 * @param log The log to record into, or null to stop recording
+	 */
+	public void setRecording(ReplayLog log) {
+		recording = log;
+	}
+
+	/**
+	 * @return How long the recent commands waited between being submitted and
+	 *         being applied. This is written by the thread running the ticks.
+	 */
+	public RollingHistogram getInputLatency() {
+		return inputLatency;
+	}
+
+	/**
+	 * @return The number of commands dropped because too many were waiting
+	 */
+	public long getDroppedCommands() {
+		return pendingCommands.getDropped();
+	}
+
+	/**
+	 * @return The number of ticks that have been run
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * This method is responsible for writing the whole state of the game, so it
+	 * can be put back exactly with readState(). This is the state of the level
+	 * along with the checkpoint and rewind snapshots, so a replay that rewinds
+	 * plays out the same way from any keyframe.
+	 * 
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(tickCount);
+		out.writeInt(currentStatus.ordinal());
+		out.writeBoolean(debugMode);
+		out.writeBoolean(muteBackgroundMusic);
+
+		writeLevelState(out);
+
+		checkpoint.write(out);
+		out.writeBoolean(checkpointPending);
+		out.writeBoolean(rewindBuffer != null);
+		if (rewindBuffer != null) {
+			rewindBuffer.write(out);
+		}
+	}
+
+	/**
+	 * This method is responsible for putting the game back into a state written
+	 * by writeState().
+	 * 
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	@Override
+	public void readState(DataInput in) throws IOException {
+		tickCount = in.readLong();
+		currentStatus = GameStatus.values()[in.readInt()];
+		debugMode = in.readBoolean();
+		muteBackgroundMusic = in.readBoolean();
+
+		readLevelState(in);
+
+		checkpoint.read(in);
+		checkpointPending = in.readBoolean();
+		if (in.readBoolean() != (rewindBuffer != null)) {
+			throw new IOException("State was written with rewinding " + (rewindBuffer == null ? "on" : "off"));
+		}
+		if (rewindBuffer != null) {
+			rewindBuffer.read(in);
+		}
+	}
+
+	/**
+	 * This method is responsible for writing the state of the level being played:
+	 * the counters, the switch and portal, the player, the enemies, the tiles
+	 * that have changed since the map was loaded and the node each level's flow
+	 * field is pointing towards.
+	 * 
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	private void writeLevelState(DataOutput out) throws IOException {
+		out.writeInt(currentLevel);
+		out.writeFloat(startingX);
+		out.writeFloat(startingY);
+		out.writeInt(coinCount);
+		out.writeLong(total);
+		out.writeBoolean(inPortalBounds);
+		out.writeBoolean(inSwitchBounds);
+		out.writeBoolean(switchFlipped);
+		out.writeLong(attackEnd.getRemaining());
+
+		playerMove.writeState(out);
+		playerIdle.writeState(out);
+		playerAttack.writeState(out);
+		portalAnimation.writeState(out);
+		switchAnimation.writeState(out);
+
+		Animation playerAnimation = player.getAnimation();
+		out.writeInt(playerAnimation == playerMove ? 1 : playerAnimation == playerAttack ? 2 : 0);
+		player.writeState(out);
+		portal.writeState(out);
+		switchSprite.writeState(out);
+
+		out.writeInt(enemies.size());
+		for (WalkingEnemy enemy : enemies) {
+			enemy.writeState(out);
+			enemy.getAnimation().writeState(out);
+		}
+
+		currentMap.writeChanges(out);
+
+		for (FlowField field : levelFields) {
+			out.writeInt(field == null ? -1 : field.getTargetNode());
+		}
+	}
+
+	/**
+	 * This method is responsible for putting the level back into a state written
+	 * by writeLevelState(). Only the tiles that differ are changed, so the map is
+	 * not loaded again.
+	 * 
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	private void readLevelState(DataInput in) throws IOException {
+		int level = in.readInt();
+		if (level < 0 || level >= levelMaps.length) {
+			throw new IOException("State is for level " + (level + 1) + " of " + levelMaps.length);
+		}
+		currentLevel = level;
+		currentMap = getLevelMap(level);
+		startingX = in.readFloat();
+		startingY = in.readFloat();
+		coinCount = in.readInt();
+		total = in.readLong();
+		inPortalBounds = in.readBoolean();
+		inSwitchBounds = in.readBoolean();
+		switchFlipped = in.readBoolean();
+		long attackRemaining = in.readLong();
+		if (attackRemaining >= 0) {
+			timers.schedule(attackEnd, attackRemaining);
+		} else {
+			attackEnd.cancel();
+		}
+
+		playerMove.readState(in);
+		playerIdle.readState(in);
+		playerAttack.readState(in);
+		portalAnimation.readState(in);
+		switchAnimation.readState(in);
+
+		int playerAnimation = in.readInt();
+		player.setAnimation(playerAnimation == 1 ? playerMove : playerAnimation == 2 ? playerAttack : playerIdle);
+		player.readState(in);
+		portal.readState(in);
+		switchSprite.readState(in);
+
+		int enemyCount = in.readInt();
+		if (enemyCount != enemies.size()) {
+			throw new IOException("State has " + enemyCount + " enemies, expected " + enemies.size());
+		}
+		for (WalkingEnemy enemy : enemies) {
+			enemy.readState(in);
+			enemy.getAnimation().readState(in);
+		}
+
+		currentMap.readChanges(in);
+
+		for (int i = 0; i < levelFields.length; i++) {
+			int targetNode = in.readInt();
+			if (targetNode >= 0 || levelFields[i] != null) {
+				getLevelField(i).setTargetNode(targetNode);
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for stopping the threads used by the game, once
+	 * it is no longer needed.
+	 */
+	public void shutdown() {
+		if (ownsJobs) {
+			jobs.shutdown();
+		}
+
+		if (backgroundPlayer != null) {
+			backgroundPlayer.stopScore();
+		}
+
+		if (soundPlayer != null) {
+			soundPlayer.shutdown();
+		}
+	}
+
+	/**
+	 * This method is responsible for playing a sound, if audio is enabled.
+	 * 
+	 * @param fileName The sound file to play
+	 */
+	private void playSound(String fileName) {
+		playSound(fileName, false);
+	}
+
+	/**
+	 * This method is responsible for playing a sound, if audio is enabled,
+	 * optionally passing it through the volume distorter filter.
+	 * 
+	 * @param fileName The sound file to play
+	 * @param filtered {@code true} to filter the sound
+	 */
+	private void playSound(String fileName, boolean filtered) {
+		if (!audio) {
+			return;
+		}
+
+		soundPlayer.play(fileName, filtered);
+	}
+
+	/**
+	 * @return The channel the items picked up each tick are posted on
+	 */
+	public EventBus.Channel<ItemCollected> getItemsCollected() {
+		return itemsCollected;
+	}
+
+	/**
+	 * @return The channel the enemies knocked out each tick are posted on
+	 */
+	public EventBus.Channel<EnemyHit> getEnemiesHit() {
+		return enemiesHit;
+	}
+
+	/**
+	 * @return The channel the hits taken by the player each tick are posted on
+	 */
+	public EventBus.Channel<PlayerDamaged> getPlayerDamaged() {
+		return playerDamaged;
+	}
+
+	/**
+	 * @return The channel the portals gone through are posted on
+	 */
+	public EventBus.Channel<PortalEntered> getPortalsEntered() {
+		return portalsEntered;
+	}
+
+	/**
+	 * @return The map of the level being played
+	 */
+	public TileMap getCurrentMap() {
+		return currentMap;
+	}
+
+	/**
+	 * @return The camera that keeps the view on the player, which can be given a
+	 *         dead zone or smoothing
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * @return The current status of the game
+	 */
+	GameStatus getStatus() {
+		return currentStatus;
+	}
+
+	/**
+	 * @return The player
+	 */
+	public PlayerSprite getPlayer() {
+		return player;
+	}
+
+	/**
+	 * @return The coins collected in the current level
+	 */
+	public int getCoinCount() {
+		return coinCount;
+	}
+
+	/**
+	 * @return The level being played, starting from 0
+	 */
+	int getLevelIndex() {
+		return currentLevel;
+	}
+
+	/**
+	 * @return The assets the levels are loaded from
+	 */
+	public PunchManAssets getAssets() {
+		return assets;
+	}
+
+	/**
+	 * @return The enemies
+	 */
+	List<WalkingEnemy> getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * @return The portal
+	 */
+	Sprite getPortal() {
+		return portal;
+	}
+}
@@ -0,0 +1,209 @@
+package com.hyperconix.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.hyperconix.game2D.ReplayLog;
+import com.hyperconix.game2D.ReplayPlayer;
+
+/**
+ * This class is responsible for playing back a session recorded with
+ * {@code PunchMan -record <file>}. The session is replayed without a window or
+ * sound, as fast as the game can run, and the slowest ticks are reported so a
+ * spike seen while playing can be found again and looked at.
+ * <br><br>
+ * Usage:
+ * <p>
+ * ReplayTool &lt;file&gt; [-seek tick] [-keyframes ticks] [-verify]
+ * <p>
+ * -seek plays up to the given tick and prints the state of the game there,
+ * -keyframes sets how many ticks apart keyframes are saved (1000 by default)
+ * and -verify plays the whole session a second time from the first keyframe
+ * to check that it is in exactly the same state at every keyframe tick and at
+ * the end.
+ *
+ * @author Luke S
+ */
+public class ReplayTool {
+
+	/**
+	 * Responsible for storing the number of slowest ticks reported.
+	 */
+	private static final int SLOWEST_TICKS = 5;
+
+	/**
+	 * Plays back a recorded session.
+	 *
+	 * @param args The recording to play followed by any options
+	 * @throws IOException If the recording cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ReplayTool <file> [-seek tick] [-keyframes ticks] [-verify]");
+			System.exit(1);
+		}
+
+		// There is no window, so make sure nothing tries to open one
+		System.setProperty("java.awt.headless", "true");
+
+		long seek = -1;
+
+		int keyframeInterval = 1000;
+
+		boolean verify = false;
+
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-seek") && i + 1 < args.length) {
+				seek = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-keyframes") && i + 1 < args.length) {
+				keyframeInterval = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-verify")) {
+				verify = true;
+			}
+		}
+
+		ReplayLog log = ReplayLog.load(new File(args[0]));
+
+		System.out.println("Loaded " + log.size() + " commands over " + log.getEndTick() + " ticks of "
+				+ log.getTickMillis() + "ms");
+
+		PunchManWorld world = new PunchManWorld(PunchMan.SCREEN_WIDTH, PunchMan.SCREEN_HEIGHT, false);
+
+		ReplayPlayer player = new ReplayPlayer(world, log, keyframeInterval);
+
+		long[] slowestTimes = new long[SLOWEST_TICKS];
+
+		long[] slowestTicks = new long[SLOWEST_TICKS];
+
+		// The state at every keyframe tick of the first pass, for -verify to compare
+		// the second pass against
+		List<byte[]> keyframeStates = new ArrayList<>();
+
+		if (verify) {
+			keyframeStates.add(stateOf(world));
+		}
+
+		long start = System.nanoTime();
+
+		while (true) {
+			long tick = player.getTick();
+
+			long before = System.nanoTime();
+
+			if (!player.step()) {
+				break;
+			}
+
+			long taken = System.nanoTime() - before;
+
+			if (verify && player.getTick() % keyframeInterval == 0) {
+				keyframeStates.add(stateOf(world));
+			}
+
+			// Keep the slowest ticks in order, slowest first
+			for (int i = 0; i < SLOWEST_TICKS; i++) {
+				if (taken > slowestTimes[i]) {
+					System.arraycopy(slowestTimes, i, slowestTimes, i + 1, SLOWEST_TICKS - i - 1);
+
+					System.arraycopy(slowestTicks, i, slowestTicks, i + 1, SLOWEST_TICKS - i - 1);
+
+					slowestTimes[i] = taken;
+
+					slowestTicks[i] = tick;
+
+					break;
+				}
+			}
+		}
+
+		double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+		double gameSeconds = log.getEndTick() * log.getTickMillis() / 1000.0;
+
+		System.out.printf("Replayed %.1fs of play in %.3fs (%.0fx real time), %d keyframes%n", gameSeconds,
+				wallSeconds, gameSeconds / Math.max(wallSeconds, 1e-9), player.getKeyframeCount());
+
+		System.out.println("Slowest ticks:");
+
+		for (int i = 0; i < SLOWEST_TICKS && slowestTimes[i] > 0; i++) {
+			System.out.printf("  tick %d took %.3fms%n", slowestTicks[i], slowestTimes[i] / 1e6);
+		}
+
+		printState("End", world);
+
+		if (verify) {
+			verify(player, world, keyframeStates, keyframeInterval);
+		}
+
+		if (seek >= 0) {
+			player.seek(seek);
+
+			printState("Tick " + player.getTick(), world);
+		}
+
+		world.shutdown();
+	}
+
+	/**
+	 * This method is responsible for playing the session a second time from the
+	 * first keyframe and checking the game is in the same state as the first
+	 * time at every keyframe tick and at the end. The first tick that differs is
+	 * reported, as the end state can match even when the ticks before it did not.
+	 *
+	 * @param player           The player that has played the session once
+	 * @param world            The game being played
+	 * @param keyframeStates   The state at every keyframe tick of the first pass
+	 * @param keyframeInterval The number of ticks between keyframes
+	 */
+	private static void verify(ReplayPlayer player, PunchManWorld world, List<byte[]> keyframeStates,
+			int keyframeInterval) throws IOException {
+		byte[] expected = stateOf(world);
+
+		player.seek(0);
+
+		long mismatch = Arrays.equals(keyframeStates.get(0), stateOf(world)) ? -1 : 0;
+
+		while (mismatch < 0 && player.step()) {
+			long tick = player.getTick();
+
+			if (tick % keyframeInterval == 0
+					&& !Arrays.equals(keyframeStates.get((int) (tick / keyframeInterval)), stateOf(world))) {
+				mismatch = tick;
+			}
+		}
+
+		if (mismatch < 0 && !Arrays.equals(expected, stateOf(world))) {
+			mismatch = player.getTick();
+		}
+
+		System.out.println(mismatch < 0 ? "Verified, the replay is deterministic"
+				: "The second replay was in a different state at tick " + mismatch);
+	}
+
+	/**
+	 * This method is responsible for printing a summary of the state of the game.
+	 */
+	private static void printState(String label, PunchManWorld world) {
+		System.out.printf("%s: %s, player at (%.1f, %.1f), lives %d, hits %d, diamonds %d, coins %d%n", label,
+				world.getStatus(), world.getPlayer().getX(), world.getPlayer().getY(), world.getPlayer().getLives(),
+				world.getPlayer().getHits(), world.getPlayer().getDiamonds(), world.getCoinCount());
+	}
+
+	/**
+	 * @return The whole state of the game as bytes, for comparing
+	 */
+	private static byte[] stateOf(PunchManWorld world) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			world.writeState(out);
+		}
+
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,55 @@
+package com.hyperconix.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for one tick of a
+ * {@link PunchManWorld}, from applying its commands to the end of the update.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.Tick")
+@Label("Tick")
+@Category({ "PunchMan", "Game Loop" })
+@Description("One fixed tick of the game, applying the commands and updating the level")
+public class TickEvent extends Event {
+
+	/**
+	 * Responsible for storing the number of the tick.
+	 */
+	@Label("Tick")
+	long tick;
+
+	/**
+	 * Responsible for storing the status of the game and the level being played,
+	 * counting from 1.
+	 */
+	@Label("Status")
+	String status;
+
+	@Label("Level")
+	int level;
+
+	/**
+	 * Responsible for storing the number of commands applied in the tick.
+	 */
+	@Label("Commands")
+	int commands;
+
+	/**
+	 * Responsible for storing the number of gameplay events posted in the tick.
+	 */
+	@Label("Events")
+	int events;
+
+	/**
+	 * Responsible for storing the number of enemies in the level.
+	 */
+	@Label("Enemies")
+	int enemies;
+}
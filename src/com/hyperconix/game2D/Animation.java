@@ -2,16 +2,18 @@ package com.hyperconix.game2D;
 
 import java.awt.Image;
 import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
 import java.awt.image.CropImageFilter;
 import java.awt.image.FilteredImageSource;
 import java.awt.image.ImageFilter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import javax.swing.ImageIcon;
-
 /**
  * The Animation class manages a series of images (frames) and
  * the amount of time to display each frame.
@@ -43,6 +45,28 @@ public class Animation
           looped = false;
           start();
     }
+
+    /**
+     * Creates a new Animation that shows the same frames as 'other' but keeps its
+     * own timing, so several sprites can animate independently without loading the
+     * images again. The frames are shared, so no more frames should be added to
+     * either animation once it has been copied.
+     *
+     * @param other The animation to copy
+     */
+    public Animation(Animation other)
+    {
+        synchronized (other)
+        {
+            frames = other.frames;
+            totalDuration = other.totalDuration;
+            animSpeed = other.animSpeed;
+            loop = other.loop;
+            play = other.play;
+            stopFrame = other.stopFrame;
+        }
+        start();
+    }
     
   
     /**
@@ -185,6 +209,17 @@ public class Animation
         return looped;
     }
 
+    /**
+     * How long does one loop of this animation take to play at its
+     * current speed?
+     *
+     * @return The time one loop takes in milliseconds
+     */
+    public long getDuration()
+    {
+        return (long) Math.ceil(totalDuration / animSpeed);
+    }
+
     /**
      * Loads a complete animation from an animation sheet and adds each
      * frame in the sheet to the animation with the given frameDuration.
@@ -197,7 +232,7 @@ public class Animation
      */
     public void loadAnimationFromSheet(String fileName, int columns, int rows, int frameDuration, boolean reverse)
     {
-        Image sheet = new ImageIcon(fileName).getImage();
+        Image sheet = ImageLoader.load(fileName);
         Image[] images = getImagesFromSheet(sheet, columns, rows);
         
         if(reverse)
@@ -249,6 +284,14 @@ public class Animation
         {
             for (int j = 0; j < columns; j++)
             {
+                // a still sheet is sliced into views of its pixels, which stay
+                // ordinary BufferedImages rather than images made by the toolkit
+                if (sheet instanceof BufferedImage)
+                {
+                    split[count++] = ((BufferedImage) sheet).getSubimage(j * width, i * height, width, height);
+                    continue;
+                }
+
                 // create an image filter
                 // top left (x) = j*width, (y) = i*height
                 // extract rectangular region of width and height from origin x,y
@@ -326,6 +369,41 @@ public class Animation
 		return frames.size();
 	}
 
+    /**
+     * Writes where this animation is up to (but not its frames) to 'out', so it can
+     * be put back exactly with readState().
+     *
+     * @param out The stream to write to
+     * @throws IOException If the stream cannot be written to
+     */
+    public synchronized void writeState(DataOutput out) throws IOException
+    {
+        out.writeInt(currFrameIndex);
+        out.writeLong(animTime);
+        out.writeFloat(animSpeed);
+        out.writeBoolean(loop);
+        out.writeBoolean(looped);
+        out.writeBoolean(play);
+        out.writeInt(stopFrame);
+    }
+
+    /**
+     * Reads back where this animation was up to from a stream written by writeState().
+     *
+     * @param in The stream to read from
+     * @throws IOException If the stream cannot be read from
+     */
+    public synchronized void readState(DataInput in) throws IOException
+    {
+        currFrameIndex = in.readInt();
+        animTime = in.readLong();
+        animSpeed = in.readFloat();
+        loop = in.readBoolean();
+        looped = in.readBoolean();
+        play = in.readBoolean();
+        stopFrame = in.readInt();
+    }
+
 
 
 	/**
@@ -0,0 +1,87 @@
+package com.hyperconix.game2D;
+
+import java.awt.Image;
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for loading an asset, such as an
+ * image or a MIDI score, from a file.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.AssetLoad")
+@Label("Asset Load")
+@Category({ "PunchMan", "Loading" })
+@Description("Loading an image or score from a file")
+public class AssetLoadEvent extends Event {
+
+	/**
+	 * Responsible for storing the kind of asset, "image" or "midi".
+	 */
+	@Label("Kind")
+	String kind;
+
+	/**
+	 * Responsible for storing the path of the file.
+	 */
+	@Label("File")
+	String file;
+
+	/**
+	 * Responsible for storing the size of the file.
+	 */
+	@Label("Size")
+	@DataAmount
+	long size;
+
+	/**
+	 * Responsible for storing the size of an image in pixels, -1 if the image
+	 * could not be loaded.
+	 */
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	/**
+	 * This method is responsible for loading an image through the
+	 * {@link ImageLoader}, and recording how long it took.
+	 *
+	 * @param fileName The file path to the image file that should be loaded
+	 * @return The image
+	 */
+	public static Image loadImage(String fileName) {
+		AssetLoadEvent event = new AssetLoadEvent();
+
+		event.begin();
+
+		Image image = ImageLoader.load(fileName);
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.kind = "image";
+
+			event.file = fileName;
+
+			event.size = new File(fileName).length();
+
+			event.width = image.getWidth(null);
+
+			event.height = image.getHeight(null);
+
+			event.commit();
+		}
+
+		return image;
+	}
+}
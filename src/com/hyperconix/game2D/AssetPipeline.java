@@ -0,0 +1,337 @@
+package com.hyperconix.game2D;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for loading a game's assets in parallel. Each load
+ * is a {@link Task} run on a small, fixed pool of threads, and a task can
+ * depend on others, so it only starts once they have finished, a map after its
+ * tile images for example. Loads that do not depend on each other run at the
+ * same time, so the game can show its menu as soon as the few assets the menu
+ * needs are ready, while everything else keeps loading behind it.
+ * <br><br>
+ * When each task was queued, started and finished is kept, along with any
+ * milestones the game marks (such as the first frame being drawn), so the
+ * startup can be printed as a timeline with {@link #printTimeline}. All times
+ * are from when the pipeline was created.
+ * <br><br>
+ * Tasks can be submitted from any thread. The pool's threads are daemons, so
+ * they do not keep the game running.
+ *
+ * @author Luke S
+ *
+ */
+public class AssetPipeline {
+
+	/**
+	 * Responsible for storing the number of threads used by default, enough to
+	 * keep a few files decoding at once without fighting the game for the CPU.
+	 */
+	public static final int DEFAULT_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Responsible for storing the width of the bars drawn by printTimeline().
+	 */
+	private static final int TIMELINE_WIDTH = 50;
+
+	/**
+	 * This class is one load in the pipeline.
+	 *
+	 * @param <T> The type of what is loaded
+	 */
+	public static final class Task<T> {
+
+		/**
+		 * Responsible for storing the name of the task, shown on the timeline.
+		 */
+		private final String name;
+
+		/**
+		 * Responsible for storing the result of the task once it has run.
+		 */
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		/**
+		 * Responsible for storing when the task was queued, started and finished,
+		 * in nanoseconds from the start of the pipeline, and the thread it ran on.
+		 */
+		private volatile long queued, started = -1, finished = -1;
+
+		private volatile String thread;
+
+		private Task(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * This method is responsible for getting what the task loaded, waiting for
+		 * it to finish if it has not yet.
+		 *
+		 * @return What the task loaded
+		 * @throws IllegalStateException If the task, or one it depends on, failed
+		 */
+		public T get() {
+			try {
+				return result.join();
+			} catch (RuntimeException e) {
+				throw new IllegalStateException("Failed to load " + name, e.getCause() != null ? e.getCause() : e);
+			}
+		}
+
+		/**
+		 * @return {@code true} if the task has finished, whether or not it worked
+		 */
+		public boolean isDone() {
+			return result.isDone();
+		}
+
+		/**
+		 * This method is responsible for running something on the pipeline's thread
+		 * once the task has loaded. Nothing is run if the task failed.
+		 *
+		 * @param action The action, given what the task loaded
+		 */
+		public void whenLoaded(Consumer<? super T> action) {
+			result.thenAccept(action);
+		}
+
+		/**
+		 * @return The name of the task
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * This class is a point in time the game has marked on the timeline.
+	 */
+	private static final class Milestone {
+
+		private final String name;
+
+		private final long time;
+
+		private Milestone(String name, long time) {
+			this.name = name;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * Responsible for storing the threads the tasks run on.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Responsible for storing the time the pipeline was created, which all times
+	 * are measured from.
+	 */
+	private final long origin = System.nanoTime();
+
+	/**
+	 * Responsible for storing every task and milestone, in the order they were
+	 * added.
+	 */
+	private final List<Task<?>> tasks = new ArrayList<>();
+
+	private final List<Milestone> milestones = new ArrayList<>();
+
+	/**
+	 * Creates an AssetPipeline and starts its threads.
+	 *
+	 * @param threads The number of loads that can run at once
+	 */
+	public AssetPipeline(int threads) {
+		AtomicInteger count = new AtomicInteger();
+
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "AssetPipeline-" + count.getAndIncrement());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * This method is responsible for adding a load to the pipeline. It is run as
+	 * soon as every task it depends on has loaded and a thread is free. If one
+	 * of them fails, this fails too without being run.
+	 *
+	 * @param <T>          The type of what is loaded
+	 * @param name         The name of the task, shown on the timeline
+	 * @param load         The load to run
+	 * @param dependencies The tasks that must finish first
+	 * @return The task
+	 */
+	public <T> Task<T> submit(String name, Callable<T> load, Task<?>... dependencies) {
+		Task<T> task = new Task<T>(name);
+
+		task.queued = System.nanoTime() - origin;
+
+		synchronized (tasks) {
+			tasks.add(task);
+		}
+
+		CompletableFuture<?>[] waitFor = new CompletableFuture<?>[dependencies.length];
+
+		for (int i = 0; i < dependencies.length; i++) {
+			waitFor[i] = dependencies[i].result;
+		}
+
+		CompletableFuture.allOf(waitFor).whenCompleteAsync((ignored, failure) -> {
+			if (failure != null) {
+				task.result.completeExceptionally(failure);
+
+				return;
+			}
+
+			task.started = System.nanoTime() - origin;
+
+			task.thread = Thread.currentThread().getName();
+
+			try {
+				T loaded = load.call();
+
+				task.finished = System.nanoTime() - origin;
+
+				task.result.complete(loaded);
+			} catch (Throwable e) {
+				task.finished = System.nanoTime() - origin;
+
+				task.result.completeExceptionally(e);
+			}
+		}, executor);
+
+		return task;
+	}
+
+	/**
+	 * This method is responsible for marking a point in time on the timeline,
+	 * such as the first frame being drawn.
+	 *
+	 * @param name The name of the milestone
+	 */
+	public void mark(String name) {
+		long time = System.nanoTime() - origin;
+
+		synchronized (milestones) {
+			milestones.add(new Milestone(name, time));
+		}
+	}
+
+	/**
+	 * This method is responsible for waiting until every task submitted so far
+	 * has finished, whether or not they worked.
+	 */
+	public void awaitAll() {
+		for (Task<?> task : getTasks()) {
+			task.result.handle((loaded, failure) -> null).join();
+		}
+	}
+
+	/**
+	 * This method is responsible for printing when each task ran and each
+	 * milestone was reached, as a table with a bar for each task showing how long
+	 * it waited (.) and ran (#). Tasks still running are shown as far as they
+	 * have got.
+	 *
+	 * @param out The stream to print to
+	 */
+	public void printTimeline(PrintStream out) {
+		List<Task<?>> all = getTasks();
+
+		List<Milestone> marks;
+
+		synchronized (milestones) {
+			marks = new ArrayList<>(milestones);
+		}
+
+		long now = System.nanoTime() - origin;
+
+		long end = 1;
+
+		for (Task<?> task : all) {
+			end = Math.max(end, task.finished >= 0 ? task.finished : now);
+		}
+
+		for (Milestone milestone : marks) {
+			end = Math.max(end, milestone.time);
+		}
+
+		out.printf("Startup timeline, %d tasks on %d threads over %.1fms:%n", all.size(), threadCount(all), end / 1e6);
+
+		out.printf("  %-28s %-16s %9s %9s %9s%n", "task", "thread", "queued", "start", "end");
+
+		for (Task<?> task : all) {
+			long started = task.started >= 0 ? task.started : now;
+
+			long finished = task.finished >= 0 ? task.finished : now;
+
+			StringBuilder bar = new StringBuilder(TIMELINE_WIDTH);
+
+			for (int i = 0; i < TIMELINE_WIDTH; i++) {
+				long time = end * i / TIMELINE_WIDTH;
+
+				bar.append(time < task.queued ? ' ' : time < started ? '.' : time < finished ? '#' : ' ');
+			}
+
+			out.printf("  %-28s %-16s %8.1fms %8.1fms %8.1fms |%s|%s%n", task.name,
+					task.thread == null ? "-" : task.thread, task.queued / 1e6, started / 1e6, finished / 1e6, bar,
+					task.result.isCompletedExceptionally() ? " FAILED" : task.isDone() ? "" : " running");
+		}
+
+		for (Milestone milestone : marks) {
+			out.printf("  %-28s %-16s %9s %9s %8.1fms%n", "* " + milestone.name, "", "", "", milestone.time / 1e6);
+		}
+	}
+
+	/**
+	 * @return The milliseconds from the creation of the pipeline to the given
+	 *         milestone, or -1 if it has not been reached
+	 */
+	public double getMilestone(String name) {
+		synchronized (milestones) {
+			for (Milestone milestone : milestones) {
+				if (milestone.name.equals(name)) {
+					return milestone.time / 1e6;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * This method is responsible for stopping the threads once nothing more will
+	 * be loaded. Tasks already submitted still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * @return A copy of the tasks submitted so far
+	 */
+	private List<Task<?>> getTasks() {
+		synchronized (tasks) {
+			return new ArrayList<>(tasks);
+		}
+	}
+
+	/**
+	 * @return The number of threads the given tasks have run on
+	 */
+	private static int threadCount(List<Task<?>> tasks) {
+		return (int) tasks.stream().map(task -> task.thread).filter(thread -> thread != null).distinct().count();
+	}
+}
@@ -0,0 +1,384 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is responsible for drawing a frame with {@link SoftwareRenderer}s
+ * on several threads at once. The back buffer is split into horizontal bands,
+ * each drawn by its own thread with its own renderer, clipped to the band, so
+ * no two threads ever write the same pixel.
+ * <br><br>
+ * Images are not drawn straight away. Each one is added to the list of every
+ * band it overlaps, so each band only visits the images it has to draw, and
+ * in the order they were asked for. The lists are drawn by {@link #flush()},
+ * which waits for every band to finish, so it is a barrier between drawing the
+ * images and anything else that draws on the back buffer. Asking for
+ * {@link #getGraphics()}, or changing the clip, flushes first, so everything
+ * still ends up drawn in the order it was asked for.
+ * <br><br>
+ * The thread that flushes draws the first band itself, the rest are drawn by a
+ * fixed set of worker threads that wait in between frames. A steady frame
+ * does not allocate, the lists only grow. This must only be used by one
+ * thread at a time.
+ *
+ * @author Luke S
+ *
+ */
+public class BandedRenderer implements Renderer {
+
+	/**
+	 * Responsible for storing the number of bands used by default, one per core
+	 * up to 8.
+	 */
+	public static final int DEFAULT_BANDS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Responsible for storing the initial capacity of the lists of images.
+	 */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * Responsible for storing the renderer of each band, and the band each draws,
+	 * as its top and the top of the next band.
+	 */
+	private final SoftwareRenderer[] renderers;
+
+	private final int[] bandTops;
+
+	/**
+	 * Responsible for storing the graphics object that draws on the whole of the
+	 * back buffer.
+	 */
+	private final Graphics2D graphics;
+
+	/**
+	 * Responsible for storing the size of the back buffer.
+	 */
+	private final int width, height;
+
+	/**
+	 * Responsible for storing the images waiting to be drawn, in the order they
+	 * were asked for, along with where and whether they are mirrored.
+	 */
+	private Image[] images = new Image[INITIAL_CAPACITY];
+
+	private int[] xs = new int[INITIAL_CAPACITY];
+
+	private int[] ys = new int[INITIAL_CAPACITY];
+
+	private boolean[] flips = new boolean[INITIAL_CAPACITY];
+
+	private int count;
+
+	/**
+	 * Responsible for storing the list of each band, as indexes into the images
+	 * waiting to be drawn, and the length of each list.
+	 */
+	private final int[][] bandImages;
+
+	private final int[] bandCounts;
+
+	/**
+	 * Responsible for storing the rectangle drawing is limited to.
+	 */
+	private final Rectangle clip = new Rectangle();
+
+	/**
+	 * Responsible for storing the worker threads, which draw every band but the
+	 * first.
+	 */
+	private final Thread[] workers;
+
+	/**
+	 * Responsible for storing the number of frames flushed so far, which the
+	 * workers watch to know when there is a frame to draw.
+	 */
+	private volatile int generation;
+
+	/**
+	 * Responsible for storing the number of workers still drawing the frame.
+	 */
+	private final AtomicInteger drawing = new AtomicInteger();
+
+	/**
+	 * Responsible for storing the thread waiting for the workers to finish.
+	 */
+	private volatile Thread flusher;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the workers should
+	 * stop.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a BandedRenderer and starts its workers.
+	 *
+	 * @param buffer   The back buffer, which must be TYPE_INT_RGB
+	 * @param graphics A graphics object that draws on the back buffer
+	 * @param bands    The number of bands, each drawn on its own thread
+	 * @throws IllegalArgumentException If the back buffer is not TYPE_INT_RGB
+	 */
+	public BandedRenderer(BufferedImage buffer, Graphics2D graphics, int bands) {
+		this.graphics = graphics;
+
+		this.width = buffer.getWidth();
+
+		this.height = buffer.getHeight();
+
+		bands = Math.max(1, Math.min(bands, height));
+
+		renderers = new SoftwareRenderer[bands];
+
+		bandTops = new int[bands + 1];
+
+		bandImages = new int[bands][INITIAL_CAPACITY];
+
+		bandCounts = new int[bands];
+
+		for (int b = 0; b < bands; b++) {
+			bandTops[b] = (int) ((long) height * b / bands);
+
+			// Each band has its own graphics object, for images that are drawn through
+			// Java2D, so the bands do not share a clip
+			renderers[b] = new SoftwareRenderer(buffer, buffer.createGraphics());
+		}
+
+		bandTops[bands] = height;
+
+		setClip(0, 0, width, height);
+
+		workers = new Thread[bands - 1];
+
+		for (int w = 0; w < workers.length; w++) {
+			int band = w + 1;
+
+			workers[w] = new Thread(() -> work(band), "BandedRenderer-" + band);
+
+			workers[w].setDaemon(true);
+
+			workers[w].start();
+		}
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y) {
+		drawImage(image, x, y, false);
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y, boolean flipped) {
+		int imageWidth = image.getWidth(null), imageHeight = image.getHeight(null);
+
+		int top = clip.y, bottom = clip.y + clip.height;
+
+		// An image that has not finished loading is given to every band
+		if (imageWidth >= 0 && imageHeight >= 0) {
+			if (x >= clip.x + clip.width || x + imageWidth <= clip.x) {
+				return;
+			}
+
+			top = Math.max(top, y);
+
+			bottom = Math.min(bottom, y + imageHeight);
+
+			if (top >= bottom) {
+				return;
+			}
+		}
+
+		if (count == images.length) {
+			grow();
+		}
+
+		int i = count++;
+
+		images[i] = image;
+
+		xs[i] = x;
+
+		ys[i] = y;
+
+		flips[i] = flipped;
+
+		for (int b = bandOf(top); b < renderers.length && bandTops[b] < bottom; b++) {
+			if (bandCounts[b] == bandImages[b].length) {
+				bandImages[b] = Arrays.copyOf(bandImages[b], bandImages[b].length * 2);
+			}
+
+			bandImages[b][bandCounts[b]++] = i;
+		}
+	}
+
+	/**
+	 * @return The band the given row is in
+	 */
+	private int bandOf(int row) {
+		int band = (int) ((long) row * renderers.length / height);
+
+		// Rounding can put the row one band out either way
+		while (band > 0 && bandTops[band] > row) {
+			band--;
+		}
+
+		while (band < renderers.length - 1 && bandTops[band + 1] <= row) {
+			band++;
+		}
+
+		return band;
+	}
+
+	/**
+	 * This method is responsible for drawing every image waiting to be drawn,
+	 * each band on its own thread, and waiting for them all to finish.
+	 */
+	@Override
+	public void flush() {
+		if (count == 0) {
+			return;
+		}
+
+		if (workers.length > 0) {
+			flusher = Thread.currentThread();
+
+			drawing.set(workers.length);
+
+			// Publishes the lists to the workers
+			generation++;
+
+			for (Thread worker : workers) {
+				LockSupport.unpark(worker);
+			}
+		}
+
+		drawBand(0);
+
+		while (drawing.get() != 0) {
+			LockSupport.park(this);
+		}
+
+		Arrays.fill(images, 0, count, null);
+
+		count = 0;
+	}
+
+	/**
+	 * This method is responsible for drawing the images in the list of a band.
+	 */
+	private void drawBand(int band) {
+		SoftwareRenderer renderer = renderers[band];
+
+		int[] list = bandImages[band];
+
+		for (int k = 0; k < bandCounts[band]; k++) {
+			int i = list[k];
+
+			renderer.drawImage(images[i], xs[i], ys[i], flips[i]);
+		}
+
+		bandCounts[band] = 0;
+	}
+
+	/**
+	 * This method is run by each worker, drawing its band every time a frame is
+	 * flushed.
+	 */
+	private void work(int band) {
+		// Nothing has been flushed when the workers are started, but a frame may be
+		// before this worker gets to run, so it must not start from the generation
+		// it sees
+		int drawn = 0;
+
+		while (!stopped) {
+			if (generation == drawn) {
+				LockSupport.park(this);
+
+				continue;
+			}
+
+			drawn = generation;
+
+			try {
+				drawBand(band);
+			} finally {
+				if (drawing.decrementAndGet() == 0) {
+					LockSupport.unpark(flusher);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void setClip(int x, int y, int width, int height) {
+		flush();
+
+		int left = Math.max(0, x), top = Math.max(0, y);
+
+		int right = Math.min(this.width, x + width), bottom = Math.min(this.height, y + height);
+
+		clip.setBounds(left, top, Math.max(0, right - left), Math.max(0, bottom - top));
+
+		for (int b = 0; b < renderers.length; b++) {
+			int bandTop = Math.max(top, bandTops[b]), bandBottom = Math.min(top + clip.height, bandTops[b + 1]);
+
+			renderers[b].setClip(left, bandTop, clip.width, Math.max(0, bandBottom - bandTop));
+		}
+
+		graphics.setClip(x, y, width, height);
+	}
+
+	@Override
+	public Rectangle getClipBounds(Rectangle bounds) {
+		bounds.setBounds(clip);
+
+		return bounds;
+	}
+
+	/**
+	 * @return The graphics object that draws on the back buffer, once everything
+	 *         waiting to be drawn has been
+	 */
+	@Override
+	public Graphics2D getGraphics() {
+		flush();
+
+		return graphics;
+	}
+
+	/**
+	 * @return The number of bands the back buffer is split into
+	 */
+	public int getBands() {
+		return renderers.length;
+	}
+
+	/**
+	 * This method is responsible for stopping the workers. The renderer cannot be
+	 * used again afterwards.
+	 */
+	public void shutdown() {
+		stopped = true;
+
+		for (Thread worker : workers) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	/**
+	 * This method is responsible for doubling the capacity of the list of images.
+	 */
+	private void grow() {
+		int capacity = images.length * 2;
+
+		images = Arrays.copyOf(images, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		flips = Arrays.copyOf(flips, capacity);
+	}
+}
@@ -0,0 +1,376 @@
+package com.hyperconix.game2D;
+
+import java.awt.Rectangle;
+
+/**
+ * This class is responsible for working out which part of the world is in
+ * view. The camera follows a target, normally the player, keeping it in the
+ * middle of the view, and is moved once a tick with {@link #follow}. Everything
+ * else about the view is worked out then too, the rectangle of the world in
+ * view, kept inside the bounds of the world, the columns and rows of the tiles
+ * in it and how far the background layers are scrolled, so anything that
+ * needs the view, such as drawing and culling, reads it rather than working it
+ * out again.
+ * <br><br>
+ * The target can be given a dead zone, a box in the middle of the view it can
+ * move around in without the camera moving, and the camera can be smoothed,
+ * so it eases towards the target rather than moving with it. Both are off by
+ * default, which keeps the target exactly in the middle of the view. After
+ * {@link #snap()} the next move goes straight to the target, such as when the
+ * level changes.
+ * <br><br>
+ * A camera is moved on the thread that updates the game. A snapshot takes its
+ * own copy with {@link #copyFrom}, so the camera can be drawn from on another
+ * thread.
+ *
+ * @author Luke S
+ *
+ */
+public class Camera {
+
+	/**
+	 * Responsible for storing the size of the view in pixels.
+	 */
+	private int viewWidth, viewHeight;
+
+	/**
+	 * Responsible for storing the size of the world in pixels, 0 if it has no
+	 * bounds, and the size of its tiles.
+	 */
+	private int worldWidth, worldHeight, tileWidth, tileHeight;
+
+	/**
+	 * Responsible for storing the size of the dead zone in pixels, and how long
+	 * the camera takes to close most of the distance to the target in
+	 * milliseconds, 0 to move with it.
+	 */
+	private int deadZoneWidth, deadZoneHeight;
+
+	private double smoothingMillis;
+
+	/**
+	 * Responsible for storing where the camera wants the left and top of the
+	 * view to be, before it is kept inside the bounds of the world.
+	 */
+	private double x, y;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the next move should
+	 * go straight to the target.
+	 */
+	private boolean snapping = true;
+
+	/**
+	 * Responsible for storing the view worked out by the last move: the left and
+	 * top of the view before and after it is kept inside the bounds of the world,
+	 * the columns and rows of the tiles in it, and the offset the background
+	 * layers are scrolled from.
+	 */
+	private int scrollX, scrollY, viewX, viewY;
+
+	private int firstColumn, lastColumn = -1, firstRow, lastRow = -1;
+
+	private int backgroundOffset;
+
+	/**
+	 * Creates a Camera.
+	 *
+	 * @param viewWidth  The width of the view in pixels
+	 * @param viewHeight The height of the view in pixels
+	 */
+	public Camera(int viewWidth, int viewHeight) {
+		this.viewWidth = viewWidth;
+
+		this.viewHeight = viewHeight;
+	}
+
+	/**
+	 * This method is responsible for keeping the view inside a tile map.
+	 *
+	 * @param map The map the camera moves over
+	 */
+	public void setBounds(TileMap map) {
+		setBounds(map.getPixelWidth(), map.getPixelHeight(), map.getTileWidth(), map.getTileHeight());
+	}
+
+	/**
+	 * This method is responsible for keeping the view inside the world.
+	 *
+	 * @param width      The width of the world in pixels, or 0 for no bounds
+	 * @param height     The height of the world in pixels, or 0 for no bounds
+	 * @param tileWidth  The width of the tiles of the world
+	 * @param tileHeight The height of the tiles of the world
+	 */
+	public void setBounds(int width, int height, int tileWidth, int tileHeight) {
+		this.worldWidth = Math.max(0, width);
+
+		this.worldHeight = Math.max(0, height);
+
+		this.tileWidth = Math.max(1, tileWidth);
+
+		this.tileHeight = Math.max(1, tileHeight);
+
+		place();
+	}
+
+	/**
+	 * This method is responsible for setting the size of the box in the middle
+	 * of the view the target can move around in without the camera moving.
+	 *
+	 * @param width  The width of the dead zone in pixels
+	 * @param height The height of the dead zone in pixels
+	 */
+	public void setDeadZone(int width, int height) {
+		deadZoneWidth = Math.max(0, width);
+
+		deadZoneHeight = Math.max(0, height);
+	}
+
+	/**
+	 * This method is responsible for setting how smoothly the camera follows the
+	 * target. The camera closes about two thirds of the distance to where it
+	 * should be in the given time.
+	 *
+	 * @param millis The time in milliseconds, or 0 to move with the target
+	 */
+	public void setSmoothing(double millis) {
+		smoothingMillis = Math.max(0, millis);
+	}
+
+	/**
+	 * This method is responsible for making the next move go straight to the
+	 * target, ignoring the dead zone and smoothing.
+	 */
+	public void snap() {
+		snapping = true;
+	}
+
+	/**
+	 * @return True if the camera has not moved since it was last snapped
+	 */
+	public boolean isSnapping() {
+		return snapping;
+	}
+
+	/**
+	 * This method is responsible for moving the camera towards a target and
+	 * working out the view from where it ends up. This should be called once a
+	 * tick.
+	 *
+	 * @param targetX The x position of the target in the world
+	 * @param targetY The y position of the target in the world
+	 * @param elapsed The time since the camera last moved in milliseconds
+	 */
+	public void follow(double targetX, double targetY, long elapsed) {
+		double wantX = wanted(x, targetX, viewWidth, snapping ? 0 : deadZoneWidth);
+
+		double wantY = wanted(y, targetY, viewHeight, snapping ? 0 : deadZoneHeight);
+
+		if (snapping || smoothingMillis == 0) {
+			x = wantX;
+
+			y = wantY;
+		} else {
+			double step = 1 - Math.exp(-elapsed / smoothingMillis);
+
+			x += (wantX - x) * step;
+
+			y += (wantY - y) * step;
+		}
+
+		snapping = false;
+
+		place();
+	}
+
+	/**
+	 * @return Where the camera wants the start of the view to be along one axis,
+	 *         so the target is in the dead zone
+	 */
+	private static double wanted(double start, double target, int size, int deadZone) {
+		double centre = start + size / 2;
+
+		double half = deadZone / 2.0;
+
+		if (target > centre + half) {
+			return target - half - size / 2;
+		}
+
+		if (target < centre - half) {
+			return target + half - size / 2;
+		}
+
+		return start;
+	}
+
+	/**
+	 * This method is responsible for working out the view from where the camera
+	 * is.
+	 */
+	private void place() {
+		scrollX = (int) Math.round(x);
+
+		scrollY = (int) Math.round(y);
+
+		viewX = clamp(scrollX, worldWidth - viewWidth, worldWidth);
+
+		viewY = clamp(scrollY, worldHeight - viewHeight, worldHeight);
+
+		firstColumn = Math.max(0, Math.floorDiv(viewX, tileWidth));
+
+		lastColumn = Math.floorDiv(viewX + viewWidth - 1, tileWidth);
+
+		firstRow = Math.max(0, Math.floorDiv(viewY, tileHeight));
+
+		lastRow = Math.floorDiv(viewY + viewHeight - 1, tileHeight);
+
+		if (worldWidth > 0) {
+			lastColumn = Math.min(lastColumn, worldWidth / tileWidth - 1);
+		}
+
+		if (worldHeight > 0) {
+			lastRow = Math.min(lastRow, worldHeight / tileHeight - 1);
+		}
+
+		// The background layers scroll from an offset kept inside the world the same
+		// way as the view, taken back by the width of the world in tiles
+		backgroundOffset = -scrollX - (worldWidth / tileWidth);
+
+		if (worldWidth > 0) {
+			backgroundOffset = Math.max(Math.min(backgroundOffset, 0), viewWidth - worldWidth);
+		}
+	}
+
+	/**
+	 * @return The start of the view kept inside the world, or as it is if the
+	 *         world has no bounds. A world smaller than the view is lined up with
+	 *         its far edge.
+	 */
+	private static int clamp(int start, int last, int size) {
+		if (size == 0) {
+			return start;
+		}
+
+		return Math.min(Math.max(start, 0), last);
+	}
+
+	/**
+	 * This method is responsible for copying another camera, so a snapshot can
+	 * be drawn from while the camera keeps moving.
+	 *
+	 * @param other The camera to copy
+	 */
+	public void copyFrom(Camera other) {
+		viewWidth = other.viewWidth;
+		viewHeight = other.viewHeight;
+		worldWidth = other.worldWidth;
+		worldHeight = other.worldHeight;
+		tileWidth = other.tileWidth;
+		tileHeight = other.tileHeight;
+		deadZoneWidth = other.deadZoneWidth;
+		deadZoneHeight = other.deadZoneHeight;
+		smoothingMillis = other.smoothingMillis;
+		x = other.x;
+		y = other.y;
+		snapping = other.snapping;
+		scrollX = other.scrollX;
+		scrollY = other.scrollY;
+		viewX = other.viewX;
+		viewY = other.viewY;
+		firstColumn = other.firstColumn;
+		lastColumn = other.lastColumn;
+		firstRow = other.firstRow;
+		lastRow = other.lastRow;
+		backgroundOffset = other.backgroundOffset;
+	}
+
+	/**
+	 * @return The x position in the world of the left of the view
+	 */
+	public int getViewX() {
+		return viewX;
+	}
+
+	/**
+	 * @return The y position in the world of the top of the view
+	 */
+	public int getViewY() {
+		return viewY;
+	}
+
+	/**
+	 * @return The width of the view in pixels
+	 */
+	public int getViewWidth() {
+		return viewWidth;
+	}
+
+	/**
+	 * @return The height of the view in pixels
+	 */
+	public int getViewHeight() {
+		return viewHeight;
+	}
+
+	/**
+	 * This method is responsible for getting the rectangle of the world in view.
+	 *
+	 * @param bounds The rectangle to fill in
+	 * @return The rectangle that was filled in
+	 */
+	public Rectangle getViewBounds(Rectangle bounds) {
+		bounds.setBounds(viewX, viewY, viewWidth, viewHeight);
+
+		return bounds;
+	}
+
+	/**
+	 * @return True if any of the given rectangle of the world is in view
+	 */
+	public boolean isVisible(float x, float y, int width, int height) {
+		return x < viewX + viewWidth && x + width > viewX && y < viewY + viewHeight && y + height > viewY;
+	}
+
+	/**
+	 * @return The first column of tiles in view
+	 */
+	public int getFirstColumn() {
+		return firstColumn;
+	}
+
+	/**
+	 * @return The last column of tiles in view, less than the first if there are
+	 *         none
+	 */
+	public int getLastColumn() {
+		return lastColumn;
+	}
+
+	/**
+	 * @return The first row of tiles in view
+	 */
+	public int getFirstRow() {
+		return firstRow;
+	}
+
+	/**
+	 * @return The last row of tiles in view, less than the first if there are
+	 *         none
+	 */
+	public int getLastRow() {
+		return lastRow;
+	}
+
+	/**
+	 * This method is responsible for working out where a background layer is
+	 * drawn. Layers scroll more slowly than the world the higher their speed,
+	 * which gives the illusion of depth.
+	 *
+	 * @param speed      How slowly the layer scrolls
+	 * @param layerWidth The width of the layer's image in pixels
+	 * @return The x position to draw the layer at
+	 */
+	public int getBackgroundX(int speed, int layerWidth) {
+		return backgroundOffset * (viewWidth + layerWidth) / (viewWidth * speed - worldWidth / tileWidth);
+	}
+}
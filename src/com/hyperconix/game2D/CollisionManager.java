@@ -3,6 +3,8 @@
  */
 package com.hyperconix.game2D;
 
+import java.util.List;
+
 /**
  * This class is responsible for managing 
  * collisions between sprites in the game. 
@@ -19,18 +21,20 @@ package com.hyperconix.game2D;
 public class CollisionManager {
 	
     /**
-      * Responsible for storing the character that indicates the "air" or an empty space
-      * in the TileMap
-      */
-    private char airTileCharacter;
+     * Creates a CollisionManager. Which tiles can be collided with comes from the
+     * TileType flags of the map being checked, so nothing needs to be given here.
+     */
+    public CollisionManager() {
+	}
 	
     /**
-     * 
-     * @param airTileCharacter The air or empty space tile character being used 
+     * This method is responsible for checking whether a tile is anything other than
+     * empty space, using the flag bitmaps of the map rather than the tile character.
      */
-    public CollisionManager(char airTileCharacter) {
-		this.airTileCharacter = airTileCharacter;
-	}
+    private boolean isOccupied(Tile tile, TileMap currentTileMap) {
+    	return !currentTileMap.isEmpty(tile.getXC() / currentTileMap.getTileWidth(),
+    			tile.getYC() / currentTileMap.getTileHeight());
+    }
 	
     /**
      * This method is responsible for checking if there has been a rectangle (bounding box) collision
@@ -90,7 +94,7 @@ public class CollisionManager {
      * @return {@code true} If there a collision between a right tile and the sprite, otherwise {@code false}
      */
     public boolean collisionAtRight(Tile collidingTile, Sprite collidingSprite, TileMap currentTileMap)  {
-    	return collidingTile.getCharacter() != airTileCharacter && 
+    	return isOccupied(collidingTile, currentTileMap) && 
     		   (collidingSprite.getX() + collidingSprite.getWidth() >
     		   collidingTile.getXC());
     }
@@ -106,7 +110,7 @@ public class CollisionManager {
      * @return {@code true} If there a collision between a right tile and the sprite, otherwise {@code false}
      */
     public boolean collisionAtLeft(Tile collidingTile, Sprite collidingSprite, TileMap currentTileMap)  {
-    	return collidingTile.getCharacter() != airTileCharacter && 
+    	return isOccupied(collidingTile, currentTileMap) && 
     		   collidingSprite.getX() < (collidingTile.getXC() + currentTileMap.getTileWidth());
     		   
     }
@@ -122,7 +126,7 @@ public class CollisionManager {
      * @return {@code true} If there a collision between a right tile and the sprite, otherwise {@code false}
      */
     public boolean collisionAtTop(Tile collidingTile, Sprite collidingSprite, TileMap currentTileMap) {
-    	return collidingTile.getCharacter() != airTileCharacter && 
+    	return isOccupied(collidingTile, currentTileMap) && 
     		   collidingSprite.getY() < (collidingTile.getYC() + currentTileMap.getTileHeight());
     }
     
@@ -138,9 +142,78 @@ public class CollisionManager {
      * @return {@code true} If there a collision between a right tile and the sprite, otherwise {@code false}
      */
     public boolean collisionAtBottom(Tile collidingTile, Sprite collidingSprite, TileMap currentTileMap) {
-    	return collidingTile.getCharacter() != airTileCharacter && 
+    	return isOccupied(collidingTile, currentTileMap) && 
     		  (collidingSprite.getY() + collidingSprite.getHeight() >
     	      collidingTile.getYC()); 
     }
+    
+    /**
+     * This method is responsible for checking whether one sprite can see another,
+     * that is whether the straight line between their centres is clear of solid
+     * tiles.
+     * 
+     * @param viewer The sprite doing the looking
+     * @param target The sprite being looked for
+     * @param currentTileMap The current tilemap that is in use
+     * 
+     * @return {@code true} if the viewer can see the target, {@code false} otherwise
+     */
+    public boolean hasLineOfSight(Sprite viewer, Sprite target, TileMap currentTileMap) {
+    	return currentTileMap.lineOfSight(viewer.getX() + viewer.getWidth() / 2.0f,
+    			viewer.getY() + viewer.getHeight() / 2.0f,
+    			target.getX() + target.getWidth() / 2.0f,
+    			target.getY() + target.getHeight() / 2.0f);
+    }
+    
+    /**
+     * This method is responsible for checking whether each of a list of sprites can
+     * see a single target. This is meant for running perception for a lot of enemies
+     * at once against the player.
+     * 
+     * @param viewers The sprites doing the looking
+     * @param target The sprite being looked for
+     * @param currentTileMap The current tilemap that is in use
+     * @param visible Filled in with whether each viewer can see the target, this must
+     * be at least as long as the list of viewers
+     * 
+     * @return The number of viewers that can see the target
+     */
+    public int hasLineOfSight(List<? extends Sprite> viewers, Sprite target, TileMap currentTileMap, boolean[] visible) {
+    	float targetX = target.getX() + target.getWidth() / 2.0f;
+    	
+    	float targetY = target.getY() + target.getHeight() / 2.0f;
+    	
+    	int seen = 0;
+    	
+    	for (int i = 0; i < viewers.size(); i++) {
+    		Sprite viewer = viewers.get(i);
+    		
+    		visible[i] = currentTileMap.lineOfSight(viewer.getX() + viewer.getWidth() / 2.0f,
+    				viewer.getY() + viewer.getHeight() / 2.0f, targetX, targetY);
+    		
+    		if (visible[i]) {
+    			seen++;
+    		}
+    	}
+    	
+    	return seen;
+    }
+    
+    /**
+     * This method is responsible for checking whether a sprite can move by the given
+     * amount without running into a solid tile.
+     * 
+     * @param movingSprite The sprite that is moving
+     * @param dx The horizontal movement in pixels
+     * @param dy The vertical movement in pixels
+     * @param currentTileMap The current tilemap that is in use
+     * @param hit Filled in with how far the sprite can move before it hits, may be null
+     * 
+     * @return {@code true} if the sprite would hit a solid tile, {@code false} otherwise
+     */
+    public boolean sweep(Sprite movingSprite, float dx, float dy, TileMap currentTileMap, RayHit hit) {
+    	return currentTileMap.sweep(movingSprite.getX(), movingSprite.getY(), movingSprite.getWidth(),
+    			movingSprite.getHeight(), dx, dy, hit);
+    }
 	
 }
@@ -8,7 +8,21 @@ public interface Enemy {
 	 * kind of movement is but every Enemy will have some kind
 	 * of movement that interacts with the environment and the player.
 	 */
-	void move(char airTileChar, TileMap tmap, float speed);
+	void move(TileMap tmap, float speed);
+	
+	/**
+	 * This represents an enemy chasing a target using a shared
+	 * flow field. The field already knows the next step from
+	 * every position, so an enemy only has to look up where
+	 * it is standing rather than search for a path itself.
+	 * An enemy that cannot follow the next step should fall
+	 * back to its normal movement.
+	 * 
+	 * @param field The flow field pointing at the target
+	 * @param tmap The tile map the enemy is in
+	 * @param speed The speed to move at
+	 */
+	void chase(FlowField field, TileMap tmap, float speed);
 	
 	
 	//void attack();
@@ -0,0 +1,280 @@
+package com.hyperconix.game2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * This class is responsible for passing gameplay events, such as an item being
+ * picked up or the player being hit, from the code that spots them to the
+ * systems that react to them, like audio, the HUD, scoring and telemetry. The
+ * code that spots an event only adds it to a queue, and the queued events are
+ * handed out later in one go by {@link #dispatch()}, usually once per tick
+ * after the physics, so the collision code stays short and each system deals
+ * with a whole batch of events at once.
+ * <br><br>
+ * Each type of event has its own {@link Channel}. The event objects are made
+ * up front by the channel and reused every tick, so posting an event does not
+ * create any objects, unless more are posted in one tick than ever before, in
+ * which case the channel grows to fit. Events must not be kept once they have
+ * been handed out, as they will be filled in again the next tick.
+ * <br><br>
+ * Channels are dispatched in the order they were made, and each channel's
+ * subscribers in the order they subscribed, so the events are always handled
+ * in the same order. This is not thread safe, it is meant to be used by the
+ * thread that runs the game.
+ *
+ * @author Luke S
+ *
+ */
+public class EventBus {
+
+	/**
+	 * Responsible for storing the number of events each channel makes up front.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * This represents something that handles the events of one type, a batch at
+	 * a time.
+	 *
+	 * @param <T> The type of event
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Handles the events posted since the last dispatch.
+		 *
+		 * @param events The events, oldest first, only valid until this returns
+		 */
+		void onEvents(Channel<T> events);
+	}
+
+	/**
+	 * This class is the queue of events of one type, and the subscribers to
+	 * them.
+	 *
+	 * @param <T> The type of event
+	 */
+	public static final class Channel<T> {
+
+		/**
+		 * Responsible for storing the name of the channel, for debugging.
+		 */
+		private final String name;
+
+		/**
+		 * Responsible for storing the factory the reusable events are made with.
+		 */
+		private final Supplier<T> factory;
+
+		/**
+		 * Responsible for storing the reusable events, the first 'count' of which
+		 * have been posted since the last dispatch.
+		 */
+		private Object[] events;
+
+		private int count;
+
+		/**
+		 * Responsible for storing the number of events ever posted.
+		 */
+		private long posted;
+
+		/**
+		 * Responsible for storing a flag which indicates whether the batch is being
+		 * handed to the subscribers.
+		 */
+		private boolean dispatching;
+
+		/**
+		 * Responsible for storing the subscribers to this channel.
+		 */
+		private final ArrayList<Subscriber<? super T>> subscribers = new ArrayList<>();
+
+		private Channel(String name, Supplier<T> factory, int capacity) {
+			this.name = name;
+
+			this.factory = factory;
+
+			events = new Object[0];
+
+			grow(capacity);
+		}
+
+		/**
+		 * This method is responsible for queueing an event. The event returned
+		 * still holds whatever it was last filled in with, so every field should be
+		 * set before the next dispatch. A subscriber must not post to the channel it
+		 * is handling.
+		 *
+		 * @return The event to fill in
+		 */
+		@SuppressWarnings("unchecked")
+		public T post() {
+			if (dispatching) {
+				throw new IllegalStateException("Cannot post to " + name + " while it is being dispatched");
+			}
+
+			if (count == events.length) {
+				grow(events.length * 2);
+			}
+
+			posted++;
+
+			return (T) events[count++];
+		}
+
+		/**
+		 * This method is responsible for adding a subscriber, which will be handed
+		 * every batch of events from now on.
+		 *
+		 * @param subscriber The subscriber to add
+		 */
+		public void subscribe(Subscriber<? super T> subscriber) {
+			subscribers.add(subscriber);
+		}
+
+		/**
+		 * This method is responsible for removing a subscriber.
+		 *
+		 * @param subscriber The subscriber to remove
+		 */
+		public void unsubscribe(Subscriber<? super T> subscriber) {
+			subscribers.remove(subscriber);
+		}
+
+		/**
+		 * @return The number of events in the batch
+		 */
+		public int size() {
+			return count;
+		}
+
+		/**
+		 * @param i The index of the event, from 0 to size() - 1
+		 * @return The event at that index in the batch
+		 */
+		@SuppressWarnings("unchecked")
+		public T get(int i) {
+			if (i >= count) {
+				throw new IndexOutOfBoundsException("Event " + i + " of " + count);
+			}
+
+			return (T) events[i];
+		}
+
+		/**
+		 * @return The name of the channel
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * This method is responsible for handing the queued events to each
+		 * subscriber, then emptying the queue.
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void dispatch() {
+			if (count == 0) {
+				return;
+			}
+
+			dispatching = true;
+
+			try {
+				for (int i = 0; i < subscribers.size(); i++) {
+					((Subscriber) subscribers.get(i)).onEvents(this);
+				}
+			} finally {
+				dispatching = false;
+
+				count = 0;
+			}
+		}
+
+		/**
+		 * This method is responsible for making more reusable events.
+		 */
+		private void grow(int capacity) {
+			int made = events.length;
+
+			events = Arrays.copyOf(events, Math.max(1, capacity));
+
+			for (int i = made; i < events.length; i++) {
+				events[i] = factory.get();
+			}
+		}
+	}
+
+	/**
+	 * Responsible for storing the channels, in the order they are dispatched.
+	 */
+	private final ArrayList<Channel<?>> channels = new ArrayList<>();
+
+	/**
+	 * This method is responsible for making a channel for a type of event.
+	 *
+	 * @param <T>     The type of event
+	 * @param name    The name of the channel, for debugging
+	 * @param factory Makes a blank event, called up front and whenever the
+	 *                channel grows
+	 * @return The new channel
+	 */
+	public <T> Channel<T> channel(String name, Supplier<T> factory) {
+		Channel<T> channel = new Channel<T>(name, factory, DEFAULT_CAPACITY);
+
+		channels.add(channel);
+
+		return channel;
+	}
+
+	/**
+	 * This method is responsible for handing out every queued event, a channel at
+	 * a time. Events posted by a subscriber while this runs are handed out too,
+	 * if their channel has not been dispatched yet, otherwise they wait for the
+	 * next dispatch.
+	 */
+	public void dispatch() {
+		for (int i = 0; i < channels.size(); i++) {
+			channels.get(i).dispatch();
+		}
+	}
+
+	/**
+	 * This method is responsible for throwing away every queued event without
+	 * handing them out.
+	 */
+	public void clear() {
+		for (int i = 0; i < channels.size(); i++) {
+			channels.get(i).count = 0;
+		}
+	}
+
+	/**
+	 * @return The number of events ever posted across every channel
+	 */
+	public long getPosted() {
+		long posted = 0;
+
+		for (int i = 0; i < channels.size(); i++) {
+			posted += channels.get(i).posted;
+		}
+
+		return posted;
+	}
+
+	/**
+	 * @return The number of events queued across every channel
+	 */
+	public int size() {
+		int size = 0;
+
+		for (int i = 0; i < channels.size(); i++) {
+			size += channels.get(i).count;
+		}
+
+		return size;
+	}
+}
@@ -0,0 +1,363 @@
+package com.hyperconix.game2D;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a flow field towards a single target, usually the
+ * player. Rather than every enemy searching for its own path, one search is
+ * run backwards from the target over a {@link NavGraph}, which leaves every
+ * node with its distance to the target and the next node to step to. Any
+ * number of enemies can then look up their next step in constant time, so the
+ * cost of path finding per tick barely depends on how many enemies there are.
+ * <br><br>
+ * The search is only run again when the target moves into a different node or
+ * the graph is rebuilt because the terrain changed. Edge costs are small
+ * integers, so the search uses a bucket queue (Dial's algorithm) instead of a
+ * heap, and every array is allocated once and reused.
+ *
+ * @author Luke S
+ *
+ */
+public class FlowField {
+
+	/**
+	 * Responsible for storing the distance given to nodes that cannot reach the
+	 * target.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Responsible for storing the graph the field is built over.
+	 */
+	private final NavGraph graph;
+
+	/**
+	 * Responsible for storing the distance from each node to the target.
+	 */
+	private int[] distance = new int[0];
+
+	/**
+	 * Responsible for storing the next node on the way to the target from each
+	 * node, -1 for the target itself and any node that cannot reach it.
+	 */
+	private int[] nextNode = new int[0];
+
+	/**
+	 * Responsible for storing the type of edge used to get to the next node.
+	 */
+	private byte[] stepType = new byte[0];
+
+	/**
+	 * Responsible for storing the bucket queue. Each bucket is a doubly linked
+	 * list of nodes threaded through the queueNext and queuePrev arrays, so a
+	 * node can be moved to a nearer bucket in constant time.
+	 */
+	private int[] bucketHead = new int[0];
+	private int[] queueNext = new int[0];
+	private int[] queuePrev = new int[0];
+	private boolean[] queued = new boolean[0];
+
+	/**
+	 * Responsible for storing the node the field currently points towards.
+	 */
+	private int targetNode = -1;
+
+	/**
+	 * Responsible for storing the graph generation the field was built at.
+	 */
+	private int builtGeneration = -1;
+
+	/**
+	 * Responsible for storing the number of times the field has been rebuilt.
+	 */
+	private long rebuilds;
+
+	/**
+	 * Creates the state of a FlowField.
+	 *
+	 * @param graph The graph to build the field over
+	 */
+	public FlowField(NavGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * This method is responsible for pointing the field at a target. This should
+	 * be called once per tick before any enemy asks for its next step, it only
+	 * does any work when the target has moved to a different node or the terrain
+	 * has changed.
+	 *
+	 * @param targetX The x pixel coordinate of the target's feet
+	 * @param targetY The y pixel coordinate of the target's feet
+	 * @return {@code true} if the field was rebuilt, {@code false} otherwise
+	 */
+	public boolean update(float targetX, float targetY) {
+		graph.update();
+
+		int node = graph.nodeAtPixel(targetX, targetY);
+
+		// Keep pointing at the last known node while the target is in the air
+		if (node < 0) {
+			node = targetNode;
+		}
+
+		if (node == targetNode && builtGeneration == graph.getGeneration()) {
+			return false;
+		}
+
+		build(node);
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for running the search backwards from the target
+	 * node over the incoming edges of the graph.
+	 *
+	 * @param target The node to build the field towards, or -1 for none
+	 */
+	private void build(int target) {
+		targetNode = target;
+
+		builtGeneration = graph.getGeneration();
+
+		rebuilds++;
+
+		int nodes = graph.getNodeCount();
+
+		if (distance.length < nodes) {
+			distance = new int[nodes];
+
+			nextNode = new int[nodes];
+
+			stepType = new byte[nodes];
+
+			queueNext = new int[nodes];
+
+			queuePrev = new int[nodes];
+
+			queued = new boolean[nodes];
+		}
+
+		Arrays.fill(distance, 0, nodes, UNREACHABLE);
+
+		Arrays.fill(nextNode, 0, nodes, -1);
+
+		if (target < 0 || target >= nodes) {
+			targetNode = -1;
+
+			return;
+		}
+
+		// A node can be waiting in the queue at most maxCost ahead of the current
+		// distance, so that many buckets (plus one) can be used as a ring
+		int maxCost = 1;
+
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			maxCost = Math.max(maxCost, graph.getEdgeCost(e));
+		}
+
+		int buckets = maxCost + 1;
+
+		if (bucketHead.length < buckets) {
+			bucketHead = new int[buckets];
+		}
+
+		Arrays.fill(bucketHead, 0, buckets, -1);
+
+		distance[target] = 0;
+
+		push(target, 0, buckets);
+
+		int waiting = 1;
+
+		for (int d = 0; waiting > 0; d++) {
+			int bucket = d % buckets;
+
+			while (bucketHead[bucket] >= 0) {
+				int node = bucketHead[bucket];
+
+				unlink(node, bucket);
+
+				waiting--;
+
+				for (int i = graph.getInEdgeStart(node); i < graph.getInEdgeEnd(node); i++) {
+					int edge = graph.getInEdge(i);
+
+					int from = graph.getEdgeSource(edge);
+
+					int through = d + graph.getEdgeCost(edge);
+
+					if (through < distance[from]) {
+						if (queued[from]) {
+							unlink(from, distance[from] % buckets);
+						} else {
+							waiting++;
+						}
+
+						distance[from] = through;
+
+						nextNode[from] = node;
+
+						stepType[from] = graph.getEdgeType(edge);
+
+						push(from, through, buckets);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for adding a node to the front of the bucket for
+	 * its distance.
+	 */
+	private void push(int node, int dist, int buckets) {
+		int bucket = dist % buckets;
+
+		int head = bucketHead[bucket];
+
+		queuePrev[node] = -1;
+
+		queueNext[node] = head;
+
+		if (head >= 0) {
+			queuePrev[head] = node;
+		}
+
+		bucketHead[bucket] = node;
+
+		queued[node] = true;
+	}
+
+	/**
+	 * This method is responsible for removing a node from the bucket it is in.
+	 */
+	private void unlink(int node, int bucket) {
+		int prev = queuePrev[node];
+
+		int next = queueNext[node];
+
+		if (prev >= 0) {
+			queueNext[prev] = next;
+		} else {
+			bucketHead[bucket] = next;
+		}
+
+		if (next >= 0) {
+			queuePrev[next] = prev;
+		}
+
+		queued[node] = false;
+	}
+
+	/**
+	 * This method is responsible for returning the next node to step to from a
+	 * pixel position.
+	 *
+	 * @param px The x pixel coordinate of the feet
+	 * @param py The y pixel coordinate of the feet
+	 * @return The next node, or -1 if the position is at the target or cannot
+	 *         reach it
+	 */
+	public int getNextNode(float px, float py) {
+		int node = graph.nodeAtPixel(px, py);
+
+		if (node < 0 || node >= distance.length || targetNode < 0) {
+			return -1;
+		}
+
+		return nextNode[node];
+	}
+
+	/**
+	 * This method is responsible for returning the type of step to take from a
+	 * pixel position.
+	 *
+	 * @param px The x pixel coordinate of the feet
+	 * @param py The y pixel coordinate of the feet
+	 * @return The edge type of the next step, see {@link NavGraph}, or -1 if there
+	 *         is no next step
+	 */
+	public int getStepType(float px, float py) {
+		int node = graph.nodeAtPixel(px, py);
+
+		if (node < 0 || node >= distance.length || targetNode < 0 || nextNode[node] < 0) {
+			return -1;
+		}
+
+		return stepType[node];
+	}
+
+	/**
+	 * This method is responsible for returning which way to move horizontally from
+	 * a pixel position.
+	 *
+	 * @param px The x pixel coordinate of the feet
+	 * @param py The y pixel coordinate of the feet
+	 * @return -1 to move left, 1 to move right, or 0 if there is nowhere to go
+	 */
+	public int getDirectionX(float px, float py) {
+		int next = getNextNode(px, py);
+
+		if (next < 0) {
+			return 0;
+		}
+
+		return Integer.signum(graph.getNodeX(next) - (int) (px / graph.getMap().getTileWidth()));
+	}
+
+	/**
+	 * This method is responsible for returning the distance to the target from a
+	 * pixel position.
+	 *
+	 * @param px The x pixel coordinate of the feet
+	 * @param py The y pixel coordinate of the feet
+	 * @return The distance, or {@link #UNREACHABLE} if the target cannot be
+	 *         reached
+	 */
+	public int getDistance(float px, float py) {
+		int node = graph.nodeAtPixel(px, py);
+
+		if (node < 0 || node >= distance.length || targetNode < 0) {
+			return UNREACHABLE;
+		}
+
+		return distance[node];
+	}
+
+	/**
+	 * @return The node the field points towards, or -1 if there is none
+	 */
+	public int getTargetNode() {
+		return targetNode;
+	}
+
+	/**
+	 * This method is responsible for pointing the field back at a node, such as
+	 * one saved with a snapshot. The field is rebuilt on the next update, so it
+	 * keeps chasing this node while the target is in the air the same way it did
+	 * when the node was saved.
+	 *
+	 * @param node The node to point towards, or -1 for none
+	 */
+	public void setTargetNode(int node) {
+		targetNode = node;
+
+		builtGeneration = -1;
+	}
+
+	/**
+	 * @return The number of times the field has been rebuilt
+	 */
+	public long getRebuildCount() {
+		return rebuilds;
+	}
+
+	/**
+	 * @return The graph the field is built over
+	 */
+	public NavGraph getGraph() {
+		return graph;
+	}
+}
@@ -0,0 +1,42 @@
+package com.hyperconix.game2D;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for one frame timed by a
+ * {@link FrameProfiler}, from the end of the last frame to the end of this
+ * one. Along with the {@link PhaseEvent}s inside it, this shows which part of
+ * the game loop a hitch came from.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.Frame")
+@Label("Frame")
+@Category({ "PunchMan", "Game Loop" })
+@Description("One pass of a game loop, from the end of the last frame to the end of this one")
+public class FrameEvent extends Event {
+
+	/**
+	 * Responsible for storing the name of the profiler, "frame" for the loop that
+	 * draws and "update" for the update thread when pipelined.
+	 */
+	@Label("Loop")
+	String loop;
+
+	/**
+	 * Responsible for storing the number of the frame.
+	 */
+	@Label("Frame")
+	long frame;
+
+	/**
+	 * Responsible for storing the number of phases that were timed in the frame.
+	 */
+	@Label("Phases Timed")
+	int phases;
+}
@@ -0,0 +1,157 @@
+package com.hyperconix.game2D;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class is responsible for running the per entity stages of a frame in
+ * parallel. A stage is a job that is run once for every entity in a list, for
+ * example moving every enemy or checking every enemy against the tile map.
+ * <br><br>
+ * The entities of a stage are split into chunks which are run on a
+ * {@link ForkJoinPool}, idle workers steal chunks from busy ones so the work
+ * stays balanced even when some entities are more expensive than others.
+ * {@link #runStage} does not return until every entity has been processed, so
+ * there is a barrier between one stage and the next.
+ * <br><br>
+ * A job must only read shared state (the tile map for example) and only write
+ * to the entity it was given. As long as that holds, the result of a stage
+ * does not depend on the number of threads or the order the chunks run in.
+ * Small lists are simply run on the calling thread, as splitting them up
+ * would cost more than it saves.
+ *
+ * @author Luke S
+ *
+ */
+public class FrameJobSystem {
+
+	/**
+	 * Responsible for storing the default number of entities a chunk should hold.
+	 */
+	public static final int DEFAULT_GRAIN_SIZE = 256;
+
+	/**
+	 * This represents a job that is run for a single entity in a stage.
+	 *
+	 * @param <T> The type of entity
+	 */
+	public interface EntityJob<T> {
+
+		/**
+		 * Runs the job for one entity. This must only write to 'entity'.
+		 *
+		 * @param entity The entity to run the job for
+		 */
+		void run(T entity);
+	}
+
+	/**
+	 * Responsible for storing the pool the chunks are run on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Responsible for storing the number of entities a chunk should hold.
+	 */
+	private final int grainSize;
+
+	/**
+	 * Creates a FrameJobSystem with one worker per available processor and the
+	 * default grain size.
+	 */
+	public FrameJobSystem() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_GRAIN_SIZE);
+	}
+
+	/**
+	 * Creates the state of a FrameJobSystem.
+	 *
+	 * @param parallelism The number of worker threads to use
+	 * @param grainSize   The number of entities a chunk should hold, lists no
+	 *                    bigger than this are run on the calling thread
+	 */
+	public FrameJobSystem(int parallelism, int grainSize) {
+		this.pool = new ForkJoinPool(Math.max(1, parallelism));
+
+		this.grainSize = Math.max(1, grainSize);
+	}
+
+	/**
+	 * This method is responsible for running a job for every entity in a list and
+	 * waiting for all of them to finish.
+	 *
+	 * @param entities The entities to run the job for
+	 * @param job      The job to run
+	 */
+	public <T> void runStage(List<T> entities, EntityJob<T> job) {
+		int size = entities.size();
+
+		if (size <= grainSize || pool.getParallelism() == 1) {
+			for (int i = 0; i < size; i++) {
+				job.run(entities.get(i));
+			}
+
+			return;
+		}
+
+		pool.invoke(new StageTask<T>(entities, job, 0, size, grainSize));
+	}
+
+	/**
+	 * @return The number of worker threads being used
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * This method is responsible for stopping the worker threads. The job system
+	 * cannot be used again afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Private class which runs a job over a range of a list, splitting the range in
+	 * half until it is no bigger than the grain size.
+	 */
+	@SuppressWarnings("serial")
+	private static class StageTask<T> extends RecursiveAction {
+
+		private final List<T> entities;
+		private final EntityJob<T> job;
+		private final int from;
+		private final int to;
+		private final int grainSize;
+
+		/**
+		 * Create a task for the entities between 'from' (inclusive) and 'to'
+		 * (exclusive).
+		 */
+		StageTask(List<T> entities, EntityJob<T> job, int from, int to, int grainSize) {
+			this.entities = entities;
+			this.job = job;
+			this.from = from;
+			this.to = to;
+			this.grainSize = grainSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grainSize) {
+				for (int i = from; i < to; i++) {
+					job.run(entities.get(i));
+				}
+
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+
+			invokeAll(new StageTask<T>(entities, job, from, middle, grainSize),
+					new StageTask<T>(entities, job, middle, to, grainSize));
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package com.hyperconix.game2D;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is responsible for holding a loop to a steady rate, by waiting at
+ * the end of each pass until the next one is due. Each pass is due a whole
+ * frame after the last was due, rather than after the last one finished, so
+ * the rate does not drift with the time taken by each pass, and a pass that
+ * takes longer than usual is followed by a shorter wait.
+ * <br><br>
+ * The wait is timed with System.nanoTime(). Most of it is slept, but sleeping
+ * can overshoot by a millisecond or more, so the last part is spent yielding
+ * until the pass is due. A pass that finishes after the next one was due is
+ * counted as an overrun. If the loop falls more than a frame behind it carries
+ * on from where it is, rather than running passes back to back to catch up.
+ * <br><br>
+ * The rate can be uncapped, a fixed number of frames a second or the refresh
+ * rate of the display, and can be throttled to a lower rate while the game is
+ * in the background. A pacer must only be used by one thread at a time.
+ *
+ * @author Luke S
+ *
+ */
+public class FramePacer {
+
+	/**
+	 * Responsible for storing the target rate that never waits.
+	 */
+	public static final int UNCAPPED = 0;
+
+	/**
+	 * Responsible for storing the target rate that matches the refresh rate of
+	 * the display.
+	 */
+	public static final int DISPLAY = -1;
+
+	/**
+	 * Responsible for storing the rate used when the refresh rate of the display
+	 * is not known.
+	 */
+	public static final int DEFAULT_FPS = 60;
+
+	/**
+	 * Responsible for storing how long before a pass is due the pacer stops
+	 * sleeping and starts yielding.
+	 */
+	private static final long SPIN_NANOS = 2_000_000L;
+
+	/**
+	 * Responsible for storing the number of frames a second aimed for, or
+	 * UNCAPPED, and the lower rate the loop is held to while throttled, or
+	 * UNCAPPED when it is not.
+	 */
+	private int targetFps, throttleFps;
+
+	/**
+	 * Responsible for storing the length of a frame in nanoseconds, 0 when
+	 * uncapped, taking any throttle into account.
+	 */
+	private long frameNanos;
+
+	/**
+	 * Responsible for storing when the next pass is due, by System.nanoTime(), or
+	 * 0 before the first pass.
+	 */
+	private long due;
+
+	/**
+	 * Responsible for storing the number of passes that finished after the next
+	 * was due, and how late the last and the worst of them were, in nanoseconds.
+	 */
+	private long overruns, lastOverrun, worstOverrun;
+
+	/**
+	 * Creates a FramePacer.
+	 *
+	 * @param targetFps The number of frames a second to aim for, UNCAPPED or
+	 *                  DISPLAY
+	 */
+	public FramePacer(int targetFps) {
+		setTargetFps(targetFps);
+	}
+
+	/**
+	 * This method is responsible for finding the refresh rate of the default
+	 * display.
+	 *
+	 * @param fallback The rate to use if there is no display or its refresh rate
+	 *                 is not known
+	 * @return The refresh rate in frames a second
+	 */
+	public static int getDisplayRefreshRate(int fallback) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return fallback;
+		}
+
+		DisplayMode mode = new ScreenManager().getCurrentDisplayMode();
+
+		int rate = mode == null ? DisplayMode.REFRESH_RATE_UNKNOWN : mode.getRefreshRate();
+
+		return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? fallback : rate;
+	}
+
+	/**
+	 * This method is responsible for setting the number of frames a second to aim
+	 * for.
+	 *
+	 * @param fps The number of frames a second, UNCAPPED to never wait or DISPLAY
+	 *            to match the refresh rate of the display
+	 */
+	public void setTargetFps(int fps) {
+		targetFps = fps == DISPLAY ? getDisplayRefreshRate(DEFAULT_FPS) : Math.max(UNCAPPED, fps);
+
+		updateFrameNanos();
+	}
+
+	/**
+	 * @return The number of frames a second aimed for, or UNCAPPED
+	 */
+	public int getTargetFps() {
+		return targetFps;
+	}
+
+	/**
+	 * This method is responsible for holding the loop to a lower rate, such as
+	 * while the window is in the background. Throttling never raises the rate.
+	 *
+	 * @param fps The most frames a second to allow, or UNCAPPED to stop
+	 *            throttling
+	 */
+	public void setThrottle(int fps) {
+		fps = Math.max(UNCAPPED, fps);
+
+		if (fps != throttleFps) {
+			throttleFps = fps;
+
+			updateFrameNanos();
+		}
+	}
+
+	/**
+	 * @return True if the loop is held to a lower rate than its target
+	 */
+	public boolean isThrottled() {
+		return throttleFps != UNCAPPED;
+	}
+
+	/**
+	 * This method is responsible for working out the length of a frame from the
+	 * target rate and the throttle.
+	 */
+	private void updateFrameNanos() {
+		long target = targetFps == UNCAPPED ? 0 : 1_000_000_000L / targetFps;
+
+		long throttle = throttleFps == UNCAPPED ? 0 : 1_000_000_000L / throttleFps;
+
+		frameNanos = Math.max(target, throttle);
+	}
+
+	/**
+	 * This method is responsible for waiting until the next pass of the loop is
+	 * due, to be called once at the end of each pass.
+	 *
+	 * @return The time waited in nanoseconds
+	 */
+	public long sync() {
+		long now = System.nanoTime();
+
+		if (frameNanos == 0) {
+			due = now;
+
+			return 0;
+		}
+
+		if (due == 0) {
+			due = now;
+		}
+
+		due += frameNanos;
+
+		long late = now - due;
+
+		if (late > 0) {
+			overruns++;
+
+			lastOverrun = late;
+
+			worstOverrun = Math.max(worstOverrun, late);
+
+			// Too far behind to catch up, so carry on from now
+			if (late > frameNanos) {
+				due = now;
+			}
+
+			return 0;
+		}
+
+		long remaining;
+
+		while ((remaining = due - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+		}
+
+		while (due - System.nanoTime() > 0) {
+			Thread.yield();
+		}
+
+		return System.nanoTime() - now;
+	}
+
+	/**
+	 * @return The number of passes that finished after the next was due
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * @return How late the last pass to overrun finished, in nanoseconds
+	 */
+	public long getLastOverrun() {
+		return lastOverrun;
+	}
+
+	/**
+	 * @return How late the worst pass to overrun finished, in nanoseconds
+	 */
+	public long getWorstOverrun() {
+		return worstOverrun;
+	}
+}
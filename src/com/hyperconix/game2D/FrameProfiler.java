@@ -0,0 +1,703 @@
+package com.hyperconix.game2D;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import jdk.jfr.EventType;
+
+/**
+ * This class times the phases of each frame, such as update, drawing the
+ * tiles and presenting the frame, and keeps a {@link RollingHistogram} of the
+ * recent timings of each one so the slow frames can be found, not just the
+ * average. The whole frame (from one call of endFrame() to the next) is
+ * always phase {@link #FRAME}.
+ * <br><br>
+ * Phases are registered once by name with phase(), which gives back the id to
+ * time them with. Each frame, begin() and end() are called around the code of
+ * a phase. A phase may be timed more than once in a frame (update runs several
+ * times when the game is catching up), and its times are added together.
+ * Phases that are not timed in a frame are left out of their histogram for
+ * that frame. Timing only reads the clock and writes to arrays that were made
+ * up front, so it does not create any objects.
+ * <br><br>
+ * Allocation tracking can also be turned on with setAllocationTracking(), to
+ * count the bytes allocated by the timed thread in each frame and phase, so
+ * anything that creates garbage every frame can be found. This reads the
+ * thread's allocation counter, which costs a little more than reading the
+ * clock, so it is off by default.
+ * <br><br>
+ * While a Java Flight Recorder recording is running with the
+ * {@link FrameEvent} or {@link PhaseEvent} events turned on, each frame and
+ * phase is also recorded as an event. When they are off, checking costs no
+ * more than reading a flag.
+ * <br><br>
+ * A profiler should only be timed from one thread. The game loop keeps one for
+ * each thread it runs on (see {@link GameCore#getProfiler()}).
+ *
+ * @author Luke S
+ *
+ */
+public class FrameProfiler {
+
+	/**
+	 * Responsible for storing the id of the phase that times the whole frame.
+	 */
+	public static final int FRAME = 0;
+
+	/**
+	 * Responsible for storing the most phases a profiler can time.
+	 */
+	public static final int MAX_PHASES = 16;
+
+	/**
+	 * Responsible for storing the default number of frames kept.
+	 */
+	public static final int DEFAULT_WINDOW = 1024;
+
+	/**
+	 * Responsible for storing the frame time the graph is scaled to, 50ms.
+	 */
+	private static final long GRAPH_NANOS = 50_000_000L;
+
+	/**
+	 * Responsible for storing the flight recorder event types, to check whether
+	 * they are being recorded.
+	 */
+	private static final EventType FRAME_EVENTS = EventType.getEventType(FrameEvent.class),
+			PHASE_EVENTS = EventType.getEventType(PhaseEvent.class);
+
+	/**
+	 * Responsible for storing the colours the phases are drawn in, the whole
+	 * frame is drawn in grey.
+	 */
+	private static final Color[] COLOURS = { new Color(128, 128, 128, 160), Color.green, Color.cyan, Color.orange,
+			Color.magenta, Color.yellow, Color.pink, Color.red, Color.blue, Color.white };
+
+	/**
+	 * Responsible for storing the name of each phase.
+	 */
+	private final String[] names = new String[MAX_PHASES];
+
+	/**
+	 * Responsible for storing the number of phases registered.
+	 */
+	private volatile int phaseCount = 1;
+
+	/**
+	 * Responsible for storing the recent timings of each phase.
+	 */
+	private final RollingHistogram[] histograms = new RollingHistogram[MAX_PHASES];
+
+	/**
+	 * Responsible for storing the timings of the recent frames, one row of
+	 * MAX_PHASES microsecond timings per frame, -1 if the phase was not timed.
+	 * This is what the graph and the frames CSV are made from.
+	 */
+	private final int[] frameMicros;
+
+	/**
+	 * Responsible for storing when each phase was last begun, and how long it
+	 * has taken so far this frame.
+	 */
+	private final long[] started = new long[MAX_PHASES];
+
+	private final long[] current = new long[MAX_PHASES];
+
+	/**
+	 * Responsible for storing which phases have been timed this frame.
+	 */
+	private final boolean[] timed = new boolean[MAX_PHASES];
+
+	/**
+	 * Responsible for storing the thread bean the allocation counters are read
+	 * from, null unless allocation tracking is on.
+	 */
+	private com.sun.management.ThreadMXBean allocations;
+
+	/**
+	 * Responsible for storing the number of bytes reading the allocation counter
+	 * twice allocates itself, which is taken off every phase.
+	 */
+	private long allocationOverhead;
+
+	/**
+	 * Responsible for storing the allocation counter when each phase began, the
+	 * bytes allocated by each phase so far this frame, and the counter when the
+	 * frame began.
+	 */
+	private final long[] allocStarted = new long[MAX_PHASES];
+
+	private final long[] allocCurrent = new long[MAX_PHASES];
+
+	private long frameAllocStart;
+
+	/**
+	 * Responsible for storing the bytes allocated by each phase in the recent
+	 * frames, laid out the same as frameMicros, -1 if the phase was not timed or
+	 * allocations were not being tracked.
+	 */
+	private final long[] frameBytes;
+
+	/**
+	 * Responsible for storing the flight recorder events of the current frame and
+	 * the phases that have begun, null when they are not being recorded.
+	 */
+	private FrameEvent frameEvent;
+
+	private final PhaseEvent[] phaseEvents = new PhaseEvent[MAX_PHASES];
+
+	/**
+	 * Responsible for storing when the current frame began, 0 before the first
+	 * call of endFrame().
+	 */
+	private long frameStart;
+
+	/**
+	 * Responsible for storing the number of frames that have ended.
+	 */
+	private long frames;
+
+	/**
+	 * Responsible for storing the file the next dump has been asked for in, or
+	 * null if none has been asked for.
+	 */
+	private volatile File pendingDump;
+
+	/**
+	 * Creates a FrameProfiler that keeps the default number of frames.
+	 *
+	 * @param frameName The name of the whole frame, such as "frame" or "update"
+	 */
+	public FrameProfiler(String frameName) {
+		this(frameName, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Creates the state of a FrameProfiler.
+	 *
+	 * @param frameName The name of the whole frame, such as "frame" or "update"
+	 * @param window    The number of recent frames to keep
+	 */
+	public FrameProfiler(String frameName, int window) {
+		names[FRAME] = frameName;
+
+		frameMicros = new int[window * MAX_PHASES];
+
+		frameBytes = new long[window * MAX_PHASES];
+
+		Arrays.fill(frameMicros, -1);
+
+		Arrays.fill(frameBytes, -1);
+
+		for (int p = 0; p < MAX_PHASES; p++) {
+			histograms[p] = new RollingHistogram(window);
+		}
+	}
+
+	/**
+	 * This method is responsible for registering a phase. Registering a name that
+	 * has already been registered gives back the same id.
+	 *
+	 * @param name The name of the phase
+	 * @return The id to time the phase with
+	 */
+	public synchronized int phase(String name) {
+		for (int p = 0; p < phaseCount; p++) {
+			if (names[p].equals(name)) {
+				return p;
+			}
+		}
+
+		if (phaseCount == MAX_PHASES) {
+			throw new IllegalStateException("A profiler can only time " + MAX_PHASES + " phases");
+		}
+
+		names[phaseCount] = name;
+
+		return phaseCount++;
+	}
+
+	/**
+	 * This method is responsible for turning allocation tracking on or off. It
+	 * should be called between frames, and can be called before the thread being
+	 * timed has started, in which case the first frame is not counted. Tracking
+	 * needs the JVM to support counting the bytes each thread allocates, which
+	 * HotSpot does.
+	 *
+	 * @param track {@code true} to count the bytes allocated in each phase
+	 * @return {@code true} if allocations are now being tracked
+	 */
+	public boolean setAllocationTracking(boolean track) {
+		allocations = null;
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		if (!track || !(threads instanceof com.sun.management.ThreadMXBean)) {
+			return false;
+		}
+
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+
+		if (!bean.isThreadAllocatedMemorySupported()) {
+			return false;
+		}
+
+		bean.setThreadAllocatedMemoryEnabled(true);
+
+		// Some versions of Java allocate a little to read the counter, find out how
+		// much so it is not blamed on the phases
+		long id = Thread.currentThread().getId();
+
+		long overhead = Long.MAX_VALUE;
+
+		for (int i = 0; i < 100; i++) {
+			long before = bean.getThreadAllocatedBytes(id);
+
+			overhead = Math.min(overhead, bean.getThreadAllocatedBytes(id) - before);
+		}
+
+		allocationOverhead = overhead;
+
+		allocations = bean;
+
+		// Start counting the whole frame from the next endFrame(), on the timed thread
+		frameAllocStart = -1;
+
+		return true;
+	}
+
+	/**
+	 * @return {@code true} if allocations are being tracked
+	 */
+	public boolean isTrackingAllocations() {
+		return allocations != null;
+	}
+
+	/**
+	 * @return The bytes allocated by the current thread so far, or 0 if
+	 *         allocations are not being tracked
+	 */
+	private long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = allocations;
+
+		return bean == null ? 0 : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * This method is responsible for marking the start of a phase.
+	 *
+	 * @param phase The id of the phase, from phase()
+	 */
+	public void begin(int phase) {
+		if (PHASE_EVENTS.isEnabled()) {
+			phaseEvents[phase] = new PhaseEvent();
+
+			phaseEvents[phase].begin();
+		}
+
+		if (allocations != null) {
+			allocStarted[phase] = allocatedBytes();
+		}
+
+		started[phase] = System.nanoTime();
+	}
+
+	/**
+	 * This method is responsible for marking the end of a phase, the time since
+	 * begin() is added to the phase for this frame.
+	 *
+	 * @param phase The id of the phase, from phase()
+	 */
+	public void end(int phase) {
+		current[phase] += System.nanoTime() - started[phase];
+
+		timed[phase] = true;
+
+		if (allocations != null) {
+			allocCurrent[phase] += Math.max(0, allocatedBytes() - allocStarted[phase] - allocationOverhead);
+		}
+
+		PhaseEvent event = phaseEvents[phase];
+
+		if (event != null) {
+			phaseEvents[phase] = null;
+
+			event.end();
+
+			if (event.shouldCommit()) {
+				event.loop = names[FRAME];
+
+				event.phase = names[phase];
+
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for ending the current frame. The time since the
+	 * last call is recorded as the whole frame, and every phase timed this frame
+	 * is recorded and started again from 0. If a dump has been asked for it is
+	 * written now, and the time taken to write it is not counted.
+	 */
+	public void endFrame() {
+		long now = System.nanoTime();
+
+		if (frameStart != 0) {
+			int row = (int) (frames % histograms[FRAME].getWindow()) * MAX_PHASES;
+
+			current[FRAME] = now - frameStart;
+
+			timed[FRAME] = true;
+
+			boolean tracking = allocations != null;
+
+			if (tracking) {
+				long allocated = allocatedBytes();
+
+				allocCurrent[FRAME] = frameAllocStart < 0 ? -1
+						: Math.max(0, allocated - frameAllocStart - allocationOverhead);
+
+				frameAllocStart = allocated;
+			}
+
+			int phases = 0;
+
+			for (int p = 0; p < MAX_PHASES; p++) {
+				if (timed[p]) {
+					phases++;
+
+					histograms[p].record(current[p]);
+
+					frameMicros[row + p] = (int) Math.min(Integer.MAX_VALUE, current[p] / 1000);
+
+					frameBytes[row + p] = tracking ? allocCurrent[p] : -1;
+				} else {
+					frameMicros[row + p] = -1;
+
+					frameBytes[row + p] = -1;
+				}
+
+				current[p] = 0;
+
+				allocCurrent[p] = 0;
+
+				timed[p] = false;
+			}
+
+			if (frameEvent != null) {
+				frameEvent.end();
+
+				if (frameEvent.shouldCommit()) {
+					frameEvent.loop = names[FRAME];
+
+					frameEvent.frame = frames;
+
+					frameEvent.phases = phases - 1;
+
+					frameEvent.commit();
+				}
+			}
+
+			frames++;
+		}
+
+		File dump = pendingDump;
+
+		if (dump != null) {
+			pendingDump = null;
+
+			try {
+				writeCsv(dump);
+			} catch (IOException e) {
+				System.err.println("Failed to write the profile to " + dump + ": " + e);
+			}
+
+			now = System.nanoTime();
+
+			if (allocations != null) {
+				frameAllocStart = allocatedBytes();
+			}
+		}
+
+		frameStart = now;
+
+		frameEvent = null;
+
+		if (FRAME_EVENTS.isEnabled()) {
+			frameEvent = new FrameEvent();
+
+			frameEvent.begin();
+		}
+	}
+
+	/**
+	 * This method is responsible for asking for the profile to be written to a
+	 * file the next time a frame ends, on the thread being timed. This can be
+	 * called from any thread.
+	 *
+	 * @param file The file to write to, see writeCsv()
+	 */
+	public void requestDump(File file) {
+		pendingDump = file;
+	}
+
+	/**
+	 * @param phase The id of the phase
+	 * @return The recent timings of the phase
+	 */
+	public RollingHistogram getHistogram(int phase) {
+		return histograms[phase];
+	}
+
+	/**
+	 * @param phase The id of the phase
+	 * @return The name of the phase
+	 */
+	public String getName(int phase) {
+		return names[phase];
+	}
+
+	/**
+	 * @return The number of phases registered, including the whole frame
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+
+	/**
+	 * @return The number of frames that have ended
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @param phase The id of the phase
+	 * @return The bytes allocated by the phase in the last frame, or -1 if it was
+	 *         not tracked in that frame
+	 */
+	public long getLastAllocatedBytes(int phase) {
+		if (frames == 0) {
+			return -1;
+		}
+
+		return frameBytes[(int) ((frames - 1) % histograms[FRAME].getWindow()) * MAX_PHASES + phase];
+	}
+
+	/**
+	 * @param phase The id of the phase
+	 * @return The mean bytes allocated by the phase in the recent frames it was
+	 *         tracked in, or -1 if it has not been tracked
+	 */
+	public long getAllocatedBytes(int phase) {
+		long total = 0;
+
+		int count = 0;
+
+		for (int row = phase; row < frameBytes.length; row += MAX_PHASES) {
+			if (frameBytes[row] >= 0) {
+				total += frameBytes[row];
+
+				count++;
+			}
+		}
+
+		return count == 0 ? -1 : total / count;
+	}
+
+	/**
+	 * @param phase The id of the phase
+	 * @return The most bytes allocated by the phase in one of the recent frames it
+	 *         was tracked in, or -1 if it has not been tracked
+	 */
+	public long getMaxAllocatedBytes(int phase) {
+		long max = -1;
+
+		for (int row = phase; row < frameBytes.length; row += MAX_PHASES) {
+			max = Math.max(max, frameBytes[row]);
+		}
+
+		return max;
+	}
+
+	/**
+	 * @return The frames per second over the recent frames, or 0 if none have
+	 *         ended
+	 */
+	public float getRate() {
+		long mean = histograms[FRAME].getMean();
+
+		return mean == 0 ? 0 : 1e9f / mean;
+	}
+
+	/**
+	 * This method is responsible for writing the profile as CSV. There is a
+	 * summary line for each phase with the number of frames it was timed in, its
+	 * mean, median, 90th, 99th and longest time in milliseconds and the mean and
+	 * most bytes it allocated in a frame, then a blank line, then the time and
+	 * bytes allocated of each phase in each of the recent frames. Values that
+	 * were not measured are left blank.
+	 *
+	 * @param file The file to write to
+	 * @throws IOException If the file cannot be written
+	 */
+	public void writeCsv(File file) throws IOException {
+		int phases = phaseCount;
+
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.println("phase,frames,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,mean_bytes,max_bytes");
+
+			for (int p = 0; p < phases; p++) {
+				RollingHistogram h = histograms[p];
+
+				out.printf("%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%s,%s%n", names[p], h.getCount(), h.getMean() / 1e6,
+						h.getPercentile(50) / 1e6, h.getPercentile(90) / 1e6, h.getPercentile(99) / 1e6,
+						h.getMax() / 1e6, toCsv(getAllocatedBytes(p)), toCsv(getMaxAllocatedBytes(p)));
+			}
+
+			out.println();
+
+			out.print("frame");
+
+			for (int p = 0; p < phases; p++) {
+				out.print("," + names[p] + "_ms");
+			}
+
+			for (int p = 0; p < phases; p++) {
+				out.print("," + names[p] + "_bytes");
+			}
+
+			out.println();
+
+			int window = histograms[FRAME].getWindow();
+
+			for (long f = Math.max(0, frames - window); f < frames; f++) {
+				int row = (int) (f % window) * MAX_PHASES;
+
+				out.print(f);
+
+				for (int p = 0; p < phases; p++) {
+					int micros = frameMicros[row + p];
+
+					out.print(micros < 0 ? "," : String.format(",%.3f", micros / 1000.0));
+				}
+
+				for (int p = 0; p < phases; p++) {
+					out.print("," + toCsv(frameBytes[row + p]));
+				}
+
+				out.println();
+			}
+		}
+	}
+
+	/**
+	 * @return A count as it is written to the CSV, blank if it was not measured
+	 */
+	private static String toCsv(long count) {
+		return count < 0 ? "" : Long.toString(count);
+	}
+
+	/**
+	 * This method is responsible for drawing a graph of the recent frames, newest
+	 * on the right. Each frame is a grey bar for the whole frame with the phases
+	 * stacked over it in colour, and there are lines at 16.7ms and 33.3ms (60 and
+	 * 30 frames per second). The median, 99th percentile and longest time of each
+	 * phase are written underneath, along with the mean bytes it allocates per
+	 * frame if allocations are being tracked. The graph is meant for debugging, so unlike
+	 * timing, drawing it does create objects.
+	 *
+	 * @param g      The graphics object to draw on
+	 * @param x      The left of the graph
+	 * @param y      The top of the graph
+	 * @param width  The width of the graph, one pixel per frame
+	 * @param height The height of the graph, which is 50ms
+	 */
+	public void draw(Graphics2D g, int x, int y, int width, int height) {
+		int phases = phaseCount;
+
+		int window = histograms[FRAME].getWindow();
+
+		long last = frames;
+
+		g.setColor(new Color(0, 0, 0, 150));
+
+		g.fillRect(x, y, width, height + 14 * phases + 4);
+
+		for (int i = 0; i < width && i < Math.min(last, window); i++) {
+			int row = (int) ((last - 1 - i) % window) * MAX_PHASES;
+
+			int column = x + width - 1 - i;
+
+			// The whole frame behind, then each phase stacked up from the bottom
+			int frameHeight = toHeight(frameMicros[row + FRAME], height);
+
+			g.setColor(COLOURS[0]);
+
+			g.drawLine(column, y + height - frameHeight, column, y + height);
+
+			int bottom = y + height;
+
+			for (int p = 1; p < phases; p++) {
+				int micros = frameMicros[row + p];
+
+				if (micros <= 0) {
+					continue;
+				}
+
+				int h = toHeight(micros, height);
+
+				g.setColor(COLOURS[p % COLOURS.length]);
+
+				g.drawLine(column, bottom - h, column, bottom);
+
+				bottom -= h;
+			}
+		}
+
+		g.setColor(Color.white);
+
+		g.drawLine(x, y + height - toHeight(16_667, height), x + width, y + height - toHeight(16_667, height));
+
+		g.setColor(Color.red);
+
+		g.drawLine(x, y + height - toHeight(33_333, height), x + width, y + height - toHeight(33_333, height));
+
+		for (int p = 0; p < phases; p++) {
+			RollingHistogram h = histograms[p];
+
+			g.setColor(p == FRAME ? Color.white : COLOURS[p % COLOURS.length]);
+
+			String text = String.format("%-10s p50 %6.2f  p99 %6.2f  max %6.2f ms", names[p], h.getPercentile(50) / 1e6,
+					h.getPercentile(99) / 1e6, h.getMax() / 1e6);
+
+			long bytes = getAllocatedBytes(p);
+
+			if (allocations != null && bytes >= 0) {
+				text += String.format("  %7d B", bytes);
+			}
+
+			g.drawString(text, x + 4, y + height + 14 * (p + 1));
+		}
+	}
+
+	/**
+	 * @return The height in pixels of a time in microseconds on a graph 'height'
+	 *         pixels high
+	 */
+	private static int toHeight(int micros, int height) {
+		if (micros <= 0) {
+			return 0;
+		}
+
+		return (int) Math.min(height, micros * 1000L * height / GRAPH_NANOS);
+	}
+}
@@ -20,7 +20,7 @@ public abstract class GameCore extends JFrame implements KeyListener
     private static final long serialVersionUID = 1L;
     protected static final int FONT_SIZE = 12;
 
-    private boolean stop;            // true if the game loop should continue
+    private volatile boolean stop;    // true if the game loop should continue
     private long startTime;                // The time the game started
     private long currTime;                // The current time
     private long elapsedTime;            // Elapsed time since previous check
@@ -29,6 +29,39 @@ public abstract class GameCore extends JFrame implements KeyListener
 
     private BufferedImage buffer = null;    // buffer is used as a buffered image for drawing offscreen
     private Graphics2D bg = null;            // The virtual Graphics2D device associated with the above image
+    private Renderer renderer = null;        // Draws images into the above image
+    private boolean softwareRendering = false;    // true if images should be drawn by SoftwareRenderer rather than Java2D
+    private int renderBands = BandedRenderer.DEFAULT_BANDS;    // The number of threads images are drawn on in software
+
+    private int renderWidth = 0;            // The size of the back buffer, 0 to match the size of the window
+    private int renderHeight = 0;
+    private int presentedWidth = -1;        // The size of the window the rectangles below were worked out for
+    private int presentedHeight = -1;
+    private volatile Rectangle shown = null;      // The part of the back buffer shown in the window, null if shown as it is
+    private volatile Rectangle shownAt = null;    // Where it is shown in the window
+    private Rectangle content = null;             // The part of the window inside its borders
+
+    private boolean pipelined = false;        // true if update and draw should run on separate threads
+    private TripleBuffer<RenderState> renderStates = null;    // Hands snapshots from the update thread to the draw thread
+    private volatile long updates;            // Used to calculate updates per second (UPS) in pipelined mode
+
+    private long fixedTimestep = 0;        // The length of each update in milliseconds, 0 to use the elapsed time
+    private long accumulator = 0;        // Elapsed time that has not yet been used up by a fixed update
+    private static final int MAX_CATCH_UP_STEPS = 5;    // The most fixed updates run for one pass of the loop
+
+    private final FramePacer pacer = new FramePacer(FramePacer.DISPLAY);    // Holds drawing to a steady rate
+    private static final int UNFOCUSED_FPS = 30;    // The most frames drawn a second while the window does not have the focus
+    private static final int MINIMIZED_FPS = 25;    // The same while minimized, when nothing is drawn. Lower than this and a pass of the loop would cover more than MAX_CATCH_UP_STEPS ticks
+
+    private final FrameProfiler profiler = new FrameProfiler("frame");          // Times the phases of each pass of the game loop
+    private final FrameProfiler updateProfiler = new FrameProfiler("update");   // Times the phases of each update in pipelined mode
+    private final int updatePhase = profiler.phase("update");     // The phases timed by the game loop itself
+    private final int drawPhase = profiler.phase("draw");
+    private final int presentPhase = profiler.phase("present");
+    private final int sleepPhase = profiler.phase("sleep");
+    private final int pipelinedUpdatePhase = updateProfiler.phase("update");
+    private final int capturePhase = updateProfiler.phase("capture");
+    private final int pipelinedSleepPhase = updateProfiler.phase("sleep");
 
 
     /**
@@ -53,6 +86,219 @@ public abstract class GameCore extends JFrame implements KeyListener
     }
 
 
+    /**
+     * Sets whether the game loop should run update() and draw() on separate threads.
+     * <p>
+     * In pipelined mode a simulation thread calls update() followed by
+     * captureState() to fill in a RenderState snapshot, and the thread running the
+     * game loop draws the latest complete snapshot via drawState(). The snapshots
+     * are handed over through a TripleBuffer so neither thread waits on the other,
+     * which lets a frame cost roughly max(update, draw) rather than their sum on a
+     * machine with more than one core. Subclasses must override captureState() and
+     * drawState() and must not read the live game state from drawState() to use this.
+     * This must be set before the game loop is started.
+     *
+     * @param pipelined True to run update and draw on separate threads
+     */
+    public void setPipelined(boolean pipelined)
+    {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * @return True if update and draw run on separate threads
+     */
+    public boolean isPipelined()
+    {
+        return pipelined;
+    }
+
+    /**
+     * Sets whether images should be drawn by copying their pixels straight into
+     * the back buffer (see SoftwareRenderer) rather than through Java2D. This
+     * gives a steady cost per frame on machines where Java2D is slow or not
+     * accelerated. This must be set before the game loop is started.
+     *
+     * @param software True to draw images with SoftwareRenderer
+     */
+    public void setSoftwareRendering(boolean software)
+    {
+        this.softwareRendering = software;
+    }
+
+    /**
+     * Sets the number of horizontal bands the back buffer is split into when
+     * drawing in software, each drawn on its own thread (see BandedRenderer).
+     * With one band everything is drawn on the thread running the game loop.
+     * This must be set before the game loop is started.
+     *
+     * @param bands The number of bands
+     */
+    public void setRenderBands(int bands)
+    {
+        this.renderBands = Math.max(1, bands);
+    }
+
+    /**
+     * Sets the size of the back buffer the game is drawn into, whatever the size
+     * of the window. Each frame is scaled up to fit the window, by a whole number
+     * of pixels where it fits so every pixel stays the same size, and centred
+     * with black bars around it, so drawing a frame costs the same however big
+     * the window is. Like the size of the window, the size includes the window's
+     * borders. Mouse positions can be turned back into positions in the back
+     * buffer with toRenderX() and toRenderY(). This must be set before the game
+     * loop is started.
+     *
+     * @param width  The width of the back buffer, or 0 to match the window
+     * @param height The height of the back buffer, or 0 to match the window
+     */
+    public void setRenderSize(int width, int height)
+    {
+        this.renderWidth = Math.max(0, width);
+        this.renderHeight = Math.max(0, height);
+    }
+
+    /**
+     * @return True if images are drawn with SoftwareRenderer
+     */
+    public boolean isSoftwareRendering()
+    {
+        return softwareRendering;
+    }
+
+    /**
+     * Gets the renderer that draws images into the back buffer, for use from
+     * draw() or drawState(). This is only set once the game loop has started.
+     *
+     * @return The renderer for the back buffer
+     */
+    public Renderer getRenderer()
+    {
+        return renderer;
+    }
+
+    /**
+     * Sets the game loop to call update() with the same elapsed time every time
+     * rather than however long the last pass of the loop took.
+     * <p>
+     * Elapsed time is added up and update() is called once for every whole step
+     * of it, so the game still runs at the right speed overall. Running every
+     * update with the same step means the same input always gives the same
+     * result, which is needed to record and replay a session. If the game falls a
+     * long way behind, at most a few steps are run per pass and the rest of the
+     * time is dropped rather than trying to catch up all at once.
+     *
+     * @param millis The length of each update in milliseconds, or 0 to go back to
+     *               using the elapsed time
+     */
+    public void setFixedTimestep(long millis)
+    {
+        fixedTimestep = Math.max(0, millis);
+        accumulator = 0;
+    }
+
+    /**
+     * @return The length of each update in milliseconds, or 0 if update() is
+     * called with the elapsed time
+     */
+    public long getFixedTimestep()
+    {
+        return fixedTimestep;
+    }
+
+    /**
+     * Sets the number of frames drawn a second. Each frame is timed from when the
+     * last was due rather than when it finished, so the rate stays steady
+     * whatever each frame takes. While the window does not have the focus, or is
+     * minimized, fewer frames are drawn whatever the rate.
+     *
+     * @param fps The number of frames a second, FramePacer.UNCAPPED to draw as
+     *            many as possible or FramePacer.DISPLAY (the default) to match
+     *            the refresh rate of the display
+     */
+    public void setTargetFps(int fps)
+    {
+        pacer.setTargetFps(fps);
+    }
+
+    /**
+     * Gets the pacer that holds drawing to a steady rate, to read how many
+     * frames overran.
+     *
+     * @return The pacer for the thread that draws
+     */
+    public FramePacer getFramePacer()
+    {
+        return pacer;
+    }
+
+    /**
+     * Throttles drawing while the window does not have the focus or is minimized.
+     *
+     * @return True if the window is minimized, so there is no need to draw
+     */
+    private boolean throttle()
+    {
+        boolean minimized = (getExtendedState() & ICONIFIED) != 0;
+        pacer.setThrottle(minimized ? MINIMIZED_FPS : isFocused() ? FramePacer.UNCAPPED : UNFOCUSED_FPS);
+        return minimized;
+    }
+
+    /**
+     * Gets the profiler that times the passes of the game loop. The loop times
+     * update (unless pipelined), draw, present and sleep itself, and subclasses
+     * can register and time their own phases of drawing with it, from the thread
+     * running the game loop only.
+     *
+     * @return The profiler for the thread that draws
+     */
+    public FrameProfiler getProfiler()
+    {
+        return profiler;
+    }
+
+    /**
+     * Gets the profiler that update() should time its phases with. This is the
+     * same as getProfiler() unless the game is pipelined, in which case updates
+     * run on their own thread and have a profiler of their own.
+     *
+     * @return The profiler for the thread that updates
+     */
+    public FrameProfiler getUpdateProfiler()
+    {
+        return pipelined ? updateProfiler : profiler;
+    }
+
+    /**
+     * Calls update() for the given elapsed time, either once with the elapsed time
+     * or as many fixed steps as it covers.
+     *
+     * @param elapsed The time since the last call in milliseconds
+     *
+     * @return The number of times update() was called
+     */
+    private int advance(long elapsed)
+    {
+        if (fixedTimestep <= 0)
+        {
+            update(elapsed);
+            return 1;
+        }
+
+        accumulator += elapsed;
+        int steps = 0;
+        while (accumulator >= fixedTimestep && steps < MAX_CATCH_UP_STEPS)
+        {
+            update(fixedTimestep);
+            accumulator -= fixedTimestep;
+            steps++;
+        }
+
+        // Too far behind to catch up, so let the time go
+        if (accumulator >= fixedTimestep) accumulator = 0;
+        return steps;
+    }
+
     /**
      * Starts the game by first initialising the game via init()
      * and then calling the gameLoop()
@@ -102,7 +348,7 @@ public abstract class GameCore extends JFrame implements KeyListener
      */
     public Image loadImage(String fileName)
     {
-        return new ImageIcon(fileName).getImage();
+        return AssetLoadEvent.loadImage(fileName);
     }
 
     /**
@@ -122,12 +368,21 @@ public abstract class GameCore extends JFrame implements KeyListener
         stop = false;
 
         // Create our own buffer
-        buffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        int width = renderWidth > 0 ? renderWidth : getWidth();
+        int height = renderHeight > 0 ? renderHeight : getHeight();
+        buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         bg = (Graphics2D) buffer.createGraphics();
-        bg.setClip(0, 0, getWidth(), getHeight());
-        
-        
-     
+        bg.setClip(0, 0, width, height);
+        if (!softwareRendering) renderer = new Java2DRenderer(bg);
+        else if (renderBands > 1) renderer = new BandedRenderer(buffer, bg, renderBands);
+        else renderer = new SoftwareRenderer(buffer, bg);
+
+        if (pipelined)
+        {
+            pipelinedLoop();
+            System.exit(0);
+        }
+
         while (!stop)
         {
             elapsedTime = System.currentTimeMillis() - currTime;
@@ -136,42 +391,261 @@ public abstract class GameCore extends JFrame implements KeyListener
             
 
             // Call the overridden update method
-            update(elapsedTime);
+            profiler.begin(updatePhase);
+            advance(elapsedTime);
+            profiler.end(updatePhase);
+
+            boolean minimized = throttle();
 
             // Get the current graphics device
             g = (Graphics2D) getGraphics();
 
 
-            if (g != null)
+            if (g != null && !minimized)
             {
+                profiler.begin(drawPhase);
                 draw(bg);
-                g.drawImage(buffer, null, 0, 0);
-              
+                renderer.flush();
+                profiler.end(drawPhase);
+                profiler.begin(presentPhase);
+                present(g);
+                profiler.end(presentPhase);
             }
 
             frames++;
 
-            // take a nap
-            try
+            // Wait until the next frame is due
+            profiler.begin(sleepPhase);
+            pacer.sync();
+            profiler.end(sleepPhase);
+            profiler.endFrame();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the pipelined version of the game loop until stop() is called.
+     * <p>
+     * A separate simulation thread runs update() and publishes a snapshot of the
+     * state via captureState(), while the calling thread draws the latest snapshot
+     * that has been published. A snapshot is only drawn once, if nothing new has
+     * been published the draw thread waits briefly rather than drawing the same
+     * frame again.
+     */
+    private void pipelinedLoop()
+    {
+        renderStates = new TripleBuffer<RenderState>(new RenderState(), new RenderState(), new RenderState());
+        updates = 0;
+
+        // Updates are paced to one a tick, rather than to the display
+        final FramePacer updatePacer = new FramePacer(fixedTimestep > 0 ? (int) (1000 / fixedTimestep) : 100);
+
+        Thread simulation = new Thread(new Runnable()
+        {
+            public void run()
             {
-            	  
-                Thread.sleep(10);
+                long last = System.currentTimeMillis();
+
+                while (!stop)
+                {
+                    long now = System.currentTimeMillis();
+                    long elapsed = now - last;
+                    last = now;
+
+                    updateProfiler.begin(pipelinedUpdatePhase);
+                    int steps = advance(elapsed);
+                    updateProfiler.end(pipelinedUpdatePhase);
+
+                    if (steps > 0)
+                    {
+                        updateProfiler.begin(capturePhase);
+                        RenderState state = renderStates.getWriteBuffer();
+                        state.begin();
+                        captureState(state);
+                        state.end();
+                        renderStates.publish();
+                        updateProfiler.end(capturePhase);
+                    }
+
+                    updates += steps;
+
+                    updateProfiler.begin(pipelinedSleepPhase);
+                    updatePacer.sync();
+                    updateProfiler.end(pipelinedSleepPhase);
+                    updateProfiler.endFrame();
+                }
             }
-            catch (InterruptedException ex)
+        }, "GameCore-Update");
+
+        simulation.setDaemon(true);
+        simulation.start();
+
+        Graphics2D g;
+
+        while (!stop)
+        {
+            currTime = System.currentTimeMillis();
+
+            boolean minimized = throttle();
+
+            // Nothing new to draw, so wait for the next frame
+            if (!renderStates.hasUpdate())
+            {
+                pacer.sync();
+                continue;
+            }
+
+            RenderState state = renderStates.getLatest();
+
+            g = (Graphics2D) getGraphics();
+
+            if (g != null && !minimized)
             {
+                profiler.begin(drawPhase);
+                drawState(bg, state);
+                renderer.flush();
+                profiler.end(drawPhase);
+                profiler.begin(presentPhase);
+                present(g);
+                profiler.end(presentPhase);
             }
+
+            frames++;
+
+            profiler.begin(sleepPhase);
+            pacer.sync();
+            profiler.end(sleepPhase);
+            profiler.endFrame();
         }
-        System.exit(0);
     }
-    
-    
-    
 
     /**
-     * @return The current frames per second (FPS)
+     * Copies the back buffer to the window, scaled to fit it if the window is not
+     * the size of the back buffer. The scaling is only worked out again when the
+     * window changes size.
+     *
+     * @param g The graphics device of the window
+     */
+    private void present(Graphics2D g)
+    {
+        int width = getWidth();
+        int height = getHeight();
+
+        if (width == buffer.getWidth() && height == buffer.getHeight())
+        {
+            if (shown != null) shown = null;
+            presentedWidth = -1;
+            g.drawImage(buffer, null, 0, 0);
+            return;
+        }
+
+        if (width != presentedWidth || height != presentedHeight) fitToWindow(width, height);
+
+        Rectangle from = shown;
+        Rectangle to = shownAt;
+        if (from == null) return;
+
+        // Fill the bars around the frame
+        g.setColor(Color.black);
+        g.fillRect(content.x, content.y, content.width, to.y - content.y);
+        g.fillRect(content.x, to.y + to.height, content.width, content.y + content.height - to.y - to.height);
+        g.fillRect(content.x, to.y, to.x - content.x, to.height);
+        g.fillRect(to.x + to.width, to.y, content.x + content.width - to.x - to.width, to.height);
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(buffer, to.x, to.y, to.x + to.width, to.y + to.height,
+                from.x, from.y, from.x + from.width, from.y + from.height, null);
+    }
+
+    /**
+     * Works out where the back buffer is shown in a window of the given size. The
+     * part of the back buffer that would be inside the window's borders at its own
+     * size is scaled to fit inside the borders of the window.
+     *
+     * @param width  The width of the window
+     * @param height The height of the window
+     */
+    private void fitToWindow(int width, int height)
+    {
+        presentedWidth = width;
+        presentedHeight = height;
+
+        Insets insets = getInsets();
+        Rectangle from = new Rectangle(insets.left, insets.top, buffer.getWidth() - insets.left - insets.right,
+                buffer.getHeight() - insets.top - insets.bottom);
+        content = new Rectangle(insets.left, insets.top, width - insets.left - insets.right,
+                height - insets.top - insets.bottom);
+
+        if (from.isEmpty() || content.isEmpty())
+        {
+            shown = null;
+            return;
+        }
+
+        double scale = Math.min((double) content.width / from.width, (double) content.height / from.height);
+
+        // Scale up by whole numbers only, so every pixel is drawn the same size
+        if (scale >= 1) scale = Math.floor(scale);
+
+        int w = Math.max(1, (int) (from.width * scale));
+        int h = Math.max(1, (int) (from.height * scale));
+        shownAt = new Rectangle(content.x + (content.width - w) / 2, content.y + (content.height - h) / 2, w, h);
+        shown = from;
+    }
+
+    /**
+     * Turns a horizontal position in the window, such as where the mouse was
+     * clicked, into a position in the back buffer.
+     *
+     * @param x The position in the window
+     *
+     * @return The position in the back buffer
+     */
+    public int toRenderX(int x)
+    {
+        Rectangle from = shown;
+        Rectangle to = shownAt;
+        if (from == null) return x;
+        return from.x + (int) Math.floor((x - to.x) * (double) from.width / to.width);
+    }
+
+    /**
+     * Turns a vertical position in the window, such as where the mouse was
+     * clicked, into a position in the back buffer.
+     *
+     * @param y The position in the window
+     *
+     * @return The position in the back buffer
+     */
+    public int toRenderY(int y)
+    {
+        Rectangle from = shown;
+        Rectangle to = shownAt;
+        if (from == null) return y;
+        return from.y + (int) Math.floor((y - to.y) * (double) from.height / to.height);
+    }
+
+    /**
+     * @return The current updates per second (UPS) in pipelined mode, or the
+     * frames per second when update and draw run on the same thread. This is
+     * worked out from the recent passes of the update loop, as getFPS() is.
+     */
+    public float getUPS()
+    {
+        if (!pipelined) return getFPS();
+        if (updateProfiler.getFrames() > 0) return updateProfiler.getRate();
+        if (currTime - startTime <= 0) return 0.0f;
+        return (float) updates / ((currTime - startTime) / 1000.0f);
+    }
+
+    /**
+     * @return The current frames per second (FPS), worked out from the recent
+     * frames kept by the profiler rather than since the game started, so a slow
+     * patch shows up straight away
      */
     public float getFPS()
     {
+        if (profiler.getFrames() > 0) return profiler.getRate();
         if (currTime - startTime <= 0) return 0.0f;
         return (float) frames / ((currTime - startTime) / 1000.0f);
     }
@@ -216,4 +690,27 @@ public abstract class GameCore extends JFrame implements KeyListener
      * @param g The Graphics2D object to draw with.
      */
     public abstract void draw(Graphics2D g);
+
+    /**
+     * Fills in 'state' with everything needed to draw the current frame. This is
+     * called on the simulation thread straight after update() in pipelined mode.
+     * Subclasses that support pipelined mode should override this.
+     *
+     * @param state The snapshot to fill in
+     */
+    public void captureState(RenderState state)
+    { /* do nothing */ }
+
+    /**
+     * Draws a snapshot that was filled in by captureState(). This is called on the
+     * draw thread in pipelined mode, so it should only read from 'state'. The
+     * default simply calls draw().
+     *
+     * @param g     The Graphics2D object to draw with.
+     * @param state The snapshot to draw
+     */
+    public void drawState(Graphics2D g, RenderState state)
+    {
+        draw(g);
+    }
 }
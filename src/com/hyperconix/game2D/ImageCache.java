@@ -0,0 +1,490 @@
+package com.hyperconix.game2D;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is responsible for keeping the decoded pixels of images in one
+ * file, so later launches can skip decoding them. Decoding the PNGs is most of
+ * the time taken to load the game, copying pixels out of the cache is a small
+ * fraction of that.
+ * <br><br>
+ * The pixels are kept as premultiplied ARGB, the format the images are drawn
+ * from, and each image is keyed by its path along with the size and
+ * modification time of its file, so an image that is edited is decoded again.
+ * The cache file is mapped into memory rather than read, so only the images
+ * that are asked for are ever read from it. Images are rebuilt as plain
+ * TYPE_INT_ARGB_PRE BufferedImages, which Java2D can still keep in video
+ * memory.
+ * <br><br>
+ * The cache is kept in two files, the given file and one alongside it, and
+ * each save writes whichever of them is not mapped, so a file is never
+ * replaced while this process still has it mapped (which some systems do not
+ * allow, and a mapping is only let go of when it is garbage collected). Each
+ * file records the generation of the save that wrote it, and the newest valid
+ * one is used. A cache file is:
+ *
+ * <pre>
+ * int    MAGIC, int VERSION, long generation, int number of images
+ * each image: UTF path, long modified, long length, int width, int height,
+ *             long offset of its pixels from the start of the pixels
+ * padding up to a multiple of 4 bytes, then the pixels of every image, as
+ * little endian ints
+ * </pre>
+ *
+ * Images added since the cache was opened are only written when
+ * {@link #save()} is called. Everything here can be used from any thread.
+ *
+ * @author Luke S
+ *
+ */
+public class ImageCache {
+
+	/**
+	 * Responsible for storing the file the game keeps its cache in by default.
+	 */
+	public static final File DEFAULT_FILE = new File(".cache/images.bin");
+
+	/**
+	 * Responsible for storing the first int of a cache file ("PMIC"), and the
+	 * version of the format, which is bumped whenever the format changes.
+	 */
+	private static final int MAGIC = 0x504D4943, VERSION = 2;
+
+	/**
+	 * Responsible for storing the byte order of the pixels. This is the order
+	 * nearly every machine uses for ints, so the pixels can be copied straight
+	 * out of the file without swapping their bytes.
+	 */
+	private static final ByteOrder PIXEL_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * This class is one image in the cache, either one in the file or one added
+	 * since it was opened.
+	 */
+	private static final class Entry {
+
+		private final long modified, length;
+
+		private final int width, height;
+
+		/**
+		 * Responsible for storing where the pixels are in the mapped file, or -1 if
+		 * the image was added since and is held in 'image' instead.
+		 */
+		private final long offset;
+
+		private final BufferedImage image;
+
+		private Entry(long modified, long length, int width, int height, long offset, BufferedImage image) {
+			this.modified = modified;
+			this.length = length;
+			this.width = width;
+			this.height = height;
+			this.offset = offset;
+			this.image = image;
+		}
+	}
+
+	/**
+	 * Responsible for storing the file the cache is saved to, and the two files
+	 * it is actually kept in, the first being the file itself.
+	 */
+	private final File file;
+
+	private final File[] files;
+
+	/**
+	 * Responsible for storing the cache file mapped into memory, from the start
+	 * of the pixels, or null if there was no valid cache file, and which of the
+	 * two files it is, or -1.
+	 */
+	private final ByteBuffer pixels;
+
+	private final int mapped;
+
+	/**
+	 * Responsible for storing the generation of the newest save, which is the
+	 * mapped file unless the cache has been saved since.
+	 */
+	private long generation;
+
+	/**
+	 * Responsible for storing the images in the cache, by path.
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Responsible for storing a flag which indicates whether images have been
+	 * added or changed since the cache was opened.
+	 */
+	private volatile boolean dirty;
+
+	/**
+	 * Responsible for storing the number of images found in the cache and the
+	 * number that had to be decoded.
+	 */
+	private final AtomicInteger hits = new AtomicInteger(), misses = new AtomicInteger();
+
+	/**
+	 * Creates an ImageCache, mapping the cache file if there is one. A cache file
+	 * that is missing, from another version or cannot be read is ignored, and
+	 * replaced when the cache is saved.
+	 *
+	 * @param file The cache file
+	 */
+	public ImageCache(File file) {
+		this.file = file;
+
+		this.files = new File[] { file, new File(file.getPath() + ".alt") };
+
+		long[] generations = { generationOf(files[0]), generationOf(files[1]) };
+
+		generation = Math.max(0, Math.max(generations[0], generations[1]));
+
+		ByteBuffer found = null;
+
+		int foundIndex = -1;
+
+		// Only the newest file is mapped, the older one is kept free to be written
+		int newest = generations[1] > generations[0] ? 1 : 0;
+
+		for (int i : new int[] { newest, 1 - newest }) {
+			if (generations[i] < 0) {
+				continue;
+			}
+
+			try {
+				found = map(files[i]);
+
+				foundIndex = i;
+
+				break;
+			} catch (IOException e) {
+				System.err.println("Ignoring the image cache " + files[i] + ": " + e.getMessage());
+
+				entries.clear();
+			}
+		}
+
+		pixels = found;
+
+		mapped = foundIndex;
+	}
+
+	/**
+	 * @return The generation of the save that wrote a cache file, or -1 if it is
+	 *         missing or not a cache file of this version
+	 */
+	private static long generationOf(File file) {
+		if (!file.isFile()) {
+			return -1;
+		}
+
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return -1;
+			}
+
+			return in.readLong();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * This method is responsible for mapping a cache file and reading its list of
+	 * images.
+	 *
+	 * @return The file mapped from the start of the pixels
+	 */
+	private ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			ByteBuffer header = mapped.duplicate();
+
+			DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a cache file of this version");
+			}
+
+			in.readLong();
+
+			int count = in.readInt();
+
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+
+				entries.put(path, new Entry(in.readLong(), in.readLong(), in.readInt(), in.readInt(), in.readLong(), null));
+			}
+
+			int start = (header.position() + 3) & ~3;
+
+			if (start > mapped.limit()) {
+				throw new IOException("The cache file is cut short");
+			}
+
+			mapped.position(start);
+
+			ByteBuffer data = mapped.slice();
+
+			for (Entry entry : entries.values()) {
+				if (entry.offset < 0 || entry.offset + 4L * entry.width * entry.height > data.limit()) {
+					throw new IOException("The cache file is cut short");
+				}
+			}
+
+			return data;
+		}
+	}
+
+	/**
+	 * This method is responsible for getting an image from the cache, if it is
+	 * there and its file has not changed since it was cached.
+	 *
+	 * @param fileName The file path of the image
+	 * @return The image, or null if it has to be decoded
+	 */
+	public BufferedImage get(String fileName) {
+		Entry entry = entries.get(fileName);
+
+		File source = new File(fileName);
+
+		if (entry == null || entry.modified != source.lastModified() || entry.length != source.length()) {
+			misses.incrementAndGet();
+
+			return null;
+		}
+
+		hits.incrementAndGet();
+
+		if (entry.image != null) {
+			return entry.image;
+		}
+
+		int[] data = new int[entry.width * entry.height];
+
+		pixels.duplicate().order(PIXEL_ORDER).position((int) entry.offset).asIntBuffer().get(data);
+
+		BufferedImage image = new BufferedImage(entry.width, entry.height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+		// Copied in rather than wrapped, so Java2D can still manage the image
+		image.getRaster().setDataElements(0, 0, entry.width, entry.height, data);
+
+		return image;
+	}
+
+	/**
+	 * This method is responsible for adding an image that has just been decoded
+	 * to the cache. It is written to the file the next time the cache is saved.
+	 *
+	 * @param fileName The file path of the image
+	 * @param image    The decoded image, which must be TYPE_INT_ARGB_PRE
+	 */
+	public void put(String fileName, BufferedImage image) {
+		if (image.getType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+			throw new IllegalArgumentException("Only TYPE_INT_ARGB_PRE images can be cached");
+		}
+
+		File source = new File(fileName);
+
+		entries.put(fileName, new Entry(source.lastModified(), source.length(), image.getWidth(), image.getHeight(),
+				-1, image));
+
+		dirty = true;
+	}
+
+	/**
+	 * This method is responsible for writing the cache, if images have been added
+	 * since it was opened, to whichever of its files is not mapped. The file is
+	 * written alongside and then moved over the old one, so a cache that is being
+	 * read is never half written. If the cache cannot be written it is tried
+	 * again the next time it is saved.
+	 *
+	 * @throws IOException If the file could not be written
+	 */
+	public synchronized void save() throws IOException {
+		if (!dirty) {
+			return;
+		}
+
+		// Cleared first so that images added while saving are saved next time
+		dirty = false;
+
+		boolean saved = false;
+
+		try {
+			write(files[mapped == 0 ? 1 : 0], generation + 1);
+
+			generation++;
+
+			saved = true;
+		} finally {
+			if (!saved) {
+				dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for writing every image in the cache to a file.
+	 *
+	 * @param file       The file to write
+	 * @param generation The generation of the save
+	 */
+	private void write(File file, long generation) throws IOException {
+		List<String> paths = new ArrayList<String>(entries.keySet());
+
+		List<Entry> saved = new ArrayList<Entry>();
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+
+		DataOutputStream out = new DataOutputStream(index);
+
+		out.writeInt(MAGIC);
+
+		out.writeInt(VERSION);
+
+		out.writeLong(generation);
+
+		out.writeInt(paths.size());
+
+		long offset = 0;
+
+		for (String path : paths) {
+			Entry entry = entries.get(path);
+
+			out.writeUTF(path);
+			out.writeLong(entry.modified);
+			out.writeLong(entry.length);
+			out.writeInt(entry.width);
+			out.writeInt(entry.height);
+			out.writeLong(offset);
+
+			saved.add(entry);
+
+			offset += 4L * entry.width * entry.height;
+		}
+
+		while (index.size() % 4 != 0) {
+			out.writeByte(0);
+		}
+
+		File parent = file.getAbsoluteFile().getParentFile();
+
+		if (parent != null) {
+			Files.createDirectories(parent.toPath());
+		}
+
+		File temp = new File(file.getPath() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(channel, ByteBuffer.wrap(index.toByteArray()));
+
+			for (Entry entry : saved) {
+				ByteBuffer buffer = ByteBuffer.allocate(4 * entry.width * entry.height).order(PIXEL_ORDER);
+
+				buffer.asIntBuffer().put(pixelsOf(entry));
+
+				write(channel, buffer);
+			}
+		}
+
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return The pixels of an image in the cache
+	 */
+	private int[] pixelsOf(Entry entry) {
+		if (entry.image != null) {
+			return (int[]) entry.image.getRaster().getDataElements(0, 0, entry.width, entry.height, null);
+		}
+
+		int[] data = new int[entry.width * entry.height];
+
+		pixels.duplicate().order(PIXEL_ORDER).position((int) entry.offset).asIntBuffer().get(data);
+
+		return data;
+	}
+
+	/**
+	 * This method is responsible for writing the whole of a buffer to a channel.
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * @return The number of images found in the cache
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of images that were not in the cache, or had changed
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The file the cache is saved to
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * This class reads the list of images from the mapped file.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+
+			length = Math.min(length, buffer.remaining());
+
+			buffer.get(bytes, offset, length);
+
+			return length;
+		}
+	}
+}
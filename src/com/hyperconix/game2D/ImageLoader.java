@@ -0,0 +1,139 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * This class is responsible for loading images from files so that many can be
+ * loaded at once. Images used to be loaded through ImageIcon, which waits for
+ * each image while holding a lock shared by every ImageIcon, so images loaded
+ * on different threads still loaded one after another. Still images are now
+ * decoded on the calling thread with ImageIO instead, so each thread decodes
+ * its own, and are kept as premultiplied ARGB images, which are the quickest
+ * to draw. GIFs are still loaded through ImageIcon, as they may be animated
+ * and only the toolkit plays animated GIFs.
+ * <br><br>
+ * If an {@link ImageCache} is in use, still images are taken from it when they
+ * are there, and added to it when they have to be decoded, so the next launch
+ * does not have to decode them.
+ * <br><br>
+ * Each file is only loaded once, later loads of the same file get the same
+ * image, as they did with ImageIcon. This means images can be loaded ahead of
+ * whatever uses them, such as the tile images of a map. This can be used from
+ * any thread.
+ *
+ * @author Luke S
+ *
+ */
+public final class ImageLoader {
+
+	/**
+	 * Responsible for storing the images that have been loaded, by file name.
+	 */
+	private static final ConcurrentHashMap<String, Image> loaded = new ConcurrentHashMap<String, Image>();
+
+	/**
+	 * Responsible for storing the cache of decoded images, or null if there is
+	 * none.
+	 */
+	private static volatile ImageCache cache;
+
+	private ImageLoader() {
+	}
+
+	/**
+	 * This method is responsible for loading an image, or getting it if it has
+	 * already been loaded. If two threads load the same file at once, both may
+	 * decode it but they get the same image.
+	 *
+	 * @param fileName The file path to the image file that should be loaded
+	 * @return The image, which has a width of -1 if it could not be loaded
+	 */
+	public static Image load(String fileName) {
+		Image image = loaded.get(fileName);
+
+		if (image != null) {
+			return image;
+		}
+
+		image = decode(fileName);
+
+		Image existing = loaded.putIfAbsent(fileName, image);
+
+		return existing != null ? existing : image;
+	}
+
+	/**
+	 * This method is responsible for setting the cache still images are taken
+	 * from and added to. This should be set before any images are loaded, as
+	 * images that have already been loaded are not added to it.
+	 *
+	 * @param imageCache The cache, or null to decode every image
+	 */
+	public static void useCache(ImageCache imageCache) {
+		cache = imageCache;
+	}
+
+	/**
+	 * This method is responsible for reading an image from its file, or from the
+	 * cache if it is there.
+	 */
+	private static Image decode(String fileName) {
+		if (!fileName.toLowerCase().endsWith(".gif")) {
+			ImageCache imageCache = cache;
+
+			if (imageCache != null) {
+				BufferedImage cached = imageCache.get(fileName);
+
+				if (cached != null) {
+					return cached;
+				}
+			}
+
+			try {
+				BufferedImage read = ImageIO.read(new File(fileName));
+
+				if (read != null) {
+					BufferedImage image = toPremultiplied(read);
+
+					if (imageCache != null) {
+						imageCache.put(fileName, image);
+					}
+
+					return image;
+				}
+			} catch (IOException e) {
+				// Let ImageIcon have a go, it gives back an empty image if it cannot either
+			}
+		}
+
+		return new ImageIcon(fileName).getImage();
+	}
+
+	/**
+	 * @return The image as a TYPE_INT_ARGB_PRE image, which is the quickest to
+	 *         draw as the alpha does not have to be multiplied in each time
+	 */
+	private static BufferedImage toPremultiplied(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) {
+			return image;
+		}
+
+		BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+
+		Graphics2D g = argb.createGraphics();
+
+		g.drawImage(image, 0, 0, null);
+
+		g.dispose();
+
+		return argb;
+	}
+}
@@ -0,0 +1,88 @@
+package com.hyperconix.game2D;
+
+/**
+ * This class is responsible for packing input into a single int, so input can
+ * be queued, recorded and replayed without creating an object for every key
+ * press. The top byte of a command holds its type and the rest holds its code,
+ * a key code for key commands or a game defined number for actions.
+ * <br><br>
+ * This only holds static helpers, commands are plain ints.
+ *
+ * @author Luke S
+ *
+ */
+public final class InputCommand {
+
+	/**
+	 * This type indicates that a key was pressed, the code is the key code.
+	 */
+	public static final int KEY_PRESSED = 1;
+
+	/**
+	 * This type indicates that a key was released, the code is the key code.
+	 */
+	public static final int KEY_RELEASED = 2;
+
+	/**
+	 * This type indicates a game defined action, such as a button on a menu being
+	 * clicked.
+	 */
+	public static final int ACTION = 3;
+
+	/**
+	 * Responsible for storing the mask of the code part of a command.
+	 */
+	private static final int CODE_MASK = 0xFFFFFF;
+
+	private InputCommand() {
+	}
+
+	/**
+	 * @param keyCode The key code of the key, see KeyEvent
+	 * @return A command for the key being pressed
+	 */
+	public static int keyPressed(int keyCode) {
+		return of(KEY_PRESSED, keyCode);
+	}
+
+	/**
+	 * @param keyCode The key code of the key, see KeyEvent
+	 * @return A command for the key being released
+	 */
+	public static int keyReleased(int keyCode) {
+		return of(KEY_RELEASED, keyCode);
+	}
+
+	/**
+	 * @param action The game defined action
+	 * @return A command for the action
+	 */
+	public static int action(int action) {
+		return of(ACTION, action);
+	}
+
+	/**
+	 * @param type The type of the command
+	 * @param code The code of the command
+	 * @return The command packed into an int
+	 */
+	public static int of(int type, int code) {
+		return (type << 24) | (code & CODE_MASK);
+	}
+
+	/**
+	 * @param command The command
+	 * @return The type of the command
+	 */
+	public static int getType(int command) {
+		return command >>> 24;
+	}
+
+	/**
+	 * @param command The command
+	 * @return The code of the command
+	 */
+	public static int getCode(int command) {
+		return command & CODE_MASK;
+	}
+}
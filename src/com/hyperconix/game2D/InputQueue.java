@@ -0,0 +1,172 @@
+package com.hyperconix.game2D;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a fixed size ring of {@link InputCommand}s passed from one
+ * thread that receives input, such as the AWT event thread, to the one thread
+ * that runs the game, without either of them taking a lock. Each command is
+ * kept with the time it was offered, so the game can measure how long input
+ * waits before it is acted on.
+ * <br><br>
+ * Only one thread may offer commands and only one thread may drain them,
+ * though they can be the same thread. The producer only ever writes the tail
+ * and the consumer only ever writes the head, each publishing its progress
+ * with an ordered write that the other side reads. Each side also keeps the
+ * last position it read of the other, so it only has to read the other side's
+ * position again when the ring looks full or empty. Nothing is allocated once
+ * the queue has been created.
+ * <br><br>
+ * If the game stops draining, the ring fills up and further commands are
+ * dropped and counted rather than blocking the thread that offers them.
+ *
+ * @author Luke S
+ *
+ */
+public class InputQueue {
+
+	/**
+	 * Responsible for storing the commands and the times they were offered, in
+	 * slots indexed by position modulo the capacity.
+	 */
+	private final int[] commands;
+
+	private final long[] times;
+
+	/**
+	 * Responsible for storing the mask that turns a position into a slot, the
+	 * capacity is a power of two.
+	 */
+	private final int mask;
+
+	/**
+	 * Responsible for storing the position of the next command to drain, written
+	 * only by the consumer, and the position the next command is offered at,
+	 * written only by the producer.
+	 */
+	private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+
+	/**
+	 * Responsible for storing the head as the producer last read it, and the tail
+	 * as the consumer last read it.
+	 */
+	private long cachedHead, cachedTail;
+
+	/**
+	 * Responsible for storing the number of commands dropped because the ring was
+	 * full. Only the producer writes this.
+	 */
+	private volatile long dropped;
+
+	/**
+	 * Creates an empty InputQueue.
+	 *
+	 * @param capacity The most commands that can be waiting, rounded up to a
+	 *                 power of two
+	 */
+	public InputQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be at least 1");
+		}
+
+		int size = Integer.highestOneBit(capacity);
+
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		commands = new int[size];
+
+		times = new long[size];
+
+		mask = size - 1;
+	}
+
+	/**
+	 * This method is responsible for adding a command to the queue. This must
+	 * only be called from the producer thread.
+	 *
+	 * @param command The command, see {@link InputCommand}
+	 * @param nanos   The time the input happened, from System.nanoTime()
+	 * @return {@code true} if the command was added, {@code false} if the ring
+	 *         was full and it was dropped
+	 */
+	public boolean offer(int command, long nanos) {
+		long position = tail.get();
+
+		if (position - cachedHead > mask) {
+			cachedHead = head.get();
+
+			if (position - cachedHead > mask) {
+				dropped++;
+
+				return false;
+			}
+		}
+
+		int slot = (int) position & mask;
+
+		commands[slot] = command;
+
+		times[slot] = nanos;
+
+		// Publish the slot only once it has been filled in
+		tail.lazySet(position + 1);
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for taking every waiting command off the queue,
+	 * oldest first, up to the space given. This must only be called from the
+	 * consumer thread.
+	 *
+	 * @param into      The array to copy the commands into
+	 * @param timesInto The array to copy the times they were offered into, at
+	 *                  least as long as 'into'
+	 * @return The number of commands taken
+	 */
+	public int drain(int[] into, long[] timesInto) {
+		long position = head.get();
+
+		if (position == cachedTail) {
+			cachedTail = tail.get();
+		}
+
+		int count = (int) Math.min(cachedTail - position, into.length);
+
+		for (int i = 0; i < count; i++) {
+			int slot = (int) (position + i) & mask;
+
+			into[i] = commands[slot];
+
+			timesInto[i] = times[slot];
+		}
+
+		// Hand the slots back to the producer only once they have been read
+		head.lazySet(position + count);
+
+		return count;
+	}
+
+	/**
+	 * @return The number of commands waiting, which may already be out of date
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * @return The most commands that can be waiting
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return The number of commands dropped because the ring was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+}
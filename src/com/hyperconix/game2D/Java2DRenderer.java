@@ -0,0 +1,68 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+
+/**
+ * This class is responsible for drawing through Java2D, the way the game has
+ * always been drawn. Java2D may use the graphics card to draw, which is the
+ * quickest way on machines where it can. Mirrored images are drawn from a
+ * mirrored copy kept by {@link ScaledImages}, as drawing through a transform
+ * allocates every time.
+ *
+ * @author Luke S
+ *
+ */
+public class Java2DRenderer implements Renderer {
+
+	/**
+	 * Responsible for storing the graphics object everything is drawn with.
+	 */
+	private final Graphics2D g;
+
+	/**
+	 * Creates a Java2DRenderer.
+	 *
+	 * @param g The graphics object to draw with
+	 */
+	public Java2DRenderer(Graphics2D g) {
+		this.g = g;
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y) {
+		g.drawImage(image, x, y, null);
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y, boolean flipped) {
+		if (!flipped) {
+			g.drawImage(image, x, y, null);
+
+			return;
+		}
+
+		ScaledImages.draw(g, image, x, y, -1, 1);
+	}
+
+	@Override
+	public void setClip(int x, int y, int width, int height) {
+		g.setClip(x, y, width, height);
+	}
+
+	@Override
+	public Rectangle getClipBounds(Rectangle bounds) {
+		return g.getClipBounds(bounds);
+	}
+
+	@Override
+	public Graphics2D getGraphics() {
+		return g;
+	}
+
+	@Override
+	public void flush() {
+		// Everything is drawn straight away
+	}
+}
@@ -44,9 +44,29 @@ public class MIDIPlayer {
 	public MIDIPlayer(String fileName) {
 		this.fileName = fileName;
 		
+		AssetLoadEvent event = new AssetLoadEvent();
+		
+		event.begin();
+		
 		try {
 			score = MidiSystem.getSequence(new File(fileName));
 			
+			event.end();
+			
+			if (event.shouldCommit()) {
+				event.kind = "midi";
+				
+				event.file = fileName;
+				
+				event.size = new File(fileName).length();
+				
+				event.width = -1;
+				
+				event.height = -1;
+				
+				event.commit();
+			}
+			
 			sequencer = MidiSystem.getSequencer();
 		} catch (InvalidMidiDataException e) {
 			// TODO Auto-generated catch block
@@ -86,6 +106,7 @@ public class MIDIPlayer {
 
 		sequencer.start();
 		
+		recordChange("play", -1, loop);
 	}
 	
 	/**
@@ -104,7 +125,13 @@ public class MIDIPlayer {
 	 * @param toSolo Whether or not to solo
 	 */
 	public void solo(int track, boolean toSolo) {
+		if (sequencer.getTrackSolo(track) == toSolo) {
+			return;
+		}
+		
 		sequencer.setTrackSolo(track, toSolo);
+		
+		recordChange("solo", track, toSolo);
 	}
 	
 	/**
@@ -115,7 +142,13 @@ public class MIDIPlayer {
 	 * @param toMute Whether or not to mute
 	 */
 	public void mute(int track, boolean toMute) {
+		if (sequencer.getTrackMute(track) == toMute) {
+			return;
+		}
+		
 		sequencer.setTrackMute(track, toMute);
+		
+		recordChange("mute", track, toMute);
 	}
 	
 	/**
@@ -123,7 +156,13 @@ public class MIDIPlayer {
 	 * to be altered.
 	 */
 	public void alterTempo(float factor) {
+		if (sequencer.getTempoFactor() == factor) {
+			return;
+		}
+		
 		sequencer.setTempoFactor(factor);
+		
+		recordChange("tempo", -1, false);
 	}
 	
 	/**
@@ -131,7 +170,41 @@ public class MIDIPlayer {
 	 * score .
 	 */
 	public void stopScore() {
+		if (!sequencer.isRunning()) {
+			return;
+		}
+		
 		sequencer.stop();
+		
+		recordChange("stop", -1, false);
+	}
+	
+	/**
+	 * This method is responsible for recording a change to the state of the
+	 * player as a flight recorder event. The state is only ever changed when it
+	 * is different, so the game asking for the same state every frame does not
+	 * fill the recording.
+	 * 
+	 * @param change What changed
+	 * @param track The track that changed, or -1
+	 * @param enabled Whether the change turned something on
+	 */
+	private void recordChange(String change, int track, boolean enabled) {
+		MIDIStateEvent event = new MIDIStateEvent();
+		
+		if (event.shouldCommit()) {
+			event.file = fileName;
+			
+			event.change = change;
+			
+			event.track = track;
+			
+			event.enabled = enabled;
+			
+			event.tempo = sequencer.getTempoFactor();
+			
+			event.commit();
+		}
 	}
 	
 	
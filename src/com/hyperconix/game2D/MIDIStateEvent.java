@@ -0,0 +1,54 @@
+package com.hyperconix.game2D;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for a change to the state of a
+ * {@link MIDIPlayer}, such as the score starting or a track being soloed. Only
+ * real changes are recorded, asking for the state it is already in is not.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.MIDIState")
+@Label("MIDI State")
+@Category({ "PunchMan", "Audio" })
+@Description("The MIDI score starting, stopping or having a track or its tempo changed")
+public class MIDIStateEvent extends Event {
+
+	/**
+	 * Responsible for storing the path of the MIDI file.
+	 */
+	@Label("File")
+	String file;
+
+	/**
+	 * Responsible for storing what changed, "play", "stop", "solo", "mute" or
+	 * "tempo".
+	 */
+	@Label("Change")
+	String change;
+
+	/**
+	 * Responsible for storing the track that was soloed or muted, -1 otherwise.
+	 */
+	@Label("Track")
+	int track;
+
+	/**
+	 * Responsible for storing whether a track was soloed or muted, or the score
+	 * was set to loop.
+	 */
+	@Label("Enabled")
+	boolean enabled;
+
+	/**
+	 * Responsible for storing the tempo factor after the change.
+	 */
+	@Label("Tempo Factor")
+	float tempo;
+}
@@ -0,0 +1,48 @@
+package com.hyperconix.game2D;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for loading a tile map with
+ * {@link TileMap#loadMap(String, String)}, including the tile images it loads.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.MapLoad")
+@Label("Map Load")
+@Category({ "PunchMan", "Loading" })
+@Description("Reading a tile map file and loading its tile images")
+public class MapLoadEvent extends Event {
+
+	/**
+	 * Responsible for storing the path of the map file.
+	 */
+	@Label("File")
+	String file;
+
+	/**
+	 * Responsible for storing the size of the map in tiles.
+	 */
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	/**
+	 * Responsible for storing the number of tile images the map uses.
+	 */
+	@Label("Tile Images")
+	int images;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the map loaded.
+	 */
+	@Label("Loaded")
+	boolean loaded;
+}
@@ -0,0 +1,105 @@
+package com.hyperconix.game2D;
+
+/**
+ * This class represents a named point declared in a map file, such as where
+ * the player starts, where an enemy spawns or where a switch is. A map file
+ * declares a point with a line such as:
+ * <p>
+ * &#64;enemy=1032,189
+ * <p>
+ * The same name can be used more than once, for example for every enemy in a
+ * level. A point can also carry an extra value after its position, which the
+ * game can use however it likes, for example the tile a switch places.
+ *
+ * @author Luke S
+ *
+ */
+public class MapPoint {
+
+	/**
+	 * Responsible for storing the name of the point.
+	 */
+	private final String name;
+
+	/**
+	 * Responsible for storing the pixel position of the point.
+	 */
+	private final float x, y;
+
+	/**
+	 * Responsible for storing the extra value given with the point, or an empty
+	 * string if there was none.
+	 */
+	private final String value;
+
+	/**
+	 * Creates the state of a MapPoint.
+	 *
+	 * @param name  The name of the point
+	 * @param x     The x pixel coordinate
+	 * @param y     The y pixel coordinate
+	 * @param value The extra value, or an empty string
+	 */
+	public MapPoint(String name, float x, float y, String value) {
+		this.name = name;
+
+		this.x = x;
+
+		this.y = y;
+
+		this.value = value;
+	}
+
+	/**
+	 * This method is responsible for reading a point from the part of a map file
+	 * line after the '@', that is "name=x,y" or "name=x,y,value".
+	 *
+	 * @param spec The point as written in the map file
+	 * @return The point
+	 * @throws IllegalArgumentException If the point is not in the right format
+	 */
+	public static MapPoint parse(String spec) {
+		int equals = spec.indexOf('=');
+
+		if (equals <= 0) {
+			throw new IllegalArgumentException("Map point '" + spec + "' has no name");
+		}
+
+		String[] parts = spec.substring(equals + 1).split(",", 3);
+
+		if (parts.length < 2) {
+			throw new IllegalArgumentException("Map point '" + spec + "' needs an x and a y");
+		}
+
+		return new MapPoint(spec.substring(0, equals).trim(), Float.parseFloat(parts[0].trim()),
+				Float.parseFloat(parts[1].trim()), parts.length > 2 ? parts[2].trim() : "");
+	}
+
+	/**
+	 * @return The name of the point
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The x pixel coordinate of the point
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * @return The y pixel coordinate of the point
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * @return The extra value given with the point, or an empty string
+	 */
+	public String getValue() {
+		return value;
+	}
+}
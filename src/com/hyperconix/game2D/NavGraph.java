@@ -0,0 +1,593 @@
+package com.hyperconix.game2D;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a navigation graph for a platformer built from a
+ * TileMap. Rather than searching every tile, only the tiles a sprite can stand
+ * in are used as nodes, that is an empty tile with a solid tile directly below
+ * it. Nodes are then joined by three kinds of edge:
+ * <ul>
+ * <li>{@link #WALK} to a standable tile directly left or right</li>
+ * <li>{@link #FALL} off the end of a platform, down to the first standable
+ * tile below</li>
+ * <li>{@link #JUMP} up or across to a standable tile within jumping reach,
+ * or across a gap and down onto a lower one, provided there is a clear path
+ * for the jump</li>
+ * </ul>
+ * The graph is stored in flat primitive arrays (a compressed adjacency list)
+ * so that searches over it stay cache friendly and do not allocate. It
+ * remembers the version of the map it was built from, so {@link #update()}
+ * only rebuilds it after the terrain has been changed through
+ * {@link TileMap#setTileChar}.
+ * <br><br>
+ * Nodes are numbered from zero, and a tile can be turned into a node (and a
+ * node back into a tile) in constant time.
+ *
+ * @author Luke S
+ *
+ */
+public class NavGraph {
+
+	/**
+	 * Responsible for storing the edge type for walking to a neighbouring tile.
+	 */
+	public static final byte WALK = 0;
+
+	/**
+	 * Responsible for storing the edge type for falling off a platform.
+	 */
+	public static final byte FALL = 1;
+
+	/**
+	 * Responsible for storing the edge type for jumping to another platform.
+	 */
+	public static final byte JUMP = 2;
+
+	/**
+	 * Responsible for storing the extra cost added to a jump, so walking is
+	 * preferred when both are possible.
+	 */
+	private static final int JUMP_PENALTY = 2;
+
+	/**
+	 * Responsible for storing the map the graph is built from.
+	 */
+	private final TileMap map;
+
+	/**
+	 * Responsible for storing the TileType flags that make a tile block movement,
+	 * or 0 if any tile that is not blank blocks movement.
+	 */
+	private final int blockingFlags;
+
+	/**
+	 * Responsible for storing how many tiles up and across a jump can reach.
+	 */
+	private final int maxJumpUp, maxJumpAcross;
+
+	/**
+	 * Responsible for storing the version of the map the graph was built at.
+	 */
+	private int builtVersion = -1;
+
+	/**
+	 * Responsible for storing the number of times the graph has been built. This
+	 * lets anything caching results from the graph know when to throw them away.
+	 */
+	private int generation;
+
+	/**
+	 * Responsible for storing the size of the map the graph was built from.
+	 */
+	private int width, height;
+
+	/**
+	 * Responsible for storing the number of nodes in the graph.
+	 */
+	private int nodeCount;
+
+	/**
+	 * Responsible for storing the node of each tile (indexed by y * width + x), or
+	 * -1 if the tile is not standable.
+	 */
+	private int[] nodeOfTile = new int[0];
+
+	/**
+	 * Responsible for storing the tile of each node.
+	 */
+	private int[] tileOfNode = new int[0];
+
+	/**
+	 * Responsible for storing where the edges of each node start, the edges of
+	 * node n are between edgeStart[n] (inclusive) and edgeStart[n + 1]
+	 * (exclusive).
+	 */
+	private int[] edgeStart = new int[1];
+
+	/**
+	 * Responsible for storing the edges, one entry per edge.
+	 */
+	private int[] edgeTarget = new int[0];
+	private int[] edgeCost = new int[0];
+	private byte[] edgeType = new byte[0];
+
+	/**
+	 * Responsible for storing the number of edges in the graph.
+	 */
+	private int edgeCount;
+
+	/**
+	 * Responsible for storing the edges again, grouped by the node they lead to
+	 * rather than the node they come from. The incoming edges of node n are
+	 * between inStart[n] (inclusive) and inStart[n + 1] (exclusive), and each entry
+	 * is the index of the edge in the outgoing arrays.
+	 */
+	private int[] inStart = new int[1];
+	private int[] inEdge = new int[0];
+	private int[] edgeSource = new int[0];
+
+	/**
+	 * Responsible for storing, for every tile, the node a sprite in that tile
+	 * would land on if it fell straight down, or -1 if there is none.
+	 */
+	private int[] landingNode = new int[0];
+
+	/**
+	 * Responsible for storing the node whose edges are being added while building.
+	 */
+	private int buildingNode;
+
+	/**
+	 * Creates a NavGraph for the given map with a default jump reach of 2 tiles up
+	 * and 3 tiles across.
+	 *
+	 * @param map The map to build the graph from
+	 */
+	public NavGraph(TileMap map) {
+		this(map, 0, 2, 3);
+	}
+
+	/**
+	 * Creates the state of a NavGraph. The graph is built straight away.
+	 *
+	 * @param map           The map to build the graph from
+	 * @param blockingFlags The TileType flags that block movement, or 0 for any
+	 *                      tile that is not blank
+	 * @param maxJumpUp     How many tiles up a jump can reach
+	 * @param maxJumpAcross How many tiles across a jump can reach
+	 */
+	public NavGraph(TileMap map, int blockingFlags, int maxJumpUp, int maxJumpAcross) {
+		this.map = map;
+
+		this.blockingFlags = blockingFlags;
+
+		this.maxJumpUp = maxJumpUp;
+
+		this.maxJumpAcross = maxJumpAcross;
+
+		update();
+	}
+
+	/**
+	 * This method is responsible for rebuilding the graph if the map has changed
+	 * since it was last built.
+	 *
+	 * @return {@code true} if the graph was rebuilt, {@code false} otherwise
+	 */
+	public boolean update() {
+		if (builtVersion == map.getVersion()) {
+			return false;
+		}
+
+		build();
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for building the graph from the current state of
+	 * the map. The arrays are reused when they are big enough.
+	 */
+	private void build() {
+		builtVersion = map.getVersion();
+
+		width = map.getMapWidth();
+
+		height = map.getMapHeight();
+
+		int tiles = width * height;
+
+		if (nodeOfTile.length < tiles) {
+			nodeOfTile = new int[tiles];
+
+			tileOfNode = new int[tiles];
+
+			edgeStart = new int[tiles + 1];
+
+			inStart = new int[tiles + 1];
+
+			landingNode = new int[tiles];
+		}
+
+		// First find all of the tiles that can be stood in
+		nodeCount = 0;
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int tile = y * width + x;
+
+				if (isStandable(x, y)) {
+					nodeOfTile[tile] = nodeCount;
+
+					tileOfNode[nodeCount++] = tile;
+				} else {
+					nodeOfTile[tile] = -1;
+				}
+			}
+		}
+
+		// Then join them up, the nodes are visited in order so the edges of each
+		// node end up next to each other
+		edgeCount = 0;
+
+		for (int n = 0; n < nodeCount; n++) {
+			edgeStart[n] = edgeCount;
+
+			buildingNode = n;
+
+			int x = tileOfNode[n] % width;
+
+			int y = tileOfNode[n] / width;
+
+			for (int dir = -1; dir <= 1; dir += 2) {
+				int nx = x + dir;
+
+				if (isSolid(nx, y) || !map.valid(nx, y)) {
+					continue;
+				}
+
+				if (isStandable(nx, y)) {
+					addEdge(nodeOf(nx, y), 1, WALK);
+				} else {
+					// Walking off the edge, fall until something is hit
+					int ny = y + 1;
+
+					while (ny < height && !isSolid(nx, ny) && !isStandable(nx, ny)) {
+						ny++;
+					}
+
+					if (ny < height && isStandable(nx, ny)) {
+						addEdge(nodeOf(nx, ny), 1 + (ny - y), FALL);
+					}
+				}
+			}
+
+			addJumpEdges(x, y);
+		}
+
+		edgeStart[nodeCount] = edgeCount;
+
+		buildIncomingEdges();
+
+		buildLandingNodes();
+
+		generation++;
+	}
+
+	/**
+	 * This method is responsible for grouping the edges by the node they lead to,
+	 * so that searches can be run backwards from a target.
+	 */
+	private void buildIncomingEdges() {
+		if (inEdge.length < edgeCount) {
+			inEdge = new int[edgeTarget.length];
+
+			edgeSource = new int[edgeTarget.length];
+		}
+
+		Arrays.fill(inStart, 0, nodeCount + 1, 0);
+
+		// Count the incoming edges of each node, then turn the counts into start
+		// positions
+		for (int n = 0; n < nodeCount; n++) {
+			for (int e = edgeStart[n]; e < edgeStart[n + 1]; e++) {
+				edgeSource[e] = n;
+
+				inStart[edgeTarget[e] + 1]++;
+			}
+		}
+
+		for (int n = 0; n < nodeCount; n++) {
+			inStart[n + 1] += inStart[n];
+		}
+
+		// Fill them in, inStart is shifted along by one while doing this and shifted
+		// back afterwards
+		for (int e = 0; e < edgeCount; e++) {
+			inEdge[inStart[edgeTarget[e]]++] = e;
+		}
+
+		for (int n = nodeCount; n > 0; n--) {
+			inStart[n] = inStart[n - 1];
+		}
+
+		inStart[0] = 0;
+	}
+
+	/**
+	 * This method is responsible for working out which node each tile would land
+	 * on. Each column is walked from the bottom up, so this is a single pass over
+	 * the map.
+	 */
+	private void buildLandingNodes() {
+		for (int x = 0; x < width; x++) {
+			int below = -1;
+
+			for (int y = height - 1; y >= 0; y--) {
+				int tile = y * width + x;
+
+				if (nodeOfTile[tile] >= 0) {
+					below = nodeOfTile[tile];
+				} else if (isSolid(x, y)) {
+					below = -1;
+				}
+
+				landingNode[tile] = below;
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for adding the jump edges from the standable tile
+	 * at 'x','y'. A jump goes straight up, across, and then straight down onto the
+	 * target (which can be lower than where it started), and every tile it passes
+	 * through must be empty.
+	 *
+	 * @param x The x tile coordinate of the node
+	 * @param y The y tile coordinate of the node
+	 */
+	private void addJumpEdges(int x, int y) {
+		for (int up = 1; up <= maxJumpUp; up++) {
+			int top = y - up;
+
+			// The jump is blocked if anything is directly above
+			if (top < 0 || isSolid(x, top)) {
+				return;
+			}
+
+			for (int dir = -1; dir <= 1; dir += 2) {
+				for (int across = 1; across <= maxJumpAcross; across++) {
+					int tx = x + dir * across;
+
+					if (!map.valid(tx, top) || isSolid(tx, top)) {
+						break;
+					}
+
+					// Drop down from the top of the jump to the first standable tile, which
+					// may be below the tile the jump started from
+					for (int ty = top; ty < height; ty++) {
+						if (isSolid(tx, ty)) {
+							break;
+						}
+
+						if (isStandable(tx, ty)) {
+							// Only add jumps that reach somewhere walking could not
+							if (ty != y || across > 1) {
+								addEdge(nodeOf(tx, ty), across + Math.abs(y - ty) + up + JUMP_PENALTY, JUMP);
+							}
+
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for adding an edge from the node currently being
+	 * built, growing the edge arrays if needed.
+	 */
+	private void addEdge(int target, int cost, byte type) {
+		// Tiles can be reached by more than one jump height, only keep the first
+		for (int e = edgeStart[buildingNode]; e < edgeCount; e++) {
+			if (edgeTarget[e] == target) {
+				return;
+			}
+		}
+
+		if (edgeCount == edgeTarget.length) {
+			int capacity = Math.max(16, edgeTarget.length * 2);
+
+			edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+
+			edgeCost = Arrays.copyOf(edgeCost, capacity);
+
+			edgeType = Arrays.copyOf(edgeType, capacity);
+		}
+
+		edgeTarget[edgeCount] = target;
+
+		edgeCost[edgeCount] = cost;
+
+		edgeType[edgeCount++] = type;
+	}
+
+	/**
+	 * @return {@code true} if the tile at 'x','y' blocks movement. Tiles outside of
+	 *         the map are not solid.
+	 */
+	private boolean isSolid(int x, int y) {
+		if (blockingFlags == 0) {
+			return map.valid(x, y) && !map.isEmpty(x, y);
+		}
+
+		return map.hasAnyFlag(x, y, blockingFlags);
+	}
+
+	/**
+	 * @return {@code true} if a sprite can stand in the tile at 'x','y', that is it
+	 *         is empty and the tile below it is solid
+	 */
+	private boolean isStandable(int x, int y) {
+		return map.valid(x, y) && !isSolid(x, y) && isSolid(x, y + 1);
+	}
+
+	/**
+	 * This method is responsible for returning the node at a tile.
+	 *
+	 * @param x The x tile coordinate
+	 * @param y The y tile coordinate
+	 * @return The node at 'x','y', or -1 if the tile is not a node
+	 */
+	public int nodeOf(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+
+		return nodeOfTile[y * width + x];
+	}
+
+	/**
+	 * This method is responsible for returning the node a sprite is standing in,
+	 * given the pixel position of its feet. If the sprite is in the air, the first
+	 * node below it is returned instead.
+	 *
+	 * @param px The x pixel coordinate
+	 * @param py The y pixel coordinate
+	 * @return The node, or -1 if there is nothing below the position
+	 */
+	public int nodeAtPixel(float px, float py) {
+		int x = (int) (px / map.getTileWidth());
+
+		int y = (int) (py / map.getTileHeight());
+
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+
+		return landingNode[y * width + x];
+	}
+
+	/**
+	 * @return The x tile coordinate of a node
+	 */
+	public int getNodeX(int node) {
+		return tileOfNode[node] % width;
+	}
+
+	/**
+	 * @return The y tile coordinate of a node
+	 */
+	public int getNodeY(int node) {
+		return tileOfNode[node] / width;
+	}
+
+	/**
+	 * @return The width of the graph in tiles
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return The height of the graph in tiles
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return The number of nodes in the graph
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return The index of the first edge of a node
+	 */
+	public int getEdgeStart(int node) {
+		return edgeStart[node];
+	}
+
+	/**
+	 * @return One past the index of the last edge of a node
+	 */
+	public int getEdgeEnd(int node) {
+		return edgeStart[node + 1];
+	}
+
+	/**
+	 * @return The node an edge leads to
+	 */
+	public int getEdgeTarget(int edge) {
+		return edgeTarget[edge];
+	}
+
+	/**
+	 * @return The cost of travelling along an edge
+	 */
+	public int getEdgeCost(int edge) {
+		return edgeCost[edge];
+	}
+
+	/**
+	 * @return The type of an edge, one of {@link #WALK}, {@link #FALL} or
+	 *         {@link #JUMP}
+	 */
+	public byte getEdgeType(int edge) {
+		return edgeType[edge];
+	}
+
+	/**
+	 * @return The node an edge comes from
+	 */
+	public int getEdgeSource(int edge) {
+		return edgeSource[edge];
+	}
+
+	/**
+	 * @return The index of the first incoming edge of a node
+	 */
+	public int getInEdgeStart(int node) {
+		return inStart[node];
+	}
+
+	/**
+	 * @return One past the index of the last incoming edge of a node
+	 */
+	public int getInEdgeEnd(int node) {
+		return inStart[node + 1];
+	}
+
+	/**
+	 * @return The edge (an index into the outgoing edges) stored at position 'i' of
+	 *         the incoming edges
+	 */
+	public int getInEdge(int i) {
+		return inEdge[i];
+	}
+
+	/**
+	 * @return The number of edges in the graph
+	 */
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @return A number that changes each time the graph is rebuilt
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return The map the graph was built from
+	 */
+	public TileMap getMap() {
+		return map;
+	}
+}
@@ -0,0 +1,366 @@
+package com.hyperconix.game2D;
+
+import java.util.Arrays;
+
+/**
+ * This class is responsible for finding paths across a {@link NavGraph} using
+ * A*. Everything a search needs (scores, parents, the open heap and the closed
+ * set) lives in primitive arrays that are allocated once per graph size and
+ * reused between searches. Rather than clearing the arrays before each search,
+ * every search gets a new stamp and an entry only counts if its stamp matches,
+ * so starting a search is constant time no matter how big the graph is.
+ * <br><br>
+ * Completed paths are kept in a small cache keyed by their start and goal, so
+ * several enemies asking for the same route (or one enemy asking every tick)
+ * only pay for the search once. The cache is thrown away whenever the graph is
+ * rebuilt, which happens when the terrain changes.
+ * <br><br>
+ * A PathFinder is not thread safe, each thread searching the same graph
+ * should use its own.
+ *
+ * @author Luke S
+ *
+ */
+public class PathFinder {
+
+	/**
+	 * Responsible for storing the number of paths the cache can hold, this must
+	 * be a power of two.
+	 */
+	private static final int CACHE_SIZE = 256;
+
+	/**
+	 * Responsible for storing the graph being searched.
+	 */
+	private final NavGraph graph;
+
+	/**
+	 * Responsible for storing the cost of the best known route to each node.
+	 */
+	private int[] gScore = new int[0];
+
+	/**
+	 * Responsible for storing the estimated total cost through each node.
+	 */
+	private int[] fScore = new int[0];
+
+	/**
+	 * Responsible for storing the node each node was reached from.
+	 */
+	private int[] parent = new int[0];
+
+	/**
+	 * Responsible for storing the search stamp each node was last seen in, and the
+	 * stamp each node was closed in.
+	 */
+	private int[] seenStamp = new int[0];
+	private int[] closedStamp = new int[0];
+
+	/**
+	 * Responsible for storing the open set as a binary heap of nodes ordered by
+	 * fScore, along with where each node is in the heap.
+	 */
+	private int[] heap = new int[0];
+	private int[] heapIndex = new int[0];
+	private int heapSize;
+
+	/**
+	 * Responsible for storing the stamp of the current search.
+	 */
+	private int stamp;
+
+	/**
+	 * Responsible for storing the cached paths and the start/goal pairs they are
+	 * for.
+	 */
+	private final long[] cacheKeys = new long[CACHE_SIZE];
+	private final int[][] cachePaths = new int[CACHE_SIZE][];
+
+	/**
+	 * Responsible for storing the graph generation the cache was filled at.
+	 */
+	private int cacheGeneration = -1;
+
+	/**
+	 * Responsible for storing the number of searches that have actually been run,
+	 * as opposed to answered from the cache.
+	 */
+	private long searches;
+
+	/**
+	 * Creates the state of a PathFinder.
+	 *
+	 * @param graph The graph to search
+	 */
+	public PathFinder(NavGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * This method is responsible for returning a path between two nodes, from the
+	 * cache if possible. The graph is brought up to date first, so a path is never
+	 * returned for terrain that no longer exists.
+	 * <br><br>
+	 * The returned array is shared with the cache and must not be changed.
+	 *
+	 * @param start The node to start from
+	 * @param goal  The node to reach
+	 * @return The nodes along the path, starting with 'start' and ending with
+	 *         'goal', or null if the goal cannot be reached
+	 */
+	public int[] getPath(int start, int goal) {
+		graph.update();
+
+		if (cacheGeneration != graph.getGeneration()) {
+			Arrays.fill(cacheKeys, -1L);
+
+			Arrays.fill(cachePaths, null);
+
+			cacheGeneration = graph.getGeneration();
+		}
+
+		if (start < 0 || goal < 0) {
+			return null;
+		}
+
+		long key = ((long) start << 32) | (goal & 0xffffffffL);
+
+		int slot = (int) ((key ^ (key >>> 29)) * 0x9E3779B1L >>> 24) & (CACHE_SIZE - 1);
+
+		if (cacheKeys[slot] == key) {
+			return cachePaths[slot];
+		}
+
+		int length = search(start, goal);
+
+		int[] path = null;
+
+		if (length > 0) {
+			path = new int[length];
+
+			int node = goal;
+
+			for (int i = length - 1; i >= 0; i--) {
+				path[i] = node;
+
+				node = parent[node];
+			}
+		}
+
+		cacheKeys[slot] = key;
+
+		cachePaths[slot] = path;
+
+		return path;
+	}
+
+	/**
+	 * This method is responsible for returning a path between two pixel
+	 * positions, see {@link NavGraph#nodeAtPixel}.
+	 *
+	 * @return The nodes along the path, or null if there is no path
+	 */
+	public int[] getPath(float startX, float startY, float goalX, float goalY) {
+		graph.update();
+
+		return getPath(graph.nodeAtPixel(startX, startY), graph.nodeAtPixel(goalX, goalY));
+	}
+
+	/**
+	 * This method is responsible for running A* from 'start' to 'goal'. The route
+	 * can be followed back through the parent array afterwards.
+	 *
+	 * @param start The node to start from
+	 * @param goal  The node to reach
+	 * @return The number of nodes on the path, or 0 if there is no path
+	 */
+	private int search(int start, int goal) {
+		ensureCapacity(graph.getNodeCount());
+
+		searches++;
+
+		if (++stamp == 0) {
+			// The stamp has wrapped around, old entries could now match so clear them
+			Arrays.fill(seenStamp, 0);
+
+			Arrays.fill(closedStamp, 0);
+
+			stamp = 1;
+		}
+
+		heapSize = 0;
+
+		int goalX = graph.getNodeX(goal);
+
+		int goalY = graph.getNodeY(goal);
+
+		open(start, 0, heuristic(start, goalX, goalY), -1);
+
+		while (heapSize > 0) {
+			int current = pop();
+
+			if (current == goal) {
+				int length = 0;
+
+				for (int n = goal; n >= 0; n = parent[n]) {
+					length++;
+				}
+
+				return length;
+			}
+
+			closedStamp[current] = stamp;
+
+			for (int e = graph.getEdgeStart(current); e < graph.getEdgeEnd(current); e++) {
+				int next = graph.getEdgeTarget(e);
+
+				if (closedStamp[next] == stamp) {
+					continue;
+				}
+
+				int g = gScore[current] + graph.getEdgeCost(e);
+
+				if (seenStamp[next] != stamp || g < gScore[next]) {
+					open(next, g, g + heuristic(next, goalX, goalY), current);
+				}
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * @return The estimated cost from 'node' to the goal, the manhattan distance in
+	 *         tiles. No edge costs less than the tiles it covers so this never
+	 *         overestimates.
+	 */
+	private int heuristic(int node, int goalX, int goalY) {
+		return Math.abs(graph.getNodeX(node) - goalX) + Math.abs(graph.getNodeY(node) - goalY);
+	}
+
+	/**
+	 * This method is responsible for adding a node to the open set, or moving it
+	 * up the heap if a cheaper route to it has been found.
+	 */
+	private void open(int node, int g, int f, int from) {
+		gScore[node] = g;
+
+		fScore[node] = f;
+
+		parent[node] = from;
+
+		int i;
+
+		if (seenStamp[node] != stamp) {
+			seenStamp[node] = stamp;
+
+			i = heapSize++;
+		} else {
+			i = heapIndex[node];
+		}
+
+		// Sift up
+		while (i > 0) {
+			int up = (i - 1) >> 1;
+
+			if (fScore[heap[up]] <= f) {
+				break;
+			}
+
+			heap[i] = heap[up];
+
+			heapIndex[heap[i]] = i;
+
+			i = up;
+		}
+
+		heap[i] = node;
+
+		heapIndex[node] = i;
+	}
+
+	/**
+	 * This method is responsible for removing and returning the node with the
+	 * lowest fScore from the open set.
+	 */
+	private int pop() {
+		int top = heap[0];
+
+		int last = heap[--heapSize];
+
+		int f = fScore[last];
+
+		int i = 0;
+
+		// Sift down
+		while (true) {
+			int child = 2 * i + 1;
+
+			if (child >= heapSize) {
+				break;
+			}
+
+			if (child + 1 < heapSize && fScore[heap[child + 1]] < fScore[heap[child]]) {
+				child++;
+			}
+
+			if (fScore[heap[child]] >= f) {
+				break;
+			}
+
+			heap[i] = heap[child];
+
+			heapIndex[heap[i]] = i;
+
+			i = child;
+		}
+
+		if (heapSize > 0) {
+			heap[i] = last;
+
+			heapIndex[last] = i;
+		}
+
+		return top;
+	}
+
+	/**
+	 * This method is responsible for growing the search arrays to fit the graph.
+	 */
+	private void ensureCapacity(int nodes) {
+		if (gScore.length >= nodes) {
+			return;
+		}
+
+		gScore = new int[nodes];
+
+		fScore = new int[nodes];
+
+		parent = new int[nodes];
+
+		seenStamp = new int[nodes];
+
+		closedStamp = new int[nodes];
+
+		heap = new int[nodes];
+
+		heapIndex = new int[nodes];
+
+		stamp = 0;
+	}
+
+	/**
+	 * @return The number of searches that were actually run rather than answered
+	 *         from the cache
+	 */
+	public long getSearchCount() {
+		return searches;
+	}
+
+	/**
+	 * @return The graph being searched
+	 */
+	public NavGraph getGraph() {
+		return graph;
+	}
+}
@@ -0,0 +1,34 @@
+package com.hyperconix.game2D;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for one phase of a frame timed by
+ * a {@link FrameProfiler}, such as update, drawing the tiles or presenting the
+ * frame. A phase that runs more than once in a frame has an event each time.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.Phase")
+@Label("Frame Phase")
+@Category({ "PunchMan", "Game Loop" })
+@Description("One phase of a frame, such as update or drawing the tiles")
+public class PhaseEvent extends Event {
+
+	/**
+	 * Responsible for storing the name of the profiler the phase was timed by.
+	 */
+	@Label("Loop")
+	String loop;
+
+	/**
+	 * Responsible for storing the name of the phase.
+	 */
+	@Label("Phase")
+	String phase;
+}
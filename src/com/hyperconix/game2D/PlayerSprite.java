@@ -3,6 +3,10 @@
  */
 package com.hyperconix.game2D;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This class is responsible for further encapsulating details
  * about the "Player" in Punch Man. For example, it makes more sense in OOP that
@@ -202,4 +206,36 @@ public class PlayerSprite extends Sprite
 		this.diamonds = diamonds;
 	}
 	
+	/**
+	 * This method is responsible for writing the state of the player, the
+	 * sprite state followed by the player's counters and flags.
+	 */
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(hits);
+		out.writeInt(lives);
+		out.writeInt(diamonds);
+		out.writeBoolean(movingLeft);
+		out.writeBoolean(movingRight);
+		out.writeBoolean(jumping);
+		out.writeBoolean(attacking);
+	}
+	
+	/**
+	 * This method is responsible for reading back the state of the player from
+	 * a stream written by writeState().
+	 */
+	@Override
+	public void readState(DataInput in) throws IOException {
+		super.readState(in);
+		hits = in.readInt();
+		lives = in.readInt();
+		diamonds = in.readInt();
+		movingLeft = in.readBoolean();
+		movingRight = in.readBoolean();
+		jumping = in.readBoolean();
+		attacking = in.readBoolean();
+	}
+	
 }
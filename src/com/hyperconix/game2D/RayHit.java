@@ -0,0 +1,99 @@
+package com.hyperconix.game2D;
+
+/**
+ * This class holds the result of a ray cast or sweep against a TileMap. It is
+ * filled in by the query rather than created by it, so the same instance can
+ * be reused for every query in a tick.
+ *
+ * @author Luke S
+ *
+ */
+public class RayHit {
+
+	/**
+	 * Responsible for storing the tile that was hit.
+	 */
+	private int tileX, tileY;
+
+	/**
+	 * Responsible for storing the pixel position the hit happened at, for a
+	 * sweep this is the top left of the box when it touches the tile.
+	 */
+	private float x, y;
+
+	/**
+	 * Responsible for storing how far along the ray or sweep the hit happened,
+	 * from 0 at the start to 1 at the end.
+	 */
+	private float fraction;
+
+	/**
+	 * Responsible for storing the side of the tile that was hit, as a unit
+	 * normal pointing back towards where the ray came from.
+	 */
+	private int normalX, normalY;
+
+	/**
+	 * This method is responsible for filling in the result.
+	 */
+	void set(int tileX, int tileY, float x, float y, float fraction, int normalX, int normalY) {
+		this.tileX = tileX;
+		this.tileY = tileY;
+		this.x = x;
+		this.y = y;
+		this.fraction = fraction;
+		this.normalX = normalX;
+		this.normalY = normalY;
+	}
+
+	/**
+	 * @return The x tile coordinate of the tile that was hit
+	 */
+	public int getTileX() {
+		return tileX;
+	}
+
+	/**
+	 * @return The y tile coordinate of the tile that was hit
+	 */
+	public int getTileY() {
+		return tileY;
+	}
+
+	/**
+	 * @return The x pixel coordinate the hit happened at, for a sweep the left of
+	 *         the box when it touches the tile
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * @return The y pixel coordinate the hit happened at, for a sweep the top of
+	 *         the box when it touches the tile
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * @return How far along the ray or sweep the hit happened, from 0 to 1
+	 */
+	public float getFraction() {
+		return fraction;
+	}
+
+	/**
+	 * @return The x part of the normal of the side that was hit (-1, 0 or 1)
+	 */
+	public int getNormalX() {
+		return normalX;
+	}
+
+	/**
+	 * @return The y part of the normal of the side that was hit (-1, 0 or 1)
+	 */
+	public int getNormalY() {
+		return normalY;
+	}
+}
@@ -0,0 +1,432 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * This class represents a snapshot of everything that is needed to draw a
+ * frame of the game. The simulation fills one of these in after each update
+ * and the renderer only ever draws from a complete snapshot, which means the
+ * update and draw can run on separate threads without the renderer seeing a
+ * half updated world.
+ * <br><br>
+ * Sprites are recorded in the order they are added, along with their image,
+ * position and transform at the time of the capture. The tile map is copied
+ * only when it has changed since the last capture, and a small array of
+ * counters is available for anything else the game wants to show (HUD values
+ * for example). The meaning of the counters is left up to the game.
+ * <br><br>
+ * Instances are meant to be reused, all of the arrays only grow, so a steady
+ * state capture does not allocate.
+ *
+ * @author Luke S
+ *
+ */
+public class RenderState {
+
+	/**
+	 * Responsible for storing the number of counters a snapshot can hold.
+	 */
+	public static final int MAX_COUNTERS = 16;
+
+	/**
+	 * Responsible for storing the initial capacity of the sprite arrays.
+	 */
+	private static final int INITIAL_SPRITES = 16;
+
+	/**
+	 * Responsible for storing the status of the game, the meaning is up to the
+	 * game.
+	 */
+	private int status;
+
+	/**
+	 * Responsible for storing a copy of the camera at the time of the capture,
+	 * and the offsets the world is drawn at, which move the camera's view to the
+	 * top left of the back buffer.
+	 */
+	private final Camera camera = new Camera(0, 0);
+
+	private int offsetX, offsetY;
+
+	/**
+	 * Responsible for storing a flag which indicates whether debug information
+	 * should be drawn.
+	 */
+	private boolean debug;
+
+	/**
+	 * Responsible for storing a flag which indicates whether this snapshot has
+	 * been filled in at least once.
+	 */
+	private boolean ready;
+
+	/**
+	 * Responsible for storing the counters that are available to the game.
+	 */
+	private final long[] counters = new long[MAX_COUNTERS];
+
+	/**
+	 * Responsible for storing the number of sprites that were recorded.
+	 */
+	private int spriteCount;
+
+	/**
+	 * Responsible for storing the recorded sprite state, one entry per sprite.
+	 */
+	private Image[] images = new Image[INITIAL_SPRITES];
+	private float[] xs = new float[INITIAL_SPRITES];
+	private float[] ys = new float[INITIAL_SPRITES];
+	private int[] widths = new int[INITIAL_SPRITES];
+	private int[] heights = new int[INITIAL_SPRITES];
+	private double[] scaleXs = new double[INITIAL_SPRITES];
+	private double[] scaleYs = new double[INITIAL_SPRITES];
+	private double[] rotations = new double[INITIAL_SPRITES];
+	private boolean[] visible = new boolean[INITIAL_SPRITES];
+
+	/**
+	 * Responsible for storing the map the tiles should be drawn with, null if no
+	 * tiles were captured this time.
+	 */
+	private TileMap tileMap;
+
+	/**
+	 * Responsible for storing the map the current copy of the tiles came from.
+	 */
+	private TileMap tileSource;
+
+	/**
+	 * Responsible for storing the copy of the tile characters.
+	 */
+	private char[] tiles = new char[0];
+
+	/**
+	 * Responsible for storing the version of the map the tiles were copied at.
+	 */
+	private int tileVersion = -1;
+
+	/**
+	 * Responsible for storing the transform used when drawing sprites, this is
+	 * reused rather than creating one per sprite.
+	 */
+	private final AffineTransform transform = new AffineTransform();
+
+	/**
+	 * This method is responsible for starting a new capture. Any previously
+	 * recorded sprites are discarded, the copied tiles are kept so they only
+	 * need to be copied again if the map changes.
+	 */
+	public void begin() {
+		spriteCount = 0;
+
+		tileMap = null;
+
+		debug = false;
+	}
+
+	/**
+	 * This method is responsible for marking the capture as complete.
+	 */
+	public void end() {
+		ready = true;
+	}
+
+	/**
+	 * @return {@code true} if this snapshot has been captured at least once,
+	 *         {@code false} otherwise
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @param status The status of the game at the time of the capture
+	 */
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return The status of the game at the time of the capture
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * This method is responsible for recording the camera the world should be
+	 * drawn from.
+	 *
+	 * @param camera The camera, which is copied
+	 */
+	public void setCamera(Camera camera) {
+		this.camera.copyFrom(camera);
+
+		offsetX = -camera.getViewX();
+
+		offsetY = -camera.getViewY();
+	}
+
+	/**
+	 * @return The camera the world should be drawn from, as it was at the time of
+	 *         the capture
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * @return The x offset the world should be drawn at
+	 */
+	public int getOffsetX() {
+		return offsetX;
+	}
+
+	/**
+	 * @return The y offset the world should be drawn at
+	 */
+	public int getOffsetY() {
+		return offsetY;
+	}
+
+	/**
+	 * @param debug Whether or not debug information should be drawn
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * @return {@code true} if debug information should be drawn, {@code false}
+	 *         otherwise
+	 */
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * This method is responsible for setting a counter.
+	 *
+	 * @param index The index of the counter
+	 * @param value The value to store
+	 */
+	public void setCounter(int index, long value) {
+		counters[index] = value;
+	}
+
+	/**
+	 * This method is responsible for returning a counter.
+	 *
+	 * @param index The index of the counter
+	 * @return The value that was stored
+	 */
+	public long getCounter(int index) {
+		return counters[index];
+	}
+
+	/**
+	 * This method is responsible for recording the current state of a sprite.
+	 * Hidden sprites are still recorded so that the index of a sprite does not
+	 * depend on its visibility, they are just skipped when drawing.
+	 *
+	 * @param s The sprite to record
+	 * @return The index the sprite was recorded at
+	 */
+	public int addSprite(Sprite s) {
+		if (spriteCount == images.length) {
+			grow();
+		}
+
+		int i = spriteCount++;
+
+		visible[i] = s.isVisible();
+
+		images[i] = s.getImage();
+
+		xs[i] = s.getX();
+
+		ys[i] = s.getY();
+
+		widths[i] = s.getWidth();
+
+		heights[i] = s.getHeight();
+
+		scaleXs[i] = s.getScaleX();
+
+		scaleYs[i] = s.getScaleY();
+
+		rotations[i] = Math.toRadians(s.getRotation());
+
+		return i;
+	}
+
+	/**
+	 * @return The number of sprites that were recorded
+	 */
+	public int getSpriteCount() {
+		return spriteCount;
+	}
+
+	/**
+	 * This method is responsible for recording the tiles of the given map. The
+	 * tiles are only copied if the map has changed since they were last copied.
+	 *
+	 * @param map The map to record
+	 */
+	public void captureTiles(TileMap map) {
+		if (map != tileSource || map.getVersion() != tileVersion) {
+			int size = map.getMapWidth() * map.getMapHeight();
+
+			if (tiles.length != size) {
+				tiles = new char[size];
+			}
+
+			map.copyTiles(tiles);
+
+			tileVersion = map.getVersion();
+
+			tileSource = map;
+		}
+
+		tileMap = map;
+	}
+
+	/**
+	 * This method is responsible for drawing the recorded tiles at the recorded
+	 * offsets.
+	 *
+	 * @param g The graphics object to draw on
+	 */
+	public void drawTiles(Graphics2D g) {
+		if (tileMap == null) {
+			return;
+		}
+
+		tileMap.draw(g, offsetX, offsetY, tiles);
+	}
+
+	/**
+	 * This method is responsible for drawing the recorded tiles at the recorded
+	 * offsets with a renderer.
+	 *
+	 * @param r The renderer to draw with
+	 */
+	public void drawTiles(Renderer r) {
+		if (tileMap == null) {
+			return;
+		}
+
+		tileMap.draw(r, offsetX, offsetY, tiles);
+	}
+
+	/**
+	 * This method is responsible for drawing a recorded sprite with a renderer.
+	 * The sprite is drawn from a copy of its image at its scale, mirrored by the
+	 * renderer if it is flipped left to right. Rotated sprites, and sprites
+	 * flipped upside down, are drawn through the renderer's graphics object
+	 * instead.
+	 *
+	 * @param r The renderer to draw with
+	 * @param i The index of the sprite
+	 */
+	public void drawSprite(Renderer r, int i) {
+		if (!visible[i] || images[i] == null) {
+			return;
+		}
+
+		if (rotations[i] == 0 && scaleYs[i] > 0) {
+			Image scaled = ScaledImages.scaled(images[i], Math.abs(scaleXs[i]), scaleYs[i]);
+
+			if (scaled != null) {
+				r.drawImage(scaled, Math.round(xs[i]) + offsetX, Math.round(ys[i]) + offsetY, scaleXs[i] < 0);
+
+				return;
+			}
+		}
+
+		drawSprite(r.getGraphics(), i);
+	}
+
+	/**
+	 * This method is responsible for drawing a recorded sprite with its scale and
+	 * rotation applied, in the same way as {@link Sprite#drawTransformed}.
+	 *
+	 * @param g The graphics object to draw on
+	 * @param i The index of the sprite
+	 */
+	public void drawSprite(Graphics2D g, int i) {
+		if (!visible[i] || images[i] == null) {
+			return;
+		}
+
+		Image img = images[i];
+
+		// Unrotated sprites are drawn from a scaled copy of the image rather than
+		// through a transform, which Java2D can do without allocating
+		if (rotations[i] == 0 && ScaledImages.draw(g, img, Math.round(xs[i]) + offsetX, Math.round(ys[i]) + offsetY,
+				scaleXs[i], scaleYs[i])) {
+			return;
+		}
+
+		float shiftx = scaleXs[i] < 0 ? widths[i] : 0;
+
+		float shifty = scaleYs[i] < 0 ? heights[i] : 0;
+
+		transform.setToTranslation(Math.round(xs[i]) + shiftx + offsetX, Math.round(ys[i]) + shifty + offsetY);
+
+		transform.scale(scaleXs[i], scaleYs[i]);
+
+		transform.rotate(rotations[i], img.getWidth(null) / 2, img.getHeight(null) / 2);
+
+		g.drawImage(img, transform, null);
+	}
+
+	/**
+	 * This method is responsible for drawing the bounding box of a recorded
+	 * sprite using the current colour.
+	 *
+	 * @param g The graphics object to draw on
+	 * @param i The index of the sprite
+	 */
+	public void drawBoundingBox(Graphics2D g, int i) {
+		if (!visible[i]) {
+			return;
+		}
+
+		g.drawRect((int) xs[i] + offsetX, (int) ys[i] + offsetY, widths[i], heights[i]);
+	}
+
+	/**
+	 * This method is responsible for drawing the bounding circle of a recorded
+	 * sprite using the current colour.
+	 *
+	 * @param g The graphics object to draw on
+	 * @param i The index of the sprite
+	 */
+	public void drawBoundingCircle(Graphics2D g, int i) {
+		if (!visible[i]) {
+			return;
+		}
+
+		g.drawArc((int) xs[i] + offsetX, (int) ys[i] + offsetY, widths[i], heights[i], 0, 360);
+	}
+
+	/**
+	 * This method is responsible for doubling the capacity of the sprite arrays.
+	 */
+	private void grow() {
+		int capacity = images.length * 2;
+
+		images = Arrays.copyOf(images, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		widths = Arrays.copyOf(widths, capacity);
+		heights = Arrays.copyOf(heights, capacity);
+		scaleXs = Arrays.copyOf(scaleXs, capacity);
+		scaleYs = Arrays.copyOf(scaleYs, capacity);
+		rotations = Arrays.copyOf(rotations, capacity);
+		visible = Arrays.copyOf(visible, capacity);
+	}
+}
@@ -0,0 +1,78 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+
+/**
+ * This represents something that draws the images of a frame, the tiles,
+ * sprites and background layers, into the back buffer. How it does so is left
+ * to each backend: {@link Java2DRenderer} draws through Java2D as the game
+ * always has, {@link SoftwareRenderer} copies the pixels itself.
+ * <br><br>
+ * Anything a renderer cannot draw itself, such as text, shapes or a rotated
+ * sprite, is drawn through {@link #getGraphics()}, which draws on the same
+ * back buffer. Everything is drawn in the order it is asked for, whichever way
+ * it is drawn. A renderer may hold on to images until {@link #flush()}, so it
+ * must be flushed before the back buffer is drawn on in any other way, or
+ * shown.
+ *
+ * @author Luke S
+ *
+ */
+public interface Renderer {
+
+	/**
+	 * This method is responsible for drawing an image at its normal size.
+	 *
+	 * @param image The image to draw
+	 * @param x     The left of the image
+	 * @param y     The top of the image
+	 */
+	void drawImage(Image image, int x, int y);
+
+	/**
+	 * This method is responsible for drawing an image at its normal size,
+	 * optionally mirrored left to right. A mirrored image still covers from
+	 * (x, y) to the right and down.
+	 *
+	 * @param image   The image to draw
+	 * @param x       The left of the image
+	 * @param y       The top of the image
+	 * @param flipped {@code true} to mirror the image left to right
+	 */
+	void drawImage(Image image, int x, int y, boolean flipped);
+
+	/**
+	 * This method is responsible for limiting drawing to a rectangle of the back
+	 * buffer.
+	 *
+	 * @param x      The left of the rectangle
+	 * @param y      The top of the rectangle
+	 * @param width  The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	void setClip(int x, int y, int width, int height);
+
+	/**
+	 * This method is responsible for getting the rectangle drawing is limited
+	 * to.
+	 *
+	 * @param bounds The rectangle to fill in
+	 * @return The rectangle that was filled in
+	 */
+	Rectangle getClipBounds(Rectangle bounds);
+
+	/**
+	 * @return The graphics object that draws on the same back buffer, for
+	 *         anything the renderer cannot draw itself, once everything asked
+	 *         for so far has been drawn
+	 */
+	Graphics2D getGraphics();
+
+	/**
+	 * This method is responsible for making sure everything asked for so far has
+	 * been drawn into the back buffer.
+	 */
+	void flush();
+}
@@ -0,0 +1,267 @@
+package com.hyperconix.game2D;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class holds a recorded session: the fixed tick length the session ran
+ * at, every input command that was applied and the tick it was applied on, and
+ * the number of ticks the session lasted. Together with a {@link Simulation}
+ * that starts in the same state, this is enough to play the session back
+ * exactly.
+ * <br><br>
+ * The log is saved in a compact binary format. Ticks are stored as the
+ * difference from the previous command and both ticks and commands are written
+ * as variable length numbers, so most entries take two or three bytes.
+ *
+ * @author Luke S
+ *
+ */
+public class ReplayLog {
+
+	/**
+	 * Responsible for storing the number every log file starts with ("PMRP").
+	 */
+	private static final int MAGIC = 0x504D5250;
+
+	/**
+	 * Responsible for storing the version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Responsible for storing the length of a tick in milliseconds.
+	 */
+	private final int tickMillis;
+
+	/**
+	 * Responsible for storing the tick each command was applied on, and the
+	 * commands themselves.
+	 */
+	private long[] ticks = new long[64];
+	private int[] commands = new int[64];
+
+	/**
+	 * Responsible for storing the number of commands in the log.
+	 */
+	private int count;
+
+	/**
+	 * Responsible for storing the number of ticks the session lasted.
+	 */
+	private long endTick;
+
+	/**
+	 * Creates an empty ReplayLog.
+	 *
+	 * @param tickMillis The length of a tick in milliseconds
+	 */
+	public ReplayLog(int tickMillis) {
+		this.tickMillis = tickMillis;
+	}
+
+	/**
+	 * This method is responsible for recording that a command was applied on the
+	 * given tick. Commands must be recorded in the order they were applied.
+	 *
+	 * @param tick    The tick the command was applied on
+	 * @param command The command, see {@link InputCommand}
+	 */
+	public synchronized void record(long tick, int command) {
+		if (count > 0 && tick < ticks[count - 1]) {
+			throw new IllegalArgumentException("Commands must be recorded in tick order");
+		}
+
+		if (count == ticks.length) {
+			ticks = Arrays.copyOf(ticks, count * 2);
+
+			commands = Arrays.copyOf(commands, count * 2);
+		}
+
+		ticks[count] = tick;
+
+		commands[count++] = command;
+
+		endTick = Math.max(endTick, tick + 1);
+	}
+
+	/**
+	 * This method is responsible for setting how many ticks the session lasted.
+	 *
+	 * @param endTick The number of ticks
+	 */
+	public synchronized void setEndTick(long endTick) {
+		this.endTick = Math.max(endTick, count > 0 ? ticks[count - 1] + 1 : 0);
+	}
+
+	/**
+	 * @return The number of ticks the session lasted
+	 */
+	public synchronized long getEndTick() {
+		return endTick;
+	}
+
+	/**
+	 * @return The length of a tick in milliseconds
+	 */
+	public int getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * @return The number of commands in the log
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * @param i The index of the command, from 0 to size() - 1
+	 * @return The tick the i'th command was applied on
+	 */
+	public synchronized long getTick(int i) {
+		return ticks[i];
+	}
+
+	/**
+	 * @param i The index of the command, from 0 to size() - 1
+	 * @return The i'th command
+	 */
+	public synchronized int getCommand(int i) {
+		return commands[i];
+	}
+
+	/**
+	 * This method is responsible for finding the first command applied on or
+	 * after the given tick.
+	 *
+	 * @param tick The tick to look for
+	 * @return The index of the command, or size() if there is none
+	 */
+	public synchronized int firstCommandAt(long tick) {
+		int low = 0;
+
+		int high = count;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (ticks[mid] < tick) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * This method is responsible for saving the log to a file.
+	 *
+	 * @param file The file to save to
+	 * @throws IOException If the file cannot be written
+	 */
+	public synchronized void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+
+			out.writeByte(VERSION);
+
+			writeVarLong(out, tickMillis);
+
+			writeVarLong(out, endTick);
+
+			writeVarLong(out, count);
+
+			long last = 0;
+
+			for (int i = 0; i < count; i++) {
+				writeVarLong(out, ticks[i] - last);
+
+				writeVarLong(out, commands[i] & 0xFFFFFFFFL);
+
+				last = ticks[i];
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for loading a log that was saved with save().
+	 *
+	 * @param file The file to load
+	 * @return The log
+	 * @throws IOException If the file cannot be read or is not a replay log
+	 */
+	public static ReplayLog load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a replay log");
+			}
+
+			int version = in.readUnsignedByte();
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported replay log version " + version);
+			}
+
+			ReplayLog log = new ReplayLog((int) readVarLong(in));
+
+			long endTick = readVarLong(in);
+
+			long entries = readVarLong(in);
+
+			long tick = 0;
+
+			for (long i = 0; i < entries; i++) {
+				tick += readVarLong(in);
+
+				log.record(tick, (int) readVarLong(in));
+			}
+
+			log.setEndTick(endTick);
+
+			return log;
+		}
+	}
+
+	/**
+	 * This method is responsible for writing a number that is not negative using
+	 * 7 bits per byte, the top bit of each byte saying whether another follows.
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+
+			value >>>= 7;
+		}
+
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * This method is responsible for reading a number written by writeVarLong().
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+
+			value |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed number in replay log");
+	}
+}
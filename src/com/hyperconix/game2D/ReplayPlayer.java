@@ -0,0 +1,219 @@
+package com.hyperconix.game2D;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * This class plays a {@link ReplayLog} back through a {@link Simulation}. The
+ * simulation is stepped one fixed tick at a time with no waiting between
+ * ticks, so a session plays back as fast as the simulation can run, and the
+ * commands in the log are applied on exactly the ticks they were recorded on.
+ * <br><br>
+ * Every so many ticks the state of the simulation is saved as a keyframe. To
+ * seek, the player goes back to the nearest keyframe at or before the target
+ * and plays forward from there, so jumping around a long session only ever
+ * replays at most one keyframe interval. Keyframes are made the first time
+ * playback passes them, the log does not need to contain any.
+ * <br><br>
+ * The simulation must be in the same state it was in when recording started
+ * when the player is created.
+ *
+ * @author Luke S
+ *
+ */
+public class ReplayPlayer {
+
+	/**
+	 * Responsible for storing the simulation being played.
+	 */
+	private final Simulation simulation;
+
+	/**
+	 * Responsible for storing the log being played.
+	 */
+	private final ReplayLog log;
+
+	/**
+	 * Responsible for storing the number of ticks between keyframes.
+	 */
+	private final int keyframeInterval;
+
+	/**
+	 * Responsible for storing the keyframes, keyframe i is the state before tick
+	 * i * keyframeInterval was run.
+	 */
+	private byte[][] keyframes = new byte[16][];
+
+	/**
+	 * Responsible for storing the next tick to run.
+	 */
+	private long tick;
+
+	/**
+	 * Responsible for storing the index of the next command in the log.
+	 */
+	private int nextCommand;
+
+	/**
+	 * Responsible for storing the buffer keyframes are written into.
+	 */
+	private final ByteArrayOutputStream keyframeBuffer = new ByteArrayOutputStream();
+
+	/**
+	 * Creates the state of a ReplayPlayer and saves the first keyframe.
+	 *
+	 * @param simulation       The simulation to play the log through, in its
+	 *                         starting state
+	 * @param log              The log to play
+	 * @param keyframeInterval The number of ticks between keyframes
+	 */
+	public ReplayPlayer(Simulation simulation, ReplayLog log, int keyframeInterval) {
+		if (keyframeInterval <= 0) {
+			throw new IllegalArgumentException("The keyframe interval must be at least 1 tick");
+		}
+
+		this.simulation = simulation;
+
+		this.log = log;
+
+		this.keyframeInterval = keyframeInterval;
+
+		saveKeyframe(0);
+	}
+
+	/**
+	 * This method is responsible for running the next tick, applying any commands
+	 * that were recorded on it first.
+	 *
+	 * @return {@code true} if a tick was run, {@code false} if the end of the log
+	 *         has been reached
+	 */
+	public boolean step() {
+		if (tick >= log.getEndTick()) {
+			return false;
+		}
+
+		while (nextCommand < log.size() && log.getTick(nextCommand) == tick) {
+			simulation.applyCommand(log.getCommand(nextCommand++));
+		}
+
+		simulation.tick(log.getTickMillis());
+
+		tick++;
+
+		if (tick % keyframeInterval == 0) {
+			int index = (int) (tick / keyframeInterval);
+
+			if (index >= keyframes.length || keyframes[index] == null) {
+				saveKeyframe(index);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for moving playback to the given tick, going
+	 * back to a keyframe first if the tick has already been passed or a keyframe
+	 * is closer than the current tick.
+	 *
+	 * @param target The tick to move to, this is clamped to the length of the log
+	 */
+	public void seek(long target) {
+		target = Math.max(0, Math.min(target, log.getEndTick()));
+
+		// The latest keyframe we have at or before the target
+		int index = (int) Math.min(target / keyframeInterval, keyframes.length - 1);
+
+		while (keyframes[index] == null) {
+			index--;
+		}
+
+		long keyframeTick = (long) index * keyframeInterval;
+
+		if (target < tick || keyframeTick > tick) {
+			loadKeyframe(index);
+		}
+
+		while (tick < target && step()) {
+			// Keep stepping until we get there
+		}
+	}
+
+	/**
+	 * This method is responsible for playing the rest of the log.
+	 */
+	public void runToEnd() {
+		seek(log.getEndTick());
+	}
+
+	/**
+	 * This method is responsible for saving the current state as keyframe
+	 * 'index'.
+	 */
+	private void saveKeyframe(int index) {
+		if (index >= keyframes.length) {
+			keyframes = Arrays.copyOf(keyframes, Math.max(index + 1, keyframes.length * 2));
+		}
+
+		keyframeBuffer.reset();
+
+		try (DataOutputStream out = new DataOutputStream(keyframeBuffer)) {
+			simulation.writeState(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to save keyframe " + index, e);
+		}
+
+		keyframes[index] = keyframeBuffer.toByteArray();
+	}
+
+	/**
+	 * This method is responsible for putting the simulation back to keyframe
+	 * 'index'.
+	 */
+	private void loadKeyframe(int index) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(keyframes[index]))) {
+			simulation.readState(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to load keyframe " + index, e);
+		}
+
+		tick = (long) index * keyframeInterval;
+
+		nextCommand = log.firstCommandAt(tick);
+	}
+
+	/**
+	 * @return The next tick that will be run
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return The number of keyframes that have been saved
+	 */
+	public int getKeyframeCount() {
+		int saved = 0;
+
+		for (byte[] keyframe : keyframes) {
+			if (keyframe != null) {
+				saved++;
+			}
+		}
+
+		return saved;
+	}
+
+	/**
+	 * @return The log being played
+	 */
+	public ReplayLog getLog() {
+		return log;
+	}
+}
@@ -0,0 +1,226 @@
+package com.hyperconix.game2D;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps a histogram of the most recent durations recorded, so
+ * percentiles such as the 99th can be read at any time without sorting. Only
+ * the last 'window' durations count, when a new one is recorded the oldest is
+ * taken back out of the histogram.
+ * <br><br>
+ * Durations are counted in buckets of microseconds. Below 64 microseconds each
+ * microsecond has its own bucket, above that every doubling is split into 32
+ * buckets, so a percentile is never more than about 3% out. Everything is
+ * allocated up front, recording a duration never creates an object, and the
+ * size of the histogram does not depend on how long the game runs for.
+ * <br><br>
+ * This is not thread safe, it should be recorded into by one thread. Reading
+ * from another thread, to draw it for example, may see a duration half
+ * recorded but will not fail.
+ *
+ * @author Luke S
+ *
+ */
+public class RollingHistogram {
+
+	/**
+	 * Responsible for storing the number of buckets each doubling is split into,
+	 * as a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Responsible for storing the durations below which every microsecond has its
+	 * own bucket.
+	 */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+	/**
+	 * Responsible for storing the number of buckets, enough for durations of
+	 * about two minutes. Anything longer goes in the last bucket.
+	 */
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (27 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Responsible for storing the number of durations in each bucket.
+	 */
+	private final int[] buckets = new int[BUCKET_COUNT];
+
+	/**
+	 * Responsible for storing the most recent durations in nanoseconds, oldest
+	 * first from 'next' once the window is full.
+	 */
+	private final long[] samples;
+
+	/**
+	 * Responsible for storing the slot the next duration goes in, and the number
+	 * of durations in the window.
+	 */
+	private int next, count;
+
+	/**
+	 * Responsible for storing the total of the durations in the window, for the
+	 * mean.
+	 */
+	private long sum;
+
+	/**
+	 * Creates an empty RollingHistogram.
+	 *
+	 * @param window The number of recent durations to keep
+	 */
+	public RollingHistogram(int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("The window must hold at least one duration");
+		}
+
+		samples = new long[window];
+	}
+
+	/**
+	 * This method is responsible for recording a duration, replacing the oldest
+	 * one if the window is full.
+	 *
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+
+		if (count == samples.length) {
+			long oldest = samples[next];
+
+			buckets[bucketOf(oldest)]--;
+
+			sum -= oldest;
+		} else {
+			count++;
+		}
+
+		samples[next] = nanos;
+
+		buckets[bucketOf(nanos)]++;
+
+		sum += nanos;
+
+		next = (next + 1) % samples.length;
+	}
+
+	/**
+	 * This method is responsible for finding the duration that the given
+	 * percentage of the durations in the window are no longer than.
+	 *
+	 * @param percentile The percentile, from 0 to 100
+	 * @return The duration in nanoseconds, rounded up to the top of its bucket, or
+	 *         0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+
+		// The rank of the duration we want, counting from 1
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+
+		long seen = 0;
+
+		for (int b = 0; b < BUCKET_COUNT; b++) {
+			seen += buckets[b];
+
+			if (seen >= rank) {
+				return upperBoundOf(b) * 1000L;
+			}
+		}
+
+		return upperBoundOf(BUCKET_COUNT - 1) * 1000L;
+	}
+
+	/**
+	 * @return The mean of the durations in the window in nanoseconds, or 0 if
+	 *         nothing has been recorded
+	 */
+	public long getMean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * @return The longest duration in the window in nanoseconds, rounded up to the
+	 *         top of its bucket
+	 */
+	public long getMax() {
+		return getPercentile(100);
+	}
+
+	/**
+	 * @param age How many durations ago, 0 being the most recent
+	 * @return The duration in nanoseconds, or 0 if it is no longer in the window
+	 */
+	public long getRecent(int age) {
+		if (age < 0 || age >= count) {
+			return 0;
+		}
+
+		return samples[(next - 1 - age + samples.length * 2) % samples.length];
+	}
+
+	/**
+	 * @return The number of durations in the window
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The most durations the window can hold
+	 */
+	public int getWindow() {
+		return samples.length;
+	}
+
+	/**
+	 * This method is responsible for throwing away every duration recorded.
+	 */
+	public void clear() {
+		Arrays.fill(buckets, 0);
+
+		next = 0;
+
+		count = 0;
+
+		sum = 0;
+	}
+
+	/**
+	 * @return The bucket a duration in nanoseconds is counted in
+	 */
+	private static int bucketOf(long nanos) {
+		long micros = nanos / 1000;
+
+		if (micros < LINEAR_LIMIT) {
+			return (int) micros;
+		}
+
+		// Which doubling the duration is in, and where in that doubling it is
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+
+		int bucket = LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+
+		return Math.min(bucket, BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * @return The longest duration in microseconds counted in bucket 'b'
+	 */
+	private static long upperBoundOf(int b) {
+		if (b < LINEAR_LIMIT) {
+			return b;
+		}
+
+		int shift = (b - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+
+		long sub = (b - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,156 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is responsible for keeping a scaled and mirrored copy of each
+ * image a sprite is drawn with. Java2D allocates a few kilobytes every time it
+ * draws an image through a transform that scales or flips it, whereas drawing
+ * an image at a position does not allocate at all. Sprites are drawn scaled,
+ * and flipped when they face left, every frame, so each image is scaled once
+ * for each scale it is drawn at, the first time it is needed, and the copy is
+ * drawn from then on. Copies are scaled with nearest neighbour sampling, the
+ * same as drawing through the transform, so they look exactly the same.
+ * <br><br>
+ * Copies are kept for as long as the game runs, which suits the fixed set of
+ * animation frames and scales the game uses. A copy is a still image, so an
+ * animated GIF drawn scaled would stop on the frame it was copied at, images
+ * drawn at their normal size are drawn as they are. This can be used from any
+ * thread.
+ *
+ * @author Luke S
+ *
+ */
+public final class ScaledImages {
+
+	/**
+	 * This class is one scaled copy of an image.
+	 */
+	private static final class Copy {
+
+		/**
+		 * Responsible for storing the scale the copy was made at, and the copy.
+		 */
+		private final double scaleX, scaleY;
+
+		private final Image image;
+
+		private Copy(double scaleX, double scaleY, Image image) {
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+			this.image = image;
+		}
+	}
+
+	/**
+	 * Responsible for storing the copies made of each image.
+	 */
+	private static final ConcurrentHashMap<Image, Copy[]> copies = new ConcurrentHashMap<Image, Copy[]>();
+
+	private ScaledImages() {
+	}
+
+	/**
+	 * This method is responsible for drawing an image scaled about its top left
+	 * corner, without going through a transform. A negative scale mirrors the
+	 * image, and it is still drawn from (x, y) to the right and down.
+	 *
+	 * @param g      The graphics object to draw on
+	 * @param img    The image to draw
+	 * @param x      The left of the image once drawn
+	 * @param y      The top of the image once drawn
+	 * @param scaleX The scale across, negative to mirror left to right
+	 * @param scaleY The scale down, negative to mirror top to bottom
+	 * @return {@code true} if the image was drawn, {@code false} if it has not
+	 *         finished loading and so could not be scaled yet
+	 */
+	public static boolean draw(Graphics2D g, Image img, int x, int y, double scaleX, double scaleY) {
+		if (scaleX == 1 && scaleY == 1) {
+			g.drawImage(img, x, y, null);
+
+			return true;
+		}
+
+		Image copy = get(img, scaleX, scaleY);
+
+		if (copy == null) {
+			return false;
+		}
+
+		g.drawImage(copy, x, y, null);
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for getting an image scaled about its top left
+	 * corner, for drawing without a transform.
+	 *
+	 * @param img    The image to scale
+	 * @param scaleX The scale across, negative to mirror left to right
+	 * @param scaleY The scale down, negative to mirror top to bottom
+	 * @return The image itself at a scale of 1, otherwise its scaled copy, or
+	 *         null if it has not finished loading and so could not be scaled yet
+	 */
+	public static Image scaled(Image img, double scaleX, double scaleY) {
+		if (scaleX == 1 && scaleY == 1) {
+			return img;
+		}
+
+		return get(img, scaleX, scaleY);
+	}
+
+	/**
+	 * @return The copy of 'img' at the given scale, made now if there is not one
+	 *         yet, or null if the image has not finished loading
+	 */
+	private static Image get(Image img, double scaleX, double scaleY) {
+		Copy[] made = copies.get(img);
+
+		if (made != null) {
+			for (Copy copy : made) {
+				if (copy.scaleX == scaleX && copy.scaleY == scaleY) {
+					return copy.image;
+				}
+			}
+		}
+
+		int width = img.getWidth(null);
+
+		int height = img.getHeight(null);
+
+		int scaledWidth = (int) (width * Math.abs(scaleX));
+
+		int scaledHeight = (int) (height * Math.abs(scaleY));
+
+		if (width <= 0 || height <= 0 || scaledWidth <= 0 || scaledHeight <= 0) {
+			return null;
+		}
+
+		BufferedImage scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D g = scaled.createGraphics();
+
+		g.drawImage(img, scaleX < 0 ? scaledWidth : 0, scaleY < 0 ? scaledHeight : 0, scaleX < 0 ? 0 : scaledWidth,
+				scaleY < 0 ? 0 : scaledHeight, 0, 0, width, height, null);
+
+		g.dispose();
+
+		Copy copy = new Copy(scaleX, scaleY, scaled);
+
+		// Another thread may have added a copy meanwhile, so add to whatever is there
+		copies.merge(img, new Copy[] { copy }, (existing, added) -> {
+			Copy[] both = Arrays.copyOf(existing, existing.length + 1);
+
+			both[existing.length] = added[0];
+
+			return both;
+		});
+
+		return scaled;
+	}
+}
@@ -0,0 +1,29 @@
+package com.hyperconix.game2D;
+
+/**
+ * This represents a game simulation that can be driven one fixed tick at a
+ * time without a window, which is what a {@link ReplayPlayer} needs to replay
+ * a recorded session. Given the same starting state, the same commands and the
+ * same ticks, a simulation must always end up in the same state, and its
+ * state must be complete enough to be saved and restored as a keyframe.
+ *
+ * @author Luke S
+ *
+ */
+public interface Simulation extends Stateful {
+
+	/**
+	 * This applies an input command, see {@link InputCommand}. Commands for a
+	 * tick are applied before the tick is run.
+	 *
+	 * @param command The command to apply
+	 */
+	void applyCommand(int command);
+
+	/**
+	 * This advances the simulation by one tick.
+	 *
+	 * @param elapsed The length of the tick in milliseconds
+	 */
+	void tick(long elapsed);
+}
@@ -0,0 +1,199 @@
+package com.hyperconix.game2D;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * This class holds the state of a {@link Stateful} as bytes, so it can be put
+ * back exactly later on. The same buffer is used every time a snapshot is
+ * captured and is only made bigger when a state no longer fits, so once a
+ * snapshot has been used a few times capturing and restoring it does not
+ * create any objects, and takes about as long as copying the bytes.
+ * <br><br>
+ * A snapshot can also be written into another stream, so snapshots can be
+ * kept as part of a larger state such as a replay keyframe.
+ *
+ * @author Luke S
+ *
+ */
+public class Snapshot {
+
+	/**
+	 * Responsible for storing the bytes of the captured state.
+	 */
+	private final Bytes bytes = new Bytes();
+
+	/**
+	 * Responsible for storing the stream the state is written through.
+	 */
+	private final DataOutputStream out = new DataOutputStream(bytes);
+
+	/**
+	 * Responsible for storing the stream the state is read back through.
+	 */
+	private final Reader reader = new Reader();
+
+	private final DataInputStream in = new DataInputStream(reader);
+
+	/**
+	 * This method is responsible for capturing the current state of 'state',
+	 * replacing whatever this snapshot held before.
+	 *
+	 * @param state The state to capture
+	 */
+	public void capture(Stateful state) {
+		bytes.reset();
+
+		try {
+			state.writeState(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to capture snapshot", e);
+		}
+	}
+
+	/**
+	 * This method is responsible for putting 'state' back to how it was when
+	 * this snapshot was captured. The snapshot is kept, so it can be restored
+	 * again.
+	 *
+	 * @param state The state to restore, this should be the same kind of state
+	 *              that was captured
+	 */
+	public void restore(Stateful state) {
+		if (isEmpty()) {
+			throw new IllegalStateException("Nothing has been captured");
+		}
+
+		reader.point(bytes.array(), bytes.size());
+
+		try {
+			state.readState(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to restore snapshot", e);
+		}
+	}
+
+	/**
+	 * This method is responsible for making this snapshot hold the same state as
+	 * 'other'.
+	 *
+	 * @param other The snapshot to copy
+	 */
+	public void copyFrom(Snapshot other) {
+		bytes.reset();
+
+		bytes.write(other.bytes.array(), 0, other.size());
+	}
+
+	/**
+	 * This method is responsible for throwing away the captured state. The buffer
+	 * is kept to be used again.
+	 */
+	public void clear() {
+		bytes.reset();
+	}
+
+	/**
+	 * @return {@code true} if nothing has been captured
+	 */
+	public boolean isEmpty() {
+		return bytes.size() == 0;
+	}
+
+	/**
+	 * @return The size of the captured state in bytes
+	 */
+	public int size() {
+		return bytes.size();
+	}
+
+	/**
+	 * This method is responsible for writing this snapshot to 'out', so it can be
+	 * read back with read().
+	 *
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(bytes.size());
+
+		out.write(bytes.array(), 0, bytes.size());
+	}
+
+	/**
+	 * This method is responsible for reading a snapshot written by write() into
+	 * this snapshot, replacing whatever it held before.
+	 *
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	public void read(DataInput in) throws IOException {
+		int size = in.readInt();
+
+		if (size < 0) {
+			throw new IOException("Snapshot has a size of " + size);
+		}
+
+		bytes.readFrom(in, size);
+	}
+
+	/**
+	 * This class is a ByteArrayOutputStream that lets the snapshot get at its
+	 * buffer without copying it.
+	 */
+	private static class Bytes extends ByteArrayOutputStream {
+
+		/**
+		 * @return The buffer, only the first size() bytes of this are in use
+		 */
+		byte[] array() {
+			return buf;
+		}
+
+		/**
+		 * This method is responsible for replacing the contents with 'size' bytes
+		 * read from 'in'.
+		 */
+		void readFrom(DataInput in, int size) throws IOException {
+			if (buf.length < size) {
+				buf = Arrays.copyOf(buf, Math.max(size, buf.length * 2));
+			}
+
+			in.readFully(buf, 0, size);
+
+			count = size;
+		}
+	}
+
+	/**
+	 * This class is a ByteArrayInputStream that can be pointed at a new buffer,
+	 * so the same stream can be used for every restore.
+	 */
+	private static class Reader extends ByteArrayInputStream {
+
+		Reader() {
+			super(new byte[0]);
+		}
+
+		/**
+		 * This method is responsible for reading the first 'size' bytes of 'buffer'
+		 * from the start.
+		 */
+		void point(byte[] buffer, int size) {
+			buf = buffer;
+
+			pos = 0;
+
+			mark = 0;
+
+			count = size;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.hyperconix.game2D;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class keeps the most recent snapshots of a {@link Stateful} in a ring,
+ * so it can be wound back through them. Once the ring is full each new capture
+ * replaces the oldest snapshot, reusing its buffer, so keeping a history costs
+ * nothing more than copying the state.
+ *
+ * @author Luke S
+ *
+ */
+public class SnapshotBuffer {
+
+	/**
+	 * Responsible for storing the snapshots, made the first time each slot is
+	 * used.
+	 */
+	private final Snapshot[] snapshots;
+
+	/**
+	 * Responsible for storing the slot of the oldest snapshot.
+	 */
+	private int oldest;
+
+	/**
+	 * Responsible for storing the number of snapshots being kept.
+	 */
+	private int count;
+
+	/**
+	 * Creates an empty SnapshotBuffer.
+	 *
+	 * @param capacity The number of snapshots to keep
+	 */
+	public SnapshotBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be at least 1");
+		}
+
+		snapshots = new Snapshot[capacity];
+	}
+
+	/**
+	 * This method is responsible for capturing the current state of 'state' as
+	 * the newest snapshot, replacing the oldest one if the buffer is full.
+	 *
+	 * @param state The state to capture
+	 */
+	public void capture(Stateful state) {
+		next().capture(state);
+	}
+
+	/**
+	 * This method is responsible for putting 'state' back to the newest snapshot
+	 * and removing it, so rewinding again goes further back.
+	 *
+	 * @param state The state to restore
+	 * @return {@code true} if there was a snapshot to rewind to
+	 */
+	public boolean rewind(Stateful state) {
+		if (count == 0) {
+			return false;
+		}
+
+		snapshots[(oldest + --count) % snapshots.length].restore(state);
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for throwing away every snapshot.
+	 */
+	public void clear() {
+		oldest = 0;
+
+		count = 0;
+	}
+
+	/**
+	 * @return The number of snapshots being kept
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return The most snapshots that can be kept
+	 */
+	public int capacity() {
+		return snapshots.length;
+	}
+
+	/**
+	 * This method is responsible for writing every snapshot being kept to 'out',
+	 * oldest first.
+	 *
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(count);
+
+		for (int i = 0; i < count; i++) {
+			snapshots[(oldest + i) % snapshots.length].write(out);
+		}
+	}
+
+	/**
+	 * This method is responsible for replacing the snapshots being kept with ones
+	 * written by write().
+	 *
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	public void read(DataInput in) throws IOException {
+		int saved = in.readInt();
+
+		if (saved < 0 || saved > snapshots.length) {
+			throw new IOException("Cannot keep " + saved + " snapshots, the capacity is " + snapshots.length);
+		}
+
+		clear();
+
+		for (int i = 0; i < saved; i++) {
+			next().read(in);
+		}
+	}
+
+	/**
+	 * This method is responsible for making room for a new snapshot.
+	 *
+	 * @return The snapshot to fill in as the newest
+	 */
+	private Snapshot next() {
+		int slot;
+
+		if (count == snapshots.length) {
+			slot = oldest;
+
+			oldest = (oldest + 1) % snapshots.length;
+		} else {
+			slot = (oldest + count++) % snapshots.length;
+		}
+
+		if (snapshots[slot] == null) {
+			snapshots[slot] = new Snapshot();
+		}
+
+		return snapshots[slot];
+	}
+}
@@ -0,0 +1,288 @@
+package com.hyperconix.game2D;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is responsible for drawing images by copying their pixels
+ * straight into the int[] of a TYPE_INT_RGB back buffer, without going through
+ * Java2D. Each image is drawn by a simple loop over the rows it covers, picked
+ * for what the image holds: fully opaque images are copied a row at a time,
+ * images whose pixels are each either opaque or fully transparent only copy
+ * the opaque pixels, and anything else is blended. The cost of a frame then
+ * only depends on the number of pixels drawn, rather than on how well Java2D
+ * is accelerated on the machine.
+ * <br><br>
+ * The pixels of each image are copied out of it, as premultiplied ARGB, the
+ * first time it is drawn and kept for as long as the game runs, so the image
+ * itself is left for Java2D to manage. Only BufferedImages are drawn this way,
+ * anything else (such as an animated GIF, which only the toolkit plays) is
+ * drawn through Java2D, onto the same back buffer.
+ * <br><br>
+ * A renderer must only be used by one thread at a time.
+ *
+ * @author Luke S
+ *
+ */
+public class SoftwareRenderer implements Renderer {
+
+	/**
+	 * Responsible for storing how the pixels of an image are drawn.
+	 */
+	private static final int OPAQUE = 0, KEYED = 1, BLENDED = 2;
+
+	/**
+	 * This class is the pixels of an image, ready to be copied.
+	 */
+	private static final class Pixels {
+
+		/**
+		 * Responsible for storing the pixels as premultiplied ARGB, a row at a time.
+		 */
+		private final int[] data;
+
+		private final int width, height;
+
+		/**
+		 * Responsible for storing how the pixels are drawn, OPAQUE, KEYED or BLENDED.
+		 */
+		private final int kind;
+
+		private Pixels(int[] data, int width, int height, int kind) {
+			this.data = data;
+			this.width = width;
+			this.height = height;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * Responsible for storing the pixels copied out of each image.
+	 */
+	private static final ConcurrentHashMap<Image, Pixels> pixels = new ConcurrentHashMap<Image, Pixels>();
+
+	/**
+	 * Responsible for storing the pixels of the back buffer and its size.
+	 */
+	private final int[] target;
+
+	private final int targetWidth, targetHeight;
+
+	/**
+	 * Responsible for storing the graphics object that draws on the back buffer,
+	 * for anything that cannot be drawn here.
+	 */
+	private final Graphics2D graphics;
+
+	/**
+	 * Responsible for storing the rectangle drawing is limited to, as its left,
+	 * top, right and bottom, the right and bottom being exclusive.
+	 */
+	private int clipLeft, clipTop, clipRight, clipBottom;
+
+	/**
+	 * Creates a SoftwareRenderer that draws on the whole of the back buffer.
+	 *
+	 * @param buffer   The back buffer, which must be TYPE_INT_RGB
+	 * @param graphics A graphics object that draws on the back buffer
+	 * @throws IllegalArgumentException If the back buffer is not TYPE_INT_RGB
+	 */
+	public SoftwareRenderer(BufferedImage buffer, Graphics2D graphics) {
+		if (buffer.getType() != BufferedImage.TYPE_INT_RGB) {
+			throw new IllegalArgumentException("The back buffer must be TYPE_INT_RGB");
+		}
+
+		this.target = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+
+		this.targetWidth = buffer.getWidth();
+
+		this.targetHeight = buffer.getHeight();
+
+		this.graphics = graphics;
+
+		setClip(0, 0, targetWidth, targetHeight);
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y) {
+		drawImage(image, x, y, false);
+	}
+
+	@Override
+	public void drawImage(Image image, int x, int y, boolean flipped) {
+		Pixels source = pixelsOf(image);
+
+		if (source == null) {
+			if (flipped) {
+				ScaledImages.draw(graphics, image, x, y, -1, 1);
+			} else {
+				graphics.drawImage(image, x, y, null);
+			}
+
+			return;
+		}
+
+		int left = Math.max(x, clipLeft), right = Math.min(x + source.width, clipRight);
+
+		int top = Math.max(y, clipTop), bottom = Math.min(y + source.height, clipBottom);
+
+		if (left >= right || top >= bottom) {
+			return;
+		}
+
+		int[] src = source.data;
+
+		int[] dst = target;
+
+		int width = right - left;
+
+		for (int row = top; row < bottom; row++) {
+			int s = (row - y) * source.width;
+
+			int d = row * targetWidth + left;
+
+			// The source column of the first pixel, and which way to step through the row
+			int u = flipped ? source.width - 1 - (left - x) : left - x;
+
+			int step = flipped ? -1 : 1;
+
+			switch (source.kind) {
+			case OPAQUE:
+				if (!flipped) {
+					System.arraycopy(src, s + u, dst, d, width);
+
+					break;
+				}
+
+				for (int i = 0; i < width; i++, u += step) {
+					dst[d + i] = src[s + u];
+				}
+				break;
+			case KEYED:
+				for (int i = 0; i < width; i++, u += step) {
+					int p = src[s + u];
+
+					if (p >>> 24 != 0) {
+						dst[d + i] = p;
+					}
+				}
+				break;
+			default:
+				for (int i = 0; i < width; i++, u += step) {
+					int p = src[s + u];
+
+					int a = p >>> 24;
+
+					if (a == 255) {
+						dst[d + i] = p;
+					} else if (a != 0) {
+						dst[d + i] = blend(p, dst[d + i], 255 - a);
+					}
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return A premultiplied pixel drawn over an opaque one, given 255 minus the
+	 *         alpha of the premultiplied pixel
+	 */
+	private static int blend(int src, int dst, int inverseAlpha) {
+		int r = ((src >> 16) & 0xFF) + div255(((dst >> 16) & 0xFF) * inverseAlpha);
+
+		int g = ((src >> 8) & 0xFF) + div255(((dst >> 8) & 0xFF) * inverseAlpha);
+
+		int b = (src & 0xFF) + div255((dst & 0xFF) * inverseAlpha);
+
+		return (Math.min(r, 255) << 16) | (Math.min(g, 255) << 8) | Math.min(b, 255);
+	}
+
+	/**
+	 * @return x / 255 rounded to the nearest, for x from 0 to 255 * 255
+	 */
+	private static int div255(int x) {
+		return (x + 128 + ((x + 128) >> 8)) >> 8;
+	}
+
+	/**
+	 * @return The pixels of an image, copied out of it the first time, or null if
+	 *         it is not a BufferedImage and so is drawn through Java2D
+	 */
+	private static Pixels pixelsOf(Image image) {
+		Pixels found = pixels.get(image);
+
+		if (found != null || !(image instanceof BufferedImage)) {
+			return found;
+		}
+
+		BufferedImage source = (BufferedImage) image;
+
+		int width = source.getWidth(), height = source.getHeight();
+
+		BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+		Graphics2D g = copy.createGraphics();
+
+		g.drawImage(source, 0, 0, null);
+
+		g.dispose();
+
+		int[] data = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+
+		boolean transparent = false, translucent = false;
+
+		for (int p : data) {
+			int a = p >>> 24;
+
+			if (a == 0) {
+				transparent = true;
+			} else if (a != 255) {
+				translucent = true;
+
+				break;
+			}
+		}
+
+		Pixels made = new Pixels(data, width, height, translucent ? BLENDED : transparent ? KEYED : OPAQUE);
+
+		Pixels existing = pixels.putIfAbsent(image, made);
+
+		return existing != null ? existing : made;
+	}
+
+	@Override
+	public void setClip(int x, int y, int width, int height) {
+		clipLeft = Math.max(0, x);
+
+		clipTop = Math.max(0, y);
+
+		clipRight = Math.min(targetWidth, x + width);
+
+		clipBottom = Math.min(targetHeight, y + height);
+
+		// Images drawn through Java2D are limited to the same rectangle
+		graphics.setClip(x, y, width, height);
+	}
+
+	@Override
+	public Rectangle getClipBounds(Rectangle bounds) {
+		bounds.setBounds(clipLeft, clipTop, Math.max(0, clipRight - clipLeft), Math.max(0, clipBottom - clipTop));
+
+		return bounds;
+	}
+
+	@Override
+	public Graphics2D getGraphics() {
+		return graphics;
+	}
+
+	@Override
+	public void flush() {
+		// Everything is drawn straight away
+	}
+}
@@ -1,6 +1,7 @@
 package com.hyperconix.game2D;
 
 import java.io.*;
+import java.util.concurrent.CountDownLatch;
 import javax.sound.sampled.*;
 
 public class Sound extends Thread
@@ -27,28 +28,64 @@ public class Sound extends Thread
      */
     public void run()
     {
+        play(filename, useFilter);
+        finished = true;
+    }
+
+    /**
+     * Plays the sound in 'fname' on the calling thread, returning once it has
+     * finished. This is what run() does, and lets a SoundPlayer play sounds on
+     * its own threads rather than starting a new one for every sound.
+     *
+     * @param fname     The name of the file to play
+     * @param useFilter true to play the sound through the VolumeDistorterFilterStream
+     */
+    public static void play(String fname, boolean useFilter)
+    {
+        SoundEvent event = new SoundEvent();
+        event.begin();
+        event.frames = -1;
+
         try
         {
-            File file = new File(filename);
+            File file = new File(fname);
             AudioInputStream stream = AudioSystem.getAudioInputStream(file);
             AudioFormat format = stream.getFormat();
+            event.frames = stream.getFrameLength();
             VolumeDistorterFilterStream vdfs = new VolumeDistorterFilterStream(stream);
             AudioInputStream filtered = new AudioInputStream(vdfs,format,stream.getFrameLength());
             DataLine.Info info = new DataLine.Info(Clip.class, format);
             Clip clip = (Clip) AudioSystem.getLine(info);
+            // Wait for the clip to say it has stopped rather than checking on it every 100ms
+            CountDownLatch stopped = new CountDownLatch(1);
+            clip.addLineListener(e -> { if (e.getType() == LineEvent.Type.STOP) stopped.countDown(); });
             clip.open(useFilter ? filtered : stream);
-            clip.start();	
-            Thread.sleep(100);
-            while (clip.isRunning())
+            try
             {
-                Thread.sleep(100);
+                clip.start();
+                stopped.await();
+            }
+            finally
+            {
+                clip.close();
             }
-            clip.close();
         }
         catch (Exception e)
         {
+            event.error = e.toString();
+
+            // Pass an interrupt on, so a thread that plays many sounds can be stopped
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        }
+
+        // Record the sound from opening it to it finishing, for the flight recorder
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.file = fname;
+            event.filtered = useFilter;
+            event.commit();
         }
-        finished = true;
 
     }
     
@@ -0,0 +1,48 @@
+package com.hyperconix.game2D;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class is a Java Flight Recorder event for a {@link Sound}, from when it
+ * starts opening the file to when it has finished playing.
+ *
+ * @author Luke S
+ *
+ */
+@Name("com.hyperconix.Sound")
+@Label("Sound")
+@Category({ "PunchMan", "Audio" })
+@Description("A sound being opened and played until it finishes")
+public class SoundEvent extends Event {
+
+	/**
+	 * Responsible for storing the path of the sound file.
+	 */
+	@Label("File")
+	String file;
+
+	/**
+	 * Responsible for storing a flag which indicates whether the sound was played
+	 * through the filter.
+	 */
+	@Label("Filtered")
+	boolean filtered;
+
+	/**
+	 * Responsible for storing the length of the sound in sample frames, -1 if it
+	 * is not known.
+	 */
+	@Label("Sample Frames")
+	long frames;
+
+	/**
+	 * Responsible for storing why the sound could not be played, or null if it
+	 * played.
+	 */
+	@Label("Error")
+	String error;
+}
@@ -0,0 +1,131 @@
+package com.hyperconix.game2D;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * This class is responsible for playing sounds on a fixed number of threads
+ * that are started once, rather than starting a new {@link Sound} thread for
+ * every sound. Each thread is a voice that plays one sound at a time, so up to
+ * that many sounds can overlap. If every voice is busy and the queue of waiting
+ * sounds is full, the sound is dropped rather than holding the game up.
+ * <br><br>
+ * The requests handed to the voices are made up front and reused, so playing
+ * a sound does not create any objects on the thread that asks for it.
+ *
+ * @author Luke S
+ *
+ */
+public class SoundPlayer {
+
+	/**
+	 * Responsible for storing the number of sounds that can wait for a voice for
+	 * each voice.
+	 */
+	private static final int QUEUED_PER_VOICE = 2;
+
+	/**
+	 * This class is a sound waiting to be played.
+	 */
+	private static final class Request {
+
+		/**
+		 * Responsible for storing the file to play and whether to filter it.
+		 */
+		private String fileName;
+
+		private boolean filtered;
+	}
+
+	/**
+	 * Responsible for storing the sounds waiting for a voice, and the requests
+	 * that are free to be reused.
+	 */
+	private final ArrayBlockingQueue<Request> waiting, free;
+
+	/**
+	 * Responsible for storing the voice threads.
+	 */
+	private final Thread[] voices;
+
+	/**
+	 * Creates the state of a SoundPlayer and starts its voices.
+	 *
+	 * @param voiceCount The number of sounds that can play at once
+	 */
+	public SoundPlayer(int voiceCount) {
+		int requests = voiceCount * (QUEUED_PER_VOICE + 1);
+
+		waiting = new ArrayBlockingQueue<Request>(requests);
+
+		free = new ArrayBlockingQueue<Request>(requests);
+
+		for (int i = 0; i < requests; i++) {
+			free.add(new Request());
+		}
+
+		voices = new Thread[voiceCount];
+
+		for (int i = 0; i < voiceCount; i++) {
+			voices[i] = new Thread(this::runVoice, "PunchMan-Sound-" + i);
+
+			voices[i].setDaemon(true);
+
+			voices[i].start();
+		}
+	}
+
+	/**
+	 * This method is responsible for asking for a sound to be played by the next
+	 * free voice. This can be called from any thread and returns straight away.
+	 *
+	 * @param fileName The file path of the sound to play
+	 * @param filtered {@code true} to play the sound through the filter
+	 * @return {@code true} if the sound will be played, {@code false} if it was
+	 *         dropped because too many sounds are already playing
+	 */
+	public boolean play(String fileName, boolean filtered) {
+		Request request = free.poll();
+
+		if (request == null) {
+			return false;
+		}
+
+		request.fileName = fileName;
+
+		request.filtered = filtered;
+
+		waiting.add(request);
+
+		return true;
+	}
+
+	/**
+	 * This method is responsible for playing sounds as they are asked for, until
+	 * the voice is interrupted.
+	 */
+	private void runVoice() {
+		try {
+			while (true) {
+				Request request = waiting.take();
+
+				Sound.play(request.fileName, request.filtered);
+
+				request.fileName = null;
+
+				free.add(request);
+			}
+		} catch (InterruptedException e) {
+			// Shut down
+		}
+	}
+
+	/**
+	 * This method is responsible for stopping the voices. Sounds that are
+	 * playing are cut short.
+	 */
+	public void shutdown() {
+		for (Thread voice : voices) {
+			voice.interrupt();
+		}
+	}
+}
@@ -3,6 +3,9 @@ package com.hyperconix.game2D;
 import java.awt.Image;
 import java.awt.*;
 import java.awt.geom.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * This class provides the functionality for a moving animated image or Sprite.
@@ -41,6 +44,9 @@ public class Sprite {
 	private int xoff = 0;
 	private int yoff = 0;
 
+	// The transform used by drawTransformed, reused rather than created per draw
+	private final AffineTransform transform = new AffineTransform();
+
 	/**
 	 * Responsible for storing a flag on whether or not the Sprite is on the ground.
 	 */
@@ -376,7 +382,10 @@ public class Sprite {
 		if (!render)
 			return;
 
-		AffineTransform transform = new AffineTransform();
+		// Unrotated sprites are drawn from a scaled copy of the image rather than
+		// through a transform, which Java2D can do without allocating
+		if (rotation == 0 && ScaledImages.draw(g, getImage(), Math.round(x) + xoff, Math.round(y) + yoff, xscale, yscale))
+			return;
 
 		// Apply scaling to current x and y positions to
 		// ensure shifted left and up when flipped due to scaling.
@@ -387,7 +396,7 @@ public class Sprite {
 		if (yscale < 0)
 			shifty = getHeight();
 
-		transform.translate(Math.round(x) + shiftx + xoff, Math.round(y) + shifty + yoff);
+		transform.setToTranslation(Math.round(x) + shiftx + xoff, Math.round(y) + shifty + yoff);
 		transform.scale(xscale, yscale);
 		transform.rotate(rotation, getImage().getWidth(null) / 2, getImage().getHeight(null) / 2);
 		// Apply transform to the image and draw it
@@ -499,4 +508,53 @@ public class Sprite {
 		this.isOnDeathTile = isOnDeathTile;
 	}
 
+	/**
+	 * This method is responsible for writing the state of the sprite, its position,
+	 * movement, scale and flags, to 'out'. The animation is not written, as it is
+	 * usually shared, so whoever owns the animations should save them separately.
+	 * 
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeFloat(x);
+		out.writeFloat(y);
+		out.writeFloat(dx);
+		out.writeFloat(dy);
+		out.writeFloat(width);
+		out.writeFloat(height);
+		out.writeFloat(radius);
+		out.writeDouble(xscale);
+		out.writeDouble(yscale);
+		out.writeDouble(rotation);
+		out.writeBoolean(render);
+		out.writeBoolean(onGround);
+		out.writeBoolean(dead);
+		out.writeBoolean(isOnDeathTile);
+	}
+
+	/**
+	 * This method is responsible for reading back the state of the sprite from a
+	 * stream written by writeState().
+	 * 
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	public void readState(DataInput in) throws IOException {
+		x = in.readFloat();
+		y = in.readFloat();
+		dx = in.readFloat();
+		dy = in.readFloat();
+		width = in.readFloat();
+		height = in.readFloat();
+		radius = in.readFloat();
+		xscale = in.readDouble();
+		yscale = in.readDouble();
+		rotation = in.readDouble();
+		render = in.readBoolean();
+		onGround = in.readBoolean();
+		dead = in.readBoolean();
+		isOnDeathTile = in.readBoolean();
+	}
+
 }
@@ -0,0 +1,33 @@
+package com.hyperconix.game2D;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This represents something whose state can be written out as bytes and put
+ * back exactly later, such as a whole game or one part of it. This is what a
+ * {@link Snapshot} captures and restores.
+ *
+ * @author Luke S
+ *
+ */
+public interface Stateful {
+
+	/**
+	 * This writes everything needed to put this back into its current state to
+	 * 'out'.
+	 *
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written to
+	 */
+	void writeState(DataOutput out) throws IOException;
+
+	/**
+	 * This puts this back into a state written by writeState().
+	 *
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read from
+	 */
+	void readState(DataInput in) throws IOException;
+}
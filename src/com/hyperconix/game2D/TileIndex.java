@@ -0,0 +1,145 @@
+package com.hyperconix.game2D;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the positions of every tile of one kind in a TileMap, such
+ * as every coin or every spike. It is a sparse set: the positions are kept
+ * packed together in one array so they can be walked over without looking at
+ * the rest of the map, and a second array the size of the map records where
+ * each position is, so adding, removing and looking up a tile are all constant
+ * time.
+ * <br><br>
+ * The index is kept up to date by the TileMap that owns it, so it can only be
+ * read from outside of this package.
+ *
+ * @author Luke S
+ *
+ */
+public class TileIndex {
+
+	/**
+	 * Responsible for storing the width of the map in tiles, used to pack a tile
+	 * position into a single int.
+	 */
+	private final int mapWidth;
+
+	/**
+	 * Responsible for storing the packed positions (y * width + x) of the tiles in
+	 * the index.
+	 */
+	private int[] dense;
+
+	/**
+	 * Responsible for storing where each packed position is in the dense array, or
+	 * -1 if the tile is not in the index.
+	 */
+	private final int[] sparse;
+
+	/**
+	 * Responsible for storing how many tiles are in the index.
+	 */
+	private int size;
+
+	/**
+	 * Creates an empty TileIndex for a map of the given size.
+	 *
+	 * @param mapWidth  The width of the map in tiles
+	 * @param mapHeight The height of the map in tiles
+	 */
+	TileIndex(int mapWidth, int mapHeight) {
+		this.mapWidth = mapWidth;
+
+		this.dense = new int[16];
+
+		this.sparse = new int[mapWidth * mapHeight];
+
+		Arrays.fill(sparse, -1);
+	}
+
+	/**
+	 * This method is responsible for adding the tile at 'x','y' to the index.
+	 */
+	void add(int x, int y) {
+		int packed = y * mapWidth + x;
+
+		if (sparse[packed] >= 0) {
+			return;
+		}
+
+		if (size == dense.length) {
+			dense = Arrays.copyOf(dense, size * 2);
+		}
+
+		sparse[packed] = size;
+
+		dense[size++] = packed;
+	}
+
+	/**
+	 * This method is responsible for removing the tile at 'x','y' from the index.
+	 * The last tile is moved into the gap, so the order of the index can change.
+	 */
+	void remove(int x, int y) {
+		int packed = y * mapWidth + x;
+
+		int slot = sparse[packed];
+
+		if (slot < 0) {
+			return;
+		}
+
+		int last = dense[--size];
+
+		dense[slot] = last;
+
+		sparse[last] = slot;
+
+		sparse[packed] = -1;
+	}
+
+	/**
+	 * @return The number of tiles in the index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if there are no tiles in the index
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param i The position in the index, from 0 to size() - 1
+	 * @return The x tile coordinate of the i'th tile
+	 */
+	public int getX(int i) {
+		return dense[i] % mapWidth;
+	}
+
+	/**
+	 * @param i The position in the index, from 0 to size() - 1
+	 * @return The y tile coordinate of the i'th tile
+	 */
+	public int getY(int i) {
+		return dense[i] / mapWidth;
+	}
+
+	/**
+	 * @param x The x tile coordinate
+	 * @param y The y tile coordinate
+	 * @return {@code true} if the tile at 'x','y' is in the index
+	 */
+	public boolean contains(int x, int y) {
+		if (x < 0 || y < 0 || x >= mapWidth) {
+			return false;
+		}
+
+		int packed = y * mapWidth + x;
+
+		return packed < sparse.length && sparse[packed] >= 0;
+	}
+}
@@ -1,10 +1,13 @@
 package com.hyperconix.game2D;
 
-import javax.swing.ImageIcon;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.io.*;
 
@@ -23,6 +26,13 @@ import java.io.*;
  * #b=orangeblock.png
  * #c=greencircle.png
  * #g=glasses.png
+ * // Each character can be given any of the TileType flags SOLID, DEADLY,
+ * // COLLECTABLE and TRIGGER with a line preceded by a + character.
+ * // Characters that are not listed are SOLID.
+ * +c=COLLECTABLE
+ * // Named points, such as where the player starts, are given in pixels with
+ * // a line preceded by an @ character. A name can be used more than once.
+ * &#64;player=32,64
  * // The actual tile map is preceded by the #map line
  * #map
  * bbbbbbbbbb
@@ -43,11 +53,74 @@ public class TileMap
     private int mapHeight = 0;    // The maps height in tiles
     private int tileWidth = 0;    // The width of a tile in pixels
     private int tileHeight = 0;    // The height of a tile in pixels
-    
+    private volatile int version = 0;    // Incremented whenever the tiles change
+    private TileType tileTypes = new TileType();    // The flags of each tile character
+    private long[][] flagBits = new long[TileType.FLAG_COUNT][0];    // One bitmap per TileType flag, one bit per tile (row after row)
+    private long[] occupied = new long[0];    // One bit per tile, set if the tile has any flags (is not blank)
+    private TileIndex[] indexes = new TileIndex[128];    // The positions of each DEADLY, COLLECTABLE or TRIGGER tile character
+    private char[] baseTiles = new char[0];    // The tiles as they were loaded from the map file (row after row)
+    private TileIndex changes = new TileIndex(0, 0);    // The positions of the tiles that differ from baseTiles
+
+    // The flags that cause a tile character to be given a TileIndex
+    private static final int INDEXED_FLAGS = TileType.DEADLY | TileType.COLLECTABLE | TileType.TRIGGER;
+
+    // Returned for characters that have no tiles in the map
+    private static final TileIndex NO_TILES = new TileIndex(0, 0);
+
+    // The named points declared in the map file
+    private volatile Map<String, List<MapPoint>> points = new HashMap<String, List<MapPoint>>();
 
     // imagemap contains a set of character to image mappings for
     // quick loop up of the image associated with a given character.
-    private Map<String, Image> imagemap = new HashMap<String, Image>();
+    private volatile Map<String, Image> imagemap = new HashMap<String, Image>();
+
+    // The same images indexed by the tile character, so drawing does not build a key for every tile
+    private volatile Image[] charImages = new Image[0];
+
+    // The bounds of the clip of the graphics device being drawn to, reused by draw()
+    private final Rectangle clip = new Rectangle();
+
+    /**
+     * Creates an empty TileMap, call loadMap to fill it in.
+     */
+    public TileMap()
+    {
+    }
+
+    /**
+     * Creates a TileMap holding a copy of the tiles in 'source' as they are now, so
+     * the copy can be changed without affecting the original. The images, tile
+     * types, points and base tiles are not changed once a map has been loaded, so
+     * they are shared rather than copied and no files are read. This is the quick
+     * way to give many games their own copy of the same level.
+     *
+     * @param source The map to copy
+     */
+    public TileMap(TileMap source)
+    {
+        mapWidth = source.mapWidth;
+        mapHeight = source.mapHeight;
+        tileWidth = source.tileWidth;
+        tileHeight = source.tileHeight;
+        imagemap = source.imagemap;
+        charImages = source.charImages;
+        tileTypes = source.tileTypes;
+        points = source.points;
+        baseTiles = source.baseTiles;
+
+        if (source.tmap == null) return;
+
+        tmap = new Tile[mapWidth][mapHeight];
+        for (int r = 0; r < mapHeight; r++)
+            for (int c = 0; c < mapWidth; c++)
+                tmap[c][r] = new Tile(source.tmap[c][r].getCharacter(), c * tileWidth, r * tileHeight);
+
+        rebuildFlags();
+        changes = new TileIndex(mapWidth, mapHeight);
+        for (int i = 0; i < source.changes.size(); i++)
+            changes.add(source.changes.getX(i), source.changes.getY(i));
+        version++;
+    }
 
     /**
      * @return The map height in tiles
@@ -81,6 +154,16 @@ public class TileMap
         return tileWidth;
     }
 
+    /**
+     * @return A number that changes whenever the map is loaded or a tile is changed.
+     * This can be compared against a previously seen value to find out if the map
+     * needs to be copied or redrawn.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
     /**
      * @return The map height in pixels
      */
@@ -107,6 +190,68 @@ public class TileMap
      * @return true if the map loaded successfully, false otherwise
      */
     public boolean loadMap(String folder, String mapfile)
+    {
+        MapLoadEvent event = new MapLoadEvent();
+        event.begin();
+
+        boolean loaded = readMap(folder, mapfile);
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.file = folder + "/" + mapfile;
+            event.width = mapWidth;
+            event.height = mapHeight;
+            event.images = imagemap.size();
+            event.loaded = loaded;
+            event.commit();
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads which images a map file uses for its tiles, without loading
+     * them or the map. This lets the images be loaded ahead of the map, in
+     * parallel, after which loadMap() finds them already loaded, as images
+     * are only loaded once for each file name.
+     *
+     * @param folder  The folder the tile map and images are located in
+     * @param mapfile The name of the map file in the map folder
+     *
+     * @return The paths of the tile images, which is empty if the map could not be read
+     */
+    public static List<String> readImageFiles(String folder, String mapfile)
+    {
+        List<String> files = new ArrayList<String>();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(folder + "/" + mapfile)))
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("#map")) break;
+                if (trimmed.length() > 3 && trimmed.charAt(0) == '#' && trimmed.charAt(2) == '=')
+                    files.add(folder + "/" + trimmed.substring(3));
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Failed to read the images of tile map '" + folder + "/" + mapfile + "':" + e);
+        }
+
+        return files;
+    }
+
+    /**
+     * Reads the map file and its images for loadMap().
+     *
+     * @param folder  The folder the tile map and images are located in
+     * @param mapfile The name of the map file in the map folder
+     *
+     * @return true if the map loaded successfully, false otherwise
+     */
+    private boolean readMap(String folder, String mapfile)
     {
         // Create a full path to the tile map by sticking the folder and mapfile together
         String path = folder + "/" + mapfile;
@@ -119,8 +264,11 @@ public class TileMap
             String trimmed = "";
             String[] vals;
 
-            // First we need to clear out the old image map
-            imagemap.clear();
+            // Build a new image map rather than clearing the old one, so anything
+            // still drawing with the old map is not affected while we load
+            Map<String, Image> images = new HashMap<String, Image>();
+            TileType types = new TileType();
+            Map<String, List<MapPoint>> newPoints = new HashMap<String, List<MapPoint>>();
 
             // Read the first line of the tile map to find out
             // the relevant dimensions of the map plus the tiles
@@ -157,13 +305,22 @@ public class TileMap
                     // and it's file name
                     String fileName = trimmed.substring(3, trimmed.length());
 
-                    Image img = new ImageIcon(folder + "/" + fileName).getImage();
+                    Image img = AssetLoadEvent.loadImage(folder + "/" + fileName);
                     // Now add this character->image mapping to the map
                     if (img != null)
-                        imagemap.put(ch, img);
+                        images.put(ch, img);
                     else
                         System.err.println("Failed to load image '" + folder + "/" + fileName + "'");
                 }
+                else if (trimmed.charAt(0) == '+') // Look for a character to flags map
+                {
+                    types.setFlags(trimmed.charAt(1), TileType.parseFlags(trimmed.substring(3)));
+                }
+                else if (trimmed.charAt(0) == '@') // Look for a named point
+                {
+                    MapPoint point = MapPoint.parse(trimmed.substring(1));
+                    newPoints.computeIfAbsent(point.getName(), k -> new ArrayList<MapPoint>()).add(point);
+                }
             }
 
             // Check the map dimensione are at least > 0
@@ -202,6 +359,10 @@ public class TileMap
 
             in.close();
 
+            imagemap = images;
+            charImages = indexImages(images);
+            tileTypes = types;
+            points = newPoints;
         }
         catch (Exception e)
         {
@@ -215,6 +376,11 @@ public class TileMap
             return false;
         }
 
+        rebuildFlags();
+        baseTiles = new char[mapWidth * mapHeight];
+        copyTiles(baseTiles);
+        changes = new TileIndex(mapWidth, mapHeight);
+        version++;
         return true;
     }
 
@@ -248,8 +414,40 @@ public class TileMap
         Tile t = tmap[x][y];
         if (t == null) return null;
         char ch = t.getCharacter();
+        return getImageForChar(ch);
+    }
+
+    /**
+     * Get the Image object associated with the given tile character
+     *
+     * @param ch The tile character
+     *
+     * @return The Image object associated with 'ch', null if blank or not found
+     */
+    private Image getImageForChar(char ch)
+    {
         if (ch == '.') return null; // Blank space
-        return imagemap.get(ch + "");
+        Image[] images = charImages;
+        return ch < images.length ? images[ch] : null;
+    }
+
+    /**
+     * Builds the array of images indexed by tile character from an image map.
+     *
+     * @param images The character to image mappings read from the map file
+     *
+     * @return The images, indexed by character up to the highest one mapped
+     */
+    private static Image[] indexImages(Map<String, Image> images)
+    {
+        int size = 0;
+        for (String ch : images.keySet())
+            size = Math.max(size, ch.charAt(0) + 1);
+
+        Image[] indexed = new Image[size];
+        for (Map.Entry<String, Image> entry : images.entrySet())
+            indexed[entry.getKey().charAt(0)] = entry.getValue();
+        return indexed;
     }
 
     /**
@@ -303,7 +501,16 @@ public class TileMap
     public boolean setTileChar(char ch, int x, int y)
     {
         if (!valid(x, y)) return false;
-        tmap[x][y].setCharacter(ch);
+        if (tmap[x][y].getCharacter() != ch)
+        {
+            unindexTile(tmap[x][y].getCharacter(), x, y);
+            tmap[x][y].setCharacter(ch);
+            setFlagBits(x, y, tileTypes.getFlags(ch));
+            indexTile(ch, x, y);
+            if (ch == baseTiles[y * mapWidth + x]) changes.remove(x, y);
+            else changes.add(x, y);
+            version++;
+        }
         return true;
     }
 
@@ -336,7 +543,8 @@ public class TileMap
     }
 
     /**
-     * Draws the tile map to the graphics device pointed to by 'g'.
+     * Draws the tile map to the graphics device pointed to by 'g'. Only one
+     * thread should draw a map at a time.
      *
      * @param g    The graphics device to draw to
      * @param xoff The xoffset to shift the tile map by
@@ -347,7 +555,7 @@ public class TileMap
         if (g == null) return;
 
         Image img = null;
-        Rectangle rect = (Rectangle) g.getClip();
+        Rectangle rect = g.getClipBounds(clip);
         int xc, yc;
 
         for (int r = 0; r < mapHeight; r++)
@@ -366,4 +574,621 @@ public class TileMap
             }
         }
     }
+
+    /**
+     * @return The number of tiles that have been changed since the map was loaded
+     */
+    public int getChangeCount()
+    {
+        return changes.size();
+    }
+
+    /**
+     * Puts every tile that has been changed since the map was loaded back to how
+     * it was in the map file. Only the changed tiles are visited, so this is much
+     * quicker than loading the map again.
+     */
+    public void resetToBase()
+    {
+        while (!changes.isEmpty())
+        {
+            int i = changes.size() - 1;
+            int x = changes.getX(i);
+            int y = changes.getY(i);
+            setTileChar(baseTiles[y * mapWidth + x], x, y);
+        }
+    }
+
+    /**
+     * Writes the tiles that have been changed since the map was loaded to 'out',
+     * as a count followed by the position and character of each one. This is
+     * usually only a handful of tiles, rather than the whole map.
+     *
+     * @param out The stream to write to
+     *
+     * @throws IOException If the stream cannot be written to
+     */
+    public void writeChanges(DataOutput out) throws IOException
+    {
+        out.writeInt(changes.size());
+        for (int i = 0; i < changes.size(); i++)
+        {
+            int x = changes.getX(i);
+            int y = changes.getY(i);
+            out.writeInt(y * mapWidth + x);
+            out.writeChar(tmap[x][y].getCharacter());
+        }
+    }
+
+    /**
+     * Puts the map back to the state written by writeChanges(). Tiles changed
+     * since then are put back to how they were in the map file first.
+     *
+     * @param in The stream to read from
+     *
+     * @throws IOException If the stream cannot be read from
+     */
+    public void readChanges(DataInput in) throws IOException
+    {
+        resetToBase();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            int tile = in.readInt();
+            char ch = in.readChar();
+            if (tile < 0 || tile >= mapWidth * mapHeight)
+                throw new IOException("Tile " + tile + " is outside of the map");
+            setTileChar(ch, tile % mapWidth, tile / mapWidth);
+        }
+    }
+
+    /**
+     * Copies the current tile characters into 'dest', one row after another.
+     * 'dest' must hold at least getMapWidth() * getMapHeight() characters.
+     *
+     * @param dest The array to copy the tile characters into
+     */
+    public void copyTiles(char[] dest)
+    {
+        int i = 0;
+        for (int r = 0; r < mapHeight; r++)
+        {
+            for (int c = 0; c < mapWidth; c++)
+                dest[i++] = tmap[c][r].getCharacter();
+        }
+    }
+
+    /**
+     * Draws a copy of the tile characters taken with copyTiles() to the graphics
+     * device pointed to by 'g', using the images of this tile map. This allows
+     * the map to be drawn on one thread while another thread changes it, though
+     * only one thread should draw a map at a time.
+     *
+     * @param g     The graphics device to draw to
+     * @param xoff  The xoffset to shift the tile map by
+     * @param yoff  The yoffset to shift the tile map by
+     * @param tiles The tile characters to draw, as filled in by copyTiles()
+     */
+    public void draw(Graphics2D g, int xoff, int yoff, char[] tiles)
+    {
+        if (g == null) return;
+
+        Image img = null;
+        Rectangle rect = g.getClipBounds(clip);
+        int xc, yc;
+
+        for (int r = 0; r < mapHeight; r++)
+        {
+            for (int c = 0; c < mapWidth; c++)
+            {
+                int i = r * mapWidth + c;
+                if (i >= tiles.length) return;
+                img = getImageForChar(tiles[i]);
+                if (img == null) continue;
+                xc = xoff + c * tileWidth;
+                yc = yoff + r * tileHeight;
+
+                // Only draw the tile if it is on screen, otherwise go back round the loop
+                if (xc + tileWidth < 0 || xc >= rect.x + rect.width) continue;
+                if (yc + tileHeight < 0 || yc >= rect.y + rect.height) continue;
+                g.drawImage(img, xc, yc, null);
+            }
+        }
+    }
+
+    /**
+     * Draws a copy of the tiles of this map with a renderer, using this map's
+     * tile size and images. Only the rows and columns that overlap the
+     * renderer's clip are visited.
+     *
+     * @param r     The renderer to draw with
+     * @param xoff  The x offset to draw the map at
+     * @param yoff  The y offset to draw the map at
+     * @param tiles The tile characters to draw, a row at a time
+     */
+    public void draw(Renderer r, int xoff, int yoff, char[] tiles)
+    {
+        if (r == null || tiles.length < mapWidth * mapHeight) return;
+
+        Rectangle rect = r.getClipBounds(clip);
+
+        // The columns and rows of the tiles that overlap the clip
+        int firstCol = Math.max(0, Math.floorDiv(rect.x - xoff, tileWidth));
+        int lastCol = Math.min(mapWidth - 1, Math.floorDiv(rect.x + rect.width - 1 - xoff, tileWidth));
+        int firstRow = Math.max(0, Math.floorDiv(rect.y - yoff, tileHeight));
+        int lastRow = Math.min(mapHeight - 1, Math.floorDiv(rect.y + rect.height - 1 - yoff, tileHeight));
+
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            for (int col = firstCol; col <= lastCol; col++)
+            {
+                Image img = getImageForChar(tiles[row * mapWidth + col]);
+                if (img == null) continue;
+                r.drawImage(img, xoff + col * tileWidth, yoff + row * tileHeight);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the flag bitmaps from the current tiles.
+     */
+    private void rebuildFlags()
+    {
+        int words = (mapWidth * mapHeight + 63) >>> 6;
+        for (int f = 0; f < TileType.FLAG_COUNT; f++)
+        {
+            if (flagBits[f].length != words) flagBits[f] = new long[words];
+            else Arrays.fill(flagBits[f], 0L);
+        }
+        if (occupied.length != words) occupied = new long[words];
+        else Arrays.fill(occupied, 0L);
+
+        indexes = new TileIndex[indexes.length];
+
+        for (int r = 0; r < mapHeight; r++)
+            for (int c = 0; c < mapWidth; c++)
+            {
+                char ch = tmap[c][r].getCharacter();
+                setFlagBits(c, r, tileTypes.getFlags(ch));
+                indexTile(ch, c, r);
+            }
+    }
+
+    /**
+     * Adds the tile at position 'x,y' to the index of 'ch', if 'ch' is a character
+     * that is indexed.
+     */
+    private void indexTile(char ch, int x, int y)
+    {
+        if (ch >= indexes.length || (tileTypes.getFlags(ch) & INDEXED_FLAGS) == 0) return;
+        if (indexes[ch] == null) indexes[ch] = new TileIndex(mapWidth, mapHeight);
+        indexes[ch].add(x, y);
+    }
+
+    /**
+     * Removes the tile at position 'x,y' from the index of 'ch', if it has one.
+     */
+    private void unindexTile(char ch, int x, int y)
+    {
+        if (ch < indexes.length && indexes[ch] != null) indexes[ch].remove(x, y);
+    }
+
+    /**
+     * Gets the positions of every tile set to 'ch'. Only characters with the
+     * DEADLY, COLLECTABLE or TRIGGER flag are indexed, so this is the quick way to
+     * count or visit the coins, spikes and so on in the map without looking at
+     * every tile. The index is kept up to date by setTileChar.
+     *
+     * @param ch The tile character
+     *
+     * @return The positions of the tiles, empty if there are none or 'ch' is not indexed
+     */
+    public TileIndex getTiles(char ch)
+    {
+        if (ch >= indexes.length || indexes[ch] == null) return NO_TILES;
+        return indexes[ch];
+    }
+
+    /**
+     * Gets the first point with the given name declared in the map file.
+     *
+     * @param name The name of the point
+     *
+     * @return The point, or null if the map does not declare one
+     */
+    public MapPoint getPoint(String name)
+    {
+        List<MapPoint> named = points.get(name);
+        return named == null ? null : named.get(0);
+    }
+
+    /**
+     * Gets every point with the given name declared in the map file, in the order
+     * they were declared.
+     *
+     * @param name The name of the points
+     *
+     * @return The points, empty if the map does not declare any
+     */
+    public List<MapPoint> getPoints(String name)
+    {
+        List<MapPoint> named = points.get(name);
+        return named == null ? Collections.<MapPoint>emptyList() : Collections.unmodifiableList(named);
+    }
+
+    /**
+     * Sets the bit of the tile at position 'x,y' in every flag bitmap to match 'flags'
+     */
+    private void setFlagBits(int x, int y, int flags)
+    {
+        int i = y * mapWidth + x;
+        long bit = 1L << i;
+        for (int f = 0; f < TileType.FLAG_COUNT; f++)
+        {
+            if ((flags & (1 << f)) != 0) flagBits[f][i >>> 6] |= bit;
+            else flagBits[f][i >>> 6] &= ~bit;
+        }
+        if (flags != 0) occupied[i >>> 6] |= bit;
+        else occupied[i >>> 6] &= ~bit;
+    }
+
+    /**
+     * @return The TileType describing the flags of each tile character in this map
+     */
+    public TileType getTileTypes()
+    {
+        return tileTypes;
+    }
+
+    /**
+     * Checks whether the tile at position 'x,y' has the given flag. This is a single
+     * bit test so it is much cheaper than looking at the tile character.
+     *
+     * @param x    The x tile coordinate (in tiles, not pixels)
+     * @param y    The y tile coordinate (in tiles, not pixels)
+     * @param flag One of the TileType flags, e.g. TileType.DEADLY
+     *
+     * @return true if the tile has the flag, false if not or if it is outside of the map
+     */
+    public boolean hasFlag(int x, int y, int flag)
+    {
+        if (!valid(x, y)) return false;
+        int i = y * mapWidth + x;
+        return (flagBits[TileType.bitOf(flag)][i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Checks whether the tile at position 'x,y' has any of the flags in 'mask'.
+     *
+     * @param x    The x tile coordinate (in tiles, not pixels)
+     * @param y    The y tile coordinate (in tiles, not pixels)
+     * @param mask One or more TileType flags or'd together
+     *
+     * @return true if the tile has any of the flags
+     */
+    public boolean hasAnyFlag(int x, int y, int mask)
+    {
+        if (!valid(x, y)) return false;
+        int i = y * mapWidth + x;
+        long bit = 1L << i;
+        for (int f = 0; f < TileType.FLAG_COUNT; f++)
+        {
+            if ((mask & (1 << f)) != 0 && (flagBits[f][i >>> 6] & bit) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the tile at position 'x,y' is blank, that is it has no flags at
+     * all. Tiles outside of the map are not considered blank.
+     *
+     * @param x The x tile coordinate (in tiles, not pixels)
+     * @param y The y tile coordinate (in tiles, not pixels)
+     *
+     * @return true if the tile is blank
+     */
+    public boolean isEmpty(int x, int y)
+    {
+        if (!valid(x, y)) return false;
+        int i = y * mapWidth + x;
+        return (occupied[i >>> 6] & (1L << i)) == 0;
+    }
+
+    /**
+     * Checks whether the tile at position 'x,y' is solid.
+     *
+     * @param x The x tile coordinate (in tiles, not pixels)
+     * @param y The y tile coordinate (in tiles, not pixels)
+     *
+     * @return true if the tile is solid, false if it is not or is outside of the map
+     */
+    public boolean isSolid(int x, int y)
+    {
+        return hasFlag(x, y, TileType.SOLID);
+    }
+
+    /**
+     * Counts the tiles that have the given flag. The bitmap is counted a whole word at
+     * a time.
+     *
+     * @param flag One of the TileType flags
+     *
+     * @return The number of tiles with the flag
+     */
+    public int countFlag(int flag)
+    {
+        int count = 0;
+        for (long word : flagBits[TileType.bitOf(flag)])
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Checks whether any tile in row 'y' between columns 'x0' and 'x1' (inclusive)
+     * has its bit set in 'bits'. The row is tested a whole word at a time.
+     */
+    private boolean anyInRow(long[] bits, int y, int x0, int x1)
+    {
+        if (y < 0 || y >= mapHeight) return false;
+        x0 = Math.max(x0, 0);
+        x1 = Math.min(x1, mapWidth - 1);
+        if (x0 > x1) return false;
+
+        int from = y * mapWidth + x0;
+        int to = y * mapWidth + x1;
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+
+        for (int w = firstWord; w <= lastWord; w++)
+        {
+            long word = bits[w];
+            if (w == firstWord) word &= -1L << from;
+            if (w == lastWord) word &= -1L >>> (63 - (to & 63));
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a box overlaps any solid tile.
+     *
+     * @param x The left of the box in pixels
+     * @param y The top of the box in pixels
+     * @param w The width of the box in pixels
+     * @param h The height of the box in pixels
+     *
+     * @return true if any tile under the box is solid
+     */
+    public boolean overlapsSolid(float x, float y, float w, float h)
+    {
+        int c0 = (int) Math.floor(x / tileWidth);
+        int c1 = (int) Math.floor((x + w - 0.001f) / tileWidth);
+        int r0 = (int) Math.floor(y / tileHeight);
+        int r1 = (int) Math.floor((y + h - 0.001f) / tileHeight);
+
+        for (int r = r0; r <= r1; r++)
+            if (anyInRow(flagBits[TileType.bitOf(TileType.SOLID)], r, c0, c1)) return true;
+        return false;
+    }
+
+    /**
+     * Casts a ray from pixel position 'x0,y0' to 'x1,y1' and finds the first solid
+     * tile it passes through. This walks the grid one tile at a time (a DDA), so the
+     * cost depends on how many tiles the ray crosses rather than how long it is in
+     * pixels.
+     *
+     * @param x0  The x pixel coordinate to start from
+     * @param y0  The y pixel coordinate to start from
+     * @param x1  The x pixel coordinate to end at
+     * @param y1  The y pixel coordinate to end at
+     * @param hit Filled in with where the ray hit, may be null if only the answer
+     *            is needed
+     *
+     * @return true if the ray hit a solid tile before reaching the end
+     */
+    public boolean raycast(float x0, float y0, float x1, float y1, RayHit hit)
+    {
+        if (tileWidth <= 0 || tileHeight <= 0) return false;
+
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+
+        int tx = (int) Math.floor(x0 / tileWidth);
+        int ty = (int) Math.floor(y0 / tileHeight);
+        int endX = (int) Math.floor(x1 / tileWidth);
+        int endY = (int) Math.floor(y1 / tileHeight);
+
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+
+        // How far along the ray (0 to 1) it takes to cross one tile, and how far
+        // along the ray the next tile edge is
+        float tDeltaX = stepX != 0 ? tileWidth / Math.abs(dx) : Float.POSITIVE_INFINITY;
+        float tDeltaY = stepY != 0 ? tileHeight / Math.abs(dy) : Float.POSITIVE_INFINITY;
+        float tMaxX = stepX > 0 ? ((tx + 1) * tileWidth - x0) / dx
+                : (stepX < 0 ? (tx * tileWidth - x0) / dx : Float.POSITIVE_INFINITY);
+        float tMaxY = stepY > 0 ? ((ty + 1) * tileHeight - y0) / dy
+                : (stepY < 0 ? (ty * tileHeight - y0) / dy : Float.POSITIVE_INFINITY);
+
+        int steps = Math.abs(endX - tx) + Math.abs(endY - ty);
+        float t = 0;
+        int nx = 0, ny = 0;
+
+        for (int i = 0; ; i++)
+        {
+            if (isSolid(tx, ty))
+            {
+                if (hit != null) hit.set(tx, ty, x0 + dx * t, y0 + dy * t, t, nx, ny);
+                return true;
+            }
+
+            if (i >= steps) return false;
+
+            if (tMaxX < tMaxY)
+            {
+                t = tMaxX;
+                tMaxX += tDeltaX;
+                tx += stepX;
+                nx = -stepX;
+                ny = 0;
+            }
+            else
+            {
+                t = tMaxY;
+                tMaxY += tDeltaY;
+                ty += stepY;
+                nx = 0;
+                ny = -stepY;
+            }
+        }
+    }
+
+    /**
+     * Checks whether there is a clear line between pixel positions 'x0,y0' and
+     * 'x1,y1', that is no solid tile in between.
+     *
+     * @return true if the line is clear
+     */
+    public boolean lineOfSight(float x0, float y0, float x1, float y1)
+    {
+        return !raycast(x0, y0, x1, y1, null);
+    }
+
+    /**
+     * Checks line of sight from many positions to a single target in one call.
+     *
+     * @param xs      The x pixel coordinates to check from
+     * @param ys      The y pixel coordinates to check from
+     * @param count   How many positions to check
+     * @param targetX The x pixel coordinate of the target
+     * @param targetY The y pixel coordinate of the target
+     * @param visible Filled in with true for each position that can see the target
+     *
+     * @return The number of positions that can see the target
+     */
+    public int lineOfSight(float[] xs, float[] ys, int count, float targetX, float targetY, boolean[] visible)
+    {
+        int seen = 0;
+        for (int i = 0; i < count; i++)
+        {
+            visible[i] = !raycast(xs[i], ys[i], targetX, targetY, null);
+            if (visible[i]) seen++;
+        }
+        return seen;
+    }
+
+    /**
+     * Sweeps a box along a movement and finds the first point at which it would
+     * overlap a solid tile. Like raycast() this walks the grid one tile edge at a
+     * time, but with the leading edges of the box: each time the leading side
+     * crosses into a new column (or row) the tiles along that side are checked, so
+     * the box cannot pass through a tile without being caught and the hit is found
+     * exactly where the box first touches it.
+     *
+     * @param x   The left of the box in pixels
+     * @param y   The top of the box in pixels
+     * @param w   The width of the box in pixels
+     * @param h   The height of the box in pixels
+     * @param dx  The horizontal movement in pixels
+     * @param dy  The vertical movement in pixels
+     * @param hit Filled in with the solid tile that was hit, where the box is when
+     *            it touches it, how far along the movement that is (the fraction)
+     *            and the side of the tile it hits, may be null. If the box already
+     *            overlaps a solid tile the fraction is 0 and the normal is 0,0
+     *
+     * @return true if the box hits a solid tile during the movement
+     */
+    public boolean sweep(float x, float y, float w, float h, float dx, float dy, RayHit hit)
+    {
+        if (tileWidth <= 0 || tileHeight <= 0) return false;
+
+        // The columns and rows the box covers, the same way as overlapsSolid()
+        int c0 = (int) Math.floor(x / tileWidth);
+        int c1 = (int) Math.floor((x + w - 0.001f) / tileWidth);
+        int r0 = (int) Math.floor(y / tileHeight);
+        int r1 = (int) Math.floor((y + h - 0.001f) / tileHeight);
+
+        for (int r = r0; r <= r1; r++)
+            for (int c = c0; c <= c1; c++)
+                if (isSolid(c, r))
+                {
+                    if (hit != null) hit.set(c, r, x, y, 0, 0, 0);
+                    return true;
+                }
+
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+
+        // How far along the movement (0 to 1) it takes to cross one tile, and how
+        // far along it the leading side of the box reaches the next tile edge
+        float tDeltaX = stepX != 0 ? tileWidth / Math.abs(dx) : Float.POSITIVE_INFINITY;
+        float tDeltaY = stepY != 0 ? tileHeight / Math.abs(dy) : Float.POSITIVE_INFINITY;
+        float tMaxX = stepX > 0 ? ((c1 + 1) * tileWidth - (x + w)) / dx
+                : (stepX < 0 ? (c0 * tileWidth - x) / dx : Float.POSITIVE_INFINITY);
+        float tMaxY = stepY > 0 ? ((r1 + 1) * tileHeight - (y + h)) / dy
+                : (stepY < 0 ? (r0 * tileHeight - y) / dy : Float.POSITIVE_INFINITY);
+
+        // A box that only just touches a tile at the end of the movement has not
+        // run into it
+        while (Math.min(tMaxX, tMaxY) < 1)
+        {
+            if (tMaxX <= tMaxY)
+            {
+                float t = tMaxX;
+                tMaxX += tDeltaX;
+
+                int c;
+                if (stepX > 0)
+                {
+                    c = ++c1;
+                    c0 = (int) Math.floor((x + dx * t) / tileWidth);
+                }
+                else
+                {
+                    c = --c0;
+                    c1 = (int) Math.floor((x + dx * t + w - 0.001f) / tileWidth);
+                }
+
+                // The trailing row is wherever the box has got to, the leading row
+                // is only moved on when its edge is crossed
+                if (stepY > 0) r0 = (int) Math.floor((y + dy * t) / tileHeight);
+                else if (stepY < 0) r1 = (int) Math.floor((y + dy * t + h - 0.001f) / tileHeight);
+
+                for (int r = r0; r <= r1; r++)
+                    if (isSolid(c, r))
+                    {
+                        if (hit != null) hit.set(c, r, x + dx * t, y + dy * t, t, -stepX, 0);
+                        return true;
+                    }
+            }
+            else
+            {
+                float t = tMaxY;
+                tMaxY += tDeltaY;
+
+                int r;
+                if (stepY > 0)
+                {
+                    r = ++r1;
+                    r0 = (int) Math.floor((y + dy * t) / tileHeight);
+                }
+                else
+                {
+                    r = --r0;
+                    r1 = (int) Math.floor((y + dy * t + h - 0.001f) / tileHeight);
+                }
+
+                if (stepX > 0) c0 = (int) Math.floor((x + dx * t) / tileWidth);
+                else if (stepX < 0) c1 = (int) Math.floor((x + dx * t + w - 0.001f) / tileWidth);
+
+                for (int c = c0; c <= c1; c++)
+                    if (isSolid(c, r))
+                    {
+                        if (hit != null) hit.set(c, r, x + dx * t, y + dy * t, t, 0, -stepY);
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,163 @@
+package com.hyperconix.game2D;
+
+/**
+ * This class is responsible for describing what each tile character means to
+ * the game. Every character maps to a set of bit flags, so rather than
+ * comparing characters all over the collision code ('s' for spikes, 'c' and
+ * 'v' for collectables and so on) the game can ask whether a tile has a
+ * property.
+ * <br><br>
+ * The flags are loaded with the map. A map file can give a character its
+ * flags with a line such as:
+ * <p>
+ * +s=SOLID,DEADLY
+ * <p>
+ * The blank '.' character never has any flags, and any other character that
+ * is not listed is {@link #SOLID}, which matches how the maps behaved before
+ * the flags existed.
+ *
+ * @author Luke S
+ *
+ */
+public class TileType {
+
+	/**
+	 * This flag indicates that a tile blocks movement and sight.
+	 */
+	public static final int SOLID = 1;
+
+	/**
+	 * This flag indicates that touching a tile kills a sprite.
+	 */
+	public static final int DEADLY = 1 << 1;
+
+	/**
+	 * This flag indicates that a tile can be picked up by the player.
+	 */
+	public static final int COLLECTABLE = 1 << 2;
+
+	/**
+	 * This flag indicates that a tile causes something to happen when it is
+	 * touched.
+	 */
+	public static final int TRIGGER = 1 << 3;
+
+	/**
+	 * Responsible for storing the number of flags there are.
+	 */
+	public static final int FLAG_COUNT = 4;
+
+	/**
+	 * Responsible for storing the names of the flags, in bit order, as they are
+	 * written in a map file.
+	 */
+	private static final String[] FLAG_NAMES = { "SOLID", "DEADLY", "COLLECTABLE", "TRIGGER" };
+
+	/**
+	 * Responsible for storing the character that is always blank.
+	 */
+	public static final char BLANK = '.';
+
+	/**
+	 * Responsible for storing the flags of each character. Tile characters are
+	 * single ASCII characters, so a flat table is enough.
+	 */
+	private final int[] flags = new int[128];
+
+	/**
+	 * Creates a TileType with the default flags, blank for '.' and
+	 * {@link #SOLID} for everything else.
+	 */
+	public TileType() {
+		reset();
+	}
+
+	/**
+	 * This method is responsible for putting every character back to its default
+	 * flags.
+	 */
+	public void reset() {
+		for (int i = 0; i < flags.length; i++) {
+			flags[i] = SOLID;
+		}
+
+		flags[BLANK] = 0;
+	}
+
+	/**
+	 * This method is responsible for setting the flags of a character.
+	 *
+	 * @param ch       The tile character
+	 * @param newFlags The flags to give it
+	 */
+	public void setFlags(char ch, int newFlags) {
+		if (ch < flags.length && ch != BLANK) {
+			flags[ch] = newFlags;
+		}
+	}
+
+	/**
+	 * This method is responsible for returning the flags of a character.
+	 *
+	 * @param ch The tile character
+	 * @return The flags of the character
+	 */
+	public int getFlags(char ch) {
+		return ch < flags.length ? flags[ch] : SOLID;
+	}
+
+	/**
+	 * This method is responsible for turning a list of flag names such as
+	 * "SOLID,DEADLY" into flags. NONE can be used to give a character no flags.
+	 *
+	 * @param spec The flag names, separated by commas or '|'
+	 * @return The flags
+	 * @throws IllegalArgumentException If a name is not a known flag
+	 */
+	public static int parseFlags(String spec) {
+		int result = 0;
+
+		for (String name : spec.split("[,|]")) {
+			String trimmed = name.trim().toUpperCase();
+
+			if (trimmed.isEmpty() || trimmed.equals("NONE")) {
+				continue;
+			}
+
+			int bit = indexOf(trimmed);
+
+			if (bit < 0) {
+				throw new IllegalArgumentException("Unknown tile flag '" + trimmed + "'");
+			}
+
+			result |= 1 << bit;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return The bit position of the flag with the given name, or -1 if there is
+	 *         none
+	 */
+	private static int indexOf(String name) {
+		for (int i = 0; i < FLAG_NAMES.length; i++) {
+			if (FLAG_NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * This method is responsible for returning the bit position of a single flag,
+	 * used to index anything that is kept per flag.
+	 *
+	 * @param flag One of the flag constants
+	 * @return The bit position of the flag
+	 */
+	public static int bitOf(int flag) {
+		return Integer.numberOfTrailingZeros(flag);
+	}
+}
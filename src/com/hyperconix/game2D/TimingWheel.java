@@ -0,0 +1,309 @@
+package com.hyperconix.game2D;
+
+/**
+ * This class is responsible for running callbacks after a delay of game time,
+ * so the game can say "end the attack in half a second" once, rather than
+ * checking every tick whether it is time yet. It is a hashed timing wheel: a
+ * ring of slots, each covering a fixed stretch of time, with every pending
+ * {@link Timer} linked into the slot its deadline falls in. Scheduling and
+ * cancelling a timer only link it into or out of a slot, and moving time on
+ * only looks at the slots that time passes over, so thousands of pending
+ * timers cost next to nothing per tick. A timer further away than one turn of
+ * the wheel waits in its slot for however many turns it needs.
+ * <br><br>
+ * Time only moves on when {@link #advance(long)} is called, normally with the
+ * length of each tick, so the timers fire on the same ticks every time the
+ * same game is played. Each timer fires at the first slot boundary at or
+ * after its deadline, timers due at the same boundary fire in the order they
+ * were scheduled. Timers are made once and reused, so scheduling does not
+ * create any objects. This is not thread safe, it is meant to be used by the
+ * thread that runs the game.
+ *
+ * @author Luke S
+ *
+ */
+public class TimingWheel {
+
+	/**
+	 * This class is a callback that can be scheduled on a TimingWheel. A timer
+	 * can be scheduled again once it has fired or been cancelled, and scheduling
+	 * it while it is pending moves it to the new deadline.
+	 */
+	public static final class Timer {
+
+		/**
+		 * Responsible for storing the callback to run when the timer fires.
+		 */
+		private final Runnable task;
+
+		/**
+		 * Responsible for storing the wheel the timer is pending on, null if it is
+		 * not pending.
+		 */
+		private TimingWheel wheel;
+
+		/**
+		 * Responsible for storing the time the timer is due, in the wheel's time.
+		 */
+		private long deadline;
+
+		/**
+		 * Responsible for storing the timers either side of this one in its slot.
+		 */
+		private Timer previous, next;
+
+		/**
+		 * Creates a Timer that is not scheduled.
+		 *
+		 * @param task The callback to run when the timer fires
+		 */
+		public Timer(Runnable task) {
+			this.task = task;
+		}
+
+		/**
+		 * @return {@code true} if the timer is waiting to fire
+		 */
+		public boolean isScheduled() {
+			return wheel != null;
+		}
+
+		/**
+		 * @return The milliseconds left until the timer is due, or -1 if it is not
+		 *         scheduled
+		 */
+		public long getRemaining() {
+			return wheel == null ? -1 : Math.max(0, deadline - wheel.time);
+		}
+
+		/**
+		 * This method is responsible for stopping the timer from firing, if it is
+		 * scheduled.
+		 */
+		public void cancel() {
+			if (wheel != null) {
+				wheel.cancel(this);
+			}
+		}
+	}
+
+	/**
+	 * Responsible for storing the first timer of each slot. Each slot starts
+	 * with an empty timer that is never scheduled, so timers can be linked in and
+	 * out without checking for the ends of the list. The extra slot at the end
+	 * holds the timers that are firing.
+	 */
+	private final Timer[] slots;
+
+	/**
+	 * Responsible for storing the mask that turns a slot number into an index,
+	 * the number of slots is a power of two.
+	 */
+	private final int mask;
+
+	/**
+	 * Responsible for storing the milliseconds each slot covers.
+	 */
+	private final long resolution;
+
+	/**
+	 * Responsible for storing the time the wheel has been advanced to, and the
+	 * number of the last slot that has been fired.
+	 */
+	private long time, currentSlot;
+
+	/**
+	 * Responsible for storing the number of timers that are pending.
+	 */
+	private int size;
+
+	/**
+	 * Creates an empty TimingWheel.
+	 *
+	 * @param slotCount  The number of slots, rounded up to a power of two
+	 * @param resolution The milliseconds each slot covers, timers fire on
+	 *                   multiples of this
+	 */
+	public TimingWheel(int slotCount, long resolution) {
+		if (slotCount <= 0 || resolution <= 0) {
+			throw new IllegalArgumentException("The slot count and resolution must be at least 1");
+		}
+
+		int count = Integer.highestOneBit(slotCount);
+
+		if (count < slotCount) {
+			count <<= 1;
+		}
+
+		slots = new Timer[count + 1];
+
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = new Timer(null);
+
+			slots[i].previous = slots[i];
+
+			slots[i].next = slots[i];
+		}
+
+		mask = count - 1;
+
+		this.resolution = resolution;
+	}
+
+	/**
+	 * This method is responsible for scheduling a timer to fire after a delay. A
+	 * timer that is already pending is moved to the new deadline.
+	 *
+	 * @param timer The timer to schedule
+	 * @param delay The milliseconds from now that the timer is due
+	 */
+	public void schedule(Timer timer, long delay) {
+		if (timer.wheel != null) {
+			timer.wheel.cancel(timer);
+		}
+
+		timer.deadline = time + Math.max(0, delay);
+
+		// The slot the deadline falls at the end of, which must be one still to come
+		long slot = Math.max((timer.deadline + resolution - 1) / resolution, currentSlot + 1);
+
+		link(timer, slots[(int) slot & mask]);
+
+		timer.wheel = this;
+
+		size++;
+	}
+
+	/**
+	 * This method is responsible for stopping a timer from firing, if it is
+	 * pending on this wheel.
+	 *
+	 * @param timer The timer to cancel
+	 */
+	public void cancel(Timer timer) {
+		if (timer.wheel != this) {
+			return;
+		}
+
+		unlink(timer);
+
+		timer.wheel = null;
+
+		size--;
+	}
+
+	/**
+	 * This method is responsible for moving time on, firing every timer that
+	 * falls due. A timer can schedule or cancel any timer, itself included, when
+	 * it fires.
+	 *
+	 * @param elapsed The milliseconds that have passed
+	 */
+	public void advance(long elapsed) {
+		time += Math.max(0, elapsed);
+
+		long targetSlot = time / resolution;
+
+		// After one whole turn every slot has been looked at, so there is no need to
+		// go round again however far time has moved
+		long first = Math.max(currentSlot + 1, targetSlot - mask);
+
+		currentSlot = targetSlot;
+
+		if (size == 0) {
+			return;
+		}
+
+		Timer firing = slots[slots.length - 1];
+
+		for (long slot = first; slot <= targetSlot; slot++) {
+			Timer head = slots[(int) slot & mask];
+
+			Timer timer = head.next;
+
+			// Move the timers that are due into the firing list first, so nothing the
+			// callbacks do can change the slot while it is being walked
+			while (timer != head) {
+				Timer next = timer.next;
+
+				if (timer.deadline <= time) {
+					unlink(timer);
+
+					link(timer, firing);
+				}
+
+				timer = next;
+			}
+
+			while (firing.next != firing) {
+				timer = firing.next;
+
+				unlink(timer);
+
+				timer.wheel = null;
+
+				size--;
+
+				timer.task.run();
+			}
+		}
+	}
+
+	/**
+	 * This method is responsible for cancelling every pending timer.
+	 */
+	public void clear() {
+		for (Timer head : slots) {
+			while (head.next != head) {
+				Timer timer = head.next;
+
+				unlink(timer);
+
+				timer.wheel = null;
+			}
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * @return The time the wheel has been advanced to, in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return The number of timers that are pending
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method is responsible for adding a timer to the end of a list.
+	 */
+	private static void link(Timer timer, Timer head) {
+		timer.previous = head.previous;
+
+		timer.next = head;
+
+		head.previous.next = timer;
+
+		head.previous = timer;
+	}
+
+	/**
+	 * This method is responsible for taking a timer out of whatever list it is
+	 * in.
+	 */
+	private static void unlink(Timer timer) {
+		timer.previous.next = timer.next;
+
+		timer.next.previous = timer.previous;
+
+		timer.previous = null;
+
+		timer.next = null;
+	}
+}
@@ -0,0 +1,144 @@
+package com.hyperconix.game2D;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is responsible for handing objects over from a single producer
+ * thread to a single consumer thread without any locking. It holds three
+ * slots: one that the producer is currently writing, one that the consumer is
+ * currently reading and a shared "middle" slot which holds the most recently
+ * published object.
+ * <br><br>
+ * Publishing and acquiring are both a single atomic swap on the middle slot,
+ * so neither thread ever waits on the other. The consumer will always see the
+ * latest complete object, older ones are simply overwritten.
+ *
+ * @author Luke S
+ *
+ * @param <T> The type of object being handed over
+ */
+public class TripleBuffer<T> {
+
+	/**
+	 * Responsible for storing the bit which marks the middle slot as holding an
+	 * object the consumer has not seen yet.
+	 */
+	private static final int FRESH = 0x4;
+
+	/**
+	 * Responsible for storing the mask used to get the slot index back out of the
+	 * shared value.
+	 */
+	private static final int INDEX_MASK = 0x3;
+
+	/**
+	 * Responsible for storing the three slots.
+	 */
+	private final Object[] slots;
+
+	/**
+	 * Responsible for storing the index of the middle slot along with the
+	 * {@link #FRESH} bit.
+	 */
+	private final AtomicInteger shared;
+
+	/**
+	 * Responsible for storing the slot the producer owns. Only touched by the
+	 * producer.
+	 */
+	private int writeIndex;
+
+	/**
+	 * Responsible for storing the slot the consumer owns. Only touched by the
+	 * consumer.
+	 */
+	private int readIndex;
+
+	/**
+	 * Responsible for storing a flag which indicates whether anything has been
+	 * published yet.
+	 */
+	private volatile boolean published;
+
+	/**
+	 * Creates the state of a TripleBuffer. Three distinct objects must be
+	 * provided, these are reused for the lifetime of the buffer.
+	 *
+	 * @param first  The first slot
+	 * @param second The second slot
+	 * @param third  The third slot
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		slots = new Object[] { first, second, third };
+
+		writeIndex = 0;
+
+		shared = new AtomicInteger(1);
+
+		readIndex = 2;
+	}
+
+	/**
+	 * This method is responsible for returning the slot the producer should write
+	 * into next. It is only safe to call this from the producer thread.
+	 *
+	 * @return The slot to write into
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) slots[writeIndex];
+	}
+
+	/**
+	 * This method is responsible for publishing the slot the producer has just
+	 * finished writing, and handing the producer a new slot to write into. It is
+	 * only safe to call this from the producer thread.
+	 */
+	public void publish() {
+		int previous = shared.getAndSet(writeIndex | FRESH);
+
+		writeIndex = previous & INDEX_MASK;
+
+		published = true;
+	}
+
+	/**
+	 * This method is responsible for returning whether or not there is a
+	 * published object the consumer has not acquired yet.
+	 *
+	 * @return {@code true} if there is something new to read, {@code false}
+	 *         otherwise
+	 */
+	public boolean hasUpdate() {
+		return (shared.get() & FRESH) != 0;
+	}
+
+	/**
+	 * This method is responsible for returning whether or not the producer has
+	 * published at least once.
+	 *
+	 * @return {@code true} if something has been published, {@code false}
+	 *         otherwise
+	 */
+	public boolean hasPublished() {
+		return published;
+	}
+
+	/**
+	 * This method is responsible for returning the latest published object. If
+	 * nothing new has been published since the last call, the same object is
+	 * returned again. It is only safe to call this from the consumer thread.
+	 *
+	 * @return The latest complete object
+	 */
+	@SuppressWarnings("unchecked")
+	public T getLatest() {
+		if (hasUpdate()) {
+			int previous = shared.getAndSet(readIndex);
+
+			readIndex = previous & INDEX_MASK;
+		}
+
+		return (T) slots[readIndex];
+	}
+}
@@ -25,7 +25,7 @@ public class WalkingEnemy extends Sprite implements Enemy {
 	 * algorithm where the enemy will check the tiles in front
 	 * of it to see whether or not it has to turn around.
 	 */
-	public void move(char airTileChar, TileMap tmap, float speed) {
+	public void move(TileMap tmap, float speed) {
         int bottomLeftX = (int) (getX() / tmap.getTileWidth());
         
         int bottomLeftY = (int) ((getY() + getHeight()) / tmap.getTileHeight());
@@ -36,22 +36,51 @@ public class WalkingEnemy extends Sprite implements Enemy {
         
         boolean facingRight = getScaleX() > 0;
         
-        char comparingTileChar;
+        boolean edgeAhead;
         
         if(facingRight) {
         	setVelocityX(speed);
         	
-        	comparingTileChar = tmap.getTileChar(bottomRightX + 1, bottomRightY);
+        	edgeAhead = tmap.isEmpty(bottomRightX + 1, bottomRightY);
         } else {
-        	comparingTileChar = tmap.getTileChar(bottomLeftX - 1, bottomLeftY);
+        	edgeAhead = tmap.isEmpty(bottomLeftX - 1, bottomLeftY);
         	
         	setVelocityX(-speed);
         }
         
-        if(comparingTileChar == airTileChar) {
+        if(edgeAhead) {
         	setScale((float) -getScaleX(), (float) getScaleY());
         }
 
 	}
+	
+	/**
+	 * This method will chase the target of the given flow field.
+	 * A walking enemy can only walk, so it follows the field while
+	 * the next step is a walk along the platform, and otherwise goes
+	 * back to walking back and forwards as normal.
+	 */
+	public void chase(FlowField field, TileMap tmap, float speed) {
+		float feetX = getX() + getWidth() / 2.0f;
+		
+		float feetY = getY() + getHeight() - 1;
+		
+		int direction = field.getDirectionX(feetX, feetY);
+		
+		if (direction == 0 || field.getStepType(feetX, feetY) != NavGraph.WALK) {
+			move(tmap, speed);
+			
+			return;
+		}
+		
+		boolean facingRight = getScaleX() > 0;
+		
+		// Turn to face the way the field points
+		if ((direction > 0) != facingRight) {
+			setScale((float) -getScaleX(), (float) getScaleY());
+		}
+		
+		setVelocityX(direction * speed);
+	}
 
 }